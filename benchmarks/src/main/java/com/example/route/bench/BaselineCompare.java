@@ -0,0 +1,120 @@
+package com.example.route.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares two JMH JSON result files (-rf json) benchmark by benchmark: average time and, when the
+ * runs used -prof gc, bytes allocated per operation. A result is flagged when it got slower or
+ * allocates more by more than the threshold and by more than both runs' error margins. Exits with 1
+ * when anything was flagged, so a review build can fail on it.
+ *
+ * Usage: {@code BaselineCompare baseline/jmh-baseline.json current.json [--threshold=10]}
+ */
+public class BaselineCompare {
+
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BaselineCompare <baseline.json> <current.json> [--threshold=<percent>]");
+            System.exit(2);
+        }
+        double threshold = 10;
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].startsWith("--threshold=")) {
+                threshold = Double.parseDouble(args[i].substring("--threshold=".length()));
+            }
+        }
+
+        Map<String, Result> baseline = read(new File(args[0]));
+        Map<String, Result> current = read(new File(args[1]));
+        System.out.printf("%-58s %12s %12s %8s %12s %12s %8s%n",
+                "benchmark", "base", "now", "time", "base B/op", "now B/op", "alloc");
+
+        List<String> flagged = new ArrayList<>();
+        for (Map.Entry<String, Result> entry : current.entrySet()) {
+            Result now = entry.getValue();
+            Result base = baseline.get(entry.getKey());
+            if (base == null) {
+                System.out.printf("%-58s %12s %12.2f %8s%n", entry.getKey(), "-", now.score, "new");
+                continue;
+            }
+            double timeChange = change(base.score, now.score);
+            double allocChange = change(base.allocated, now.allocated);
+            boolean slower = timeChange > threshold && now.score - base.score > now.error + base.error;
+            boolean allocates = allocChange > threshold
+                    && now.allocated - base.allocated > now.allocatedError + base.allocatedError;
+            System.out.printf("%-58s %12.2f %12.2f %+7.1f%% %12.0f %12.0f %+7.1f%%%s%n", entry.getKey(),
+                    base.score, now.score, timeChange, base.allocated, now.allocated, allocChange,
+                    slower || allocates ? "  <- regression" : "");
+            if (slower || allocates) {
+                flagged.add(entry.getKey());
+            }
+        }
+        System.out.printf("%nscores in %s%n", current.isEmpty() ? "-" : current.values().iterator().next().unit);
+
+        if (!flagged.isEmpty()) {
+            System.out.println(flagged.size() + " regression(s) over " + threshold + "%: " + flagged);
+            System.exit(1);
+        }
+    }
+
+    // Keyed by benchmark method and parameters, in file order
+    private static Map<String, Result> read(File file) throws IOException {
+        Map<String, Result> results = new LinkedHashMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(file)) {
+            String name = run.path("benchmark").asText();
+            name = name.substring(name.lastIndexOf('.', name.lastIndexOf('.') - 1) + 1);
+            Iterator<Map.Entry<String, JsonNode>> fields = run.path("params").fields();
+            StringBuilder key = new StringBuilder(name);
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> param = fields.next();
+                key.append(key.length() == name.length() ? " " : ",").append(param.getKey()).append('=')
+                        .append(param.getValue().asText());
+            }
+
+            JsonNode primary = run.path("primaryMetric");
+            JsonNode allocation = run.path("secondaryMetrics").path(ALLOCATION);
+            results.put(key.toString(), new Result(primary.path("score").asDouble(), error(primary),
+                    primary.path("scoreUnit").asText(), allocation.path("score").asDouble(Double.NaN),
+                    error(allocation)));
+        }
+        return results;
+    }
+
+    // JMH writes "NaN" as the error of single-iteration runs
+    private static double error(JsonNode metric) {
+        double error = metric.path("scoreError").asDouble(0);
+        return Double.isNaN(error) ? 0 : error;
+    }
+
+    private static double change(double base, double now) {
+        return base > 0 ? (now - base) / base * 100 : 0;
+    }
+
+    private static final class Result {
+
+        private final double score;
+        private final double error;
+        private final String unit;
+        private final double allocated;
+        private final double allocatedError;
+
+        Result(double score, double error, String unit, double allocated, double allocatedError) {
+            this.score = score;
+            this.error = error;
+            this.unit = unit;
+            this.allocated = allocated;
+            this.allocatedError = allocatedError;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.route.bench;
+
+import com.example.route.dto.RouteRequest;
+import com.example.route.dto.RouteResponse;
+import com.example.route.service.DirectionsResponseParser;
+import com.example.route.service.RouteFormats;
+import com.example.route.service.directions.DirectionsUrlBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The per-request work around a Directions call, for routes of 5 to 500 waypoints: building the
+ * request URLs (Google-ordered, and split into fixed-order segments as GoogleDirectionsProvider does),
+ * parsing the responses of those segments, and formatting the leg texts. Payloads come from
+ * {@link DirectionsPayloads}, one per segment, as Google would return them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+// Launched like the app, with the Vector API module
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class DirectionsBenchmark {
+
+    @Param({"5", "25", "100", "500"})
+    private int waypoints;
+
+    private DirectionsUrlBuilder urls;
+    private RouteRequest request;
+    private List<String> stops;
+    private DirectionsResponseParser parser;
+    private List<byte[]> payloads;
+    private List<List<String>> payloadWaypoints;
+    private long[] legMeters;
+    private long[] legSeconds;
+
+    @Setup
+    public void setUp() {
+        urls = new DirectionsUrlBuilder("https://maps.googleapis.com/maps/api", "AIzaSyBenchmarkKey0123456789abcdefghij",
+                25, 8192);
+        stops = DirectionsPayloads.stops(waypoints + 2, 42);
+        request = new RouteRequest(stops.get(0), stops.subList(1, waypoints + 1), stops.get(waypoints + 1), false);
+
+        parser = new DirectionsResponseParser();
+        payloads = new ArrayList<>();
+        payloadWaypoints = new ArrayList<>();
+        for (DirectionsUrlBuilder.Segment segment : urls.segments(stops)) {
+            List<String> segmentStops = stops.subList(segment.getStart(), segment.getEnd() + 1);
+            payloads.add(DirectionsPayloads.response(segmentStops, segment.getStart()));
+            payloadWaypoints.add(segmentStops.subList(1, segmentStops.size() - 1));
+        }
+
+        SplittableRandom random = new SplittableRandom(7);
+        legMeters = new long[waypoints + 1];
+        legSeconds = new long[waypoints + 1];
+        for (int i = 0; i < legMeters.length; i++) {
+            legMeters[i] = 50 + random.nextInt(40000);
+            legSeconds[i] = 30 + random.nextInt(7200);
+        }
+    }
+
+    // Built for every Google-ordered request, also for ones rejected afterwards as too long
+    @Benchmark
+    public String optimizedUrl() {
+        return urls.optimizedUrl(request);
+    }
+
+    @Benchmark
+    public List<DirectionsUrlBuilder.Segment> segmentUrls() {
+        return urls.segments(stops);
+    }
+
+    @Benchmark
+    public void parseSegments(Blackhole blackhole) {
+        for (int i = 0; i < payloads.size(); i++) {
+            RouteResponse response = parser.parse(payloads.get(i), payloadWaypoints.get(i));
+            blackhole.consume(response);
+        }
+    }
+
+    // Leg and total texts, as the parser and the estimated and stitched routes produce them
+    @Benchmark
+    public void formatLegs(Blackhole blackhole) {
+        for (int i = 0; i < legMeters.length; i++) {
+            blackhole.consume(RouteFormats.formatDistance(legMeters[i]));
+            blackhole.consume(RouteFormats.formatDuration(legSeconds[i]));
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.route.bench;
+
+import com.example.route.service.PolylineCodec;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * Stops and Directions API responses shaped like recorded ones: every leg carries 6 to 14 steps with
+ * HTML instructions and step polylines, the route has bounds, copyrights and warnings, and a
+ * geocoded_waypoints entry precedes it for every stop. The parser skips most of this, so the bytes it
+ * has to walk past matter as much as the fields it keeps. Seeded, so every run sees the same payloads.
+ */
+final class DirectionsPayloads {
+
+    private static final String[] STREETS = {
+            "Friedrichstraße", "Torstraße", "Karl-Marx-Allee", "Schönhauser Allee", "Müllerstraße",
+            "Kurfürstendamm", "Sonnenallee", "Greifswalder Straße", "Hermannstraße", "Invalidenstraße"
+    };
+
+    private static final String[] MANEUVERS = {"turn-left", "turn-right", "straight", "roundabout-right", "merge"};
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private DirectionsPayloads() {
+    }
+
+    // Stops around Berlin; every other one is a street address, the rest "lat,lng" as saved locations go upstream
+    static List<String> stops(int count, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<String> stops = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            double lat = 52.40 + random.nextDouble() * 0.25;
+            double lng = 13.20 + random.nextDouble() * 0.40;
+            if (i % 2 == 0) {
+                stops.add(STREETS[random.nextInt(STREETS.length)] + " " + (1 + random.nextInt(200)) + ", "
+                        + (10115 + random.nextInt(2000)) + " Berlin, Germany");
+            } else {
+                stops.add(String.format(Locale.ROOT, "%.5f,%.5f", lat, lng));
+            }
+        }
+        return stops;
+    }
+
+    // The response to a Directions call visiting these stops in order
+    static byte[] response(List<String> stops, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        ObjectNode root = MAPPER.createObjectNode();
+
+        ArrayNode geocoded = root.putArray("geocoded_waypoints");
+        for (int i = 0; i < stops.size(); i++) {
+            ObjectNode waypoint = geocoded.addObject();
+            waypoint.put("geocoder_status", "OK");
+            waypoint.put("place_id", "ChIJ" + Long.toHexString(random.nextLong()) + Long.toHexString(random.nextLong()));
+            waypoint.putArray("types").add("street_address");
+        }
+
+        ObjectNode route = root.putArray("routes").addObject();
+        ObjectNode bounds = route.putObject("bounds");
+        latLng(bounds.putObject("northeast"), 52.65, 13.60);
+        latLng(bounds.putObject("southwest"), 52.40, 13.20);
+        route.put("copyrights", "Map data ©2024 GeoBasis-DE/BKG (©2009)");
+
+        double[] lat = new double[stops.size()];
+        double[] lng = new double[stops.size()];
+        for (int i = 0; i < stops.size(); i++) {
+            lat[i] = 52.40 + random.nextDouble() * 0.25;
+            lng[i] = 13.20 + random.nextDouble() * 0.40;
+        }
+
+        ArrayNode legs = route.putArray("legs");
+        List<Integer> overview = new ArrayList<>();
+        for (int i = 0; i + 1 < stops.size(); i++) {
+            ObjectNode leg = legs.addObject();
+            int meters = 500 + random.nextInt(15000);
+            int seconds = meters / 8 + random.nextInt(300);
+            String distance = meters >= 1000 ? String.format(Locale.ROOT, "%.1f km", meters / 1000.0) : meters + " m";
+            textValue(leg.putObject("distance"), distance, meters);
+            textValue(leg.putObject("duration"), (seconds / 60) + " mins", seconds);
+            leg.put("end_address", stops.get(i + 1));
+            latLng(leg.putObject("end_location"), lat[i + 1], lng[i + 1]);
+            leg.put("start_address", stops.get(i));
+            latLng(leg.putObject("start_location"), lat[i], lng[i]);
+
+            ArrayNode steps = leg.putArray("steps");
+            int stepCount = 6 + random.nextInt(9);
+            for (int s = 0; s < stepCount; s++) {
+                double t0 = (double) s / stepCount;
+                double t1 = (double) (s + 1) / stepCount;
+                ObjectNode step = steps.addObject();
+                textValue(step.putObject("distance"), (meters / stepCount) + " m", meters / stepCount);
+                textValue(step.putObject("duration"), "1 min", seconds / stepCount);
+                latLng(step.putObject("end_location"), lerp(lat[i], lat[i + 1], t1), lerp(lng[i], lng[i + 1], t1));
+                step.put("html_instructions", "Turn <b>" + (random.nextBoolean() ? "left" : "right") + "</b> onto <b>"
+                        + STREETS[random.nextInt(STREETS.length)] + "</b><div style=\"font-size:0.9em\">Pass by the park</div>");
+                step.put("maneuver", MANEUVERS[random.nextInt(MANEUVERS.length)]);
+                step.putObject("polyline").put("points", polyline(random, lat[i], lng[i], lat[i + 1], lng[i + 1],
+                        t0, t1, 8 + random.nextInt(24), s == 0 ? overview : null));
+                latLng(step.putObject("start_location"), lerp(lat[i], lat[i + 1], t0), lerp(lng[i], lng[i + 1], t0));
+                step.put("travel_mode", "DRIVING");
+            }
+            leg.putArray("traffic_speed_entry");
+            leg.putArray("via_waypoint");
+        }
+
+        int[] coords = new int[overview.size()];
+        for (int i = 0; i < coords.length; i++) {
+            coords[i] = overview.get(i);
+        }
+        route.putObject("overview_polyline").put("points", PolylineCodec.encode(coords, coords.length));
+        route.put("summary", STREETS[0] + " and " + STREETS[1]);
+        route.putArray("warnings");
+        ArrayNode order = route.putArray("waypoint_order");
+        for (int i = 0; i < stops.size() - 2; i++) {
+            order.add(i);
+        }
+        root.put("status", "OK");
+        try {
+            return MAPPER.writeValueAsBytes(root);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // A wiggly line along part of a leg; the first step of each leg also feeds the overview polyline
+    private static String polyline(SplittableRandom random, double lat0, double lng0, double lat1, double lng1,
+                                   double t0, double t1, int points, List<Integer> overview) {
+        int[] coords = new int[points * 2];
+        for (int p = 0; p < points; p++) {
+            double t = t0 + (t1 - t0) * p / Math.max(1, points - 1);
+            coords[2 * p] = (int) Math.round((lerp(lat0, lat1, t) + (random.nextDouble() - 0.5) * 1e-4) * 1e5);
+            coords[2 * p + 1] = (int) Math.round((lerp(lng0, lng1, t) + (random.nextDouble() - 0.5) * 1e-4) * 1e5);
+        }
+        if (overview != null) {
+            overview.add(coords[0]);
+            overview.add(coords[1]);
+        }
+        return PolylineCodec.encode(coords, coords.length);
+    }
+
+    private static void latLng(ObjectNode node, double lat, double lng) {
+        node.put("lat", lat);
+        node.put("lng", lng);
+    }
+
+    private static void textValue(ObjectNode node, String text, long value) {
+        node.put("text", text);
+        node.put("value", value);
+    }
+
+    private static double lerp(double a, double b, double t) {
+        return a + (b - a) * t;
+    }
+}
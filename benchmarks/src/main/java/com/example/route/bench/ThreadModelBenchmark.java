@@ -0,0 +1,259 @@
+package com.example.route.bench;
+
+import com.example.route.RouteApplication;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends a burst of distinct route requests to {@code POST /api/route} of the real application and
+ * compares the servlet thread models it can run on. Each mode boots the app without a database,
+ * pointed at a local Directions stub with a fixed latency, so every request takes the full path:
+ * controller, RouteService, GoogleDirectionsProvider and the pooled async HttpClient.
+ *
+ * <ul>
+ *   <li>{@code platform}: Tomcat's pooled platform threads ({@code --platform-threads}, 200 by default)</li>
+ *   <li>{@code virtual}: {@code spring.threads.virtual.enabled=true}</li>
+ * </ul>
+ *
+ * Google orders the waypoints (route.optimizer.enabled=false), so each route is one upstream call, and the
+ * upstream guard is off so its rate limit doesn't set the pace. Any {@code --name=value} option whose name
+ * contains a dot is passed to the app and overrides these, e.g. {@code --route.upstream.guard.enabled=true}.
+ *
+ * Usage: {@code --requests=2000 --latency-ms=200 --platform-threads=200 --modes=platform,virtual}
+ */
+public class ThreadModelBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseArgs(args);
+        int requests = Integer.parseInt(options.getOrDefault("requests", "2000"));
+        int latencyMs = Integer.parseInt(options.getOrDefault("latency-ms", "200"));
+        int platformThreads = Integer.parseInt(options.getOrDefault("platform-threads", "200"));
+        String[] modes = options.getOrDefault("modes", "platform,virtual").split(",");
+
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger peakInFlight = new AtomicInteger();
+        HttpServer stub = startStub(latencyMs, inFlight, peakInFlight);
+        String baseUrl = "http://127.0.0.1:" + stub.getAddress().getPort() + "/maps/api";
+
+        System.out.printf("requests=%d upstream latency=%d ms platform threads=%d cpus=%d%n",
+                requests, latencyMs, platformThreads, Runtime.getRuntime().availableProcessors());
+        System.out.printf("%-10s %12s %10s %10s %10s %14s %8s%n",
+                "mode", "throughput/s", "p50 ms", "p99 ms", "max ms", "peak upstream", "errors");
+
+        try {
+            for (String mode : modes) {
+                Map<String, String> properties = appProperties(mode.trim(), baseUrl, platformThreads);
+                options.forEach((name, value) -> {
+                    if (name.contains(".")) {
+                        properties.put(name, value);
+                    }
+                });
+                // As command-line arguments, which win over the app's application.properties
+                String[] appArgs = properties.entrySet().stream()
+                        .map(property -> "--" + property.getKey() + "=" + property.getValue())
+                        .toArray(String[]::new);
+                ConfigurableApplicationContext app = new SpringApplicationBuilder(RouteApplication.class)
+                        .web(WebApplicationType.SERVLET)
+                        .logStartupInfo(false)
+                        .run(appArgs);
+                try {
+                    int port = ((ServletWebServerApplicationContext) app).getWebServer().getPort();
+                    URI uri = URI.create("http://127.0.0.1:" + port + "/api/route");
+                    // Warm up connections and JIT, then measure
+                    run(uri, "warmup", Math.min(requests, 200));
+                    peakInFlight.set(0);
+                    Result result = run(uri, mode.trim(), requests);
+                    System.out.printf("%-10s %12.0f %10d %10d %10d %14d %8d%n", mode.trim(), result.throughput(),
+                            result.percentile(50), result.percentile(99), result.percentile(100), peakInFlight.get(),
+                            result.errors());
+                } finally {
+                    app.close();
+                }
+            }
+        } finally {
+            stub.stop(0);
+        }
+    }
+
+    private static Map<String, String> appProperties(String mode, String baseUrl, int platformThreads) {
+        if (!mode.equals("platform") && !mode.equals("virtual")) {
+            throw new IllegalArgumentException("Unknown mode: " + mode);
+        }
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("server.port", "0");
+        properties.put("spring.main.banner-mode", "off");
+        properties.put("logging.level.root", "WARN");
+        properties.put("logging.level.com.example.route", "WARN");
+        properties.put("logging.level.org.springframework.web", "WARN");
+        properties.put("logging.level.org.hibernate.SQL", "WARN");
+        properties.put("spring.threads.virtual.enabled", String.valueOf(mode.equals("virtual")));
+        properties.put("server.tomcat.threads.max", String.valueOf(platformThreads));
+        properties.put("google.maps.api.base-url", baseUrl);
+        properties.put("google.maps.api.key", "benchmark");
+        properties.put("route.optimizer.enabled", "false");
+        properties.put("route.upstream.guard.enabled", "false");
+        // No database: the resolver, stored-route reuse and persistence step aside without one
+        properties.put("spring.autoconfigure.exclude",
+                "org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration,"
+                        + "org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration,"
+                        + "org.springframework.boot.autoconfigure.data.jpa.JpaRepositoriesAutoConfiguration");
+        properties.put("spring.main.lazy-initialization", "true");
+        return properties;
+    }
+
+    // Every request has its own stops, so neither the route cache nor in-flight sharing answers it
+    private static Result run(URI uri, String prefix, int requests) throws InterruptedException {
+        long[] latencies = new long[requests];
+        AtomicInteger errors = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(requests);
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            int index = i;
+            String body = String.format(Locale.ROOT, "{\"origin\":\"%1$s %2$d depot\",\"waypoints\":[\"%1$s %2$d a\","
+                    + "\"%1$s %2$d b\",\"%1$s %2$d c\"],\"destination\":\"%1$s %2$d end\"}", prefix, i);
+            HttpRequest request = HttpRequest.newBuilder(uri)
+                    .timeout(Duration.ofSeconds(60))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+            long submitted = System.nanoTime();
+            client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray()).whenComplete((response, e) -> {
+                latencies[index] = System.nanoTime() - submitted;
+                if (e != null || response.statusCode() != 200) {
+                    errors.incrementAndGet();
+                }
+                done.countDown();
+            });
+        }
+        done.await();
+        long elapsed = System.nanoTime() - start;
+        return new Result(requests * 1e9 / elapsed, latencies, errors.get());
+    }
+
+    // Answers optimize:true Directions calls in input order, with a leg between each pair of stops
+    private static HttpServer startStub(int latencyMs, AtomicInteger inFlight, AtomicInteger peakInFlight)
+            throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 4096);
+        server.createContext("/maps/api/directions/json", exchange -> {
+            peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(latencyMs);
+                byte[] body = directions(query(exchange)).getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                inFlight.decrementAndGet();
+                exchange.close();
+            }
+        });
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+        return server;
+    }
+
+    private static Map<String, String> query(HttpExchange exchange) {
+        Map<String, String> query = new HashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        for (String pair : raw == null ? new String[0] : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                query.put(pair.substring(0, eq), URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return query;
+    }
+
+    private static String directions(Map<String, String> query) {
+        List<String> stops = new ArrayList<>();
+        stops.add(query.get("origin"));
+        List<String> waypoints = new ArrayList<>();
+        for (String waypoint : query.getOrDefault("waypoints", "").split("\\|")) {
+            if (!waypoint.isEmpty() && !waypoint.equals("optimize:true")) {
+                waypoints.add(waypoint);
+            }
+        }
+        stops.addAll(waypoints);
+        stops.add(query.get("destination"));
+
+        StringBuilder legs = new StringBuilder();
+        for (int i = 0; i + 1 < stops.size(); i++) {
+            double[] from = point(stops.get(i));
+            double[] to = point(stops.get(i + 1));
+            legs.append(i > 0 ? "," : "").append(String.format(Locale.ROOT, "{\"start_address\":\"%s\","
+                            + "\"end_address\":\"%s\",\"start_location\":{\"lat\":%.5f,\"lng\":%.5f},"
+                            + "\"end_location\":{\"lat\":%.5f,\"lng\":%.5f},\"distance\":{\"text\":\"1.0 km\","
+                            + "\"value\":1000},\"duration\":{\"text\":\"2 min\",\"value\":120}}",
+                    json(stops.get(i)), json(stops.get(i + 1)), from[0], from[1], to[0], to[1]));
+        }
+        StringBuilder order = new StringBuilder();
+        for (int i = 0; i < waypoints.size(); i++) {
+            order.append(i > 0 ? "," : "").append(i);
+        }
+        return "{\"status\":\"OK\",\"routes\":[{\"waypoint_order\":[" + order + "],\"legs\":[" + legs + "]}]}";
+    }
+
+    // A made-up but stable position for each stop, within a few km of each other
+    private static double[] point(String stop) {
+        int hash = stop.hashCode();
+        return new double[] {52.5 + (hash & 0xff) / 5000.0, 13.4 + ((hash >>> 8) & 0xff) / 5000.0};
+    }
+
+    private static String json(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    private static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        return options;
+    }
+
+    private record Result(double throughput, long[] latencies, int errors) {
+
+        long percentile(int p) {
+            long[] sorted = latencies.clone();
+            Arrays.sort(sorted);
+            int index = Math.min(sorted.length - 1, (int) Math.ceil(p / 100.0 * sorted.length) - 1);
+            return sorted[Math.max(0, index)] / 1_000_000;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.route.bench;
+
+import com.example.route.service.matrix.TravelEstimator;
+import com.example.route.service.matrix.TravelMatrix;
+import com.example.route.service.optimizer.TourOptimizer;
+import com.example.route.service.spatial.GreatCircleMatrix;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local waypoint ordering for 5 to 500 stops: the straight-line estimate matrix, and a round trip
+ * solved on it with the default settings (Held-Karp up to 12 free stops, 2-opt and Or-opt above).
+ * The fork adds the Vector API module, as the app is launched, so the matrix runs the vector kernel.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class TourOptimizerBenchmark {
+
+    @Param({"5", "25", "100", "500"})
+    private int waypoints;
+
+    private TravelEstimator estimator;
+    private TourOptimizer optimizer;
+    private double[] latitudes;
+    private double[] longitudes;
+    private long[] cost;
+
+    @Setup
+    public void setUp() {
+        if (!GreatCircleMatrix.vectorized()) {
+            throw new IllegalStateException("The fork was started without the Vector API module");
+        }
+        estimator = new TravelEstimator(1.3, 40);
+        optimizer = new TourOptimizer();
+        SplittableRandom random = new SplittableRandom(42);
+        latitudes = new double[waypoints + 1];
+        longitudes = new double[waypoints + 1];
+        for (int i = 0; i < latitudes.length; i++) {
+            latitudes[i] = 52.40 + random.nextDouble() * 0.25;
+            longitudes[i] = 13.20 + random.nextDouble() * 0.40;
+        }
+        cost = estimator.estimate(latitudes, longitudes).costs(TravelMatrix.Objective.DURATION);
+    }
+
+    @Benchmark
+    public TravelMatrix estimateMatrix() {
+        return estimator.estimate(latitudes, longitudes);
+    }
+
+    @Benchmark
+    public int[] solveRoundTrip() {
+        return optimizer.solve(cost, latitudes.length, 0, 0);
+    }
+}
@@ -0,0 +1,5 @@
+-- Geography expression index: lets KNN ordering (<->) and ST_DWithin work in meters
+-- on the sphere while still being index-assisted
+CREATE INDEX IF NOT EXISTS idx_locations_geog ON locations USING GIST ((geom::geography));
+
+ANALYZE locations;
@@ -0,0 +1,11 @@
+-- Trigram index: makes substring searches (address ILIKE '%...%') index-assisted
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX IF NOT EXISTS idx_locations_address_trgm ON locations USING GIN (address gin_trgm_ops);
+
+-- Normalized address key, computed by the application (AddressKeys.normalize) rather than in SQL, whose
+-- lower() and [:alnum:] depend on the database locale; rows inserted without one are keyed at startup
+ALTER TABLE locations ADD COLUMN IF NOT EXISTS address_key TEXT;
+DROP INDEX IF EXISTS idx_locations_address_key;
+CREATE INDEX idx_locations_address_key ON locations (address_key);
+
+ANALYZE locations;
@@ -0,0 +1,6 @@
+-- Geography indexes on where stored routes start and end: the stored-route lookup filters candidates
+-- with ST_DWithin on these exact expressions
+CREATE INDEX IF NOT EXISTS idx_routes_start_geog ON routes USING GIST ((ST_StartPoint(route_geometry)::geography));
+CREATE INDEX IF NOT EXISTS idx_routes_end_geog ON routes USING GIST ((ST_EndPoint(route_geometry)::geography));
+
+ANALYZE routes;
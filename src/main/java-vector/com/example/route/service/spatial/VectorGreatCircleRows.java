@@ -0,0 +1,33 @@
+package com.example.route.service.spatial;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+// Vector API rows for GreatCircleMatrix, which loads them by name only when jdk.incubator.vector is in the boot layer
+final class VectorGreatCircleRows implements GreatCircleMatrix.RowKernel {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    private VectorGreatCircleRows() {
+    }
+
+    static GreatCircleMatrix.RowKernel create() {
+        return new VectorGreatCircleRows();
+    }
+
+    @Override
+    public void row(double ox, double oy, double oz, GreatCircleMatrix.Points to, double[] out, int offset) {
+        int j = 0;
+        for (int bound = SPECIES.loopBound(to.size); j < bound; j += SPECIES.length()) {
+            DoubleVector dx = DoubleVector.fromArray(SPECIES, to.x, j).sub(ox);
+            DoubleVector dy = DoubleVector.fromArray(SPECIES, to.y, j).sub(oy);
+            DoubleVector dz = DoubleVector.fromArray(SPECIES, to.z, j).sub(oz);
+            DoubleVector halfChord = dx.fma(dx, dy.mul(dy)).add(dz.mul(dz)).sqrt().mul(0.5).min(1.0);
+            halfChord.lanewise(VectorOperators.ASIN)
+                    .mul(2 * GeoMath.EARTH_RADIUS_METERS)
+                    .intoArray(out, offset + j);
+        }
+        GreatCircleMatrix.scalarRow(ox, oy, oz, to, j, out, offset);
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.route.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors behind the upstream HTTP client and the route pipeline. Setting
+ * {@code spring.threads.virtual.enabled=true} switches both (and Tomcat) to virtual threads;
+ * otherwise they are small fixed pools of platform threads.
+ */
+@Configuration
+public class ExecutorConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public ExecutorService upstreamIoExecutor(@Value("${google.maps.http.io-threads:4}") int ioThreads) {
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(ioThreads, runnable -> {
+            Thread thread = new Thread(runnable, "upstream-io-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Bean(name = "upstreamIoExecutor", destroyMethod = "shutdown")
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public ExecutorService virtualUpstreamIoExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("upstream-io-", 0).factory());
+    }
+
+    // Parsing, optimization and fan-out work run here so they never occupy the HTTP client's threads
+    @Bean
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public AsyncTaskExecutor routeExecutor(@Value("${route.executor.pool-size:0}") int configuredPoolSize) {
+        int size = configuredPoolSize > 0 ? configuredPoolSize : Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(size);
+        executor.setMaxPoolSize(size);
+        executor.setThreadNamePrefix("route-");
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean(name = "routeExecutor")
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public AsyncTaskExecutor virtualRouteExecutor() {
+        return new VirtualThreadTaskExecutor("route-");
+    }
+
+    // Route writes queue here; a full queue rejects the task and the route is dropped, never the caller blocked
+    @Bean(name = "routePersistenceExecutor")
+    public AsyncTaskExecutor routePersistenceExecutor(
+            @Value("${route.persistence.threads:2}") int threads,
+            @Value("${route.persistence.queue-capacity:1000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("route-persist-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(10);
+        executor.initialize();
+        return executor;
+    }
+
+    // CPU-bound fleet solver workers; route.fleet.parallelism=0 uses one per CPU
+    @Bean(destroyMethod = "shutdown")
+    public ForkJoinPool fleetSolverPool(@Value("${route.fleet.parallelism:0}") int configuredParallelism) {
+        int parallelism = configuredParallelism > 0 ? configuredParallelism : Runtime.getRuntime().availableProcessors();
+        return new ForkJoinPool(parallelism, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("fleet-solver-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+    }
+}
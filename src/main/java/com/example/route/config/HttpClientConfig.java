@@ -0,0 +1,43 @@
+package com.example.route.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+
+@Configuration
+public class HttpClientConfig {
+
+    @Value("${google.maps.http.connect-timeout-ms:2000}")
+    private long connectTimeoutMs;
+
+    @Value("${google.maps.http.pool-size:64}")
+    private int poolSize;
+
+    @Value("${google.maps.http.keep-alive-seconds:60}")
+    private int keepAliveSeconds;
+
+    // One shared client so every upstream call reuses the same pooled HTTP/2 and keep-alive connections
+    @Bean
+    public HttpClient upstreamHttpClient(ExecutorService upstreamIoExecutor) {
+        // The JDK client reads its pool settings from system properties when it is first used
+        setIfAbsent("jdk.httpclient.connectionPoolSize", String.valueOf(poolSize));
+        setIfAbsent("jdk.httpclient.keepalive.timeout", String.valueOf(keepAliveSeconds));
+
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(upstreamIoExecutor)
+                .build();
+    }
+
+    private static void setIfAbsent(String key, String value) {
+        if (System.getProperty(key) == null) {
+            System.setProperty(key, value);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.route.controller;
+
+import com.example.route.dto.CorridorPage;
+import com.example.route.dto.CorridorRequest;
+import com.example.route.dto.ImportResult;
+import com.example.route.service.ingest.LocationImportService;
+import com.example.route.service.spatial.CorridorSearchService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.InputStream;
+
+@RestController
+@RequestMapping("/api/locations")
+public class LocationController {
+
+    private final LocationImportService locationImportService;
+    private final CorridorSearchService corridorSearchService;
+
+    public LocationController(LocationImportService locationImportService,
+                              CorridorSearchService corridorSearchService) {
+        this.locationImportService = locationImportService;
+        this.corridorSearchService = corridorSearchService;
+    }
+
+    // The request body is streamed straight into the import, e.g.
+    // curl --data-binary @sites.csv -H 'Content-Type: text/csv' '.../api/locations/import?format=csv'
+    @PostMapping("/import")
+    public ResponseEntity<ImportResult> importLocations(@RequestParam(defaultValue = "csv") String format,
+                                                        InputStream body) {
+        LocationImportService.Format importFormat;
+        try {
+            importFormat = LocationImportService.Format.of(format);
+        } catch (IllegalArgumentException e) {
+            ImportResult result = new ImportResult();
+            result.setStatus("ERROR");
+            result.setErrorMessage(e.getMessage());
+            return ResponseEntity.badRequest().body(result);
+        }
+
+        ImportResult result = locationImportService.importLocations(body, importFormat);
+        return switch (result.getStatus()) {
+            case "OK" -> ResponseEntity.ok(result);
+            // The database or the connection failed, not the file
+            case "FAILED" -> ResponseEntity.internalServerError().body(result);
+            default -> ResponseEntity.badRequest().body(result);
+        };
+    }
+
+    // Saved locations near a route, in driving order; pass nextCursor back as cursor for the next page
+    @PostMapping("/corridor")
+    public ResponseEntity<CorridorPage> findAlongRoute(@RequestBody CorridorRequest request) {
+        boolean hasPolyline = request.getPolyline() != null && !request.getPolyline().isEmpty();
+        if ((request.getRouteId() == null) == !hasPolyline) {
+            return ResponseEntity.badRequest().body(CorridorPage.error("Give either routeId or polyline"));
+        }
+
+        CorridorPage page = request.getRouteId() != null
+                ? corridorSearchService.searchStoredRoute(request.getRouteId(), request.getBufferMeters(),
+                        request.getLimit(), request.getCursor())
+                : corridorSearchService.searchPolyline(request.getPolyline(), request.getBufferMeters(),
+                        request.getLimit(), request.getCursor());
+        return "OK".equals(page.getStatus()) ? ResponseEntity.ok(page) : ResponseEntity.badRequest().body(page);
+    }
+}
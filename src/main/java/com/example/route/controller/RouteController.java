@@ -1,24 +1,67 @@
 package com.example.route.controller;
 
+import com.example.route.dto.BatchRouteItem;
+import com.example.route.dto.BatchRouteResponse;
+import com.example.route.dto.FleetRouteRequest;
+import com.example.route.dto.FleetRouteResponse;
+import com.example.route.dto.RoutePatchRequest;
 import com.example.route.dto.RouteRequest;
 import com.example.route.dto.RouteResponse;
+import com.example.route.service.FleetRoutingService;
+import com.example.route.service.RouteBatch;
+import com.example.route.service.RouteBatchService;
+import com.example.route.service.RoutePlanService;
 import com.example.route.service.RouteService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Controller
 public class RouteController {
 
     private final RouteService routeService;
+    private final RouteBatchService routeBatchService;
+    private final FleetRoutingService fleetRoutingService;
+    private final RoutePlanService routePlanService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${route.batch.stream-timeout-ms:300000}")
+    private long batchStreamTimeoutMs;
+
+    @Value("${route.stream.time-budget-ms:2000}")
+    private long streamBudgetMs;
+
+    @Value("${route.stream.max-time-budget-ms:10000}")
+    private long streamMaxBudgetMs;
+
+    @Value("${route.stream.timeout-ms:60000}")
+    private long streamTimeoutMs;
 
     @Autowired
-    public RouteController(RouteService routeService) {
+    public RouteController(RouteService routeService, RouteBatchService routeBatchService,
+                           FleetRoutingService fleetRoutingService, RoutePlanService routePlanService,
+                           ObjectMapper objectMapper) {
         this.routeService = routeService;
+        this.routeBatchService = routeBatchService;
+        this.fleetRoutingService = fleetRoutingService;
+        this.routePlanService = routePlanService;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping("/")
@@ -27,35 +70,167 @@ public class RouteController {
         return "index";
     }
 
+    // Returning a future releases the servlet thread while the upstream calls are in flight
     @PostMapping("/api/route")
     @ResponseBody
-    public ResponseEntity<RouteResponse> getOptimizedRoute(@Valid @RequestBody RouteRequest request, 
-                                                          BindingResult bindingResult) {
+    public CompletableFuture<ResponseEntity<RouteResponse>> getOptimizedRoute(@Valid @RequestBody RouteRequest request, 
+                                                                             BindingResult bindingResult) {
         if (bindingResult.hasErrors()) {
-            return ResponseEntity.badRequest()
-                    .body(RouteResponse.error("Validation error: " + bindingResult.getAllErrors().get(0).getDefaultMessage()));
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                    .body(RouteResponse.error("Validation error: " + bindingResult.getAllErrors().get(0).getDefaultMessage())));
+        }
+
+        return routeService.getOptimizedRoute(request).thenApply(response -> {
+            if ("ERROR".equals(response.getStatus())) {
+                return ResponseEntity.badRequest().body(response);
+            }
+            return ResponseEntity.ok(response);
+        });
+    }
+
+    /**
+     * The same route as Server-Sent Events: a "progress" event for each better stop order while the optimizer
+     * runs (up to timeBudgetMs), then one "route" event with the full response. The optimizer stops early
+     * when the client disconnects.
+     */
+    @PostMapping(value = "/api/route/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ResponseBody
+    public ResponseEntity<SseEmitter> streamOptimizedRoute(@Valid @RequestBody RouteRequest request,
+                                                           BindingResult bindingResult,
+                                                           @RequestParam(required = false) Long timeBudgetMs) {
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        AtomicBoolean closed = new AtomicBoolean();
+        if (bindingResult.hasErrors()) {
+            sendEvent(emitter, closed, "route",
+                    RouteResponse.error("Validation error: " + bindingResult.getAllErrors().get(0).getDefaultMessage()));
+            emitter.complete();
+            return ResponseEntity.badRequest().body(emitter);
+        }
+
+        emitter.onCompletion(() -> closed.set(true));
+        emitter.onTimeout(() -> closed.set(true));
+        emitter.onError(e -> closed.set(true));
+        long budget = Math.max(0, Math.min(streamMaxBudgetMs, timeBudgetMs != null ? timeBudgetMs : streamBudgetMs));
+        routeService.streamOptimizedRoute(request, budget,
+                        progress -> sendEvent(emitter, closed, "progress", progress), closed::get)
+                .thenAccept(response -> {
+                    if (sendEvent(emitter, closed, "route", response)) {
+                        emitter.complete();
+                    }
+                });
+        return ResponseEntity.ok().contentType(MediaType.TEXT_EVENT_STREAM).body(emitter);
+    }
+
+    // False once the client has gone away; the stream is closed then and later events are dropped
+    private static boolean sendEvent(SseEmitter emitter, AtomicBoolean closed, String name, Object data) {
+        if (closed.get()) {
+            return false;
+        }
+        try {
+            synchronized (emitter) {
+                emitter.send(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
+            }
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            closed.set(true);
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+
+    @PostMapping(value = "/api/routes/batch", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public CompletableFuture<ResponseEntity<BatchRouteResponse>> getOptimizedRoutes(@RequestBody List<RouteRequest> requests) {
+        if (requests.size() > routeBatchService.getMaxSize()) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build());
+        }
+        return routeBatchService.submit(requests).toResponse().thenApply(ResponseEntity::ok);
+    }
+
+    // Same batch, but each result is written as one JSON line as soon as it completes
+    @PostMapping(value = "/api/routes/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @ResponseBody
+    public ResponseEntity<ResponseBodyEmitter> streamOptimizedRoutes(@RequestBody List<RouteRequest> requests) {
+        if (requests.size() > routeBatchService.getMaxSize()) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
         }
 
-        RouteResponse response = routeService.getOptimizedRoute(request);
-        
-        if ("ERROR".equals(response.getStatus())) {
-            return ResponseEntity.badRequest().body(response);
+        RouteBatch batch = routeBatchService.submit(requests);
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(batchStreamTimeoutMs);
+        AtomicInteger remaining = new AtomicInteger(batch.getItems().size());
+        AtomicBoolean closed = new AtomicBoolean();
+        if (remaining.get() == 0) {
+            emitter.complete();
         }
-        
-        return ResponseEntity.ok(response);
+        emitter.onCompletion(() -> closed.set(true));
+        emitter.onTimeout(() -> closed.set(true));
+        emitter.onError(e -> closed.set(true));
+
+        for (int i = 0; i < batch.getItems().size(); i++) {
+            int index = i;
+            batch.getItems().get(i).thenAccept(response -> {
+                if (closed.get()) {
+                    return;
+                }
+                try {
+                    String line = objectMapper.writeValueAsString(new BatchRouteItem(index, new RouteResponse(response))) + "\n";
+                    synchronized (emitter) {
+                        emitter.send(line, MediaType.TEXT_PLAIN);
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    // The client went away; the remaining items still finish and fill the caches
+                    if (closed.compareAndSet(false, true)) {
+                        emitter.completeWithError(e);
+                    }
+                    return;
+                }
+                if (remaining.decrementAndGet() == 0) {
+                    emitter.complete();
+                }
+            });
+        }
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(emitter);
+    }
+
+    // Stops assigned across the fleet; the solver runs for up to the request's time budget
+    @PostMapping("/api/routes/fleet")
+    @ResponseBody
+    public CompletableFuture<ResponseEntity<FleetRouteResponse>> planFleet(@Valid @RequestBody FleetRouteRequest request,
+                                                                          BindingResult bindingResult) {
+        if (bindingResult.hasErrors()) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                    .body(FleetRouteResponse.error("Validation error: " + bindingResult.getAllErrors().get(0).getDefaultMessage())));
+        }
+
+        return fleetRoutingService.plan(request).thenApply(response -> "ERROR".equals(response.getStatus())
+                ? ResponseEntity.badRequest().body(response)
+                : ResponseEntity.ok(response));
+    }
+
+    // Adds or removes stops on a route returned earlier (its planId); only the changed legs are recomputed
+    @PatchMapping("/api/routes/{planId}")
+    @ResponseBody
+    public CompletableFuture<ResponseEntity<RouteResponse>> patchRoute(@PathVariable String planId,
+                                                                      @RequestBody RoutePatchRequest patch) {
+        return routePlanService.patch(planId, patch).thenApply(response -> switch (response.getStatus()) {
+            case "OK" -> ResponseEntity.ok(response);
+            case "NOT_FOUND" -> ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+            case "CONFLICT" -> ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+            default -> ResponseEntity.badRequest().body(response);
+        });
     }
 
     @PostMapping("/route")
-    public String getRoute(@Valid @ModelAttribute("routeRequest") RouteRequest request, 
-                          BindingResult bindingResult, Model model) {
+    public CompletableFuture<String> getRoute(@Valid @ModelAttribute("routeRequest") RouteRequest request, 
+                                             BindingResult bindingResult, Model model) {
         if (bindingResult.hasErrors()) {
-            return "index";
+            return CompletableFuture.completedFuture("index");
         }
 
-        RouteResponse response = routeService.getOptimizedRoute(request);
-        model.addAttribute("routeResponse", response);
-        model.addAttribute("routeRequest", request);
-        
-        return "index";
+        return routeService.getOptimizedRoute(request).thenApply(response -> {
+            model.addAttribute("routeResponse", response);
+            model.addAttribute("routeRequest", request);
+            return "index";
+        });
     }
 } 
\ No newline at end of file
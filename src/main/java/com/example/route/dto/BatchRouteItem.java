@@ -0,0 +1,31 @@
+package com.example.route.dto;
+
+public class BatchRouteItem {
+
+    private int index;
+    private RouteResponse response;
+
+    public BatchRouteItem() {}
+
+    public BatchRouteItem(int index, RouteResponse response) {
+        this.index = index;
+        this.response = response;
+    }
+
+    // Getters and setters
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public RouteResponse getResponse() {
+        return response;
+    }
+
+    public void setResponse(RouteResponse response) {
+        this.response = response;
+    }
+}
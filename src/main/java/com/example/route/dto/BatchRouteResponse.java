@@ -0,0 +1,53 @@
+package com.example.route.dto;
+
+import java.util.List;
+
+public class BatchRouteResponse {
+
+    private int total;
+    private int uniqueRequests;
+    private int failed;
+    private List<BatchRouteItem> results;
+
+    public BatchRouteResponse() {}
+
+    public BatchRouteResponse(int total, int uniqueRequests, int failed, List<BatchRouteItem> results) {
+        this.total = total;
+        this.uniqueRequests = uniqueRequests;
+        this.failed = failed;
+        this.results = results;
+    }
+
+    // Getters and setters
+    public int getTotal() {
+        return total;
+    }
+
+    public void setTotal(int total) {
+        this.total = total;
+    }
+
+    public int getUniqueRequests() {
+        return uniqueRequests;
+    }
+
+    public void setUniqueRequests(int uniqueRequests) {
+        this.uniqueRequests = uniqueRequests;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public void setFailed(int failed) {
+        this.failed = failed;
+    }
+
+    public List<BatchRouteItem> getResults() {
+        return results;
+    }
+
+    public void setResults(List<BatchRouteItem> results) {
+        this.results = results;
+    }
+}
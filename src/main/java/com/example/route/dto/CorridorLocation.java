@@ -0,0 +1,82 @@
+package com.example.route.dto;
+
+public class CorridorLocation {
+
+    private Long id;
+    private String name;
+    private String address;
+    private double latitude;
+    private double longitude;
+    private double distanceFromRouteMeters;
+    private double distanceAlongRouteMeters; // from the start of the route to the closest point on it
+
+    public CorridorLocation() {}
+
+    public CorridorLocation(Long id, String name, String address, double latitude, double longitude,
+                            double distanceFromRouteMeters, double distanceAlongRouteMeters) {
+        this.id = id;
+        this.name = name;
+        this.address = address;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.distanceFromRouteMeters = distanceFromRouteMeters;
+        this.distanceAlongRouteMeters = distanceAlongRouteMeters;
+    }
+
+    // Getters and setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    public void setAddress(String address) {
+        this.address = address;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(double latitude) {
+        this.latitude = latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(double longitude) {
+        this.longitude = longitude;
+    }
+
+    public double getDistanceFromRouteMeters() {
+        return distanceFromRouteMeters;
+    }
+
+    public void setDistanceFromRouteMeters(double distanceFromRouteMeters) {
+        this.distanceFromRouteMeters = distanceFromRouteMeters;
+    }
+
+    public double getDistanceAlongRouteMeters() {
+        return distanceAlongRouteMeters;
+    }
+
+    public void setDistanceAlongRouteMeters(double distanceAlongRouteMeters) {
+        this.distanceAlongRouteMeters = distanceAlongRouteMeters;
+    }
+}
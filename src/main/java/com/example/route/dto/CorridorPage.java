@@ -0,0 +1,54 @@
+package com.example.route.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class CorridorPage {
+
+    private String status;
+    private List<CorridorLocation> locations = new ArrayList<>();
+    private String nextCursor; // null on the last page
+    private String errorMessage;
+
+    public CorridorPage() {}
+
+    public static CorridorPage error(String errorMessage) {
+        CorridorPage page = new CorridorPage();
+        page.setStatus("ERROR");
+        page.setErrorMessage(errorMessage);
+        return page;
+    }
+
+    // Getters and setters
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public List<CorridorLocation> getLocations() {
+        return locations;
+    }
+
+    public void setLocations(List<CorridorLocation> locations) {
+        this.locations = locations;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.route.dto;
+
+public class CorridorRequest {
+
+    private Long routeId; // a stored route, or
+    private String polyline; // the overviewPolyline of a computed route
+    private Double bufferMeters;
+    private Integer limit;
+    private String cursor; // nextCursor of the previous page
+
+    public CorridorRequest() {}
+
+    // Getters and setters
+    public Long getRouteId() {
+        return routeId;
+    }
+
+    public void setRouteId(Long routeId) {
+        this.routeId = routeId;
+    }
+
+    public String getPolyline() {
+        return polyline;
+    }
+
+    public void setPolyline(String polyline) {
+        this.polyline = polyline;
+    }
+
+    public Double getBufferMeters() {
+        return bufferMeters;
+    }
+
+    public void setBufferMeters(Double bufferMeters) {
+        this.bufferMeters = bufferMeters;
+    }
+
+    public Integer getLimit() {
+        return limit;
+    }
+
+    public void setLimit(Integer limit) {
+        this.limit = limit;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(String cursor) {
+        this.cursor = cursor;
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.route.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import java.util.List;
+
+public class FleetRouteRequest {
+
+    @NotBlank(message = "Depot is required")
+    private String depot;
+
+    @NotEmpty(message = "At least one stop is required")
+    private List<@Valid FleetStop> stops;
+
+    @NotEmpty(message = "At least one vehicle is required")
+    private List<@Valid FleetVehicle> vehicles;
+
+    private Long timeBudgetMs; // solver wall-clock budget; the configured default when not set
+
+    public FleetRouteRequest() {}
+
+    public FleetRouteRequest(String depot, List<FleetStop> stops, List<FleetVehicle> vehicles) {
+        this.depot = depot;
+        this.stops = stops;
+        this.vehicles = vehicles;
+    }
+
+    // Getters and setters
+    public String getDepot() {
+        return depot;
+    }
+
+    public void setDepot(String depot) {
+        this.depot = depot;
+    }
+
+    public List<FleetStop> getStops() {
+        return stops;
+    }
+
+    public void setStops(List<FleetStop> stops) {
+        this.stops = stops;
+    }
+
+    public List<FleetVehicle> getVehicles() {
+        return vehicles;
+    }
+
+    public void setVehicles(List<FleetVehicle> vehicles) {
+        this.vehicles = vehicles;
+    }
+
+    public Long getTimeBudgetMs() {
+        return timeBudgetMs;
+    }
+
+    public void setTimeBudgetMs(Long timeBudgetMs) {
+        this.timeBudgetMs = timeBudgetMs;
+    }
+}
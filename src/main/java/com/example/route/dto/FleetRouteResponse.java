@@ -0,0 +1,89 @@
+package com.example.route.dto;
+
+import java.util.List;
+
+public class FleetRouteResponse {
+
+    private String status;
+    private List<VehicleRoute> routes; // one per vehicle that has stops
+    private List<Integer> unassignedStops; // stops no vehicle could serve within its constraints
+    private String totalDistance;
+    private String totalDuration;
+    private Long totalDistanceValue; // in meters
+    private Long totalDurationValue; // driving time in seconds
+    private String errorMessage;
+
+    public FleetRouteResponse() {}
+
+    public static FleetRouteResponse error(String errorMessage) {
+        FleetRouteResponse response = new FleetRouteResponse();
+        response.setStatus("ERROR");
+        response.setErrorMessage(errorMessage);
+        return response;
+    }
+
+    // Getters and setters
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public List<VehicleRoute> getRoutes() {
+        return routes;
+    }
+
+    public void setRoutes(List<VehicleRoute> routes) {
+        this.routes = routes;
+    }
+
+    public List<Integer> getUnassignedStops() {
+        return unassignedStops;
+    }
+
+    public void setUnassignedStops(List<Integer> unassignedStops) {
+        this.unassignedStops = unassignedStops;
+    }
+
+    public String getTotalDistance() {
+        return totalDistance;
+    }
+
+    public void setTotalDistance(String totalDistance) {
+        this.totalDistance = totalDistance;
+    }
+
+    public String getTotalDuration() {
+        return totalDuration;
+    }
+
+    public void setTotalDuration(String totalDuration) {
+        this.totalDuration = totalDuration;
+    }
+
+    public Long getTotalDistanceValue() {
+        return totalDistanceValue;
+    }
+
+    public void setTotalDistanceValue(Long totalDistanceValue) {
+        this.totalDistanceValue = totalDistanceValue;
+    }
+
+    public Long getTotalDurationValue() {
+        return totalDurationValue;
+    }
+
+    public void setTotalDurationValue(Long totalDurationValue) {
+        this.totalDurationValue = totalDurationValue;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.route.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.PositiveOrZero;
+
+// Times are seconds from the start of the planning day, e.g. 08:00 is 28800
+public class FleetStop {
+
+    @NotBlank(message = "Every stop needs an address")
+    private String address;
+
+    @PositiveOrZero(message = "Demand can't be negative")
+    private int demand;
+
+    private Long earliest; // service may not begin before this
+    private Long latest; // service must begin by this
+
+    @PositiveOrZero(message = "Service time can't be negative")
+    private long serviceSeconds;
+
+    public FleetStop() {}
+
+    public FleetStop(String address, int demand, Long earliest, Long latest, long serviceSeconds) {
+        this.address = address;
+        this.demand = demand;
+        this.earliest = earliest;
+        this.latest = latest;
+        this.serviceSeconds = serviceSeconds;
+    }
+
+    // Getters and setters
+    public String getAddress() {
+        return address;
+    }
+
+    public void setAddress(String address) {
+        this.address = address;
+    }
+
+    public int getDemand() {
+        return demand;
+    }
+
+    public void setDemand(int demand) {
+        this.demand = demand;
+    }
+
+    public Long getEarliest() {
+        return earliest;
+    }
+
+    public void setEarliest(Long earliest) {
+        this.earliest = earliest;
+    }
+
+    public Long getLatest() {
+        return latest;
+    }
+
+    public void setLatest(Long latest) {
+        this.latest = latest;
+    }
+
+    public long getServiceSeconds() {
+        return serviceSeconds;
+    }
+
+    public void setServiceSeconds(long serviceSeconds) {
+        this.serviceSeconds = serviceSeconds;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.route.dto;
+
+import jakarta.validation.constraints.PositiveOrZero;
+
+// Every vehicle leaves the depot at shiftStart and has to be back by shiftEnd
+public class FleetVehicle {
+
+    private String id;
+
+    @PositiveOrZero(message = "Capacity can't be negative")
+    private Integer capacity; // unlimited when not set
+
+    private Long shiftStart;
+    private Long shiftEnd;
+
+    public FleetVehicle() {}
+
+    public FleetVehicle(String id, Integer capacity, Long shiftStart, Long shiftEnd) {
+        this.id = id;
+        this.capacity = capacity;
+        this.shiftStart = shiftStart;
+        this.shiftEnd = shiftEnd;
+    }
+
+    // Getters and setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public Integer getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(Integer capacity) {
+        this.capacity = capacity;
+    }
+
+    public Long getShiftStart() {
+        return shiftStart;
+    }
+
+    public void setShiftStart(Long shiftStart) {
+        this.shiftStart = shiftStart;
+    }
+
+    public Long getShiftEnd() {
+        return shiftEnd;
+    }
+
+    public void setShiftEnd(Long shiftEnd) {
+        this.shiftEnd = shiftEnd;
+    }
+}
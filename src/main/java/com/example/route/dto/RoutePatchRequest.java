@@ -0,0 +1,34 @@
+package com.example.route.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class RoutePatchRequest {
+
+    private List<String> add = new ArrayList<>(); // new stops, appended to the waypoint list
+    private List<String> remove = new ArrayList<>(); // waypoints to drop, as written in the request
+
+    public RoutePatchRequest() {}
+
+    public RoutePatchRequest(List<String> add, List<String> remove) {
+        this.add = add;
+        this.remove = remove;
+    }
+
+    // Getters and setters
+    public List<String> getAdd() {
+        return add;
+    }
+
+    public void setAdd(List<String> add) {
+        this.add = add;
+    }
+
+    public List<String> getRemove() {
+        return remove;
+    }
+
+    public void setRemove(List<String> remove) {
+        this.remove = remove;
+    }
+}
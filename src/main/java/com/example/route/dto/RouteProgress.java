@@ -0,0 +1,93 @@
+package com.example.route.dto;
+
+import java.util.List;
+
+// One improved stop order of a streamed route, sent before the final route with its legs
+public class RouteProgress {
+
+    private List<String> optimizedWaypoints;
+    private List<Integer> waypointOrder;
+    private String totalDistance;
+    private String totalDuration;
+    private long totalDistanceValue;
+    private long totalDurationValue;
+    private boolean estimated; // totals from straight-line estimates, before the travel matrix arrived
+    private long elapsedMs;
+
+    public RouteProgress() {}
+
+    public RouteProgress(List<String> optimizedWaypoints, List<Integer> waypointOrder, long totalDistanceValue,
+                         long totalDurationValue, boolean estimated, long elapsedMs) {
+        this.optimizedWaypoints = optimizedWaypoints;
+        this.waypointOrder = waypointOrder;
+        this.totalDistanceValue = totalDistanceValue;
+        this.totalDurationValue = totalDurationValue;
+        this.estimated = estimated;
+        this.elapsedMs = elapsedMs;
+    }
+
+    // Getters and setters
+    public List<String> getOptimizedWaypoints() {
+        return optimizedWaypoints;
+    }
+
+    public void setOptimizedWaypoints(List<String> optimizedWaypoints) {
+        this.optimizedWaypoints = optimizedWaypoints;
+    }
+
+    public List<Integer> getWaypointOrder() {
+        return waypointOrder;
+    }
+
+    public void setWaypointOrder(List<Integer> waypointOrder) {
+        this.waypointOrder = waypointOrder;
+    }
+
+    public String getTotalDistance() {
+        return totalDistance;
+    }
+
+    public void setTotalDistance(String totalDistance) {
+        this.totalDistance = totalDistance;
+    }
+
+    public String getTotalDuration() {
+        return totalDuration;
+    }
+
+    public void setTotalDuration(String totalDuration) {
+        this.totalDuration = totalDuration;
+    }
+
+    public long getTotalDistanceValue() {
+        return totalDistanceValue;
+    }
+
+    public void setTotalDistanceValue(long totalDistanceValue) {
+        this.totalDistanceValue = totalDistanceValue;
+    }
+
+    public long getTotalDurationValue() {
+        return totalDurationValue;
+    }
+
+    public void setTotalDurationValue(long totalDurationValue) {
+        this.totalDurationValue = totalDurationValue;
+    }
+
+    public boolean isEstimated() {
+        return estimated;
+    }
+
+    public void setEstimated(boolean estimated) {
+        this.estimated = estimated;
+    }
+
+    public long getElapsedMs() {
+        return elapsedMs;
+    }
+
+    public void setElapsedMs(long elapsedMs) {
+        this.elapsedMs = elapsedMs;
+    }
+}
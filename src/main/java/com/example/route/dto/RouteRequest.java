@@ -16,6 +16,9 @@ public class RouteRequest {
     
     private boolean roundTrip = false;
 
+    // Return a planId, so the route can be edited with PATCH /api/routes/{planId}
+    private boolean editable = false;
+
     // Default constructor
     public RouteRequest() {}
 
@@ -60,6 +63,14 @@ public class RouteRequest {
         this.roundTrip = roundTrip;
     }
 
+    public boolean isEditable() {
+        return editable;
+    }
+
+    public void setEditable(boolean editable) {
+        this.editable = editable;
+    }
+
     @Override
     public String toString() {
         return "RouteRequest{" +
@@ -67,6 +78,7 @@ public class RouteRequest {
                 ", waypoints=" + waypoints +
                 ", destination='" + destination + '\'' +
                 ", roundTrip=" + roundTrip +
+                ", editable=" + editable +
                 '}';
     }
 } 
\ No newline at end of file
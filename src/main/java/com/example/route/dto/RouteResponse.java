@@ -1,14 +1,22 @@
 package com.example.route.dto;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public class RouteResponse {
     
     private String status;
     private List<String> optimizedWaypoints;
+    private List<Integer> waypointOrder;
     private String totalDistance;
     private String totalDuration;
+    private Long totalDistanceValue; // in meters
+    private Long totalDurationValue; // in seconds
     private List<RouteLeg> legs;
+    private String overviewPolyline; // encoded polyline of the whole route
+    private String planId; // handle for PATCH /api/routes/{planId}
+    private Boolean estimated; // true when legs are straight-line estimates, not road routes
+    private Boolean degraded; // true when answered from a stale cache or an estimate because the upstream failed
     private String errorMessage;
 
     public RouteResponse() {}
@@ -22,6 +30,28 @@ public class RouteResponse {
         this.legs = legs;
     }
 
+    // Copy constructor; lists and legs are copied so the copy can be changed independently
+    public RouteResponse(RouteResponse other) {
+        this.status = other.status;
+        this.optimizedWaypoints = other.optimizedWaypoints != null ? new ArrayList<>(other.optimizedWaypoints) : null;
+        this.waypointOrder = other.waypointOrder != null ? new ArrayList<>(other.waypointOrder) : null;
+        this.totalDistance = other.totalDistance;
+        this.totalDuration = other.totalDuration;
+        this.totalDistanceValue = other.totalDistanceValue;
+        this.totalDurationValue = other.totalDurationValue;
+        if (other.legs != null) {
+            this.legs = new ArrayList<>(other.legs.size());
+            for (RouteLeg leg : other.legs) {
+                this.legs.add(new RouteLeg(leg));
+            }
+        }
+        this.overviewPolyline = other.overviewPolyline;
+        this.planId = other.planId;
+        this.estimated = other.estimated;
+        this.degraded = other.degraded;
+        this.errorMessage = other.errorMessage;
+    }
+
     public static RouteResponse error(String errorMessage) {
         RouteResponse response = new RouteResponse();
         response.setStatus("ERROR");
@@ -46,6 +76,14 @@ public class RouteResponse {
         this.optimizedWaypoints = optimizedWaypoints;
     }
 
+    public List<Integer> getWaypointOrder() {
+        return waypointOrder;
+    }
+
+    public void setWaypointOrder(List<Integer> waypointOrder) {
+        this.waypointOrder = waypointOrder;
+    }
+
     public String getTotalDistance() {
         return totalDistance;
     }
@@ -62,6 +100,22 @@ public class RouteResponse {
         this.totalDuration = totalDuration;
     }
 
+    public Long getTotalDistanceValue() {
+        return totalDistanceValue;
+    }
+
+    public void setTotalDistanceValue(Long totalDistanceValue) {
+        this.totalDistanceValue = totalDistanceValue;
+    }
+
+    public Long getTotalDurationValue() {
+        return totalDurationValue;
+    }
+
+    public void setTotalDurationValue(Long totalDurationValue) {
+        this.totalDurationValue = totalDurationValue;
+    }
+
     public List<RouteLeg> getLegs() {
         return legs;
     }
@@ -70,6 +124,38 @@ public class RouteResponse {
         this.legs = legs;
     }
 
+    public String getOverviewPolyline() {
+        return overviewPolyline;
+    }
+
+    public void setOverviewPolyline(String overviewPolyline) {
+        this.overviewPolyline = overviewPolyline;
+    }
+
+    public String getPlanId() {
+        return planId;
+    }
+
+    public void setPlanId(String planId) {
+        this.planId = planId;
+    }
+
+    public Boolean getEstimated() {
+        return estimated;
+    }
+
+    public void setEstimated(Boolean estimated) {
+        this.estimated = estimated;
+    }
+
+    public Boolean getDegraded() {
+        return degraded;
+    }
+
+    public void setDegraded(Boolean degraded) {
+        this.degraded = degraded;
+    }
+
     public String getErrorMessage() {
         return errorMessage;
     }
@@ -84,6 +170,12 @@ public class RouteResponse {
         private String endAddress;
         private String distance;
         private String duration;
+        private long distanceValue; // in meters
+        private long durationValue; // in seconds
+        private Double startLatitude;
+        private Double startLongitude;
+        private Double endLatitude;
+        private Double endLongitude;
 
         public RouteLeg() {}
 
@@ -94,6 +186,26 @@ public class RouteResponse {
             this.duration = duration;
         }
 
+        public RouteLeg(String startAddress, String endAddress, String distance, String duration,
+                        long distanceValue, long durationValue) {
+            this(startAddress, endAddress, distance, duration);
+            this.distanceValue = distanceValue;
+            this.durationValue = durationValue;
+        }
+
+        public RouteLeg(RouteLeg other) {
+            this.startAddress = other.startAddress;
+            this.endAddress = other.endAddress;
+            this.distance = other.distance;
+            this.duration = other.duration;
+            this.distanceValue = other.distanceValue;
+            this.durationValue = other.durationValue;
+            this.startLatitude = other.startLatitude;
+            this.startLongitude = other.startLongitude;
+            this.endLatitude = other.endLatitude;
+            this.endLongitude = other.endLongitude;
+        }
+
         // Getters and setters
         public String getStartAddress() {
             return startAddress;
@@ -126,5 +238,53 @@ public class RouteResponse {
         public void setDuration(String duration) {
             this.duration = duration;
         }
+
+        public long getDistanceValue() {
+            return distanceValue;
+        }
+
+        public void setDistanceValue(long distanceValue) {
+            this.distanceValue = distanceValue;
+        }
+
+        public long getDurationValue() {
+            return durationValue;
+        }
+
+        public void setDurationValue(long durationValue) {
+            this.durationValue = durationValue;
+        }
+
+        public Double getStartLatitude() {
+            return startLatitude;
+        }
+
+        public void setStartLatitude(Double startLatitude) {
+            this.startLatitude = startLatitude;
+        }
+
+        public Double getStartLongitude() {
+            return startLongitude;
+        }
+
+        public void setStartLongitude(Double startLongitude) {
+            this.startLongitude = startLongitude;
+        }
+
+        public Double getEndLatitude() {
+            return endLatitude;
+        }
+
+        public void setEndLatitude(Double endLatitude) {
+            this.endLatitude = endLatitude;
+        }
+
+        public Double getEndLongitude() {
+            return endLongitude;
+        }
+
+        public void setEndLongitude(Double endLongitude) {
+            this.endLongitude = endLongitude;
+        }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,100 @@
+package com.example.route.dto;
+
+import java.util.List;
+
+public class VehicleRoute {
+
+    private String vehicleId;
+    private List<Integer> stopOrder; // indices into the request's stops, in visiting order
+    private List<String> stops;
+    private List<Long> serviceStartSeconds; // when service begins at each stop
+    private long returnSeconds; // back at the depot
+    private int load;
+    private String distance;
+    private String duration;
+    private long distanceValue; // in meters
+    private long durationValue; // driving time in seconds
+
+    public VehicleRoute() {}
+
+    // Getters and setters
+    public String getVehicleId() {
+        return vehicleId;
+    }
+
+    public void setVehicleId(String vehicleId) {
+        this.vehicleId = vehicleId;
+    }
+
+    public List<Integer> getStopOrder() {
+        return stopOrder;
+    }
+
+    public void setStopOrder(List<Integer> stopOrder) {
+        this.stopOrder = stopOrder;
+    }
+
+    public List<String> getStops() {
+        return stops;
+    }
+
+    public void setStops(List<String> stops) {
+        this.stops = stops;
+    }
+
+    public List<Long> getServiceStartSeconds() {
+        return serviceStartSeconds;
+    }
+
+    public void setServiceStartSeconds(List<Long> serviceStartSeconds) {
+        this.serviceStartSeconds = serviceStartSeconds;
+    }
+
+    public long getReturnSeconds() {
+        return returnSeconds;
+    }
+
+    public void setReturnSeconds(long returnSeconds) {
+        this.returnSeconds = returnSeconds;
+    }
+
+    public int getLoad() {
+        return load;
+    }
+
+    public void setLoad(int load) {
+        this.load = load;
+    }
+
+    public String getDistance() {
+        return distance;
+    }
+
+    public void setDistance(String distance) {
+        this.distance = distance;
+    }
+
+    public String getDuration() {
+        return duration;
+    }
+
+    public void setDuration(String duration) {
+        this.duration = duration;
+    }
+
+    public long getDistanceValue() {
+        return distanceValue;
+    }
+
+    public void setDistanceValue(long distanceValue) {
+        this.distanceValue = distanceValue;
+    }
+
+    public long getDurationValue() {
+        return durationValue;
+    }
+
+    public void setDurationValue(long durationValue) {
+        this.durationValue = durationValue;
+    }
+}
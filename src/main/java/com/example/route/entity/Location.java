@@ -21,6 +21,10 @@ public class Location {
     @Column(name = "address")
     private String address;
     
+    // AddressKeys.normalize(address), kept up to date by LocationAddressKeyListener
+    @Column(name = "address_key")
+    private String addressKey;
+    
     @Column(name = "latitude")
     private Double latitude;
     
@@ -73,6 +77,14 @@ public class Location {
         this.address = address;
     }
     
+    public String getAddressKey() {
+        return addressKey;
+    }
+    
+    public void setAddressKey(String addressKey) {
+        this.addressKey = addressKey;
+    }
+    
     public Double getLatitude() {
         return latitude;
     }
@@ -2,7 +2,9 @@ package com.example.route.entity;
 
 import jakarta.persistence.*;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.annotations.UpdateTimestamp;
+import org.hibernate.type.SqlTypes;
 import org.locationtech.jts.geom.LineString;
 
 import java.time.LocalDateTime;
@@ -33,6 +35,7 @@ public class Route {
     @Column(name = "total_duration")
     private Integer totalDuration; // in seconds
     
+    @JdbcTypeCode(SqlTypes.JSON)
     @Column(name = "waypoints", columnDefinition = "jsonb")
     private String waypoints; // JSON string of waypoint data
     
@@ -0,0 +1,112 @@
+package com.example.route.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "route_waypoints")
+public class RouteWaypoint {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "route_id")
+    private Route route;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "location_id")
+    private Location location;
+    
+    @Column(name = "waypoint_order", nullable = false)
+    private Integer waypointOrder;
+    
+    @Column(name = "distance_from_previous")
+    private Double distanceFromPrevious; // in meters
+    
+    @Column(name = "duration_from_previous")
+    private Integer durationFromPrevious; // in seconds
+    
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+    
+    // Constructors
+    public RouteWaypoint() {}
+    
+    public RouteWaypoint(Route route, Location location, Integer waypointOrder) {
+        this.route = route;
+        this.location = location;
+        this.waypointOrder = waypointOrder;
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public Route getRoute() {
+        return route;
+    }
+    
+    public void setRoute(Route route) {
+        this.route = route;
+    }
+    
+    public Location getLocation() {
+        return location;
+    }
+    
+    public void setLocation(Location location) {
+        this.location = location;
+    }
+    
+    public Integer getWaypointOrder() {
+        return waypointOrder;
+    }
+    
+    public void setWaypointOrder(Integer waypointOrder) {
+        this.waypointOrder = waypointOrder;
+    }
+    
+    public Double getDistanceFromPrevious() {
+        return distanceFromPrevious;
+    }
+    
+    public void setDistanceFromPrevious(Double distanceFromPrevious) {
+        this.distanceFromPrevious = distanceFromPrevious;
+    }
+    
+    public Integer getDurationFromPrevious() {
+        return durationFromPrevious;
+    }
+    
+    public void setDurationFromPrevious(Integer durationFromPrevious) {
+        this.durationFromPrevious = durationFromPrevious;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+    
+    @Override
+    public String toString() {
+        return "RouteWaypoint{" +
+                "id=" + id +
+                ", waypointOrder=" + waypointOrder +
+                ", distanceFromPrevious=" + distanceFromPrevious +
+                ", durationFromPrevious=" + durationFromPrevious +
+                '}';
+    }
+}
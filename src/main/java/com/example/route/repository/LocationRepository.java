@@ -1,33 +1,75 @@
 package com.example.route.repository;
 
 import com.example.route.entity.Location;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.locationtech.jts.geom.Point;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface LocationRepository extends JpaRepository<Location, Long> {
     
+    String SUMMARY_COLUMNS = "SELECT id AS \"id\", name AS \"name\", COALESCE(latitude, ST_Y(geom)) AS \"latitude\", " +
+            "COALESCE(longitude, ST_X(geom)) AS \"longitude\" FROM locations ";
+    
+    // Rows are fetched from the server cursor in batches of this size instead of all at once
+    String STREAM_FETCH_SIZE = "1000";
+    
+    // Contains-pattern for the :term parameter with backslash, % and _ escaped, so they match literally as in
+    // the derived Containing finders; the trigram indexes still serve the escaped pattern
+    String CONTAINS_TERM = "'%' || replace(replace(replace(:term, '\\', '\\\\'), '%', '\\%'), '_', '\\_') || '%' ESCAPE '\\'";
+    
     // Find locations by name (case-insensitive)
     List<Location> findByNameContainingIgnoreCase(String name);
     
-    // Find locations by address (case-insensitive)
-    List<Location> findByAddressContainingIgnoreCase(String address);
+    // Find locations by address (case-insensitive); ILIKE on the raw column is served by idx_locations_address_trgm
+    @Query(value = "SELECT * FROM locations WHERE address ILIKE " + CONTAINS_TERM, nativeQuery = true)
+    List<Location> findByAddressContainingIgnoreCase(@Param("term") String address);
     
-    // Find locations within a certain distance from a point
-    @Query(value = "SELECT * FROM locations WHERE ST_DWithin(geom, ST_SetSRID(ST_MakePoint(:longitude, :latitude), 4326), :distanceInMeters)", nativeQuery = true)
+    // Find locations within a certain distance (in meters) from a point, nearest first
+    @Query(value = "SELECT * FROM locations WHERE ST_DWithin(CAST(geom AS geography), CAST(ST_SetSRID(ST_MakePoint(:longitude, :latitude), 4326) AS geography), :distanceInMeters) " +
+            "ORDER BY CAST(geom AS geography) <-> CAST(ST_SetSRID(ST_MakePoint(:longitude, :latitude), 4326) AS geography)", nativeQuery = true)
     List<Location> findLocationsWithinDistance(@Param("latitude") double latitude, 
                                               @Param("longitude") double longitude, 
                                               @Param("distanceInMeters") double distanceInMeters);
     
-    // Find the nearest location to a point
-    @Query(value = "SELECT * FROM locations ORDER BY ST_Distance(geom, ST_SetSRID(ST_MakePoint(:longitude, :latitude), 4326)) LIMIT 1", nativeQuery = true)
+    // Find the nearest location to a point (index-assisted KNN on idx_locations_geog)
+    @Query(value = "SELECT * FROM locations WHERE geom IS NOT NULL " +
+            "ORDER BY CAST(geom AS geography) <-> CAST(ST_SetSRID(ST_MakePoint(:longitude, :latitude), 4326) AS geography) LIMIT 1", nativeQuery = true)
     Location findNearestLocation(@Param("latitude") double latitude, @Param("longitude") double longitude);
     
+    // Find the k nearest locations to a point
+    @Query(value = "SELECT * FROM locations WHERE geom IS NOT NULL " +
+            "ORDER BY CAST(geom AS geography) <-> CAST(ST_SetSRID(ST_MakePoint(:longitude, :latitude), 4326) AS geography) LIMIT :limit", nativeQuery = true)
+    List<Location> findNearestLocations(@Param("latitude") double latitude,
+                                        @Param("longitude") double longitude,
+                                        @Param("limit") int limit);
+    
+    // Find the nearest location within maxDistanceInMeters for every input point in one statement;
+    // points without a match are left out, inputIndex is the point's position in the input arrays
+    @Query(value = "SELECT CAST(p.ord - 1 AS integer) AS \"inputIndex\", n.id AS \"id\", n.name AS \"name\", n.address AS \"address\", " +
+            "n.latitude AS \"latitude\", n.longitude AS \"longitude\", n.distance AS \"distanceMeters\" " +
+            "FROM unnest(CAST(:latitudes AS double precision[]), CAST(:longitudes AS double precision[])) WITH ORDINALITY AS p(lat, lng, ord) " +
+            "CROSS JOIN LATERAL (" +
+            "  SELECT l.id, l.name, l.address, ST_Y(l.geom) AS latitude, ST_X(l.geom) AS longitude, " +
+            "         ST_Distance(CAST(l.geom AS geography), CAST(ST_SetSRID(ST_MakePoint(p.lng, p.lat), 4326) AS geography)) AS distance " +
+            "  FROM locations l WHERE l.geom IS NOT NULL " +
+            "  ORDER BY CAST(l.geom AS geography) <-> CAST(ST_SetSRID(ST_MakePoint(p.lng, p.lat), 4326) AS geography) LIMIT 1" +
+            ") n " +
+            "WHERE n.distance <= :maxDistanceInMeters ORDER BY p.ord", nativeQuery = true)
+    List<NearestLocationMatch> findNearestLocationForEach(@Param("latitudes") double[] latitudes,
+                                                          @Param("longitudes") double[] longitudes,
+                                                          @Param("maxDistanceInMeters") double maxDistanceInMeters);
+    
     // Find locations within a bounding box
     @Query(value = "SELECT * FROM locations WHERE ST_Within(geom, ST_MakeEnvelope(:minLon, :minLat, :maxLon, :maxLat, 4326))", nativeQuery = true)
     List<Location> findLocationsInBoundingBox(@Param("minLat") double minLat, 
@@ -35,8 +77,51 @@ public interface LocationRepository extends JpaRepository<Location, Long> {
                                              @Param("maxLat") double maxLat, 
                                              @Param("maxLon") double maxLon);
     
-    // Find locations along a route (within buffer distance)
-    @Query(value = "SELECT * FROM locations WHERE ST_DWithin(geom, ST_GeomFromText(:routeLineString, 4326), :bufferDistance)", nativeQuery = true)
+    // Find locations along a route (within buffer distance, in meters); CorridorSearchService pages long routes
+    @Query(value = "SELECT * FROM locations WHERE ST_DWithin(CAST(geom AS geography), CAST(ST_GeomFromText(:routeLineString, 4326) AS geography), :bufferDistance)", nativeQuery = true)
     List<Location> findLocationsAlongRoute(@Param("routeLineString") String routeLineString, 
                                           @Param("bufferDistance") double bufferDistance);
-} 
\ No newline at end of file
+    
+    // Projection variants: LocationSummary rows instead of managed entities. The Slice finders are keyset
+    // paginated on id: pass the last id of the previous slice as afterId (0 for the first) and
+    // PageRequest.ofSize(n); hasNext() tells whether to ask again. The Stream finders must be consumed
+    // inside a read-only transaction and closed, e.g. in try-with-resources.
+    
+    @Query(value = SUMMARY_COLUMNS + "WHERE name ILIKE " + CONTAINS_TERM + " AND id > :afterId ORDER BY id",
+            nativeQuery = true)
+    Slice<LocationSummary> findSummariesByNameContaining(@Param("term") String name,
+                                                         @Param("afterId") long afterId,
+                                                         Pageable pageable);
+    
+    @Query(value = SUMMARY_COLUMNS + "WHERE address ILIKE " + CONTAINS_TERM + " AND id > :afterId ORDER BY id",
+            nativeQuery = true)
+    Slice<LocationSummary> findSummariesByAddressContaining(@Param("term") String address,
+                                                            @Param("afterId") long afterId,
+                                                            Pageable pageable);
+    
+    @Query(value = SUMMARY_COLUMNS + "WHERE ST_Within(geom, ST_MakeEnvelope(:minLon, :minLat, :maxLon, :maxLat, 4326)) " +
+            "AND id > :afterId ORDER BY id", nativeQuery = true)
+    Slice<LocationSummary> findSummariesInBoundingBox(@Param("minLat") double minLat,
+                                                      @Param("minLon") double minLon,
+                                                      @Param("maxLat") double maxLat,
+                                                      @Param("maxLon") double maxLon,
+                                                      @Param("afterId") long afterId,
+                                                      Pageable pageable);
+    
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query(value = SUMMARY_COLUMNS + "WHERE ST_Within(geom, ST_MakeEnvelope(:minLon, :minLat, :maxLon, :maxLat, 4326)) ORDER BY id", nativeQuery = true)
+    Stream<LocationSummary> streamSummariesInBoundingBox(@Param("minLat") double minLat,
+                                                         @Param("minLon") double minLon,
+                                                         @Param("maxLat") double maxLat,
+                                                         @Param("maxLon") double maxLon);
+    
+    // Nearest first
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query(value = SUMMARY_COLUMNS + "WHERE ST_DWithin(CAST(geom AS geography), CAST(ST_SetSRID(ST_MakePoint(:longitude, :latitude), 4326) AS geography), :distanceInMeters) " +
+            "ORDER BY CAST(geom AS geography) <-> CAST(ST_SetSRID(ST_MakePoint(:longitude, :latitude), 4326) AS geography)", nativeQuery = true)
+    Stream<LocationSummary> streamSummariesWithinDistance(@Param("latitude") double latitude,
+                                                          @Param("longitude") double longitude,
+                                                          @Param("distanceInMeters") double distanceInMeters);
+}
@@ -0,0 +1,13 @@
+package com.example.route.repository;
+
+// Read-only row of LocationRepository's projection finders; no entity, geometry or timestamps are loaded
+public interface LocationSummary {
+
+    Long getId();
+
+    String getName();
+
+    Double getLatitude();
+
+    Double getLongitude();
+}
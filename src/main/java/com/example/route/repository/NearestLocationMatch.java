@@ -0,0 +1,19 @@
+package com.example.route.repository;
+
+// Row of LocationRepository's batched nearest-location query
+public interface NearestLocationMatch {
+
+    int getInputIndex();
+
+    Long getId();
+
+    String getName();
+
+    String getAddress();
+
+    double getLatitude();
+
+    double getLongitude();
+
+    double getDistanceMeters();
+}
@@ -0,0 +1,9 @@
+package com.example.route.repository;
+
+import com.example.route.entity.Route;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface RouteRepository extends JpaRepository<Route, Long> {
+}
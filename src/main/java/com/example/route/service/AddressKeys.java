@@ -0,0 +1,46 @@
+package com.example.route.service;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Normalization shared by every cache that is keyed on free-text addresses, so that
+ * "1 Main St." and "1 main st" land on the same entry. It is also the only place the
+ * {@code locations.address_key} column is computed, so the database never has to agree with it.
+ */
+public final class AddressKeys {
+
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{M}\\p{N}]+");
+
+    private AddressKeys() {}
+
+    public static String normalize(String address) {
+        if (address == null) {
+            return "";
+        }
+        // Composed first, so an accent typed as a combining mark keys like the precomposed letter
+        String composed = Normalizer.normalize(address, Normalizer.Form.NFC);
+        return SEPARATORS.matcher(composed.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    // 64-bit FNV-1a over the normalized form, finished with a murmur-style mix
+    public static long hash(String address) {
+        String normalized = normalize(address);
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < normalized.length(); i++) {
+            hash ^= normalized.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    public static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
@@ -0,0 +1,243 @@
+package com.example.route.service;
+
+import com.example.route.dto.RouteRequest;
+import com.example.route.service.matrix.TravelMatrix;
+import com.example.route.service.matrix.TravelMatrixService;
+import com.example.route.service.optimizer.TourOptimizer;
+import com.example.route.service.spatial.GeoMath;
+import com.example.route.service.spatial.GreatCircleMatrix;
+import com.example.route.service.spatial.KMeansClusterer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Orders very long routes cluster-first: the waypoints are partitioned into spatially compact clusters,
+ * the clusters are put in visiting order on great-circle distances between their centers, and each
+ * cluster is then ordered on its own travel matrix from an entry stop facing the previous cluster to an
+ * exit stop facing the next one. Clusters are fetched and solved concurrently, so the matrix grows with
+ * stops × cluster size instead of stops² and the solving spreads over every route executor thread.
+ *
+ * <p>Only requests whose stops all went upstream as {@code lat,lng} (typed that way or resolved from saved
+ * locations) can be clustered; others keep the single-matrix ordering.
+ */
+@Service
+public class ClusteredTourPlanner {
+
+    private static final Logger log = LoggerFactory.getLogger(ClusteredTourPlanner.class);
+
+    @Value("${route.decomposition.enabled:true}")
+    private boolean enabled;
+
+    @Value("${route.decomposition.min-stops:200}")
+    private int minStops;
+
+    @Value("${route.decomposition.cluster-size:100}")
+    private int clusterSize;
+
+    @Value("${route.decomposition.kmeans-iterations:25}")
+    private int kmeansIterations;
+
+    @Value("${route.optimizer.objective:duration}")
+    private TravelMatrix.Objective objective;
+
+    private final TravelMatrixService travelMatrixService;
+    private final TourOptimizer tourOptimizer;
+    private final Executor routeExecutor;
+
+    public ClusteredTourPlanner(TravelMatrixService travelMatrixService, TourOptimizer tourOptimizer,
+                                @Qualifier("routeExecutor") Executor routeExecutor) {
+        this.travelMatrixService = travelMatrixService;
+        this.tourOptimizer = tourOptimizer;
+        this.routeExecutor = routeExecutor;
+    }
+
+    // Whether the request is long enough to decompose and every stop has coordinates
+    public boolean applies(RouteRequest request) {
+        if (!enabled || request.getWaypoints().size() < minStops || GeoMath.parseCoordinates(request.getOrigin()) == null) {
+            return false;
+        }
+        if (hasDestination(request) && GeoMath.parseCoordinates(request.getDestination()) == null) {
+            return false;
+        }
+        for (String waypoint : request.getWaypoints()) {
+            if (GeoMath.parseCoordinates(waypoint) == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Completes with the visiting order as indices into request.getWaypoints(); requires applies(request)
+    public CompletableFuture<List<Integer>> orderWaypoints(RouteRequest request) {
+        return CompletableFuture.supplyAsync(() -> plan(request), routeExecutor)
+                .thenCompose(plan -> {
+                    List<CompletableFuture<int[]>> solved = new ArrayList<>(plan.clusters.length);
+                    for (int c = 0; c < plan.clusters.length; c++) {
+                        solved.add(solveCluster(request, plan.clusters[c], plan.entry[c], plan.exit[c]));
+                    }
+                    return CompletableFuture.allOf(solved.toArray(new CompletableFuture[0])).thenApply(done -> {
+                        List<Integer> order = new ArrayList<>(request.getWaypoints().size());
+                        for (CompletableFuture<int[]> cluster : solved) {
+                            for (int waypoint : cluster.join()) {
+                                order.add(waypoint);
+                            }
+                        }
+                        return order;
+                    });
+                });
+    }
+
+    private Plan plan(RouteRequest request) {
+        List<String> waypoints = request.getWaypoints();
+        int count = waypoints.size();
+        double[] latitudes = new double[count];
+        double[] longitudes = new double[count];
+        for (int i = 0; i < count; i++) {
+            double[] point = GeoMath.parseCoordinates(waypoints.get(i));
+            latitudes[i] = point[0];
+            longitudes[i] = point[1];
+        }
+        int[][] groups = KMeansClusterer.partition(latitudes, longitudes, clusterSize, kmeansIterations, 0);
+        int k = groups.length;
+
+        // Node 0 is the origin, 1..k the cluster centers and k + 1 a fixed destination
+        boolean fixedDestination = !request.isRoundTrip() && hasDestination(request);
+        int size = k + (fixedDestination ? 2 : 1);
+        double[] nodeLat = new double[size];
+        double[] nodeLng = new double[size];
+        double[] origin = GeoMath.parseCoordinates(request.getOrigin());
+        nodeLat[0] = origin[0];
+        nodeLng[0] = origin[1];
+        for (int c = 0; c < k; c++) {
+            double[] center = center(groups[c], latitudes, longitudes);
+            nodeLat[c + 1] = center[0];
+            nodeLng[c + 1] = center[1];
+        }
+        if (fixedDestination) {
+            double[] destination = GeoMath.parseCoordinates(request.getDestination());
+            nodeLat[k + 1] = destination[0];
+            nodeLng[k + 1] = destination[1];
+        }
+        double[] meters = GreatCircleMatrix.meters(GreatCircleMatrix.Points.of(nodeLat, nodeLng));
+        long[] cost = new long[size * size];
+        for (int i = 0; i < cost.length; i++) {
+            cost[i] = Math.round(meters[i]);
+        }
+        int end = request.isRoundTrip() ? 0 : fixedDestination ? k + 1 : TourOptimizer.OPEN_END;
+        int[] path = tourOptimizer.solve(cost, size, 0, end);
+
+        List<Integer> sequence = new ArrayList<>(k);
+        for (int node : path) {
+            if (node >= 1 && node <= k) {
+                sequence.add(node - 1);
+            }
+        }
+
+        // Each cluster is entered at the stop nearest the previous exit and left at the stop nearest
+        // the next cluster's center (or the route's end); an open route leaves its last cluster anywhere
+        Plan plan = new Plan(k);
+        double previousLat = origin[0];
+        double previousLng = origin[1];
+        for (int position = 0; position < k; position++) {
+            int[] group = groups[sequence.get(position)];
+            int entry = nearest(group, -1, latitudes, longitudes, previousLat, previousLng);
+            int exit;
+            if (position + 1 < k) {
+                int next = sequence.get(position + 1) + 1;
+                exit = nearest(group, entry, latitudes, longitudes, nodeLat[next], nodeLng[next]);
+            } else if (end != TourOptimizer.OPEN_END) {
+                exit = nearest(group, entry, latitudes, longitudes, nodeLat[end], nodeLng[end]);
+            } else {
+                exit = -1;
+            }
+            plan.clusters[position] = group;
+            plan.entry[position] = entry;
+            plan.exit[position] = exit;
+            if (exit >= 0) {
+                previousLat = latitudes[group[exit]];
+                previousLng = longitudes[group[exit]];
+            }
+        }
+        log.debug("Decomposed {} waypoints into {} clusters of at most {}", count, k, clusterSize);
+        return plan;
+    }
+
+    // Completes with the cluster's waypoint indices in visiting order, from its entry to its exit
+    private CompletableFuture<int[]> solveCluster(RouteRequest request, int[] group, int entry, int exit) {
+        if (group.length == 1) {
+            return CompletableFuture.completedFuture(group.clone());
+        }
+        List<String> points = new ArrayList<>(group.length);
+        for (int waypoint : group) {
+            points.add(request.getWaypoints().get(waypoint));
+        }
+        return travelMatrixService.getMatrix(points).thenApplyAsync(matrix -> {
+            int[] path = tourOptimizer.solve(matrix.costs(objective), matrix.size(), entry,
+                    exit >= 0 ? exit : TourOptimizer.OPEN_END);
+            int[] order = new int[path.length];
+            for (int i = 0; i < path.length; i++) {
+                order[i] = group[path[i]];
+            }
+            return order;
+        }, routeExecutor);
+    }
+
+    // Position in group of the member nearest (lat, lng), skipping position except in a single-member group
+    private static int nearest(int[] group, int except, double[] latitudes, double[] longitudes, double lat,
+                               double lng) {
+        int best = 0;
+        double bestDistance = Double.MAX_VALUE;
+        for (int i = 0; i < group.length; i++) {
+            if (i == except && group.length > 1) {
+                continue;
+            }
+            double distance = GeoMath.haversineMeters(lat, lng, latitudes[group[i]], longitudes[group[i]]);
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    // Mean position on the unit sphere, mapped back to latitude and longitude
+    private static double[] center(int[] group, double[] latitudes, double[] longitudes) {
+        double[] unit = new double[3];
+        double x = 0;
+        double y = 0;
+        double z = 0;
+        for (int member : group) {
+            GeoMath.toUnitVector(latitudes[member], longitudes[member], unit, 0);
+            x += unit[0];
+            y += unit[1];
+            z += unit[2];
+        }
+        return new double[] {Math.toDegrees(Math.atan2(z, Math.hypot(x, y))), Math.toDegrees(Math.atan2(y, x))};
+    }
+
+    private static boolean hasDestination(RouteRequest request) {
+        return request.getDestination() != null && !request.getDestination().trim().isEmpty();
+    }
+
+    // Clusters in visiting order with the positions (within each cluster) of their entry and exit stops
+    private static final class Plan {
+
+        final int[][] clusters;
+        final int[] entry;
+        final int[] exit;
+
+        Plan(int count) {
+            this.clusters = new int[count][];
+            this.entry = new int[count];
+            this.exit = new int[count];
+        }
+    }
+}
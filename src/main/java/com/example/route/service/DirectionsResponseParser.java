@@ -0,0 +1,200 @@
+package com.example.route.service;
+
+import com.example.route.dto.RouteResponse;
+import com.example.route.service.upstream.UpstreamException;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Extracts a {@link RouteResponse} from a Directions API response in one streaming pass. Only the status,
+ * the first route's waypoint order, overview polyline and leg summaries (addresses, end points,
+ * distance, duration) are read; steps and every other subtree are skipped token by token without
+ * being materialized. Quota and server errors are thrown as {@link UpstreamException}.
+ */
+public class DirectionsResponseParser {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    // Waypoints are the ones sent with the request, used to resolve waypoint_order
+    public RouteResponse parse(byte[] body, List<String> waypoints) {
+        try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return RouteResponse.error("Error parsing response: not a JSON object");
+            }
+
+            // "status" usually comes after "routes", so the first route is read before the status is known
+            String status = null;
+            RouteResponse route = null;
+            int routeCount = 0;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("status".equals(field)) {
+                    status = parser.getText();
+                } else if ("routes".equals(field) && value == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        if (routeCount++ == 0) {
+                            route = parseRoute(parser, waypoints);
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+
+            int statusCode = UpstreamException.statusCodeOf(status);
+            if (statusCode != 0) {
+                throw new UpstreamException("Google Maps API error: " + status, statusCode);
+            }
+            if (!"OK".equals(status)) {
+                return RouteResponse.error("Google Maps API error: " + status);
+            }
+            if (route == null) {
+                return RouteResponse.error("No routes found");
+            }
+            return route;
+        } catch (UpstreamException e) {
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            return RouteResponse.error("Error parsing response: " + e.getMessage());
+        }
+    }
+
+    private RouteResponse parseRoute(JsonParser parser, List<String> waypoints) throws IOException {
+        List<String> optimizedWaypoints = new ArrayList<>();
+        List<Integer> optimizedOrder = new ArrayList<>();
+        List<RouteResponse.RouteLeg> legs = new ArrayList<>();
+        String overviewPolyline = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if ("waypoint_order".equals(field) && value == JsonToken.START_ARRAY) {
+                while (parser.nextToken() == JsonToken.VALUE_NUMBER_INT) {
+                    int waypointIndex = parser.getIntValue();
+                    if (waypointIndex < waypoints.size()) {
+                        optimizedWaypoints.add(waypoints.get(waypointIndex));
+                        optimizedOrder.add(waypointIndex);
+                    }
+                }
+            } else if ("legs".equals(field) && value == JsonToken.START_ARRAY) {
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    legs.add(parseLeg(parser));
+                }
+            } else if ("overview_polyline".equals(field) && value == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.getCurrentName();
+                    parser.nextToken();
+                    if ("points".equals(name)) {
+                        overviewPolyline = parser.getText();
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        // Calculate total distance and duration
+        long totalDistance = 0;
+        long totalDuration = 0;
+        for (RouteResponse.RouteLeg leg : legs) {
+            totalDistance += leg.getDistanceValue();
+            totalDuration += leg.getDurationValue();
+        }
+
+        RouteResponse result = new RouteResponse("OK", optimizedWaypoints,
+                RouteFormats.formatDistance(totalDistance), RouteFormats.formatDuration(totalDuration), legs);
+        result.setWaypointOrder(optimizedOrder);
+        result.setTotalDistanceValue(totalDistance);
+        result.setTotalDurationValue(totalDuration);
+        result.setOverviewPolyline(overviewPolyline);
+        return result;
+    }
+
+    private RouteResponse.RouteLeg parseLeg(JsonParser parser) throws IOException {
+        RouteResponse.RouteLeg leg = new RouteResponse.RouteLeg();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "start_address" -> leg.setStartAddress(parser.getText());
+                case "end_address" -> leg.setEndAddress(parser.getText());
+                case "distance" -> {
+                    if (value == JsonToken.START_OBJECT) {
+                        parseTextValue(parser, leg, true);
+                    }
+                }
+                case "duration" -> {
+                    if (value == JsonToken.START_OBJECT) {
+                        parseTextValue(parser, leg, false);
+                    }
+                }
+                case "start_location" -> {
+                    if (value == JsonToken.START_OBJECT) {
+                        double[] latLng = parseLatLng(parser);
+                        leg.setStartLatitude(latLng[0]);
+                        leg.setStartLongitude(latLng[1]);
+                    }
+                }
+                case "end_location" -> {
+                    if (value == JsonToken.START_OBJECT) {
+                        double[] latLng = parseLatLng(parser);
+                        leg.setEndLatitude(latLng[0]);
+                        leg.setEndLongitude(latLng[1]);
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        return leg;
+    }
+
+    // Reads a {"lat": ..., "lng": ...} object
+    private double[] parseLatLng(JsonParser parser) throws IOException {
+        double[] latLng = new double[2];
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            if ("lat".equals(field)) {
+                latLng[0] = parser.getValueAsDouble();
+            } else if ("lng".equals(field)) {
+                latLng[1] = parser.getValueAsDouble();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return latLng;
+    }
+
+    // Reads a {"text": ..., "value": ...} pair into the leg's distance or duration
+    private void parseTextValue(JsonParser parser, RouteResponse.RouteLeg leg, boolean distance) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            if ("text".equals(field)) {
+                if (distance) {
+                    leg.setDistance(parser.getText());
+                } else {
+                    leg.setDuration(parser.getText());
+                }
+            } else if ("value".equals(field)) {
+                if (distance) {
+                    leg.setDistanceValue(parser.getValueAsLong());
+                } else {
+                    leg.setDurationValue(parser.getValueAsLong());
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.route.service;
+
+import com.example.route.dto.FleetRouteRequest;
+import com.example.route.dto.FleetRouteResponse;
+import com.example.route.dto.FleetStop;
+import com.example.route.dto.FleetVehicle;
+import com.example.route.dto.RouteRequest;
+import com.example.route.dto.VehicleRoute;
+import com.example.route.service.address.AddressResolver;
+import com.example.route.service.matrix.TravelMatrix;
+import com.example.route.service.matrix.TravelMatrixService;
+import com.example.route.service.optimizer.FleetOptimizer;
+import com.example.route.service.optimizer.FleetProblem;
+import com.example.route.service.optimizer.FleetSolution;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Plans a day for a fleet: assigns stops to vehicles that share one depot, respecting vehicle
+ * capacities, stop time windows and shift ends. Travel costs come from the same matrix as single
+ * routes; the assignment itself is {@link FleetOptimizer}'s, within a wall-clock budget.
+ */
+@Service
+public class FleetRoutingService {
+
+    // Stands in for "no limit" while leaving room for the solver's sums
+    private static final long NO_TIME_LIMIT = Long.MAX_VALUE / 4;
+
+    @Value("${route.fleet.time-budget-ms:2000}")
+    private long defaultBudgetMs;
+
+    @Value("${route.fleet.max-time-budget-ms:10000}")
+    private long maxBudgetMs;
+
+    @Value("${route.fleet.max-stops:2000}")
+    private int maxStops;
+
+    @Value("${route.optimizer.objective:duration}")
+    private TravelMatrix.Objective objective;
+
+    private final AddressResolver addressResolver;
+    private final TravelMatrixService travelMatrixService;
+    private final FleetOptimizer fleetOptimizer;
+
+    public FleetRoutingService(AddressResolver addressResolver, TravelMatrixService travelMatrixService,
+                               FleetOptimizer fleetOptimizer) {
+        this.addressResolver = addressResolver;
+        this.travelMatrixService = travelMatrixService;
+        this.fleetOptimizer = fleetOptimizer;
+    }
+
+    // Never completes exceptionally; failures are reported as FleetRouteResponse.error
+    public CompletableFuture<FleetRouteResponse> plan(FleetRouteRequest request) {
+        if (request.getStops().size() > maxStops) {
+            return CompletableFuture.completedFuture(
+                    FleetRouteResponse.error("Too many stops for one plan (max " + maxStops + ")"));
+        }
+        long budget = Math.min(maxBudgetMs, request.getTimeBudgetMs() != null ? request.getTimeBudgetMs() : defaultBudgetMs);
+
+        // Node 0 is the depot, node i the request's stop i - 1; known stops go to the matrix as coordinates
+        List<String> addresses = new ArrayList<>(request.getStops().size());
+        for (FleetStop stop : request.getStops()) {
+            addresses.add(stop.getAddress());
+        }
+        return addressResolver.resolve(new RouteRequest(request.getDepot(), addresses, null, true))
+                .thenCompose(resolved -> {
+                    List<String> points = new ArrayList<>(addresses.size() + 1);
+                    points.add(resolved.getOrigin());
+                    points.addAll(resolved.getWaypoints());
+                    return travelMatrixService.getMatrix(points);
+                })
+                .thenCompose(matrix -> fleetOptimizer.solve(toProblem(request, matrix), Math.max(1, budget))
+                        .thenApply(solution -> toResponse(request, matrix, solution)))
+                .exceptionally(e -> FleetRouteResponse.error("Error planning fleet routes: " + rootCause(e).getMessage()));
+    }
+
+    private FleetProblem toProblem(FleetRouteRequest request, TravelMatrix matrix) {
+        int size = matrix.size();
+        int[] demand = new int[size];
+        long[] earliest = new long[size];
+        long[] latest = new long[size];
+        long[] service = new long[size];
+        latest[0] = NO_TIME_LIMIT;
+        for (int i = 1; i < size; i++) {
+            FleetStop stop = request.getStops().get(i - 1);
+            demand[i] = stop.getDemand();
+            earliest[i] = stop.getEarliest() != null ? stop.getEarliest() : 0;
+            latest[i] = stop.getLatest() != null ? stop.getLatest() : NO_TIME_LIMIT;
+            service[i] = stop.getServiceSeconds();
+        }
+
+        List<FleetVehicle> vehicles = request.getVehicles();
+        int[] capacity = new int[vehicles.size()];
+        long[] shiftStart = new long[vehicles.size()];
+        long[] shiftEnd = new long[vehicles.size()];
+        for (int v = 0; v < vehicles.size(); v++) {
+            FleetVehicle vehicle = vehicles.get(v);
+            capacity[v] = vehicle.getCapacity() != null ? vehicle.getCapacity() : Integer.MAX_VALUE / 2;
+            shiftStart[v] = vehicle.getShiftStart() != null ? vehicle.getShiftStart() : 0;
+            shiftEnd[v] = vehicle.getShiftEnd() != null ? vehicle.getShiftEnd() : NO_TIME_LIMIT;
+        }
+        return new FleetProblem(size, matrix.costs(objective), matrix.costs(TravelMatrix.Objective.DURATION),
+                demand, earliest, latest, service, capacity, shiftStart, shiftEnd);
+    }
+
+    private FleetRouteResponse toResponse(FleetRouteRequest request, TravelMatrix matrix, FleetSolution solution) {
+        List<VehicleRoute> routes = new ArrayList<>();
+        long totalDistance = 0;
+        long totalDuration = 0;
+        for (int v = 0; v < request.getVehicles().size(); v++) {
+            int[] nodes = solution.route(v);
+            if (nodes.length == 0) {
+                continue;
+            }
+            List<Integer> stopOrder = new ArrayList<>(nodes.length);
+            List<String> stops = new ArrayList<>(nodes.length);
+            List<Long> serviceStart = new ArrayList<>(nodes.length);
+            long distance = 0;
+            long duration = 0;
+            int previous = 0;
+            for (int k = 0; k < nodes.length; k++) {
+                stopOrder.add(nodes[k] - 1);
+                stops.add(request.getStops().get(nodes[k] - 1).getAddress());
+                serviceStart.add(solution.serviceStart(v)[k]);
+                distance += matrix.distance(previous, nodes[k]);
+                duration += matrix.duration(previous, nodes[k]);
+                previous = nodes[k];
+            }
+            distance += matrix.distance(previous, 0);
+            duration += matrix.duration(previous, 0);
+
+            String vehicleId = request.getVehicles().get(v).getId();
+            VehicleRoute route = new VehicleRoute();
+            route.setVehicleId(vehicleId != null ? vehicleId : "vehicle-" + (v + 1));
+            route.setStopOrder(stopOrder);
+            route.setStops(stops);
+            route.setServiceStartSeconds(serviceStart);
+            route.setReturnSeconds(solution.returnTime(v));
+            route.setLoad(solution.load(v));
+            route.setDistanceValue(distance);
+            route.setDurationValue(duration);
+            route.setDistance(RouteFormats.formatDistance(distance));
+            route.setDuration(RouteFormats.formatDuration(duration));
+            routes.add(route);
+            totalDistance += distance;
+            totalDuration += duration;
+        }
+
+        List<Integer> unassigned = new ArrayList<>(solution.unassigned().length);
+        for (int node : solution.unassigned()) {
+            unassigned.add(node - 1);
+        }
+
+        FleetRouteResponse response = new FleetRouteResponse();
+        response.setStatus("OK");
+        response.setRoutes(routes);
+        response.setUnassignedStops(unassigned);
+        response.setTotalDistanceValue(totalDistance);
+        response.setTotalDurationValue(totalDuration);
+        response.setTotalDistance(RouteFormats.formatDistance(totalDistance));
+        response.setTotalDuration(RouteFormats.formatDuration(totalDuration));
+        return response;
+    }
+
+    private static Throwable rootCause(Throwable e) {
+        while ((e instanceof CompletionException || e instanceof ExecutionException) && e.getCause() != null) {
+            e = e.getCause();
+        }
+        return e;
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.route.service;
+
+import com.example.route.service.spatial.GeoMath;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Google's encoded polyline format. Coordinates are kept as 1e-5 degree integers, the precision of
+ * the format itself, so decoding and re-encoding a polyline is lossless.
+ */
+public final class PolylineCodec {
+
+    // How far past a leg's length a cut is still looked for: the overview polyline is simplified, so its
+    // length along a leg is at most the leg's distance, plus rounding and where the stop was snapped
+    private static final double CUT_WINDOW_FACTOR = 1.1;
+    private static final double CUT_WINDOW_METERS = 250;
+
+    private PolylineCodec() {
+    }
+
+    // Returns lat/lng pairs in 1e-5 degrees, flattened as [lat0, lng0, lat1, lng1, ...]
+    public static int[] decode(String encoded) {
+        int[] coords = new int[Math.max(2, encoded.length())];
+        int count = 0;
+        int index = 0;
+        int lat = 0;
+        int lng = 0;
+        while (index < encoded.length()) {
+            // Each point is a (lat, lng) delta pair of 5-bit little-endian chunks
+            for (int axis = 0; axis < 2 && index < encoded.length(); axis++) {
+                int result = 0;
+                int shift = 0;
+                int b;
+                do {
+                    b = encoded.charAt(index++) - 63;
+                    result |= (b & 0x1f) << shift;
+                    shift += 5;
+                } while (b >= 0x20 && index < encoded.length());
+                int delta = (result & 1) != 0 ? ~(result >> 1) : (result >> 1);
+                if (axis == 0) {
+                    lat += delta;
+                } else {
+                    lng += delta;
+                }
+            }
+
+            if (count + 2 > coords.length) {
+                coords = Arrays.copyOf(coords, coords.length * 2);
+            }
+            coords[count++] = lat;
+            coords[count++] = lng;
+        }
+        return Arrays.copyOf(coords, count);
+    }
+
+    public static String encode(int[] coords, int length) {
+        StringBuilder encoded = new StringBuilder(length * 3);
+        int lat = 0;
+        int lng = 0;
+        for (int i = 0; i + 1 < length; i += 2) {
+            writeValue(encoded, coords[i] - lat);
+            writeValue(encoded, coords[i + 1] - lng);
+            lat = coords[i];
+            lng = coords[i + 1];
+        }
+        return encoded.toString();
+    }
+
+    // Joins consecutive polylines into one, dropping the shared point where one ends and the next begins
+    public static String join(List<String> polylines) {
+        int[] joined = new int[0];
+        int length = 0;
+        for (String polyline : polylines) {
+            if (polyline == null || polyline.isEmpty()) {
+                continue;
+            }
+            int[] coords = decode(polyline);
+            int skip = length >= 2 && coords.length >= 2
+                    && coords[0] == joined[length - 2] && coords[1] == joined[length - 1] ? 2 : 0;
+            if (length + coords.length - skip > joined.length) {
+                joined = Arrays.copyOf(joined, Math.max(joined.length * 2, length + coords.length));
+            }
+            System.arraycopy(coords, skip, joined, length, coords.length - skip);
+            length += coords.length - skip;
+        }
+        return encode(joined, length);
+    }
+
+    /**
+     * Cuts a polyline into consecutive pieces, one more than there are cut points, each cut made at the
+     * vertex nearest its point and never before the previous cut; pieces share their boundary vertex.
+     * Used to recover per-leg geometry from an overview polyline and the legs' end points.
+     * {@code legMeters[k]} is the length of the piece ending at cut k; the cut is only looked for within
+     * about that distance along the line, so a route that passes the point again later isn't cut there.
+     * Lengths of 0 leave the search unbounded.
+     */
+    public static List<String> split(String encoded, double[] latitudes, double[] longitudes, long[] legMeters) {
+        List<String> pieces = new ArrayList<>(latitudes.length + 1);
+        int[] coords = encoded == null ? new int[0] : decode(encoded);
+        int count = coords.length / 2;
+        int start = 0;
+        for (int cut = 0; cut < latitudes.length; cut++) {
+            int lat = (int) Math.round(latitudes[cut] * 1e5);
+            int lng = (int) Math.round(longitudes[cut] * 1e5);
+            double window = legMeters[cut] > 0
+                    ? legMeters[cut] * CUT_WINDOW_FACTOR + CUT_WINDOW_METERS
+                    : Double.MAX_VALUE;
+            double walked = 0;
+            int nearest = start;
+            long nearestDistance = Long.MAX_VALUE;
+            for (int i = start; i < count; i++) {
+                if (i > start) {
+                    walked += GeoMath.haversineMeters(coords[2 * i - 2] / 1e5, coords[2 * i - 1] / 1e5,
+                            coords[2 * i] / 1e5, coords[2 * i + 1] / 1e5);
+                    if (walked > window) {
+                        break;
+                    }
+                }
+                long dLat = coords[2 * i] - lat;
+                long dLng = coords[2 * i + 1] - lng;
+                long distance = dLat * dLat + dLng * dLng;
+                if (distance < nearestDistance) {
+                    nearestDistance = distance;
+                    nearest = i;
+                }
+            }
+            pieces.add(count == 0 ? null : encode(Arrays.copyOfRange(coords, 2 * start, 2 * nearest + 2),
+                    2 * (nearest - start + 1)));
+            start = nearest;
+        }
+        pieces.add(count == 0 ? null : encode(Arrays.copyOfRange(coords, 2 * start, coords.length), 2 * (count - start)));
+        return pieces;
+    }
+
+    private static void writeValue(StringBuilder encoded, int value) {
+        int v = value < 0 ? ~(value << 1) : value << 1;
+        while (v >= 0x20) {
+            encoded.append((char) ((0x20 | (v & 0x1f)) + 63));
+            v >>>= 5;
+        }
+        encoded.append((char) (v + 63));
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.route.service;
+
+import com.example.route.dto.BatchRouteItem;
+import com.example.route.dto.BatchRouteResponse;
+import com.example.route.dto.RouteResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Handle for a submitted batch: one future per input position, in input order. Duplicate
+ * requests share the future of their first occurrence.
+ */
+public class RouteBatch {
+
+    private final List<CompletableFuture<RouteResponse>> items;
+    private final int uniqueRequests;
+
+    RouteBatch(List<CompletableFuture<RouteResponse>> items, int uniqueRequests) {
+        this.items = items;
+        this.uniqueRequests = uniqueRequests;
+    }
+
+    public List<CompletableFuture<RouteResponse>> getItems() {
+        return items;
+    }
+
+    public int getUniqueRequests() {
+        return uniqueRequests;
+    }
+
+    public CompletableFuture<BatchRouteResponse> toResponse() {
+        return CompletableFuture.allOf(items.toArray(new CompletableFuture[0])).thenApply(done -> {
+            List<BatchRouteItem> results = new ArrayList<>(items.size());
+            int failed = 0;
+            for (int i = 0; i < items.size(); i++) {
+                // Each position gets its own copy; duplicates must not share one mutable response
+                RouteResponse response = new RouteResponse(items.get(i).join());
+                if ("ERROR".equals(response.getStatus())) {
+                    failed++;
+                }
+                results.add(new BatchRouteItem(i, response));
+            }
+            return new BatchRouteResponse(items.size(), uniqueRequests, failed, results);
+        });
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.route.service;
+
+import com.example.route.dto.RouteRequest;
+import com.example.route.dto.RouteResponse;
+import com.example.route.service.cache.CachedRoute;
+import com.example.route.service.cache.RouteRequestKey;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Plans many routes at once: identical requests are computed once, and at most
+ * {@code route.batch.max-parallelism} routes of a batch are in flight at a time.
+ * Every item completes on its own, so one failed route never fails the batch.
+ */
+@Service
+public class RouteBatchService {
+
+    @Value("${route.batch.max-parallelism:8}")
+    private int maxParallelism;
+
+    @Value("${route.batch.max-size:1000}")
+    private int maxSize;
+
+    private final RouteService routeService;
+    private final Validator validator;
+
+    public RouteBatchService(RouteService routeService, Validator validator) {
+        this.routeService = routeService;
+        this.validator = validator;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public RouteBatch submit(List<RouteRequest> requests) {
+        List<CompletableFuture<RouteResponse>> items = new ArrayList<>(requests.size());
+        List<RouteRequest> unique = new ArrayList<>();
+        List<CompletableFuture<RouteResponse>> uniqueResults = new ArrayList<>();
+        Map<RouteRequestKey, CompletableFuture<RouteResponse>> byKey = new HashMap<>();
+        Map<RouteRequestKey, RouteRequest> representatives = new HashMap<>();
+
+        for (RouteRequest request : requests) {
+            String violation = validate(request);
+            if (violation != null) {
+                items.add(CompletableFuture.completedFuture(RouteResponse.error("Validation error: " + violation)));
+                continue;
+            }
+            RouteRequestKey key = routeService.requestKey(request);
+            CompletableFuture<RouteResponse> result = byKey.computeIfAbsent(key, k -> {
+                CompletableFuture<RouteResponse> future = new CompletableFuture<>();
+                unique.add(request);
+                uniqueResults.add(future);
+                representatives.put(k, request);
+                return future;
+            });
+            RouteRequest representative = representatives.get(key);
+            items.add(representative == request
+                    ? result
+                    : result.thenApply(response -> remap(representative, request, response)));
+        }
+
+        // Each lane starts the next pending route as soon as its current one settles
+        AtomicInteger next = new AtomicInteger();
+        int lanes = Math.min(Math.max(1, maxParallelism), unique.size());
+        for (int lane = 0; lane < lanes; lane++) {
+            runNext(unique, uniqueResults, next);
+        }
+        return new RouteBatch(items, unique.size());
+    }
+
+    // Runs routes until one is still in flight, then continues when it settles. Routes that are done at
+    // once (cache hits, open circuit) are settled in the loop, so a batch of them doesn't recurse per item.
+    private void runNext(List<RouteRequest> unique, List<CompletableFuture<RouteResponse>> results, AtomicInteger next) {
+        int index;
+        while ((index = next.getAndIncrement()) < unique.size()) {
+            CompletableFuture<RouteResponse> route;
+            try {
+                route = routeService.getOptimizedRoute(unique.get(index));
+            } catch (RuntimeException e) {
+                route = CompletableFuture.completedFuture(RouteResponse.error("Error getting route: " + e.getMessage()));
+            }
+            CompletableFuture<RouteResponse> result = results.get(index);
+            if (!route.isDone()) {
+                route.whenComplete((response, error) -> {
+                    settle(result, response, error);
+                    runNext(unique, results, next);
+                });
+                return;
+            }
+            route.whenComplete((response, error) -> settle(result, response, error));
+        }
+    }
+
+    private static void settle(CompletableFuture<RouteResponse> result, RouteResponse response, Throwable error) {
+        result.complete(error == null ? response : RouteResponse.error("Error getting route: " + error.getMessage()));
+    }
+
+    // A duplicate may list the same stops in another order than the request that was computed, so the
+    // computed request's plan doesn't fit it; it gets a plan of its own if it asked for one
+    private RouteResponse remap(RouteRequest computed, RouteRequest duplicate, RouteResponse response) {
+        RouteResponse remapped = new CachedRoute(response, RouteRequestKey.of(computed))
+                .remapTo(duplicate, RouteRequestKey.of(duplicate));
+        if (remapped == null) {
+            remapped = new RouteResponse(response);
+        }
+        remapped.setPlanId(null);
+        return routeService.registerPlan(duplicate, remapped);
+    }
+
+    private String validate(RouteRequest request) {
+        if (request == null) {
+            return "Request is required";
+        }
+        Set<ConstraintViolation<RouteRequest>> violations = validator.validate(request);
+        return violations.isEmpty() ? null : violations.iterator().next().getMessage();
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.route.service;
+
+/**
+ * Human-readable distance and duration texts, in the same style as the Directions API leg texts.
+ */
+public final class RouteFormats {
+
+    private RouteFormats() {
+    }
+
+    public static String formatDistance(long meters) {
+        if (meters < 1000) {
+            return meters + " m";
+        } else {
+            double km = meters / 1000.0;
+            return String.format("%.1f km", km);
+        }
+    }
+
+    public static String formatDuration(long seconds) {
+        long hours = seconds / 3600;
+        long minutes = (seconds % 3600) / 60;
+
+        if (hours > 0) {
+            return String.format("%d hr %d min", hours, minutes);
+        } else {
+            return String.format("%d min", minutes);
+        }
+    }
+}
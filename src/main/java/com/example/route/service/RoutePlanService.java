@@ -0,0 +1,441 @@
+package com.example.route.service;
+
+import com.example.route.dto.RoutePatchRequest;
+import com.example.route.dto.RouteRequest;
+import com.example.route.dto.RouteResponse;
+import com.example.route.service.address.AddressResolver;
+import com.example.route.service.directions.DirectionsProvider;
+import com.example.route.service.matrix.MatrixBlock;
+import com.example.route.service.matrix.TravelMatrix;
+import com.example.route.service.matrix.TravelMatrixService;
+import com.example.route.service.optimizer.TourOptimizer;
+import com.example.route.service.persistence.RoutePersistenceService;
+import com.example.route.service.plan.RoutePlan;
+import com.example.route.service.plan.RoutePlanStore;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Applies a dispatcher's edits to a returned route without recomputing it. Removed stops are spliced out,
+ * new stops go to their cheapest insertion point (costs fetched for the new stops only), and a window of
+ * {@code route.plans.improve-radius} stops around every change is re-ordered exactly. Only legs whose
+ * endpoints changed are fetched from Google; every other leg and its geometry is kept from the plan.
+ */
+@Service
+public class RoutePlanService {
+
+    @Value("${route.plans.improve-radius:4}")
+    private int improveRadius;
+
+    @Value("${route.optimizer.objective:duration}")
+    private TravelMatrix.Objective objective;
+
+    private final RoutePlanStore routePlans;
+    private final DirectionsProvider directionsProvider;
+    private final AddressResolver addressResolver;
+    private final TravelMatrixService travelMatrixService;
+    private final TourOptimizer tourOptimizer;
+    private final RoutePersistenceService routePersistence;
+    private final Executor routeExecutor;
+
+    public RoutePlanService(RoutePlanStore routePlans, DirectionsProvider directionsProvider,
+                            AddressResolver addressResolver, TravelMatrixService travelMatrixService,
+                            TourOptimizer tourOptimizer, RoutePersistenceService routePersistence,
+                            @Qualifier("routeExecutor") Executor routeExecutor) {
+        this.routePlans = routePlans;
+        this.directionsProvider = directionsProvider;
+        this.addressResolver = addressResolver;
+        this.travelMatrixService = travelMatrixService;
+        this.tourOptimizer = tourOptimizer;
+        this.routePersistence = routePersistence;
+        this.routeExecutor = routeExecutor;
+    }
+
+    /**
+     * Never completes exceptionally. Besides OK and ERROR the response status is NOT_FOUND for an unknown
+     * or expired plan and CONFLICT when another edit to the same plan finished first.
+     */
+    public CompletableFuture<RouteResponse> patch(String planId, RoutePatchRequest patch) {
+        RoutePlan plan = routePlans.get(planId);
+        if (plan == null) {
+            return CompletableFuture.completedFuture(failure("NOT_FOUND", "No route plan " + planId + " (it may have expired)"));
+        }
+        List<String> add = patch.getAdd() != null ? patch.getAdd() : List.of();
+        List<String> remove = patch.getRemove() != null ? patch.getRemove() : List.of();
+        if (add.isEmpty() && remove.isEmpty()) {
+            return CompletableFuture.completedFuture(RouteResponse.error("Nothing to add or remove"));
+        }
+        for (String stop : add) {
+            if (stop == null || stop.trim().isEmpty()) {
+                return CompletableFuture.completedFuture(RouteResponse.error("Added stops must not be blank"));
+            }
+        }
+
+        // Each removal takes the first not yet removed waypoint with the same normalized address
+        List<RoutePlan.Stop> stops = plan.getStops();
+        boolean[] removed = new boolean[stops.size()];
+        for (String address : remove) {
+            String key = AddressKeys.normalize(address);
+            int match = -1;
+            for (int i = 0; i < stops.size() && match < 0; i++) {
+                if (!removed[i] && stops.get(i).getWaypoint() >= 0
+                        && AddressKeys.normalize(stops.get(i).getAddress()).equals(key)) {
+                    match = i;
+                }
+            }
+            if (match < 0) {
+                return CompletableFuture.completedFuture(RouteResponse.error("Not a waypoint of this route: " + address));
+            }
+            removed[match] = true;
+        }
+
+        // Kept waypoints stay in their original order, added ones follow
+        RouteRequest original = plan.getRequest();
+        boolean[] dropped = new boolean[original.getWaypoints().size()];
+        for (int i = 0; i < stops.size(); i++) {
+            if (removed[i]) {
+                dropped[stops.get(i).getWaypoint()] = true;
+            }
+        }
+        int[] newIndex = new int[dropped.length];
+        List<String> waypoints = new ArrayList<>(original.getWaypoints().size() + add.size());
+        for (int w = 0; w < dropped.length; w++) {
+            newIndex[w] = dropped[w] ? -1 : waypoints.size();
+            if (!dropped[w]) {
+                waypoints.add(original.getWaypoints().get(w));
+            }
+        }
+        int firstAdded = waypoints.size();
+        waypoints.addAll(add);
+        if (waypoints.isEmpty()) {
+            return CompletableFuture.completedFuture(RouteResponse.error("A route needs at least one waypoint"));
+        }
+        RouteRequest request = new RouteRequest(original.getOrigin(), waypoints, original.getDestination(),
+                original.isRoundTrip());
+
+        // The stop before each gap is next to a change
+        List<Node> route = new ArrayList<>(stops.size() + add.size());
+        Set<Node> touched = new HashSet<>();
+        for (int i = 0; i < stops.size(); i++) {
+            RoutePlan.Stop stop = stops.get(i);
+            if (removed[i]) {
+                touched.add(route.get(route.size() - 1));
+                continue;
+            }
+            int waypoint = stop.getWaypoint() >= 0 ? newIndex[stop.getWaypoint()] : -1;
+            route.add(new Node(stop.getAddress(), waypoint, stop.getPoint(), i));
+        }
+
+        CompletableFuture<RouteResponse> result;
+        if (add.isEmpty()) {
+            result = improveAndFetch(plan, route, touched);
+        } else {
+            // Known stops come back as coordinates, so their costs may already be cached
+            result = addressResolver.resolve(new RouteRequest(original.getOrigin(), add, null, false))
+                    .thenCompose(resolved -> {
+                        List<Node> added = new ArrayList<>(add.size());
+                        for (int k = 0; k < add.size(); k++) {
+                            added.add(new Node(add.get(k), firstAdded + k, resolved.getWaypoints().get(k), -1));
+                        }
+                        return insertCheapest(plan, route, added);
+                    })
+                    .thenCompose(inserted -> {
+                        touched.addAll(inserted);
+                        return improveAndFetch(plan, route, touched);
+                    });
+        }
+        return result
+                .thenApply(response -> "OK".equals(response.getStatus())
+                        ? store(planId, plan, request, route, response) : response)
+                .exceptionally(e -> RouteResponse.error("Error updating route: " + rootCause(e).getMessage()));
+    }
+
+    // Inserts each new stop, in the order given, where it adds the least cost; completes with the new nodes
+    private CompletableFuture<List<Node>> insertCheapest(RoutePlan plan, List<Node> route, List<Node> added) {
+        // Costs needed: new stops to and from everything, and the kept pairs a removal joined
+        List<String> all = new ArrayList<>(route.size() + added.size());
+        for (Node node : route) {
+            all.add(node.point);
+        }
+        List<String> addedPoints = new ArrayList<>(added.size());
+        for (Node node : added) {
+            addedPoints.add(node.point);
+        }
+        all.addAll(addedPoints);
+        List<String> joinedFrom = new ArrayList<>();
+        List<String> joinedTo = new ArrayList<>();
+        for (int i = 0; i + 1 < route.size(); i++) {
+            if (!continues(route.get(i), route.get(i + 1))) {
+                joinedFrom.add(route.get(i).point);
+                joinedTo.add(route.get(i + 1).point);
+            }
+        }
+
+        int kept = route.size();
+        CompletableFuture<MatrixBlock> fromAdded = travelMatrixService.getBlock(addedPoints, all);
+        CompletableFuture<MatrixBlock> toAdded = travelMatrixService.getBlock(all, addedPoints);
+        CompletableFuture<MatrixBlock> joined = joinedFrom.isEmpty()
+                ? CompletableFuture.completedFuture(null) : travelMatrixService.getBlock(joinedFrom, joinedTo);
+        return CompletableFuture.allOf(fromAdded, toAdded, joined).thenApplyAsync(done -> {
+            MatrixBlock from = fromAdded.join();
+            MatrixBlock to = toAdded.join();
+            for (int i = 0; i < kept; i++) {
+                route.get(i).index = i;
+            }
+            for (int k = 0; k < added.size(); k++) {
+                added.get(k).index = kept + k;
+            }
+
+            // edge.get(i) is the cost from route[i] to route[i + 1]
+            List<Long> edge = new ArrayList<>(route.size() + added.size());
+            int joinedIndex = 0;
+            for (int i = 0; i + 1 < route.size(); i++) {
+                if (continues(route.get(i), route.get(i + 1))) {
+                    edge.add(legCost(plan.getLegs().get(route.get(i).position)));
+                } else {
+                    edge.add(cost(joined.join(), joinedIndex, joinedIndex));
+                    joinedIndex++;
+                }
+            }
+
+            boolean open = plan.getEnd() == RoutePlan.End.OPEN;
+            for (Node node : added) {
+                int best = -1;
+                long bestDelta = Long.MAX_VALUE;
+                for (int i = 0; i + 1 < route.size(); i++) {
+                    long delta = cost(to, route.get(i).index, node.index - kept)
+                            + cost(from, node.index - kept, route.get(i + 1).index) - edge.get(i);
+                    if (delta < bestDelta) {
+                        bestDelta = delta;
+                        best = i;
+                    }
+                }
+                Node last = route.get(route.size() - 1);
+                if (open && cost(to, last.index, node.index - kept) < bestDelta) {
+                    edge.add(cost(to, last.index, node.index - kept));
+                    route.add(node);
+                } else {
+                    Node next = route.get(best + 1);
+                    edge.set(best, cost(to, route.get(best).index, node.index - kept));
+                    edge.add(best + 1, cost(from, node.index - kept, next.index));
+                    route.add(best + 1, node);
+                }
+            }
+            return added;
+        }, routeExecutor);
+    }
+
+    // Re-orders the stops around each change, then fetches the legs that no longer match the plan
+    private CompletableFuture<RouteResponse> improveAndFetch(RoutePlan plan, List<Node> route, Set<Node> touched) {
+        int last = route.size() - 1;
+        List<int[]> windows = new ArrayList<>();
+        for (int i = 0; i <= last; i++) {
+            if (!touched.contains(route.get(i))) {
+                continue;
+            }
+            int from = Math.max(0, i - improveRadius);
+            int to = Math.min(last, i + improveRadius);
+            if (!windows.isEmpty() && windows.get(windows.size() - 1)[1] >= from) {
+                windows.get(windows.size() - 1)[1] = to;
+            } else {
+                windows.add(new int[] {from, to});
+            }
+        }
+
+        List<CompletableFuture<Void>> improved = new ArrayList<>(windows.size());
+        for (int[] window : windows) {
+            // Two fixed ends and fewer than two stops between them leave nothing to re-order
+            boolean openEnd = window[1] == last && plan.getEnd() == RoutePlan.End.OPEN;
+            if (window[1] - window[0] + 1 < (openEnd ? 3 : 4)) {
+                continue;
+            }
+            improved.add(improveWindow(route, window[0], window[1], openEnd));
+        }
+        return CompletableFuture.allOf(improved.toArray(new CompletableFuture[0]))
+                .thenCompose(done -> fetchChangedLegs(plan, route));
+    }
+
+    // Windows are disjoint, so each may rewrite its own slice of the route while the others run
+    private CompletableFuture<Void> improveWindow(List<Node> route, int from, int to, boolean openEnd) {
+        List<Node> slice = new ArrayList<>(route.subList(from, to + 1));
+        List<String> points = new ArrayList<>(slice.size());
+        for (Node node : slice) {
+            points.add(node.point);
+        }
+        return travelMatrixService.getMatrix(points).thenAcceptAsync(matrix -> {
+            int size = matrix.size();
+            long[] cost = matrix.costs(objective);
+            int[] current = new int[size];
+            for (int i = 0; i < size; i++) {
+                current[i] = i;
+            }
+            int[] path = tourOptimizer.solve(cost, size, 0, openEnd ? TourOptimizer.OPEN_END : size - 1);
+            if (TourOptimizer.pathCost(cost, size, path) < TourOptimizer.pathCost(cost, size, current)) {
+                for (int i = 0; i < size; i++) {
+                    route.set(from + i, slice.get(path[i]));
+                }
+            }
+        }, routeExecutor);
+    }
+
+    // One Directions call per run of consecutive changed legs; unchanged legs are copied from the plan
+    private CompletableFuture<RouteResponse> fetchChangedLegs(RoutePlan plan, List<Node> route) {
+        int legCount = route.size() - 1;
+        List<CompletableFuture<RouteResponse>> runs = new ArrayList<>();
+        List<int[]> runRanges = new ArrayList<>();
+        int i = 0;
+        while (i < legCount) {
+            if (continues(route.get(i), route.get(i + 1))) {
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < legCount && !continues(route.get(i), route.get(i + 1))) {
+                i++;
+            }
+            List<String> via = new ArrayList<>(i - start - 1);
+            for (int k = start + 1; k < i; k++) {
+                via.add(route.get(k).point);
+            }
+            runs.add(directionsProvider.directions(route.get(start).point, route.get(i).point, via));
+            runRanges.add(new int[] {start, i});
+        }
+
+        return CompletableFuture.allOf(runs.toArray(new CompletableFuture[0])).thenApply(done -> {
+            RouteResponse.RouteLeg[] legs = new RouteResponse.RouteLeg[legCount];
+            String[] polylines = new String[legCount];
+            for (int leg = 0; leg < legCount; leg++) {
+                Node node = route.get(leg);
+                if (continues(node, route.get(leg + 1))) {
+                    legs[leg] = new RouteResponse.RouteLeg(plan.getLegs().get(node.position));
+                    polylines[leg] = plan.getLegPolylines().get(node.position);
+                }
+            }
+            for (int r = 0; r < runs.size(); r++) {
+                RouteResponse fetched = runs.get(r).join();
+                int start = runRanges.get(r)[0];
+                int end = runRanges.get(r)[1];
+                if (!"OK".equals(fetched.getStatus())) {
+                    return fetched;
+                }
+                if (fetched.getLegs() == null || fetched.getLegs().size() != end - start) {
+                    return RouteResponse.error("Unexpected number of legs for the changed part of the route");
+                }
+                double[] cutLatitudes = new double[end - start - 1];
+                double[] cutLongitudes = new double[end - start - 1];
+                long[] cutLegMeters = new long[end - start - 1];
+                for (int k = 0; k + 1 < end - start; k++) {
+                    RouteResponse.RouteLeg leg = fetched.getLegs().get(k);
+                    cutLatitudes[k] = leg.getEndLatitude() != null ? leg.getEndLatitude() : 0;
+                    cutLongitudes[k] = leg.getEndLongitude() != null ? leg.getEndLongitude() : 0;
+                    cutLegMeters[k] = leg.getDistanceValue();
+                }
+                List<String> pieces = PolylineCodec.split(fetched.getOverviewPolyline(), cutLatitudes, cutLongitudes,
+                        cutLegMeters);
+                for (int k = 0; k < end - start; k++) {
+                    legs[start + k] = fetched.getLegs().get(k);
+                    polylines[start + k] = pieces.get(k);
+                }
+            }
+
+            long totalDistance = 0;
+            long totalDuration = 0;
+            for (RouteResponse.RouteLeg leg : legs) {
+                totalDistance += leg.getDistanceValue();
+                totalDuration += leg.getDurationValue();
+            }
+            RouteResponse response = new RouteResponse("OK", new ArrayList<>(), RouteFormats.formatDistance(totalDistance),
+                    RouteFormats.formatDuration(totalDuration), new ArrayList<>(Arrays.asList(legs)));
+            response.setTotalDistanceValue(totalDistance);
+            response.setTotalDurationValue(totalDuration);
+            response.setOverviewPolyline(PolylineCodec.join(Arrays.asList(polylines)));
+            return response;
+        });
+    }
+
+    // Fills in the stop order, stores the edited plan under the same id and records the new route
+    private RouteResponse store(String planId, RoutePlan plan, RouteRequest request, List<Node> route,
+                                RouteResponse response) {
+        List<Integer> order = new ArrayList<>(request.getWaypoints().size());
+        List<String> orderedWaypoints = new ArrayList<>(request.getWaypoints().size());
+        List<String> visitedStops = new ArrayList<>(route.size());
+        for (Node node : route) {
+            if (node.waypoint >= 0) {
+                order.add(node.waypoint);
+                orderedWaypoints.add(request.getWaypoints().get(node.waypoint));
+            }
+            visitedStops.add(node.address);
+        }
+        response.setWaypointOrder(order);
+        response.setOptimizedWaypoints(orderedWaypoints);
+
+        RoutePlan updated = routePlans.toPlan(request, response, plan.getEnd());
+        if (updated == null) {
+            return RouteResponse.error("The updated route has legs without coordinates");
+        }
+        if (!routePlans.replace(planId, plan, updated)) {
+            return failure("CONFLICT", "Route plan " + planId + " was changed by another edit; reload it and retry");
+        }
+
+        addressResolver.recordGeocodes(visitedStops, response.getLegs());
+        routePersistence.persistAsync(request, visitedStops, response);
+        RouteResponse result = new RouteResponse(response);
+        result.setPlanId(planId);
+        return result;
+    }
+
+    private long legCost(RouteResponse.RouteLeg leg) {
+        return objective == TravelMatrix.Objective.DISTANCE ? leg.getDistanceValue() : leg.getDurationValue();
+    }
+
+    private long cost(MatrixBlock block, int row, int col) {
+        return objective == TravelMatrix.Objective.DISTANCE ? block.distance(row, col) : block.duration(row, col);
+    }
+
+    // Whether the plan already has a leg from a to b: both kept and consecutive in the plan
+    private static boolean continues(Node a, Node b) {
+        return a.position >= 0 && b.position == a.position + 1;
+    }
+
+    private static RouteResponse failure(String status, String message) {
+        RouteResponse response = RouteResponse.error(message);
+        response.setStatus(status);
+        return response;
+    }
+
+    private static Throwable rootCause(Throwable e) {
+        while ((e instanceof CompletionException || e instanceof ExecutionException) && e.getCause() != null) {
+            e = e.getCause();
+        }
+        return e;
+    }
+
+    // A stop on the route being edited; position is its index in the plan, or -1 for an added stop
+    private static final class Node {
+
+        final String address;
+        final int waypoint;
+        final String point;
+        final int position;
+        // Row or column in the insertion cost blocks
+        int index;
+
+        Node(String address, int waypoint, String point, int position) {
+            this.address = address;
+            this.waypoint = waypoint;
+            this.point = point;
+            this.position = position;
+        }
+    }
+}
@@ -1,160 +1,480 @@
 package com.example.route.service;
 
+import com.example.route.dto.RouteProgress;
 import com.example.route.dto.RouteRequest;
 import com.example.route.dto.RouteResponse;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.route.service.address.AddressResolver;
+import com.example.route.service.cache.CachedRoute;
+import com.example.route.service.cache.RouteRequestKey;
+import com.example.route.service.cache.RouteResultCache;
+import com.example.route.service.cache.SingleFlight;
+import com.example.route.service.directions.DirectionsProvider;
+import com.example.route.service.matrix.TravelEstimator;
+import com.example.route.service.matrix.TravelMatrix;
+import com.example.route.service.matrix.TravelMatrixService;
+import com.example.route.service.optimizer.TourOptimizer;
+import com.example.route.service.persistence.RoutePersistenceService;
+import com.example.route.service.persistence.StoredRouteLookup;
+import com.example.route.service.plan.RoutePlan;
+import com.example.route.service.plan.RoutePlanStore;
+import com.example.route.service.spatial.GeoMath;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
-import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 
 @Service
 public class RouteService {
 
-    @Value("${google.maps.api.key}")
-    private String apiKey;
+    @Value("${route.optimizer.enabled:true}")
+    private boolean localOptimization;
 
-    private final RestTemplate restTemplate;
-    private final ObjectMapper objectMapper;
+    @Value("${route.optimizer.objective:duration}")
+    private TravelMatrix.Objective objective;
 
-    public RouteService() {
-        this.restTemplate = new RestTemplate();
-        this.objectMapper = new ObjectMapper();
+    @Value("${route.estimate.fallback-enabled:true}")
+    private boolean estimateFallback;
+
+    @Value("${route.upstream.degraded-responses:true}")
+    private boolean degradedResponses;
+
+    @Value("${route.stream.min-interval-ms:100}")
+    private long streamMinIntervalMs;
+
+    private final DirectionsProvider directionsProvider;
+    private final Executor routeExecutor;
+    private final TourOptimizer tourOptimizer;
+    private final ClusteredTourPlanner clusteredTours;
+    private final TravelMatrixService travelMatrixService;
+    private final TravelEstimator travelEstimator;
+    private final RouteResultCache routeResultCache;
+    private final AddressResolver addressResolver;
+    private final RoutePersistenceService routePersistence;
+    private final StoredRouteLookup storedRoutes;
+    private final RoutePlanStore routePlans;
+    private final SingleFlight<RouteRequestKey, CachedRoute> inFlightRoutes = new SingleFlight<>();
+
+    public RouteService(DirectionsProvider directionsProvider, @Qualifier("routeExecutor") Executor routeExecutor,
+                        TourOptimizer tourOptimizer, ClusteredTourPlanner clusteredTours,
+                        TravelMatrixService travelMatrixService, TravelEstimator travelEstimator,
+                        RouteResultCache routeResultCache, AddressResolver addressResolver,
+                        RoutePersistenceService routePersistence, StoredRouteLookup storedRoutes,
+                        RoutePlanStore routePlans) {
+        this.directionsProvider = directionsProvider;
+        this.routeExecutor = routeExecutor;
+        this.tourOptimizer = tourOptimizer;
+        this.clusteredTours = clusteredTours;
+        this.travelMatrixService = travelMatrixService;
+        this.travelEstimator = travelEstimator;
+        this.routeResultCache = routeResultCache;
+        this.addressResolver = addressResolver;
+        this.routePersistence = routePersistence;
+        this.storedRoutes = storedRoutes;
+        this.routePlans = routePlans;
+    }
+
+    // Requests with equal keys get the same route, up to the order their waypoints were listed in
+    public RouteRequestKey requestKey(RouteRequest request) {
+        // Google keeps the last waypoint as the destination when it does the ordering
+        return RouteRequestKey.of(request, !ordersLocally() && !hasDestination(request));
+    }
+
+    // Never completes exceptionally; failures are reported as RouteResponse.error
+    public CompletableFuture<RouteResponse> getOptimizedRoute(RouteRequest request) {
+        RouteRequestKey key = requestKey(request);
+        RouteResponse cached = routeResultCache.get(request, key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(registerPlan(request, cached));
+        }
+
+        // Identical requests arriving while this one is computed wait for it instead of calling Google again
+        CompletableFuture<CachedRoute> shared = inFlightRoutes.execute(key, () -> computeRoute(request)
+                .thenApply(response -> {
+                    routeResultCache.put(key, response);
+                    return new CachedRoute(response, key);
+                }));
+
+        return shared
+                .thenCompose(route -> {
+                    RouteResponse response = route.remapTo(request, key);
+                    return response != null ? CompletableFuture.completedFuture(response) : computeRoute(request);
+                })
+                .thenApply(response -> registerPlan(request, response))
+                .exceptionally(e -> RouteResponse.error("Error getting route: " + rootCause(e).getMessage()));
+    }
+
+    /**
+     * Like {@link #getOptimizedRoute}, for callers that watch the stop order improve. Each better order is
+     * passed to {@code progress}: the first from straight-line estimates as soon as the stops are resolved,
+     * then the optimizer's tours on the travel matrix for up to {@code budgetMs}, or until {@code cancelled}.
+     * Then the legs of the best order are fetched. Cached routes, routes Google orders, and
+     * clustered or single-stop tours complete without progress. Never completes exceptionally.
+     */
+    public CompletableFuture<RouteResponse> streamOptimizedRoute(RouteRequest request, long budgetMs,
+                                                                 Consumer<RouteProgress> progress,
+                                                                 BooleanSupplier cancelled) {
+        if (!ordersLocally() || request.getWaypoints().size() <= 1 || clusteredTours.applies(request)) {
+            return getOptimizedRoute(request);
+        }
+        RouteRequestKey key = requestKey(request);
+        RouteResponse cached = routeResultCache.get(request, key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(registerPlan(request, cached));
+        }
+
+        OrderProgress orders = new OrderProgress(request, budgetMs, progress, cancelled);
+        return addressResolver.resolve(request)
+                .thenCompose(upstream -> orderWaypoints(upstream, orders)
+                        .thenCompose(order -> directionsInOrder(upstream, order))
+                        .thenApply(response -> restoreStops(request, response))
+                        .exceptionally(e -> degradedRoute(request, upstream, e)))
+                .thenApply(response -> {
+                    routeResultCache.put(key, response);
+                    return registerPlan(request, response);
+                })
+                .exceptionally(e -> RouteResponse.error("Error getting route: " + rootCause(e).getMessage()));
+    }
+
+    // Only callers that will edit the route pay for a plan; each gets its own, even when the route came from a cache
+    RouteResponse registerPlan(RouteRequest request, RouteResponse response) {
+        RoutePlan.End end = request.isEditable() ? routeEnd(request) : null;
+        return end != null ? routePlans.register(request, response, end) : response;
     }
 
-    public RouteResponse getOptimizedRoute(RouteRequest request) {
+    // Where the route ends, mirroring how it was computed; null when Google chose the last waypoint
+    RoutePlan.End routeEnd(RouteRequest request) {
+        if (ordersLocally() && request.isRoundTrip()) {
+            return RoutePlan.End.ORIGIN;
+        } else if (hasDestination(request)) {
+            return RoutePlan.End.DESTINATION;
+        }
+        return ordersLocally() ? RoutePlan.End.OPEN : null;
+    }
+
+    // Backends that can't order waypoints themselves always get a locally ordered route
+    private boolean ordersLocally() {
+        return localOptimization || !directionsProvider.ordersWaypoints();
+    }
+
+    private CompletableFuture<RouteResponse> computeRoute(RouteRequest request) {
+        // Stops already saved as locations go upstream as coordinates and skip Google's geocoding;
+        // a stored route over the same stops answers the request without calling Google at all
+        return addressResolver.resolve(request)
+                .thenCompose(upstream -> storedRoutes.find(request, upstream)
+                        .thenCompose(stored -> stored != null ? CompletableFuture.completedFuture(stored)
+                                : computeUpstreamRoute(upstream)
+                                        .thenApply(response -> restoreStops(request, response))
+                                        .exceptionally(e -> degradedRoute(request, upstream, e))))
+                .exceptionally(e -> RouteResponse.error("Error getting route: " + rootCause(e).getMessage()));
+    }
+
+    private CompletableFuture<RouteResponse> computeUpstreamRoute(RouteRequest request) {
         try {
-            // Build the Google Directions API URL
-            String url = buildDirectionsUrl(request);
-            
-            // Make the API call
-            String response = restTemplate.getForObject(url, String.class);
-            
-            // Parse the response
-            return parseDirectionsResponse(response, request);
-            
+            return ordersLocally() ? getLocallyOrderedRoute(request) : directionsProvider.optimizedDirections(request);
         } catch (Exception e) {
-            return RouteResponse.error("Error getting route: " + e.getMessage());
+            return CompletableFuture.failedFuture(e);
         }
     }
 
-    private String buildDirectionsUrl(RouteRequest request) {
-        StringBuilder url = new StringBuilder();
-        url.append("https://maps.googleapis.com/maps/api/directions/json?");
-        
-        // Origin
-        url.append("origin=").append(encodeParameter(request.getOrigin()));
-        
-        // Destination
-        if (request.getDestination() != null && !request.getDestination().trim().isEmpty()) {
-            url.append("&destination=").append(encodeParameter(request.getDestination()));
-        } else {
-            // If no destination, use the last waypoint as destination
-            if (!request.getWaypoints().isEmpty()) {
-                url.append("&destination=").append(encodeParameter(request.getWaypoints().get(request.getWaypoints().size() - 1)));
+    /**
+     * The answer when the upstream failed, timed out or was shed by the upstream guard: the last cached
+     * route for these stops even if it expired, else an estimate when every stop has coordinates.
+     * Either is marked degraded; without one the failure is reported as an error.
+     */
+    private RouteResponse degradedRoute(RouteRequest request, RouteRequest upstream, Throwable e) {
+        if (degradedResponses) {
+            RouteResponse stale = routeResultCache.getStale(request, requestKey(request));
+            if (stale != null) {
+                stale.setDegraded(true);
+                return stale;
+            }
+            RouteResponse estimated = estimateFallback ? estimatedRoute(upstream) : null;
+            if (estimated != null) {
+                estimated.setDegraded(true);
+                return restoreStops(request, estimated);
             }
         }
-        
-        // Waypoints with optimization
-        if (!request.getWaypoints().isEmpty()) {
-            url.append("&waypoints=optimize:true");
-            for (String waypoint : request.getWaypoints()) {
-                url.append("|").append(encodeParameter(waypoint));
+        return RouteResponse.error("Error getting route: " + rootCause(e).getMessage());
+    }
+
+    /**
+     * A route ordered and timed on straight-line estimates, ending where the upstream route would have
+     * ended, or null when a stop has no coordinates. Legs run straight from stop to stop.
+     */
+    private RouteResponse estimatedRoute(RouteRequest request) {
+        RoutePlan.End end = routeEnd(request);
+        List<String> waypoints = request.getWaypoints();
+        int count = waypoints.size();
+
+        // Node 0 is the origin, 1..count the waypoints and count + 1 a fixed destination (Google's last waypoint
+        // when it chose the order)
+        String destination = end == RoutePlan.End.DESTINATION ? request.getDestination()
+                : end == null ? waypoints.get(count - 1) : null;
+        List<String> points = new ArrayList<>(count + 2);
+        points.add(request.getOrigin());
+        points.addAll(waypoints);
+        if (destination != null) {
+            points.add(destination);
+        }
+        TravelMatrix matrix = travelEstimator.estimate(points);
+        if (matrix == null) {
+            return null;
+        }
+
+        int endNode = end == RoutePlan.End.ORIGIN ? 0 : destination != null ? count + 1 : TourOptimizer.OPEN_END;
+        int[] path = tourOptimizer.solve(matrix.costs(objective), matrix.size(), 0, endNode);
+        List<Integer> order = new ArrayList<>(count);
+        List<Integer> nodes = new ArrayList<>(count + 2);
+        nodes.add(0);
+        for (int node : path) {
+            if (node >= 1 && node <= count) {
+                order.add(node - 1);
+                nodes.add(node);
             }
         }
-        
-        // API key
-        url.append("&key=").append(apiKey);
-        
-        return url.toString();
+        if (end == RoutePlan.End.ORIGIN) {
+            nodes.add(0);
+        } else if (destination != null) {
+            nodes.add(count + 1);
+        }
+
+        List<RouteResponse.RouteLeg> legs = new ArrayList<>(nodes.size() - 1);
+        int[] coords = new int[nodes.size() * 2];
+        long totalDistance = 0;
+        long totalDuration = 0;
+        for (int i = 0; i < nodes.size(); i++) {
+            double[] point = GeoMath.parseCoordinates(points.get(nodes.get(i)));
+            coords[2 * i] = (int) Math.round(point[0] * 1e5);
+            coords[2 * i + 1] = (int) Math.round(point[1] * 1e5);
+            if (i == 0) {
+                continue;
+            }
+            int from = nodes.get(i - 1);
+            int to = nodes.get(i);
+            long distance = matrix.distance(from, to);
+            long duration = matrix.duration(from, to);
+            double[] start = GeoMath.parseCoordinates(points.get(from));
+            RouteResponse.RouteLeg leg = new RouteResponse.RouteLeg(points.get(from), points.get(to),
+                    RouteFormats.formatDistance(distance), RouteFormats.formatDuration(duration), distance, duration);
+            leg.setStartLatitude(start[0]);
+            leg.setStartLongitude(start[1]);
+            leg.setEndLatitude(point[0]);
+            leg.setEndLongitude(point[1]);
+            legs.add(leg);
+            totalDistance += distance;
+            totalDuration += duration;
+        }
+
+        List<String> orderedWaypoints = new ArrayList<>(order.size());
+        for (int index : order) {
+            orderedWaypoints.add(waypoints.get(index));
+        }
+        RouteResponse response = new RouteResponse("OK", orderedWaypoints, RouteFormats.formatDistance(totalDistance),
+                RouteFormats.formatDuration(totalDuration), legs);
+        response.setWaypointOrder(order);
+        response.setTotalDistanceValue(totalDistance);
+        response.setTotalDurationValue(totalDuration);
+        response.setOverviewPolyline(PolylineCodec.encode(coords, coords.length));
+        response.setEstimated(true);
+        return response;
     }
 
-    private String encodeParameter(String parameter) {
-        return URLEncoder.encode(parameter, StandardCharsets.UTF_8);
+    // Reports the stops as the caller wrote them and learns the coordinates Google geocoded
+    private RouteResponse restoreStops(RouteRequest request, RouteResponse response) {
+        if (!"OK".equals(response.getStatus()) || response.getWaypointOrder() == null) {
+            return response;
+        }
+        List<String> orderedWaypoints = new ArrayList<>(response.getWaypointOrder().size());
+        for (int index : response.getWaypointOrder()) {
+            orderedWaypoints.add(request.getWaypoints().get(index));
+        }
+        response.setOptimizedWaypoints(orderedWaypoints);
+
+        // The stops in leg order, mirroring how the destination was chosen upstream
+        List<String> visitedStops = new ArrayList<>(orderedWaypoints.size() + 2);
+        visitedStops.add(request.getOrigin());
+        visitedStops.addAll(orderedWaypoints);
+        RoutePlan.End end = routeEnd(request);
+        if (end == RoutePlan.End.ORIGIN) {
+            visitedStops.add(request.getOrigin());
+        } else if (end == RoutePlan.End.DESTINATION) {
+            visitedStops.add(request.getDestination());
+        } else if (end == null) {
+            visitedStops.add(request.getWaypoints().get(request.getWaypoints().size() - 1));
+        }
+        if (!Boolean.TRUE.equals(response.getEstimated())) {
+            // Estimates carry the request's own coordinates and aren't worth keeping as routes
+            addressResolver.recordGeocodes(visitedStops, response.getLegs());
+            routePersistence.persistAsync(request, visitedStops, response);
+        }
+        return response;
     }
 
-    private RouteResponse parseDirectionsResponse(String response, RouteRequest request) {
-        try {
-            JsonNode root = objectMapper.readTree(response);
-            String status = root.get("status").asText();
-            
-            if (!"OK".equals(status)) {
-                return RouteResponse.error("Google Maps API error: " + status);
+    private CompletableFuture<RouteResponse> getLocallyOrderedRoute(RouteRequest request) {
+        return orderWaypoints(request, null).thenCompose(order -> directionsInOrder(request, order));
+    }
+
+    // The Directions call only fetches leg geometry for an order we already chose
+    private CompletableFuture<RouteResponse> directionsInOrder(RouteRequest request, List<Integer> order) {
+        List<String> orderedWaypoints = new ArrayList<>(order.size());
+        for (int index : order) {
+            orderedWaypoints.add(request.getWaypoints().get(index));
+        }
+
+        String destination;
+        List<String> via;
+        if (request.isRoundTrip()) {
+            destination = request.getOrigin();
+            via = orderedWaypoints;
+        } else if (hasDestination(request)) {
+            destination = request.getDestination();
+            via = orderedWaypoints;
+        } else {
+            destination = orderedWaypoints.get(orderedWaypoints.size() - 1);
+            via = orderedWaypoints.subList(0, orderedWaypoints.size() - 1);
+        }
+
+        return directionsProvider.directions(request.getOrigin(), destination, via).thenApply(result -> {
+            if ("OK".equals(result.getStatus())) {
+                result.setOptimizedWaypoints(orderedWaypoints);
+                result.setWaypointOrder(order);
             }
-            
-            JsonNode routes = root.get("routes");
-            if (routes.isEmpty()) {
-                return RouteResponse.error("No routes found");
+            return result;
+        });
+    }
+
+    // Completes with the visiting order as indices into request.getWaypoints(); progress, if any, sees it improve
+    private CompletableFuture<List<Integer>> orderWaypoints(RouteRequest request, OrderProgress progress) {
+        List<String> waypoints = request.getWaypoints();
+        int count = waypoints.size();
+        if (count <= 1) {
+            List<Integer> order = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                order.add(i);
             }
-            
-            JsonNode route = routes.get(0);
-            JsonNode legs = route.get("legs");
-            
-            // Extract optimized waypoint order
-            List<String> optimizedWaypoints = new ArrayList<>();
-            JsonNode waypointOrder = route.get("waypoint_order");
-            if (waypointOrder != null) {
-                for (JsonNode index : waypointOrder) {
-                    int waypointIndex = index.asInt();
-                    if (waypointIndex < request.getWaypoints().size()) {
-                        optimizedWaypoints.add(request.getWaypoints().get(waypointIndex));
-                    }
+            return CompletableFuture.completedFuture(order);
+        }
+        if (clusteredTours.applies(request)) {
+            // Thousands of stops: cluster first instead of one matrix over all of them
+            return clusteredTours.orderWaypoints(request);
+        }
+
+        // Node 0 is the origin, 1..count the waypoints and count + 1 a fixed destination
+        boolean fixedDestination = !request.isRoundTrip() && hasDestination(request);
+        List<String> points = new ArrayList<>(count + 2);
+        points.add(request.getOrigin());
+        points.addAll(waypoints);
+        if (fixedDestination) {
+            points.add(request.getDestination());
+        }
+
+        int end = request.isRoundTrip() ? 0 : fixedDestination ? count + 1 : TourOptimizer.OPEN_END;
+        TravelMatrix estimate = progress != null ? travelEstimator.estimate(points) : null;
+        if (estimate != null) {
+            // Only the construction, so the first order is out before the matrix call even returns
+            tourOptimizer.solve(estimate.costs(objective), estimate.size(), 0, end, System.nanoTime(),
+                    progress.on(estimate, true));
+        }
+        return travelMatrixService.getMatrix(points).thenApplyAsync(matrix -> {
+            long[] costs = matrix.costs(objective);
+            int[] path = progress == null ? tourOptimizer.solve(costs, matrix.size(), 0, end)
+                    : tourOptimizer.solve(costs, matrix.size(), 0, end, progress.on(matrix, false).deadline, progress);
+            List<Integer> order = new ArrayList<>(count);
+            for (int node : path) {
+                if (node >= 1 && node <= count) {
+                    order.add(node - 1);
                 }
             }
-            
-            // Calculate total distance and duration
-            long totalDistance = 0;
-            long totalDuration = 0;
-            List<RouteResponse.RouteLeg> routeLegs = new ArrayList<>();
-            
-            for (JsonNode leg : legs) {
-                JsonNode distance = leg.get("distance");
-                JsonNode duration = leg.get("duration");
-                
-                totalDistance += distance.get("value").asLong();
-                totalDuration += duration.get("value").asLong();
-                
-                routeLegs.add(new RouteResponse.RouteLeg(
-                    leg.get("start_address").asText(),
-                    leg.get("end_address").asText(),
-                    distance.get("text").asText(),
-                    duration.get("text").asText()
-                ));
+            return order;
+        }, routeExecutor);
+    }
+
+    /**
+     * Reports the optimizer's tours for a streamed route as {@link RouteProgress}, in the caller's words.
+     * The first tour on each matrix is always sent, later ones at most every {@code route.stream.min-interval-ms}.
+     */
+    private final class OrderProgress implements TourOptimizer.Progress {
+
+        private final RouteRequest request;
+        private final long started = System.nanoTime();
+        private final long budgetNanos;
+        private long deadline;
+        private final Consumer<RouteProgress> listener;
+        private final BooleanSupplier cancelled;
+        private TravelMatrix matrix;
+        private boolean estimated;
+        private boolean sent;
+        private long lastSent;
+
+        OrderProgress(RouteRequest request, long budgetMs, Consumer<RouteProgress> listener, BooleanSupplier cancelled) {
+            this.request = request;
+            this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(budgetMs);
+            this.listener = listener;
+            this.cancelled = cancelled;
+        }
+
+        // Starts reporting tours on this matrix; the budget runs from here
+        OrderProgress on(TravelMatrix matrix, boolean estimated) {
+            this.deadline = System.nanoTime() + budgetNanos;
+            this.matrix = matrix;
+            this.estimated = estimated;
+            this.sent = false;
+            return this;
+        }
+
+        @Override
+        public void improved(int[] path, long cost) {
+            long now = System.nanoTime();
+            if (sent && now - lastSent < TimeUnit.MILLISECONDS.toNanos(streamMinIntervalMs)) {
+                return;
             }
-            
-            // Convert to human-readable format
-            String totalDistanceText = formatDistance(totalDistance);
-            String totalDurationText = formatDuration(totalDuration);
-            
-            return new RouteResponse("OK", optimizedWaypoints, totalDistanceText, totalDurationText, routeLegs);
-            
-        } catch (Exception e) {
-            return RouteResponse.error("Error parsing response: " + e.getMessage());
+            int count = request.getWaypoints().size();
+            List<Integer> order = new ArrayList<>(count);
+            List<String> orderedWaypoints = new ArrayList<>(count);
+            long distance = 0;
+            long duration = 0;
+            for (int i = 0; i < path.length; i++) {
+                if (path[i] >= 1 && path[i] <= count) {
+                    order.add(path[i] - 1);
+                    orderedWaypoints.add(request.getWaypoints().get(path[i] - 1));
+                }
+                if (i > 0) {
+                    distance += matrix.distance(path[i - 1], path[i]);
+                    duration += matrix.duration(path[i - 1], path[i]);
+                }
+            }
+            RouteProgress update = new RouteProgress(orderedWaypoints, order, distance, duration, estimated,
+                    TimeUnit.NANOSECONDS.toMillis(now - started));
+            update.setTotalDistance(RouteFormats.formatDistance(distance));
+            update.setTotalDuration(RouteFormats.formatDuration(duration));
+            sent = true;
+            lastSent = now;
+            listener.accept(update);
         }
-    }
 
-    private String formatDistance(long meters) {
-        if (meters < 1000) {
-            return meters + " m";
-        } else {
-            double km = meters / 1000.0;
-            return String.format("%.1f km", km);
+        @Override
+        public boolean cancelled() {
+            return cancelled.getAsBoolean();
         }
     }
 
-    private String formatDuration(long seconds) {
-        long hours = seconds / 3600;
-        long minutes = (seconds % 3600) / 60;
-        
-        if (hours > 0) {
-            return String.format("%d hr %d min", hours, minutes);
-        } else {
-            return String.format("%d min", minutes);
+    private static Throwable rootCause(Throwable e) {
+        while ((e instanceof CompletionException || e instanceof ExecutionException) && e.getCause() != null) {
+            e = e.getCause();
         }
+        return e;
+    }
+
+    private boolean hasDestination(RouteRequest request) {
+        return request.getDestination() != null && !request.getDestination().trim().isEmpty();
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,347 @@
+package com.example.route.service.address;
+
+import com.example.route.dto.RouteRequest;
+import com.example.route.dto.RouteResponse;
+import com.example.route.service.AddressKeys;
+import com.example.route.service.cache.ExpiringLruCache;
+import com.example.route.service.spatial.LocationSpatialIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Array;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.regex.Pattern;
+
+/**
+ * Maps free-text stops onto saved {@code locations} by normalized address, so that known stops go
+ * upstream as {@code lat,lng} and skip Google's geocoding. Lookups (hits and misses) are cached in
+ * memory; addresses Google had to geocode are learned from the returned legs and written back to
+ * {@code locations} in batches.
+ */
+@Service
+public class AddressResolver {
+
+    private static final Logger log = LoggerFactory.getLogger(AddressResolver.class);
+
+    // address_key is AddressKeys.normalize(address), written by the application; fillMissingKeys covers the rest
+    private static final String LOOKUP_SQL = "SELECT id, COALESCE(latitude, ST_Y(geom)) AS lat, "
+            + "COALESCE(longitude, ST_X(geom)) AS lng, address_key FROM locations WHERE address_key = ANY(?) "
+            + "AND COALESCE(latitude, ST_Y(geom)) IS NOT NULL AND COALESCE(longitude, ST_X(geom)) IS NOT NULL "
+            + "ORDER BY id";
+
+    private static final String WRITE_BACK_SQL = "INSERT INTO locations (name, address, address_key, latitude, "
+            + "longitude, geom) SELECT g.address, g.address, g.address_key, g.lat, g.lng, "
+            + "ST_SetSRID(ST_MakePoint(g.lng, g.lat), 4326) "
+            + "FROM unnest(?, ?, ?, ?) AS g(address, address_key, lat, lng) "
+            + "WHERE NOT EXISTS (SELECT 1 FROM locations l WHERE l.address_key = g.address_key) "
+            + "RETURNING id, name, address, address_key, latitude, longitude";
+
+    private static final String MISSING_KEYS_SQL = "SELECT id, address FROM locations "
+            + "WHERE address_key IS NULL AND address IS NOT NULL ORDER BY id LIMIT ?";
+
+    private static final String SET_KEY_SQL = "UPDATE locations SET address_key = ? WHERE id = ?";
+
+    private static final Pattern COORDINATES = Pattern.compile("\\s*-?\\d{1,3}(\\.\\d+)?\\s*,\\s*-?\\d{1,3}(\\.\\d+)?\\s*");
+
+    private static final Resolution NOT_FOUND = new Resolution(null, null);
+
+    @Value("${route.address-resolver.enabled:true}")
+    private boolean enabled;
+
+    @Value("${route.address-resolver.write-back-batch-size:500}")
+    private int writeBackBatchSize;
+
+    @Value("${route.address-resolver.max-pending:10000}")
+    private int maxPending;
+
+    private final ObjectProvider<JdbcTemplate> jdbcTemplate;
+    private final LocationSpatialIndex spatialIndex;
+    private final Executor routeExecutor;
+    private final ExpiringLruCache<String, Resolution> resolutions;
+    private final Map<String, PendingGeocode> pending = new ConcurrentHashMap<>();
+
+    public AddressResolver(ObjectProvider<JdbcTemplate> jdbcTemplate, LocationSpatialIndex spatialIndex,
+                           @Qualifier("routeExecutor") Executor routeExecutor,
+                           @Value("${route.address-resolver.cache.max-entries:100000}") int maxEntries,
+                           @Value("${route.address-resolver.cache.ttl-seconds:3600}") long ttlSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.spatialIndex = spatialIndex;
+        this.routeExecutor = routeExecutor;
+        this.resolutions = new ExpiringLruCache<>(maxEntries, ttlSeconds * 1000);
+    }
+
+    // Completes with a copy of the request whose known stops are replaced by coordinates
+    public CompletableFuture<RouteRequest> resolve(RouteRequest request) {
+        JdbcTemplate jdbc = jdbcTemplate.getIfAvailable();
+        if (!enabled || jdbc == null) {
+            return CompletableFuture.completedFuture(request);
+        }
+
+        Map<String, String> resolved = new HashMap<>();
+        List<String> unknownKeys = new ArrayList<>();
+        for (String stop : stopsOf(request)) {
+            if (isCoordinates(stop)) {
+                continue;
+            }
+            String key = AddressKeys.normalize(stop);
+            Resolution resolution = resolutions.get(key);
+            if (resolution == null) {
+                if (!unknownKeys.contains(key)) {
+                    unknownKeys.add(key);
+                }
+            } else if (resolution != NOT_FOUND) {
+                resolved.put(key, resolution.query);
+            }
+        }
+        if (unknownKeys.isEmpty()) {
+            return CompletableFuture.completedFuture(substitute(request, resolved));
+        }
+
+        // One round trip for all unknown stops, on the route executor since JDBC blocks
+        return CompletableFuture.supplyAsync(() -> {
+            lookup(jdbc, unknownKeys, resolved);
+            return substitute(request, resolved);
+        }, routeExecutor);
+    }
+
+    // Queues the stops Google geocoded for write-back; visitedStops are the request's stops in leg order
+    public void recordGeocodes(List<String> visitedStops, List<RouteResponse.RouteLeg> legs) {
+        if (!enabled || legs == null || legs.size() != visitedStops.size() - 1) {
+            return;
+        }
+        for (int i = 0; i < visitedStops.size(); i++) {
+            String address = visitedStops.get(i);
+            if (isCoordinates(address) || pending.size() >= maxPending) {
+                continue;
+            }
+            String key = AddressKeys.normalize(address);
+            Resolution resolution = resolutions.get(key);
+            if (key.isEmpty() || (resolution != null && resolution != NOT_FOUND)) {
+                continue;
+            }
+            RouteResponse.RouteLeg leg = i < legs.size() ? legs.get(i) : legs.get(i - 1);
+            Double latitude = i < legs.size() ? leg.getStartLatitude() : leg.getEndLatitude();
+            Double longitude = i < legs.size() ? leg.getStartLongitude() : leg.getEndLongitude();
+            if (latitude != null && longitude != null) {
+                pending.putIfAbsent(key, new PendingGeocode(address.trim(), latitude, longitude));
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${route.address-resolver.write-back-interval-ms:5000}")
+    public void flushGeocodes() {
+        JdbcTemplate jdbc = jdbcTemplate.getIfAvailable();
+        if (pending.isEmpty() || jdbc == null) {
+            return;
+        }
+
+        while (!pending.isEmpty()) {
+            List<String> keys = new ArrayList<>(writeBackBatchSize);
+            List<PendingGeocode> batch = new ArrayList<>(writeBackBatchSize);
+            Iterator<Map.Entry<String, PendingGeocode>> it = pending.entrySet().iterator();
+            while (it.hasNext() && batch.size() < writeBackBatchSize) {
+                Map.Entry<String, PendingGeocode> entry = it.next();
+                keys.add(entry.getKey());
+                batch.add(entry.getValue());
+                it.remove();
+            }
+            try {
+                writeBack(jdbc, keys, batch);
+            } catch (DataAccessException e) {
+                log.warn("Could not write back {} geocoded addresses: {}", batch.size(), e.getMessage());
+            }
+            // Stops that already existed are looked up again next time they are requested
+            for (String key : keys) {
+                Resolution resolution = resolutions.get(key);
+                if (resolution == null || resolution == NOT_FOUND) {
+                    resolutions.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Keys the locations written without one (the sample data, plain SQL loads) in batches. Runs at startup;
+     * call it again after loading locations behind the application's back.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void fillMissingKeys() {
+        JdbcTemplate jdbc = jdbcTemplate.getIfAvailable();
+        if (!enabled || jdbc == null) {
+            return;
+        }
+        long filled = 0;
+        try {
+            List<Object[]> updates;
+            do {
+                updates = jdbc.query(MISSING_KEYS_SQL, (rs, row) -> new Object[] {
+                        AddressKeys.normalize(rs.getString("address")), rs.getLong("id")}, writeBackBatchSize);
+                if (!updates.isEmpty()) {
+                    jdbc.batchUpdate(SET_KEY_SQL, updates);
+                }
+                filled += updates.size();
+            } while (updates.size() == writeBackBatchSize);
+        } catch (DataAccessException e) {
+            log.warn("Could not fill missing address keys: {}", e.getMessage());
+        }
+        if (filled > 0) {
+            // Earlier misses may have been among them
+            resolutions.clear();
+            log.info("Filled the address key of {} locations", filled);
+        }
+    }
+
+    // The saved location a stop resolved to, if the resolver has already looked it up
+    public Long knownLocationId(String stop) {
+        if (!enabled || isCoordinates(stop)) {
+            return null;
+        }
+        Resolution resolution = resolutions.get(AddressKeys.normalize(stop));
+        return resolution != null ? resolution.locationId : null;
+    }
+
+    // Forgets every cached lookup, e.g. after locations were loaded behind the resolver's back
+    public void clearCache() {
+        resolutions.clear();
+    }
+
+    public long getCacheHits() {
+        return resolutions.getHits();
+    }
+
+    public long getCacheMisses() {
+        return resolutions.getMisses();
+    }
+
+    private void lookup(JdbcTemplate jdbc, List<String> keys, Map<String, String> resolved) {
+        try {
+            jdbc.query(LOOKUP_SQL, ps -> ps.setArray(1, ps.getConnection().createArrayOf("text", keys.toArray())), rs -> {
+                String key = rs.getString("address_key");
+                if (!resolved.containsKey(key)) {
+                    Resolution resolution = new Resolution(rs.getLong("id"),
+                            formatCoordinates(rs.getDouble("lat"), rs.getDouble("lng")));
+                    resolutions.put(key, resolution);
+                    resolved.put(key, resolution.query);
+                }
+            });
+            for (String key : keys) {
+                if (!resolved.containsKey(key)) {
+                    resolutions.put(key, NOT_FOUND);
+                }
+            }
+        } catch (DataAccessException e) {
+            // Resolution is an optimization; the stops simply go upstream as written
+            log.warn("Address lookup failed, sending {} stops as given: {}", keys.size(), e.getMessage());
+        }
+    }
+
+    private void writeBack(JdbcTemplate jdbc, List<String> keys, List<PendingGeocode> batch) {
+        String[] addresses = new String[batch.size()];
+        String[] addressKeys = keys.toArray(new String[0]);
+        Double[] latitudes = new Double[batch.size()];
+        Double[] longitudes = new Double[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            addresses[i] = batch.get(i).address;
+            latitudes[i] = batch.get(i).latitude;
+            longitudes[i] = batch.get(i).longitude;
+        }
+
+        List<Long> inserted = new ArrayList<>();
+        jdbc.query(WRITE_BACK_SQL, ps -> {
+            Array addressArray = ps.getConnection().createArrayOf("text", addresses);
+            Array keyArray = ps.getConnection().createArrayOf("text", addressKeys);
+            Array latitudeArray = ps.getConnection().createArrayOf("float8", latitudes);
+            Array longitudeArray = ps.getConnection().createArrayOf("float8", longitudes);
+            ps.setArray(1, addressArray);
+            ps.setArray(2, keyArray);
+            ps.setArray(3, latitudeArray);
+            ps.setArray(4, longitudeArray);
+        }, rs -> {
+            long id = rs.getLong("id");
+            double latitude = rs.getDouble("latitude");
+            double longitude = rs.getDouble("longitude");
+            String address = rs.getString("address");
+            inserted.add(id);
+            // Rows written over JDBC bypass the JPA listener, so the index is told directly
+            spatialIndex.upsert(id, rs.getString("name"), address, latitude, longitude);
+            resolutions.put(rs.getString("address_key"), new Resolution(id, formatCoordinates(latitude, longitude)));
+        });
+        log.debug("Wrote back {} of {} geocoded addresses", inserted.size(), batch.size());
+    }
+
+    private static List<String> stopsOf(RouteRequest request) {
+        List<String> stops = new ArrayList<>(request.getWaypoints().size() + 2);
+        stops.add(request.getOrigin());
+        stops.addAll(request.getWaypoints());
+        if (request.getDestination() != null && !request.getDestination().trim().isEmpty()) {
+            stops.add(request.getDestination());
+        }
+        return stops;
+    }
+
+    private static RouteRequest substitute(RouteRequest request, Map<String, String> resolved) {
+        if (resolved.isEmpty()) {
+            return request;
+        }
+        List<String> waypoints = new ArrayList<>(request.getWaypoints().size());
+        for (String waypoint : request.getWaypoints()) {
+            waypoints.add(substitute(waypoint, resolved));
+        }
+        String destination = request.getDestination() == null ? null : substitute(request.getDestination(), resolved);
+        return new RouteRequest(substitute(request.getOrigin(), resolved), waypoints, destination, request.isRoundTrip());
+    }
+
+    private static String substitute(String stop, Map<String, String> resolved) {
+        String query = resolved.get(AddressKeys.normalize(stop));
+        return query != null ? query : stop;
+    }
+
+    private static boolean isCoordinates(String stop) {
+        return stop == null || COORDINATES.matcher(stop).matches();
+    }
+
+    private static String formatCoordinates(double latitude, double longitude) {
+        return String.format(Locale.ROOT, "%.6f,%.6f", latitude, longitude);
+    }
+
+    private static final class Resolution {
+
+        final Long locationId;
+        final String query;
+
+        Resolution(Long locationId, String query) {
+            this.locationId = locationId;
+            this.query = query;
+        }
+    }
+
+    private static final class PendingGeocode {
+
+        final String address;
+        final double latitude;
+        final double longitude;
+
+        PendingGeocode(String address, double latitude, double longitude) {
+            this.address = address;
+            this.latitude = latitude;
+            this.longitude = longitude;
+        }
+    }
+}
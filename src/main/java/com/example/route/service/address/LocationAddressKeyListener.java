@@ -0,0 +1,19 @@
+package com.example.route.service.address;
+
+import com.example.route.entity.Location;
+import com.example.route.service.AddressKeys;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+
+/**
+ * Sets {@link Location#getAddressKey()} on every JPA write, so {@link AddressResolver} finds the location
+ * under the key it computes for incoming stops. Registered in {@code META-INF/orm.xml}.
+ */
+public class LocationAddressKeyListener {
+
+    @PrePersist
+    @PreUpdate
+    public void onWrite(Location location) {
+        location.setAddressKey(location.getAddress() != null ? AddressKeys.normalize(location.getAddress()) : null);
+    }
+}
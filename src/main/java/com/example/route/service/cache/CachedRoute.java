@@ -0,0 +1,61 @@
+package com.example.route.service.cache;
+
+import com.example.route.dto.RouteRequest;
+import com.example.route.dto.RouteResponse;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A computed {@link RouteResponse} together with the normalized waypoints of the request that
+ * produced it, so it can be handed to any request with the same {@link RouteRequestKey}.
+ */
+public final class CachedRoute {
+
+    private final RouteResponse response;
+    private final List<String> waypointKeys;
+
+    public CachedRoute(RouteResponse response, RouteRequestKey key) {
+        this.response = new RouteResponse(response);
+        this.waypointKeys = key.getWaypointKeys();
+    }
+
+    /**
+     * Returns a copy of the stored response whose waypoint order and names refer to the target
+     * request's own waypoint list, or {@code null} if the two cannot be lined up.
+     */
+    public RouteResponse remapTo(RouteRequest target, RouteRequestKey targetKey) {
+        RouteResponse copy = new RouteResponse(response);
+        List<Integer> sourceOrder = response.getWaypointOrder();
+        if (sourceOrder == null) {
+            return copy;
+        }
+
+        // Repeated stops are matched in the order they appear in each request
+        Map<String, Deque<Integer>> targetIndices = new HashMap<>();
+        List<String> targetKeys = targetKey.getWaypointKeys();
+        for (int i = 0; i < targetKeys.size(); i++) {
+            targetIndices.computeIfAbsent(targetKeys.get(i), k -> new ArrayDeque<>()).add(i);
+        }
+
+        List<Integer> order = new ArrayList<>(sourceOrder.size());
+        List<String> waypoints = new ArrayList<>(sourceOrder.size());
+        for (int sourceIndex : sourceOrder) {
+            Deque<Integer> candidates = targetIndices.get(waypointKeys.get(sourceIndex));
+            if (candidates == null || candidates.isEmpty()) {
+                return null;
+            }
+            int targetIndex = candidates.poll();
+            order.add(targetIndex);
+            waypoints.add(target.getWaypoints().get(targetIndex));
+        }
+
+        copy.setWaypointOrder(order);
+        copy.setOptimizedWaypoints(waypoints);
+        return copy;
+    }
+}
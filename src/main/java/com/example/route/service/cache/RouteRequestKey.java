@@ -0,0 +1,73 @@
+package com.example.route.service.cache;
+
+import com.example.route.dto.RouteRequest;
+import com.example.route.service.AddressKeys;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Canonical form of a {@link RouteRequest}: normalized addresses, the waypoints as a sorted
+ * multiset, and only the fields that change the answer. Two requests listing the same stops in a
+ * different order produce equal keys.
+ */
+public final class RouteRequestKey {
+
+    private final String value;
+    private final List<String> waypointKeys;
+
+    private RouteRequestKey(String value, List<String> waypointKeys) {
+        this.value = value;
+        this.waypointKeys = waypointKeys;
+    }
+
+    public static RouteRequestKey of(RouteRequest request) {
+        return of(request, false);
+    }
+
+    // With lastWaypointFixed the final waypoint keeps its position and becomes part of the key
+    public static RouteRequestKey of(RouteRequest request, boolean lastWaypointFixed) {
+        List<String> waypointKeys = new ArrayList<>(request.getWaypoints().size());
+        for (String waypoint : request.getWaypoints()) {
+            waypointKeys.add(AddressKeys.normalize(waypoint));
+        }
+        List<String> sorted = new ArrayList<>(waypointKeys);
+        Collections.sort(sorted);
+
+        // A round trip always ends at the origin, whatever destination was sent along
+        String destination = request.isRoundTrip() ? "" : AddressKeys.normalize(request.getDestination());
+
+        StringBuilder value = new StringBuilder();
+        value.append(AddressKeys.normalize(request.getOrigin()))
+                .append('|').append(destination)
+                .append('|').append(request.isRoundTrip());
+        if (lastWaypointFixed && !waypointKeys.isEmpty()) {
+            value.append("|last=").append(waypointKeys.get(waypointKeys.size() - 1));
+        }
+        for (String waypoint : sorted) {
+            value.append('|').append(waypoint);
+        }
+        return new RouteRequestKey(value.toString(), Collections.unmodifiableList(waypointKeys));
+    }
+
+    // Normalized waypoints in the order the request listed them
+    public List<String> getWaypointKeys() {
+        return waypointKeys;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof RouteRequestKey && value.equals(((RouteRequestKey) o).value);
+    }
+
+    @Override
+    public int hashCode() {
+        return value.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return value;
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.route.service.cache;
+
+import com.example.route.dto.RouteRequest;
+import com.example.route.dto.RouteResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Result cache in front of the route computation, keyed on {@link RouteRequestKey} so that
+ * resubmitting the same stops in any order is answered without an upstream call.
+ */
+@Component
+public class RouteResultCache {
+
+    private final boolean enabled;
+    private final ExpiringLruCache<RouteRequestKey, CachedRoute> cache;
+
+    public RouteResultCache(@Value("${route.cache.enabled:true}") boolean enabled,
+                            @Value("${route.cache.max-entries:10000}") int maxEntries,
+                            @Value("${route.cache.ttl-seconds:900}") long ttlSeconds,
+                            @Value("${route.cache.stale-seconds:86400}") long staleSeconds) {
+        this.enabled = enabled;
+        this.cache = new ExpiringLruCache<>(maxEntries, ttlSeconds * 1000, staleSeconds * 1000);
+    }
+
+    public RouteResponse get(RouteRequest request, RouteRequestKey key) {
+        if (!enabled) {
+            return null;
+        }
+        CachedRoute cached = cache.get(key);
+        return cached != null ? cached.remapTo(request, key) : null;
+    }
+
+    // A route past its TTL, still good enough to answer with while the upstream is unavailable
+    public RouteResponse getStale(RouteRequest request, RouteRequestKey key) {
+        if (!enabled) {
+            return null;
+        }
+        CachedRoute cached = cache.getStale(key);
+        return cached != null ? cached.remapTo(request, key) : null;
+    }
+
+    public void put(RouteRequestKey key, RouteResponse response) {
+        // Only fresh road routes are worth replaying; estimates and stale answers would outlive the outage
+        if (enabled && "OK".equals(response.getStatus()) && !Boolean.TRUE.equals(response.getEstimated())
+                && !Boolean.TRUE.equals(response.getDegraded())) {
+            cache.put(key, new CachedRoute(response, key));
+        }
+    }
+
+    public long getHits() {
+        return cache.getHits();
+    }
+
+    public long getMisses() {
+        return cache.getMisses();
+    }
+
+    public long getEvictions() {
+        return cache.getEvictions();
+    }
+
+    public int size() {
+        return cache.size();
+    }
+}
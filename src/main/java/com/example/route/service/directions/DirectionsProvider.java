@@ -0,0 +1,28 @@
+package com.example.route.service.directions;
+
+import com.example.route.dto.RouteRequest;
+import com.example.route.dto.RouteResponse;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Source of turn-by-turn legs for stops in a fixed order: Google's Directions API, or the offline road
+ * graph. Failures are reported as {@link RouteResponse#error}; the returned futures may also complete
+ * exceptionally when the backend itself can't be reached.
+ */
+public interface DirectionsProvider {
+
+    // One leg per consecutive pair of origin, via..., destination
+    CompletableFuture<RouteResponse> directions(String origin, String destination, List<String> via);
+
+    // Whether optimizedDirections can choose the waypoint order itself
+    default boolean ordersWaypoints() {
+        return false;
+    }
+
+    // Directions with the waypoint order chosen by the backend; only called when ordersWaypoints()
+    default CompletableFuture<RouteResponse> optimizedDirections(RouteRequest request) {
+        throw new UnsupportedOperationException("This directions provider does not order waypoints");
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.route.service.directions;
+
+import com.example.route.dto.RouteRequest;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Directions API request URLs, and the split of a long fixed-order route into calls that each stay
+ * within the waypoint and URL length limits.
+ */
+public class DirectionsUrlBuilder {
+
+    // One Directions call: the legs from stops[start] to stops[end]
+    public static final class Segment {
+
+        private final int start;
+        private final int end;
+        private final String url;
+
+        Segment(int start, int end, String url) {
+            this.start = start;
+            this.end = end;
+            this.url = url;
+        }
+
+        public int getStart() {
+            return start;
+        }
+
+        public int getEnd() {
+            return end;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+    }
+
+    private final String baseUrl;
+    private final String apiKey;
+    private final int maxWaypointsPerCall;
+    private final int maxUrlLength;
+
+    public DirectionsUrlBuilder(String baseUrl, String apiKey, int maxWaypointsPerCall, int maxUrlLength) {
+        this.baseUrl = baseUrl;
+        this.apiKey = apiKey;
+        this.maxWaypointsPerCall = maxWaypointsPerCall;
+        this.maxUrlLength = maxUrlLength;
+    }
+
+    // Lets Google order the waypoints; without a destination the last waypoint is used
+    public String optimizedUrl(RouteRequest request) {
+        String destination = request.getDestination() != null && !request.getDestination().trim().isEmpty()
+                ? request.getDestination()
+                : request.getWaypoints().get(request.getWaypoints().size() - 1);
+        return url(request.getOrigin(), destination, request.getWaypoints(), true);
+    }
+
+    public boolean fitsOneCall(int waypoints, String url) {
+        return waypoints <= maxWaypointsPerCall && url.length() <= maxUrlLength;
+    }
+
+    /**
+     * Splits stops visited in this order into as few calls as the limits allow. Segments share their
+     * boundary stop, so the legs of consecutive segments line up end to end.
+     */
+    public List<Segment> segments(List<String> stops) {
+        List<Segment> segments = new ArrayList<>();
+        int start = 0;
+        while (start < stops.size() - 1) {
+            int end = start + 1;
+            String url = url(stops.get(start), stops.get(end), List.of(), false);
+            while (end + 1 < stops.size() && end - start <= maxWaypointsPerCall) {
+                String longer = url(stops.get(start), stops.get(end + 1), stops.subList(start + 1, end + 1), false);
+                if (longer.length() > maxUrlLength) {
+                    break;
+                }
+                url = longer;
+                end++;
+            }
+            segments.add(new Segment(start, end, url));
+            start = end;
+        }
+        return segments;
+    }
+
+    public String url(String origin, String destination, List<String> waypoints, boolean optimize) {
+        StringBuilder url = new StringBuilder();
+        url.append(baseUrl).append("/directions/json?");
+
+        // Origin
+        url.append("origin=").append(encode(origin));
+
+        // Destination
+        url.append("&destination=").append(encode(destination));
+
+        // Waypoints, optionally letting Google optimize their order ("|" is sent pre-encoded)
+        if (!waypoints.isEmpty()) {
+            url.append("&waypoints=");
+            if (optimize) {
+                url.append("optimize:true%7C");
+            }
+            for (int i = 0; i < waypoints.size(); i++) {
+                if (i > 0) {
+                    url.append("%7C");
+                }
+                url.append(encode(waypoints.get(i)));
+            }
+        }
+
+        // API key
+        url.append("&key=").append(apiKey);
+
+        return url.toString();
+    }
+
+    private static String encode(String parameter) {
+        return URLEncoder.encode(parameter, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.route.service.directions;
+
+import com.example.route.dto.RouteRequest;
+import com.example.route.dto.RouteResponse;
+import com.example.route.service.DirectionsResponseParser;
+import com.example.route.service.PolylineCodec;
+import com.example.route.service.RouteFormats;
+import com.example.route.service.upstream.GoogleMapsClient;
+import com.example.route.service.upstream.UpstreamGuard;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Legs from Google's Directions API. Routes with more stops than one call accepts are split into
+ * segments that are fetched in parallel and stitched back together.
+ */
+@Component
+@ConditionalOnProperty(name = "route.directions.provider", havingValue = "google", matchIfMissing = true)
+public class GoogleDirectionsProvider implements DirectionsProvider {
+
+    private final int maxWaypointsPerCall;
+    private final DirectionsUrlBuilder urls;
+    private final GoogleMapsClient googleMapsClient;
+    private final UpstreamGuard upstreamGuard;
+    private final DirectionsResponseParser directionsParser;
+    private final Executor routeExecutor;
+
+    public GoogleDirectionsProvider(@Value("${google.maps.api.key}") String apiKey,
+                                    @Value("${google.maps.api.base-url:https://maps.googleapis.com/maps/api}") String baseUrl,
+                                    @Value("${google.maps.directions.max-waypoints:25}") int maxWaypointsPerCall,
+                                    @Value("${google.maps.directions.max-url-length:8192}") int maxUrlLength,
+                                    GoogleMapsClient googleMapsClient, UpstreamGuard upstreamGuard,
+                                    @Qualifier("routeExecutor") Executor routeExecutor) {
+        this.maxWaypointsPerCall = maxWaypointsPerCall;
+        this.urls = new DirectionsUrlBuilder(baseUrl, apiKey, maxWaypointsPerCall, maxUrlLength);
+        this.googleMapsClient = googleMapsClient;
+        this.upstreamGuard = upstreamGuard;
+        this.directionsParser = new DirectionsResponseParser();
+        this.routeExecutor = routeExecutor;
+    }
+
+    @Override
+    public boolean ordersWaypoints() {
+        return true;
+    }
+
+    @Override
+    public CompletableFuture<RouteResponse> optimizedDirections(RouteRequest request) {
+        // Build the Google Directions API URL and let Google order the waypoints
+        String url = urls.optimizedUrl(request);
+        if (!urls.fitsOneCall(request.getWaypoints().size(), url)) {
+            // Google can only order the stops of one call; longer routes need local ordering
+            return CompletableFuture.completedFuture(RouteResponse.error(
+                    "Too many waypoints for one Directions request (max " + maxWaypointsPerCall
+                            + "); enable route.optimizer.enabled to order longer routes locally"));
+        }
+
+        // Make the API call and parse the body off the I/O threads
+        return upstreamGuard.call(() -> fetch(url, request.getWaypoints()));
+    }
+
+    // Directions for stops in a fixed order, split into parallel calls when one call can't hold them all
+    @Override
+    public CompletableFuture<RouteResponse> directions(String origin, String destination, List<String> via) {
+        List<String> stops = new ArrayList<>(via.size() + 2);
+        stops.add(origin);
+        stops.addAll(via);
+        stops.add(destination);
+
+        List<CompletableFuture<RouteResponse>> segments = new ArrayList<>();
+        for (DirectionsUrlBuilder.Segment segment : urls.segments(stops)) {
+            List<String> segmentVia = stops.subList(segment.getStart() + 1, segment.getEnd());
+            segments.add(upstreamGuard.call(() -> fetch(segment.getUrl(), segmentVia)));
+        }
+
+        if (segments.size() == 1) {
+            return segments.get(0);
+        }
+        return CompletableFuture.allOf(segments.toArray(new CompletableFuture[0]))
+                .thenApply(done -> stitch(segments.stream().map(CompletableFuture::join).toList()));
+    }
+
+    // The parse is cancelled with the exchange when the guard times the call out
+    private CompletableFuture<RouteResponse> fetch(String url, List<String> waypoints) {
+        CompletableFuture<byte[]> body = googleMapsClient.getBytes(url);
+        return UpstreamGuard.cancelling(body,
+                body.thenApplyAsync(bytes -> directionsParser.parse(bytes, waypoints), routeExecutor));
+    }
+
+    private RouteResponse stitch(List<RouteResponse> segments) {
+        List<RouteResponse.RouteLeg> legs = new ArrayList<>();
+        List<String> polylines = new ArrayList<>(segments.size());
+        long totalDistance = 0;
+        long totalDuration = 0;
+        for (RouteResponse segment : segments) {
+            if (!"OK".equals(segment.getStatus())) {
+                return segment;
+            }
+            legs.addAll(segment.getLegs());
+            polylines.add(segment.getOverviewPolyline());
+            totalDistance += segment.getTotalDistanceValue();
+            totalDuration += segment.getTotalDurationValue();
+        }
+
+        RouteResponse result = new RouteResponse("OK", new ArrayList<>(), RouteFormats.formatDistance(totalDistance),
+                RouteFormats.formatDuration(totalDuration), legs);
+        result.setTotalDistanceValue(totalDistance);
+        result.setTotalDurationValue(totalDuration);
+        result.setOverviewPolyline(PolylineCodec.join(polylines));
+        return result;
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.route.service.directions;
+
+import com.example.route.dto.RouteResponse;
+import com.example.route.service.PolylineCodec;
+import com.example.route.service.RouteFormats;
+import com.example.route.service.graph.RoadGraph;
+import com.example.route.service.graph.RoadGraphRouter;
+import com.example.route.service.spatial.GeoMath;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Legs routed on the local road graph, with no upstream calls. Stops must be "lat,lng" coordinates (known
+ * addresses are resolved to coordinates before they get here); each is snapped to its nearest graph node
+ * and the legs are searched in parallel on the route executor, in at most as many tasks as the router
+ * runs queries at once.
+ */
+@Component
+@ConditionalOnProperty(name = "route.directions.provider", havingValue = "offline")
+public class OfflineDirectionsProvider implements DirectionsProvider {
+
+    private final RoadGraphRouter router;
+    private final Executor routeExecutor;
+
+    public OfflineDirectionsProvider(RoadGraphRouter router, @Qualifier("routeExecutor") Executor routeExecutor) {
+        this.router = router;
+        this.routeExecutor = routeExecutor;
+    }
+
+    @Override
+    public CompletableFuture<RouteResponse> directions(String origin, String destination, List<String> via) {
+        List<String> stops = new ArrayList<>(via.size() + 2);
+        stops.add(origin);
+        stops.addAll(via);
+        stops.add(destination);
+
+        int[] nodes = new int[stops.size()];
+        for (int i = 0; i < stops.size(); i++) {
+            double[] point = GeoMath.parseCoordinates(stops.get(i));
+            if (point == null) {
+                return CompletableFuture.completedFuture(RouteResponse.error(
+                        "Offline routing needs coordinates for every stop; no coordinates for: " + stops.get(i)));
+            }
+            nodes[i] = router.snap(point[0], point[1]);
+            if (nodes[i] < 0) {
+                return CompletableFuture.completedFuture(RouteResponse.error(String.format(Locale.ROOT,
+                        "No road within %.0f m of stop: %s", router.maxSnapMeters(), stops.get(i))));
+            }
+        }
+
+        // Each task searches a run of consecutive legs
+        int legCount = nodes.length - 1;
+        int tasks = Math.min(legCount, router.parallelism());
+        RoadGraphRouter.Route[] paths = new RoadGraphRouter.Route[legCount];
+        CompletableFuture<?>[] runs = new CompletableFuture<?>[tasks];
+        for (int task = 0; task < tasks; task++) {
+            int first = legCount * task / tasks;
+            int last = legCount * (task + 1) / tasks;
+            runs[task] = CompletableFuture.runAsync(() -> {
+                for (int i = first; i < last; i++) {
+                    paths[i] = router.route(nodes[i], nodes[i + 1]);
+                }
+            }, routeExecutor);
+        }
+        return CompletableFuture.allOf(runs).thenApply(done -> toResponse(stops, Arrays.asList(paths)));
+    }
+
+    private RouteResponse toResponse(List<String> stops, List<RoadGraphRouter.Route> paths) {
+        RoadGraph graph = router.graph();
+        List<RouteResponse.RouteLeg> legs = new ArrayList<>(paths.size());
+        int[] coords = new int[64];
+        int length = 0;
+        long totalDistance = 0;
+        long totalDuration = 0;
+        for (int i = 0; i < paths.size(); i++) {
+            RoadGraphRouter.Route path = paths.get(i);
+            if (path == null) {
+                return RouteResponse.error("No road route from " + stops.get(i) + " to " + stops.get(i + 1));
+            }
+            int[] nodes = path.nodes();
+            int first = nodes[0];
+            int last = nodes[nodes.length - 1];
+            RouteResponse.RouteLeg leg = new RouteResponse.RouteLeg(stops.get(i), stops.get(i + 1),
+                    RouteFormats.formatDistance(path.distanceMeters()), RouteFormats.formatDuration(path.durationSeconds()),
+                    path.distanceMeters(), path.durationSeconds());
+            // Legs start and end where the stops were snapped to, like Google's start and end locations
+            leg.setStartLatitude(graph.latitude(first));
+            leg.setStartLongitude(graph.longitude(first));
+            leg.setEndLatitude(graph.latitude(last));
+            leg.setEndLongitude(graph.longitude(last));
+            legs.add(leg);
+            totalDistance += path.distanceMeters();
+            totalDuration += path.durationSeconds();
+
+            // Consecutive legs share their boundary node, which the overview lists once
+            for (int n = i == 0 ? 0 : 1; n < nodes.length; n++) {
+                if (length + 2 > coords.length) {
+                    coords = Arrays.copyOf(coords, coords.length * 2);
+                }
+                coords[length++] = (int) Math.round(graph.latitudeE7(nodes[n]) / 100.0);
+                coords[length++] = (int) Math.round(graph.longitudeE7(nodes[n]) / 100.0);
+            }
+        }
+
+        RouteResponse result = new RouteResponse("OK", new ArrayList<>(), RouteFormats.formatDistance(totalDistance),
+                RouteFormats.formatDuration(totalDuration), legs);
+        result.setTotalDistanceValue(totalDistance);
+        result.setTotalDurationValue(totalDuration);
+        result.setOverviewPolyline(PolylineCodec.encode(coords, length));
+        return result;
+    }
+}
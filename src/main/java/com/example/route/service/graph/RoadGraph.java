@@ -0,0 +1,235 @@
+package com.example.route.service.graph;
+
+import com.example.route.service.spatial.GeoMath;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only road network in the compact format written by {@link RoadGraphBuilder}. Every array is its
+ * own memory-mapped region of the file, so opening a graph costs no parsing and pages are faulted in
+ * as searches touch them; instances are safe to share between threads.
+ *
+ * <p>Layout (little-endian int32): a header of {@value #HEADER_INTS} ints (magic, version, node count,
+ * edge count, fastest speed in mm/s, grid cell size in 1e-7 degrees), then node latitudes and longitudes
+ * in 1e-7 degrees, the forward adjacency (first edge per node, head, distance in decimeters, duration in
+ * deciseconds) and the reverse adjacency (first incoming per node, tail, forward edge id). Nodes are
+ * sorted by grid cell, so the nodes of a cell are one contiguous run found by binary search.
+ */
+public final class RoadGraph {
+
+    static final int MAGIC = 0x4F524731; // "ORG1"
+    static final int VERSION = 1;
+    static final int HEADER_INTS = 8;
+    static final double COORDINATE_SCALE = 1e7;
+
+    private final int nodeCount;
+    private final int edgeCount;
+    private final double maxSpeedMetersPerSecond;
+    private final int cellE7;
+
+    private final IntBuffer latitudes;
+    private final IntBuffer longitudes;
+    private final IntBuffer firstOut;
+    private final IntBuffer heads;
+    private final IntBuffer distances;
+    private final IntBuffer durations;
+    private final IntBuffer firstIn;
+    private final IntBuffer tails;
+    private final IntBuffer inEdges;
+
+    private RoadGraph(FileChannel channel) throws IOException {
+        IntBuffer header = map(channel, 0, HEADER_INTS);
+        if (header.get(0) != MAGIC || header.get(1) != VERSION) {
+            throw new IOException("Not a road graph file (or an unsupported version)");
+        }
+        nodeCount = header.get(2);
+        edgeCount = header.get(3);
+        maxSpeedMetersPerSecond = header.get(4) / 1000.0;
+        cellE7 = header.get(5);
+
+        long offset = HEADER_INTS;
+        latitudes = map(channel, offset, nodeCount);
+        offset += nodeCount;
+        longitudes = map(channel, offset, nodeCount);
+        offset += nodeCount;
+        firstOut = map(channel, offset, nodeCount + 1);
+        offset += nodeCount + 1;
+        heads = map(channel, offset, edgeCount);
+        offset += edgeCount;
+        distances = map(channel, offset, edgeCount);
+        offset += edgeCount;
+        durations = map(channel, offset, edgeCount);
+        offset += edgeCount;
+        firstIn = map(channel, offset, nodeCount + 1);
+        offset += nodeCount + 1;
+        tails = map(channel, offset, edgeCount);
+        offset += edgeCount;
+        inEdges = map(channel, offset, edgeCount);
+        offset += edgeCount;
+        if (offset * Integer.BYTES != channel.size()) {
+            throw new IOException("Road graph file is truncated or has trailing data");
+        }
+    }
+
+    public static RoadGraph open(Path file) throws IOException {
+        // The mappings stay valid after the channel is closed
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new RoadGraph(channel);
+        }
+    }
+
+    private static IntBuffer map(FileChannel channel, long intOffset, int length) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, intOffset * Integer.BYTES, (long) length * Integer.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN)
+                .asIntBuffer();
+    }
+
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    public int edgeCount() {
+        return edgeCount;
+    }
+
+    public double maxSpeedMetersPerSecond() {
+        return maxSpeedMetersPerSecond;
+    }
+
+    public int latitudeE7(int node) {
+        return latitudes.get(node);
+    }
+
+    public int longitudeE7(int node) {
+        return longitudes.get(node);
+    }
+
+    public double latitude(int node) {
+        return latitudes.get(node) / COORDINATE_SCALE;
+    }
+
+    public double longitude(int node) {
+        return longitudes.get(node) / COORDINATE_SCALE;
+    }
+
+    // Outgoing edges of node are the ids firstOut(node) until firstOut(node + 1)
+    public int firstOut(int node) {
+        return firstOut.get(node);
+    }
+
+    public int head(int edge) {
+        return heads.get(edge);
+    }
+
+    public int distanceDecimeters(int edge) {
+        return distances.get(edge);
+    }
+
+    public int durationDeciseconds(int edge) {
+        return durations.get(edge);
+    }
+
+    // Incoming edges of node are the positions firstIn(node) until firstIn(node + 1)
+    public int firstIn(int node) {
+        return firstIn.get(node);
+    }
+
+    public int tail(int incoming) {
+        return tails.get(incoming);
+    }
+
+    // The forward edge id of an incoming position, for its distance and duration
+    public int inEdge(int incoming) {
+        return inEdges.get(incoming);
+    }
+
+    // The node an edge leaves from; only used when unwinding a found path
+    public int tailOf(int edge) {
+        int low = 0;
+        int high = nodeCount - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (firstOut.get(mid) <= edge) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * The node closest to (lat, lng) within maxMeters, or -1. Only the grid cells that can hold a node
+     * within range are scanned.
+     */
+    public int nearest(double lat, double lng, double maxMeters) {
+        double cellDegrees = cellE7 / COORDINATE_SCALE;
+        double cellMeters = Math.toRadians(cellDegrees) * GeoMath.EARTH_RADIUS_METERS;
+        double cosLat = Math.max(0.01, Math.cos(Math.toRadians(Math.min(89.0, Math.abs(lat) + cellDegrees))));
+        int rowReach = (int) Math.ceil(maxMeters / cellMeters);
+        long columns = cellColumns(cellE7);
+        long rows = cellRow(900_000_000, cellE7) + 1;
+        int colReach = (int) Math.min(columns / 2, Math.ceil(maxMeters / (cellMeters * cosLat)));
+
+        long row = cellRow((int) Math.round(lat * COORDINATE_SCALE), cellE7);
+        long col = cellColumn((int) Math.round(lng * COORDINATE_SCALE), cellE7);
+        int best = -1;
+        double bestMeters = maxMeters;
+        for (long r = row - rowReach; r <= row + rowReach; r++) {
+            if (r < 0 || r >= rows) {
+                continue;
+            }
+            for (long c = col - colReach; c <= col + colReach; c++) {
+                long key = r * columns + Math.floorMod(c, columns);
+                for (int node = firstNodeAtOrAfter(key); node < nodeCount && cellKey(node) == key; node++) {
+                    double meters = GeoMath.haversineMeters(lat, lng, latitude(node), longitude(node));
+                    if (meters <= bestMeters) {
+                        bestMeters = meters;
+                        best = node;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private int firstNodeAtOrAfter(long key) {
+        int low = 0;
+        int high = nodeCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cellKey(mid) < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private long cellKey(int node) {
+        return cellKey(latitudes.get(node), longitudes.get(node), cellE7);
+    }
+
+    // Row-major grid cell of a coordinate; the builder sorts nodes by this key
+    static long cellKey(int latE7, int lngE7, int cellE7) {
+        return cellRow(latE7, cellE7) * cellColumns(cellE7) + cellColumn(lngE7, cellE7);
+    }
+
+    private static long cellRow(int latE7, int cellE7) {
+        return ((long) latE7 + 900_000_000L) / cellE7;
+    }
+
+    private static long cellColumn(int lngE7, int cellE7) {
+        return ((long) lngE7 + 1_800_000_000L) / cellE7;
+    }
+
+    private static long cellColumns(int cellE7) {
+        return 3_600_000_000L / cellE7 + 1;
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.route.service.graph;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Command-line graph build: {@code java -jar app.jar --route.graph.build=region.osm.gz
+ * --route.graph.file=region.graph --spring.main.web-application-type=none}. Reads OSM XML, gzipped
+ * when the name ends in .gz, writes the graph and exits.
+ */
+@Component
+@ConditionalOnProperty(name = "route.graph.build")
+public class RoadGraphBuildRunner implements ApplicationRunner {
+
+    @Value("${route.graph.build}")
+    private Path osmFile;
+
+    @Value("${route.graph.file}")
+    private Path graphFile;
+
+    private final ApplicationContext context;
+
+    public RoadGraphBuildRunner(ApplicationContext context) {
+        this.context = context;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        try (InputStream file = new BufferedInputStream(Files.newInputStream(osmFile), 1 << 16);
+             InputStream osm = osmFile.getFileName().toString().endsWith(".gz") ? new GZIPInputStream(file, 1 << 16) : file) {
+            RoadGraphBuilder.build(osm, graphFile);
+        }
+        System.exit(SpringApplication.exit(context, () -> 0));
+    }
+}
@@ -0,0 +1,497 @@
+package com.example.route.service.graph;
+
+import com.example.route.service.spatial.GeoMath;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Preprocesses an OpenStreetMap XML extract into a {@link RoadGraph} file. Ways with a drivable highway
+ * tag become edges between consecutive way nodes, timed at the tagged maxspeed or a per-class default.
+ * Only the largest strongly connected component is kept, so every snapped stop can reach every other.
+ */
+public final class RoadGraphBuilder {
+
+    private static final Logger log = LoggerFactory.getLogger(RoadGraphBuilder.class);
+
+    // 0.01 degrees, about 1.1 km north-south
+    static final int DEFAULT_CELL_E7 = 100_000;
+
+    private static final Map<String, Integer> DEFAULT_SPEEDS_KMH = Map.ofEntries(
+            Map.entry("motorway", 110), Map.entry("motorway_link", 60),
+            Map.entry("trunk", 90), Map.entry("trunk_link", 50),
+            Map.entry("primary", 70), Map.entry("primary_link", 45),
+            Map.entry("secondary", 60), Map.entry("secondary_link", 40),
+            Map.entry("tertiary", 50), Map.entry("tertiary_link", 35),
+            Map.entry("unclassified", 40), Map.entry("residential", 30),
+            Map.entry("living_street", 10), Map.entry("service", 15), Map.entry("road", 30));
+
+    // OSM nodes by id, sorted after reading so way references resolve by binary search
+    private long[] nodeIds = new long[1 << 16];
+    private int[] nodeLat = new int[1 << 16];
+    private int[] nodeLng = new int[1 << 16];
+    private int nodeCount;
+
+    // Directed edges between indices into the node arrays
+    private final IntList edgeFrom = new IntList();
+    private final IntList edgeTo = new IntList();
+    private final IntList edgeDistance = new IntList();
+    private final IntList edgeDuration = new IntList();
+    private double maxSpeedKmh;
+
+    private RoadGraphBuilder() {
+    }
+
+    public static void build(InputStream osm, Path output) throws IOException {
+        RoadGraphBuilder builder = new RoadGraphBuilder();
+        try {
+            builder.read(osm);
+        } catch (XMLStreamException e) {
+            throw new IOException("Unreadable OSM XML: " + e.getMessage(), e);
+        }
+        builder.write(output);
+    }
+
+    private void read(InputStream osm) throws XMLStreamException {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        XMLStreamReader xml = factory.createXMLStreamReader(osm);
+
+        boolean sorted = true;
+        LongList refs = new LongList();
+        Map<String, String> tags = new HashMap<>();
+        boolean inWay = false;
+        while (xml.hasNext()) {
+            int event = xml.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                switch (xml.getLocalName()) {
+                    case "node" -> {
+                        long id = Long.parseLong(xml.getAttributeValue(null, "id"));
+                        sorted &= nodeCount == 0 || nodeIds[nodeCount - 1] < id;
+                        addNode(id, Double.parseDouble(xml.getAttributeValue(null, "lat")),
+                                Double.parseDouble(xml.getAttributeValue(null, "lon")));
+                    }
+                    case "way" -> {
+                        if (!sorted) {
+                            sortNodes();
+                            sorted = true;
+                        }
+                        inWay = true;
+                        refs.clear();
+                        tags.clear();
+                    }
+                    case "nd" -> {
+                        if (inWay) {
+                            refs.add(Long.parseLong(xml.getAttributeValue(null, "ref")));
+                        }
+                    }
+                    case "tag" -> {
+                        if (inWay) {
+                            tags.put(xml.getAttributeValue(null, "k"), xml.getAttributeValue(null, "v"));
+                        }
+                    }
+                    default -> {
+                    }
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT && "way".equals(xml.getLocalName())) {
+                inWay = false;
+                addWay(refs, tags);
+            }
+        }
+        xml.close();
+    }
+
+    private void addNode(long id, double lat, double lng) {
+        if (nodeCount == nodeIds.length) {
+            nodeIds = Arrays.copyOf(nodeIds, nodeCount * 2);
+            nodeLat = Arrays.copyOf(nodeLat, nodeCount * 2);
+            nodeLng = Arrays.copyOf(nodeLng, nodeCount * 2);
+        }
+        nodeIds[nodeCount] = id;
+        nodeLat[nodeCount] = (int) Math.round(lat * RoadGraph.COORDINATE_SCALE);
+        nodeLng[nodeCount] = (int) Math.round(lng * RoadGraph.COORDINATE_SCALE);
+        nodeCount++;
+    }
+
+    // Extracts are normally sorted by node id; anything else is sorted once before the first way
+    private void sortNodes() {
+        Integer[] order = new Integer[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(nodeIds[a], nodeIds[b]));
+        long[] ids = new long[nodeIds.length];
+        int[] lat = new int[nodeIds.length];
+        int[] lng = new int[nodeIds.length];
+        for (int i = 0; i < nodeCount; i++) {
+            ids[i] = nodeIds[order[i]];
+            lat[i] = nodeLat[order[i]];
+            lng[i] = nodeLng[order[i]];
+        }
+        nodeIds = ids;
+        nodeLat = lat;
+        nodeLng = lng;
+    }
+
+    private void addWay(LongList refs, Map<String, String> tags) {
+        String highway = tags.get("highway");
+        Integer defaultSpeed = highway == null ? null : DEFAULT_SPEEDS_KMH.get(highway);
+        if (defaultSpeed == null || refs.size() < 2 || "yes".equals(tags.get("area")) || !drivable(tags)) {
+            return;
+        }
+        double speedKmh = parseMaxSpeed(tags.get("maxspeed"), defaultSpeed);
+        maxSpeedKmh = Math.max(maxSpeedKmh, speedKmh);
+        int direction = direction(highway, tags);
+
+        int previous = indexOf(refs.get(0));
+        for (int i = 1; i < refs.size(); i++) {
+            int current = indexOf(refs.get(i));
+            if (previous >= 0 && current >= 0 && previous != current) {
+                double meters = GeoMath.haversineMeters(nodeLat[previous] / RoadGraph.COORDINATE_SCALE,
+                        nodeLng[previous] / RoadGraph.COORDINATE_SCALE, nodeLat[current] / RoadGraph.COORDINATE_SCALE,
+                        nodeLng[current] / RoadGraph.COORDINATE_SCALE);
+                int decimeters = (int) Math.round(meters * 10);
+                // Rounded up, so the router's straight-line lower bound never exceeds an edge's duration
+                int deciseconds = Math.max(1, (int) Math.ceil(meters * 36 / speedKmh));
+                if (direction >= 0) {
+                    addEdge(previous, current, decimeters, deciseconds);
+                }
+                if (direction <= 0) {
+                    addEdge(current, previous, decimeters, deciseconds);
+                }
+            }
+            previous = current;
+        }
+    }
+
+    private void addEdge(int from, int to, int decimeters, int deciseconds) {
+        edgeFrom.add(from);
+        edgeTo.add(to);
+        edgeDistance.add(decimeters);
+        edgeDuration.add(deciseconds);
+    }
+
+    private static boolean drivable(Map<String, String> tags) {
+        for (String key : new String[] {"motorcar", "motor_vehicle", "vehicle", "access"}) {
+            String value = tags.get(key);
+            if (value != null) {
+                return !("no".equals(value) || "private".equals(value));
+            }
+        }
+        return true;
+    }
+
+    // 1 for one-way along the way, -1 for one-way against it, 0 for both directions
+    private static int direction(String highway, Map<String, String> tags) {
+        String oneway = tags.getOrDefault("oneway", "");
+        switch (oneway) {
+            case "yes", "1", "true" -> {
+                return 1;
+            }
+            case "-1", "reverse" -> {
+                return -1;
+            }
+            case "no", "0", "false" -> {
+                return 0;
+            }
+            default -> {
+                String junction = tags.get("junction");
+                boolean impliedOneway = "motorway".equals(highway) || "motorway_link".equals(highway)
+                        || "roundabout".equals(junction) || "circular".equals(junction);
+                return impliedOneway ? 1 : 0;
+            }
+        }
+    }
+
+    // "50", "50 km/h" or "30 mph"; anything else ("none", "signals", zone codes) keeps the default
+    static double parseMaxSpeed(String maxspeed, double defaultKmh) {
+        if (maxspeed == null) {
+            return defaultKmh;
+        }
+        String value = maxspeed.trim().toLowerCase(Locale.ROOT);
+        double factor = 1;
+        if (value.endsWith("mph")) {
+            factor = 1.609344;
+            value = value.substring(0, value.length() - 3).trim();
+        } else if (value.endsWith("km/h")) {
+            value = value.substring(0, value.length() - 4).trim();
+        }
+        try {
+            double speed = Double.parseDouble(value) * factor;
+            return speed >= 5 && speed <= 200 ? speed : defaultKmh;
+        } catch (NumberFormatException e) {
+            return defaultKmh;
+        }
+    }
+
+    private int indexOf(long id) {
+        int index = Arrays.binarySearch(nodeIds, 0, nodeCount, id);
+        return index >= 0 ? index : -1;
+    }
+
+    private void write(Path output) throws IOException {
+        int edges = edgeFrom.size();
+        int[] component = largestComponent(edges);
+
+        // Keep the component's nodes, numbered in grid cell order; cell keys stay below 2^31, so key and
+        // node pack into one long and a primitive sort orders them
+        int kept = 0;
+        long[] packed = new long[nodeCount];
+        for (int node = 0; node < nodeCount; node++) {
+            if (component[node] >= 0) {
+                packed[kept++] = RoadGraph.cellKey(nodeLat[node], nodeLng[node], DEFAULT_CELL_E7) << 32 | node;
+            }
+        }
+        Arrays.sort(packed, 0, kept);
+        int[] order = new int[kept];
+        int[] newId = new int[nodeCount];
+        Arrays.fill(newId, -1);
+        for (int i = 0; i < kept; i++) {
+            order[i] = (int) packed[i];
+            newId[order[i]] = i;
+        }
+
+        // Forward adjacency by counting sort on the tail
+        int[] firstOut = new int[kept + 1];
+        int keptEdges = 0;
+        for (int e = 0; e < edges; e++) {
+            int from = newId[edgeFrom.get(e)];
+            if (from >= 0 && newId[edgeTo.get(e)] >= 0) {
+                firstOut[from + 1]++;
+                keptEdges++;
+            }
+        }
+        for (int node = 0; node < kept; node++) {
+            firstOut[node + 1] += firstOut[node];
+        }
+        int[] heads = new int[keptEdges];
+        int[] distances = new int[keptEdges];
+        int[] durations = new int[keptEdges];
+        int[] tailsOf = new int[keptEdges];
+        int[] fill = Arrays.copyOf(firstOut, kept);
+        for (int e = 0; e < edges; e++) {
+            int from = newId[edgeFrom.get(e)];
+            int to = newId[edgeTo.get(e)];
+            if (from >= 0 && to >= 0) {
+                int slot = fill[from]++;
+                heads[slot] = to;
+                tailsOf[slot] = from;
+                distances[slot] = edgeDistance.get(e);
+                durations[slot] = edgeDuration.get(e);
+            }
+        }
+
+        // Reverse adjacency pointing back at forward edge ids
+        int[] firstIn = new int[kept + 1];
+        for (int e = 0; e < keptEdges; e++) {
+            firstIn[heads[e] + 1]++;
+        }
+        for (int node = 0; node < kept; node++) {
+            firstIn[node + 1] += firstIn[node];
+        }
+        int[] tails = new int[keptEdges];
+        int[] inEdges = new int[keptEdges];
+        fill = Arrays.copyOf(firstIn, kept);
+        for (int e = 0; e < keptEdges; e++) {
+            int slot = fill[heads[e]]++;
+            tails[slot] = tailsOf[e];
+            inEdges[slot] = e;
+        }
+
+        int[] latitudes = new int[kept];
+        int[] longitudes = new int[kept];
+        for (int i = 0; i < kept; i++) {
+            latitudes[i] = nodeLat[order[i]];
+            longitudes[i] = nodeLng[order[i]];
+        }
+
+        Path temporary = output.resolveSibling(output.getFileName() + ".tmp");
+        try (OutputStream file = Files.newOutputStream(temporary);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+            int[] header = new int[RoadGraph.HEADER_INTS];
+            header[0] = RoadGraph.MAGIC;
+            header[1] = RoadGraph.VERSION;
+            header[2] = kept;
+            header[3] = keptEdges;
+            header[4] = (int) Math.ceil(maxSpeedKmh / 3.6 * 1000);
+            header[5] = DEFAULT_CELL_E7;
+            for (int[] array : new int[][] {header, latitudes, longitudes, firstOut, heads, distances, durations,
+                    firstIn, tails, inEdges}) {
+                for (int value : array) {
+                    out.writeInt(Integer.reverseBytes(value));
+                }
+            }
+        }
+        Files.move(temporary, output, StandardCopyOption.REPLACE_EXISTING);
+        log.info("Wrote road graph {}: {} nodes, {} edges (dropped {} nodes outside the largest component)",
+                output, kept, keptEdges, countRouted(component) - kept);
+    }
+
+    private int countRouted(int[] component) {
+        int routed = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            if (component[node] != Integer.MIN_VALUE) {
+                routed++;
+            }
+        }
+        return routed;
+    }
+
+    /**
+     * Marks the nodes of the largest strongly connected component with 0, other nodes on an edge with -1
+     * and nodes no edge touches with Integer.MIN_VALUE. Kosaraju's two passes, iterative so long chains
+     * of way nodes don't overflow the stack.
+     */
+    private int[] largestComponent(int edges) {
+        int[] outStart = new int[nodeCount + 1];
+        int[] inStart = new int[nodeCount + 1];
+        for (int e = 0; e < edges; e++) {
+            outStart[edgeFrom.get(e) + 1]++;
+            inStart[edgeTo.get(e) + 1]++;
+        }
+        for (int node = 0; node < nodeCount; node++) {
+            outStart[node + 1] += outStart[node];
+            inStart[node + 1] += inStart[node];
+        }
+        int[] outTargets = new int[edges];
+        int[] inSources = new int[edges];
+        int[] outFill = Arrays.copyOf(outStart, nodeCount);
+        int[] inFill = Arrays.copyOf(inStart, nodeCount);
+        for (int e = 0; e < edges; e++) {
+            outTargets[outFill[edgeFrom.get(e)]++] = edgeTo.get(e);
+            inSources[inFill[edgeTo.get(e)]++] = edgeFrom.get(e);
+        }
+
+        // Pass 1: nodes in order of DFS completion
+        int[] finished = new int[nodeCount];
+        int finishedCount = 0;
+        boolean[] visited = new boolean[nodeCount];
+        int[] stack = new int[nodeCount];
+        int[] cursor = new int[nodeCount];
+        for (int root = 0; root < nodeCount; root++) {
+            if (visited[root] || outStart[root] == outStart[root + 1] && inStart[root] == inStart[root + 1]) {
+                continue;
+            }
+            int depth = 0;
+            stack[depth++] = root;
+            visited[root] = true;
+            cursor[root] = outStart[root];
+            while (depth > 0) {
+                int node = stack[depth - 1];
+                if (cursor[node] < outStart[node + 1]) {
+                    int target = outTargets[cursor[node]++];
+                    if (!visited[target]) {
+                        visited[target] = true;
+                        cursor[target] = outStart[target];
+                        stack[depth++] = target;
+                    }
+                } else {
+                    finished[finishedCount++] = node;
+                    depth--;
+                }
+            }
+        }
+
+        // Pass 2: components on the reversed graph, in reverse finishing order
+        int[] component = new int[nodeCount];
+        Arrays.fill(component, Integer.MIN_VALUE);
+        int largest = -1;
+        int largestSize = 0;
+        int components = 0;
+        for (int i = finishedCount - 1; i >= 0; i--) {
+            int root = finished[i];
+            if (component[root] != Integer.MIN_VALUE) {
+                continue;
+            }
+            int id = components++;
+            int size = 0;
+            int depth = 0;
+            stack[depth++] = root;
+            component[root] = id;
+            while (depth > 0) {
+                int node = stack[--depth];
+                size++;
+                for (int in = inStart[node]; in < inStart[node + 1]; in++) {
+                    int source = inSources[in];
+                    if (component[source] == Integer.MIN_VALUE) {
+                        component[source] = id;
+                        stack[depth++] = source;
+                    }
+                }
+            }
+            if (size > largestSize) {
+                largestSize = size;
+                largest = id;
+            }
+        }
+        for (int node = 0; node < nodeCount; node++) {
+            if (component[node] != Integer.MIN_VALUE) {
+                component[node] = component[node] == largest ? 0 : -1;
+            }
+        }
+        return component;
+    }
+
+    private static final class IntList {
+
+        private int[] values = new int[1 << 16];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int get(int index) {
+            return values[index];
+        }
+
+        int size() {
+            return size;
+        }
+    }
+
+    private static final class LongList {
+
+        private long[] values = new long[64];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        long get(int index) {
+            return values[index];
+        }
+
+        int size() {
+            return size;
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+}
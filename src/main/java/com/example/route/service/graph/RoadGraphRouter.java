@@ -0,0 +1,495 @@
+package com.example.route.service.graph;
+
+import com.example.route.service.spatial.GeoMath;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fastest paths on the offline {@link RoadGraph}. Point-to-point queries run a bidirectional A* with the
+ * average of the forward and backward straight-line potentials, which keeps both searches consistent so
+ * they can stop as soon as their frontiers can no longer improve the best meeting point. Matrix rows are
+ * one-to-many Dijkstra searches that stop once every target is settled.
+ *
+ * <p>Queries borrow a search space from a pool of at most {@code route.graph.search-spaces} (one per core
+ * by default) and wait for one when all are in use. A space holds about 52 bytes per graph node and is
+ * reset between queries by bumping a stamp rather than by clearing arrays.
+ */
+@Component
+@ConditionalOnExpression("'${route.directions.provider:google}' == 'offline' or '${route.matrix.provider:google}' == 'offline'")
+public class RoadGraphRouter {
+
+    private static final Logger log = LoggerFactory.getLogger(RoadGraphRouter.class);
+
+    private final RoadGraph graph;
+    private final double maxSnapMeters;
+    // Straight-line meters to a lower bound on deciseconds
+    private final double decisecondsPerMeter;
+    private final int maxSearchSpaces;
+    // Spaces not in use; they are created on demand until maxSearchSpaces exist
+    private final ArrayBlockingQueue<SearchSpace> idleSearchSpaces;
+    private final AtomicInteger createdSearchSpaces = new AtomicInteger();
+
+    public RoadGraphRouter(@Value("${route.graph.file}") Path file,
+                           @Value("${route.graph.max-snap-meters:500}") double maxSnapMeters,
+                           @Value("${route.graph.search-spaces:0}") int searchSpaces) throws IOException {
+        long started = System.nanoTime();
+        this.graph = RoadGraph.open(file);
+        this.maxSnapMeters = maxSnapMeters;
+        this.decisecondsPerMeter = 10 / graph.maxSpeedMetersPerSecond();
+        this.maxSearchSpaces = searchSpaces > 0 ? searchSpaces : Runtime.getRuntime().availableProcessors();
+        this.idleSearchSpaces = new ArrayBlockingQueue<>(maxSearchSpaces);
+        log.info("Mapped road graph {} ({} nodes, {} edges) in {} ms", file, graph.nodeCount(), graph.edgeCount(),
+                (System.nanoTime() - started) / 1_000_000);
+    }
+
+    public RoadGraph graph() {
+        return graph;
+    }
+
+    // The graph node nearest to (lat, lng) within route.graph.max-snap-meters, or -1
+    public int snap(double lat, double lng) {
+        return graph.nearest(lat, lng, maxSnapMeters);
+    }
+
+    public double maxSnapMeters() {
+        return maxSnapMeters;
+    }
+
+    // How many queries can run at once; more wait for a search space
+    public int parallelism() {
+        return maxSearchSpaces;
+    }
+
+    /**
+     * The fastest path from source to target, or null when target can't be reached. Both searches share
+     * the potential pf(v) = (h_t(v) - h_s(v)) / 2, with h the straight-line time at the graph's top speed,
+     * and the query ends once the smallest forward and backward keys together reach the best path found.
+     */
+    public Route route(int source, int target) {
+        if (source == target) {
+            return new Route(new int[] {source}, 0, 0);
+        }
+        SearchSpace space = borrowSearchSpace();
+        try {
+            return route(space, source, target);
+        } finally {
+            idleSearchSpaces.offer(space);
+        }
+    }
+
+    private Route route(SearchSpace space, int source, int target) {
+        space.reset();
+        Direction forward = space.forward;
+        Direction backward = space.backward;
+
+        double[] sourceVector = unitVector(source);
+        double[] targetVector = unitVector(target);
+        double sourceOffset = potential(source, sourceVector, targetVector);
+        double targetOffset = potential(target, sourceVector, targetVector);
+
+        forward.label(source, 0, -1);
+        forward.heap.push(0, source, 0);
+        backward.label(target, 0, -1);
+        backward.heap.push(0, target, 0);
+
+        long best = Long.MAX_VALUE;
+        int meeting = -1;
+        while (!forward.heap.isEmpty() && !backward.heap.isEmpty()) {
+            // Keys are reduced costs; a path of cost best has reduced cost best + pf(t) - pf(s)
+            if (forward.heap.minKey() + backward.heap.minKey() >= best + targetOffset - sourceOffset) {
+                break;
+            }
+            boolean forwardStep = forward.heap.minKey() <= backward.heap.minKey();
+            Direction search = forwardStep ? forward : backward;
+            Direction other = forwardStep ? backward : forward;
+            int node = search.heap.peekNode();
+            int cost = search.heap.peekCost();
+            search.heap.pop();
+            if (cost != search.cost(node)) {
+                continue; // stale entry, the node was reached more cheaply since
+            }
+
+            int end = forwardStep ? graph.firstOut(node + 1) : graph.firstIn(node + 1);
+            for (int i = forwardStep ? graph.firstOut(node) : graph.firstIn(node); i < end; i++) {
+                int edge = forwardStep ? i : graph.inEdge(i);
+                int next = forwardStep ? graph.head(i) : graph.tail(i);
+                int nextCost = cost + graph.durationDeciseconds(edge);
+                if (search.reached(next) && search.cost(next) <= nextCost) {
+                    continue;
+                }
+                search.label(next, nextCost, edge);
+                double pf = space.potential(next, this, sourceVector, targetVector);
+                double key = forwardStep ? nextCost + pf - sourceOffset : nextCost - pf + targetOffset;
+                search.heap.push(key, next, nextCost);
+                if (other.reached(next) && (long) nextCost + other.cost(next) < best) {
+                    best = (long) nextCost + other.cost(next);
+                    meeting = next;
+                }
+            }
+        }
+        return meeting < 0 ? null : unwind(space, meeting);
+    }
+
+    /**
+     * Fastest-path distance (meters) and duration (seconds) from source to each target, with
+     * {@code Long.MAX_VALUE} for targets that can't be reached or are -1.
+     */
+    public void oneToMany(int source, int[] targets, long[] distances, long[] durations) {
+        Arrays.fill(distances, Long.MAX_VALUE);
+        Arrays.fill(durations, Long.MAX_VALUE);
+        SearchSpace space = borrowSearchSpace();
+        try {
+            oneToMany(space, source, targets, distances, durations);
+        } finally {
+            idleSearchSpaces.offer(space);
+        }
+    }
+
+    private void oneToMany(SearchSpace space, int source, int[] targets, long[] distances, long[] durations) {
+        space.reset();
+        Direction search = space.forward;
+
+        // Targets are counted as settled through a second stamp, which also handles repeated targets
+        int remaining = 0;
+        for (int target : targets) {
+            if (target >= 0 && !search.isTarget(target)) {
+                search.markTarget(target);
+                remaining++;
+            }
+        }
+
+        search.label(source, 0, -1);
+        search.distance[source] = 0;
+        search.heap.push(0, source, 0);
+        while (remaining > 0 && !search.heap.isEmpty()) {
+            int node = search.heap.peekNode();
+            int cost = search.heap.peekCost();
+            search.heap.pop();
+            if (cost != search.cost(node)) {
+                continue;
+            }
+            if (search.isTarget(node)) {
+                search.settleTarget(node);
+                remaining--;
+            }
+            for (int edge = graph.firstOut(node); edge < graph.firstOut(node + 1); edge++) {
+                int next = graph.head(edge);
+                int nextCost = cost + graph.durationDeciseconds(edge);
+                if (search.reached(next) && search.cost(next) <= nextCost) {
+                    continue;
+                }
+                search.label(next, nextCost, edge);
+                search.distance[next] = search.distance[node] + graph.distanceDecimeters(edge);
+                search.heap.push(nextCost, next, nextCost);
+            }
+        }
+
+        for (int i = 0; i < targets.length; i++) {
+            int target = targets[i];
+            if (target >= 0 && search.reached(target) && search.isSettledTarget(target)) {
+                distances[i] = Math.round(search.distance[target] / 10.0);
+                durations[i] = Math.round(search.cost(target) / 10.0);
+            }
+        }
+    }
+
+    // An idle search space, a new one while fewer than maxSearchSpaces exist, or else the next one returned
+    private SearchSpace borrowSearchSpace() {
+        SearchSpace space = idleSearchSpaces.poll();
+        if (space != null) {
+            return space;
+        }
+        int created;
+        while ((created = createdSearchSpaces.get()) < maxSearchSpaces) {
+            if (createdSearchSpaces.compareAndSet(created, created + 1)) {
+                return new SearchSpace(graph.nodeCount());
+            }
+        }
+        try {
+            return idleSearchSpaces.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a graph search space", e);
+        }
+    }
+
+    private Route unwind(SearchSpace space, int meeting) {
+        // Forward half from the meeting node back to the source, then the backward half on to the target
+        int[] nodes = new int[16];
+        int count = 0;
+        long decimeters = 0;
+        long deciseconds = 0;
+        for (int node = meeting, edge = space.forward.parentEdge(node); edge >= 0;
+             edge = space.forward.parentEdge(node)) {
+            decimeters += graph.distanceDecimeters(edge);
+            deciseconds += graph.durationDeciseconds(edge);
+            node = graph.tailOf(edge);
+            nodes = append(nodes, count++, node);
+        }
+        reverse(nodes, count);
+        nodes = append(nodes, count++, meeting);
+        for (int node = meeting, edge = space.backward.parentEdge(node); edge >= 0;
+             edge = space.backward.parentEdge(node)) {
+            decimeters += graph.distanceDecimeters(edge);
+            deciseconds += graph.durationDeciseconds(edge);
+            node = graph.head(edge);
+            nodes = append(nodes, count++, node);
+        }
+        return new Route(Arrays.copyOf(nodes, count), Math.round(decimeters / 10.0), Math.round(deciseconds / 10.0));
+    }
+
+    private static int[] append(int[] values, int index, int value) {
+        if (index == values.length) {
+            values = Arrays.copyOf(values, values.length * 2);
+        }
+        values[index] = value;
+        return values;
+    }
+
+    private static void reverse(int[] values, int length) {
+        for (int i = 0, j = length - 1; i < j; i++, j--) {
+            int swap = values[i];
+            values[i] = values[j];
+            values[j] = swap;
+        }
+    }
+
+    private double[] unitVector(int node) {
+        double[] vector = new double[3];
+        GeoMath.toUnitVector(graph.latitude(node), graph.longitude(node), vector, 0);
+        return vector;
+    }
+
+    // pf(v) in deciseconds; chord lengths obey the triangle inequality, so both halves stay consistent
+    private double potential(int node, double[] sourceVector, double[] targetVector) {
+        double phi = Math.toRadians(graph.latitude(node));
+        double lambda = Math.toRadians(graph.longitude(node));
+        double cosPhi = Math.cos(phi);
+        double x = cosPhi * Math.cos(lambda);
+        double y = cosPhi * Math.sin(lambda);
+        double z = Math.sin(phi);
+        double toTarget = Math.sqrt(square(x - targetVector[0]) + square(y - targetVector[1]) + square(z - targetVector[2]));
+        double fromSource = Math.sqrt(square(x - sourceVector[0]) + square(y - sourceVector[1]) + square(z - sourceVector[2]));
+        return (toTarget - fromSource) * GeoMath.EARTH_RADIUS_METERS * decisecondsPerMeter / 2;
+    }
+
+    private static double square(double value) {
+        return value * value;
+    }
+
+    /** A found path: graph nodes from source to target, with its length in meters and time in seconds. */
+    public static final class Route {
+
+        private final int[] nodes;
+        private final long distanceMeters;
+        private final long durationSeconds;
+
+        Route(int[] nodes, long distanceMeters, long durationSeconds) {
+            this.nodes = nodes;
+            this.distanceMeters = distanceMeters;
+            this.durationSeconds = durationSeconds;
+        }
+
+        public int[] nodes() {
+            return nodes;
+        }
+
+        public long distanceMeters() {
+            return distanceMeters;
+        }
+
+        public long durationSeconds() {
+            return durationSeconds;
+        }
+    }
+
+    private static final class SearchSpace {
+
+        final Direction forward;
+        final Direction backward;
+        // pf(v) is needed by both directions and by every relaxation into v, so it is computed once
+        private final double[] potentials;
+        private final int[] potentialStamp;
+        private int current;
+
+        SearchSpace(int nodeCount) {
+            this.forward = new Direction(nodeCount);
+            this.backward = new Direction(nodeCount);
+            this.potentials = new double[nodeCount];
+            this.potentialStamp = new int[nodeCount];
+        }
+
+        void reset() {
+            forward.reset();
+            backward.reset();
+            if (++current == Integer.MAX_VALUE) {
+                Arrays.fill(potentialStamp, 0);
+                current = 1;
+            }
+        }
+
+        double potential(int node, RoadGraphRouter router, double[] sourceVector, double[] targetVector) {
+            if (potentialStamp[node] != current) {
+                potentials[node] = router.potential(node, sourceVector, targetVector);
+                potentialStamp[node] = current;
+            }
+            return potentials[node];
+        }
+    }
+
+    // Labels of one search direction; a node's label is valid only while its stamp matches the query's
+    private static final class Direction {
+
+        private final int[] stamp;
+        private final int[] cost;
+        private final int[] parentEdge;
+        private final int[] distance;
+        private final int[] targetStamp;
+        private final MinHeap heap = new MinHeap();
+        private int current;
+
+        Direction(int nodeCount) {
+            this.stamp = new int[nodeCount];
+            this.cost = new int[nodeCount];
+            this.parentEdge = new int[nodeCount];
+            this.distance = new int[nodeCount];
+            this.targetStamp = new int[nodeCount];
+        }
+
+        void reset() {
+            if (++current == Integer.MAX_VALUE) {
+                Arrays.fill(stamp, 0);
+                Arrays.fill(targetStamp, 0);
+                current = 1;
+            }
+            heap.clear();
+        }
+
+        boolean reached(int node) {
+            return stamp[node] == current;
+        }
+
+        int cost(int node) {
+            return cost[node];
+        }
+
+        int parentEdge(int node) {
+            return parentEdge[node];
+        }
+
+        void label(int node, int nodeCost, int edge) {
+            stamp[node] = current;
+            cost[node] = nodeCost;
+            parentEdge[node] = edge;
+        }
+
+        // A target is marked with +current and flipped to -current once settled
+        void markTarget(int node) {
+            targetStamp[node] = current;
+        }
+
+        boolean isTarget(int node) {
+            return targetStamp[node] == current;
+        }
+
+        void settleTarget(int node) {
+            targetStamp[node] = -current;
+        }
+
+        boolean isSettledTarget(int node) {
+            return targetStamp[node] == -current;
+        }
+    }
+
+    // Binary min-heap of (key, node, cost) entries; decrease-key is replaced by pushing duplicates
+    private static final class MinHeap {
+
+        private double[] keys = new double[256];
+        private int[] nodes = new int[256];
+        private int[] costs = new int[256];
+        private int size;
+
+        void clear() {
+            size = 0;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        double minKey() {
+            return keys[0];
+        }
+
+        int peekNode() {
+            return nodes[0];
+        }
+
+        int peekCost() {
+            return costs[0];
+        }
+
+        void push(double key, int node, int cost) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                nodes = Arrays.copyOf(nodes, size * 2);
+                costs = Arrays.copyOf(costs, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (keys[parent] <= key) {
+                    break;
+                }
+                move(parent, i);
+                i = parent;
+            }
+            keys[i] = key;
+            nodes[i] = node;
+            costs[i] = cost;
+        }
+
+        void pop() {
+            size--;
+            if (size == 0) {
+                return;
+            }
+            double key = keys[size];
+            int node = nodes[size];
+            int cost = costs[size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && keys[child + 1] < keys[child]) {
+                    child++;
+                }
+                if (keys[child] >= key) {
+                    break;
+                }
+                move(child, i);
+                i = child;
+            }
+            keys[i] = key;
+            nodes[i] = node;
+            costs[i] = cost;
+        }
+
+        private void move(int from, int to) {
+            keys[to] = keys[from];
+            nodes[to] = nodes[from];
+            costs[to] = costs[from];
+        }
+    }
+}
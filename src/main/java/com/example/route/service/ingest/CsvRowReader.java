@@ -0,0 +1,85 @@
+package com.example.route.service.ingest;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads RFC 4180 CSV one record at a time: quoted fields may contain separators, doubled quotes
+ * and line breaks. Only the current record is held in memory.
+ */
+class CsvRowReader {
+
+    private final Reader reader;
+    private final StringBuilder field = new StringBuilder();
+    private int pushedBack = -2;
+
+    CsvRowReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    // Returns null at end of input; blank lines are skipped
+    List<String> next() throws IOException {
+        List<String> row = new ArrayList<>();
+        field.setLength(0);
+        boolean quoted = false;
+        boolean fieldStarted = false;
+        int c;
+        while ((c = read()) != -1) {
+            if (quoted) {
+                if (c == '"') {
+                    int next = read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        unread(next);
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+                fieldStarted = true;
+            } else if (c == ',') {
+                row.add(field.toString());
+                field.setLength(0);
+                fieldStarted = true;
+            } else if (c == '\r' || c == '\n') {
+                if (c == '\r') {
+                    int next = read();
+                    if (next != '\n') {
+                        unread(next);
+                    }
+                }
+                if (row.isEmpty() && field.length() == 0 && !fieldStarted) {
+                    continue;
+                }
+                row.add(field.toString());
+                return row;
+            } else {
+                field.append((char) c);
+                fieldStarted = true;
+            }
+        }
+        if (row.isEmpty() && field.length() == 0 && !fieldStarted) {
+            return null;
+        }
+        row.add(field.toString());
+        return row;
+    }
+
+    private int read() throws IOException {
+        if (pushedBack != -2) {
+            int c = pushedBack;
+            pushedBack = -2;
+            return c;
+        }
+        return reader.read();
+    }
+
+    private void unread(int c) {
+        pushedBack = c;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.route.service.ingest;
+
+import com.example.route.dto.ImportResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Command-line import: {@code java -jar app.jar --route.import.file=sites.csv --spring.main.web-application-type=none}.
+ * The format follows the file extension unless {@code --route.import.format} is given; the process
+ * exits once the file is loaded.
+ */
+@Component
+@ConditionalOnProperty(name = "route.import.file")
+public class LocationImportRunner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(LocationImportRunner.class);
+
+    @Value("${route.import.file}")
+    private Path file;
+
+    @Value("${route.import.format:}")
+    private String format;
+
+    private final LocationImportService locationImportService;
+    private final ApplicationContext context;
+
+    public LocationImportRunner(LocationImportService locationImportService, ApplicationContext context) {
+        this.locationImportService = locationImportService;
+        this.context = context;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        String fileName = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        LocationImportService.Format importFormat = !format.isBlank() ? LocationImportService.Format.of(format)
+                : fileName.endsWith(".csv") ? LocationImportService.Format.CSV : LocationImportService.Format.GEOJSON;
+
+        ImportResult result;
+        try (InputStream input = Files.newInputStream(file)) {
+            result = locationImportService.importLocations(input, importFormat);
+        }
+        result.getRejections().forEach(rejection -> log.warn("Rejected {}", rejection));
+        if (result.getErrorMessage() != null) {
+            log.error("Import of {} failed: {}", file, result.getErrorMessage());
+        }
+
+        int exitCode = "OK".equals(result.getStatus()) ? 0 : 1;
+        System.exit(SpringApplication.exit(context, () -> exitCode));
+    }
+}
@@ -0,0 +1,298 @@
+package com.example.route.service.ingest;
+
+import com.example.route.dto.ImportResult;
+import com.example.route.service.AddressKeys;
+import com.example.route.service.address.AddressResolver;
+import com.example.route.service.spatial.LocationSpatialIndex;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.postgresql.PGConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Streams CSV or GeoJSON location files into the {@code locations} table with PostgreSQL
+ * {@code COPY}. Records are parsed one at a time and written in fixed-size chunks, each its own
+ * {@code COPY} (and transaction), so memory stays bounded by the chunk size whatever the file size.
+ * {@code geom} is filled from the coordinates as EWKT.
+ */
+@Service
+public class LocationImportService {
+
+    public enum Format {
+        CSV, GEOJSON;
+
+        public static Format of(String value) {
+            return switch (value.trim().toLowerCase(Locale.ROOT)) {
+                case "csv" -> CSV;
+                case "geojson", "json" -> GEOJSON;
+                default -> throw new IllegalArgumentException("Unsupported import format: " + value);
+            };
+        }
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(LocationImportService.class);
+
+    private static final String COPY_SQL =
+            "COPY locations (name, address, address_key, latitude, longitude, geom) FROM STDIN WITH (FORMAT csv)";
+
+    private static final int MAX_REPORTED_REJECTIONS = 20;
+
+    // locations.name is VARCHAR(255); a longer name would fail its whole COPY chunk
+    private static final int MAX_NAME_LENGTH = 255;
+
+    @Value("${route.import.chunk-size:10000}")
+    private int chunkSize;
+
+    @Value("${route.import.progress-interval:50000}")
+    private long progressInterval;
+
+    private final DataSource dataSource;
+    private final LocationSpatialIndex spatialIndex;
+    private final AddressResolver addressResolver;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public LocationImportService(DataSource dataSource, LocationSpatialIndex spatialIndex,
+                                 AddressResolver addressResolver) {
+        this.dataSource = dataSource;
+        this.spatialIndex = spatialIndex;
+        this.addressResolver = addressResolver;
+    }
+
+    // Rows copied before a malformed file or database error stay imported; the result says how far it got
+    public ImportResult importLocations(InputStream input, Format format) {
+        long start = System.nanoTime();
+        ImportResult result = new ImportResult();
+        CopyChunk chunk = new CopyChunk(result);
+        try {
+            if (format == Format.CSV) {
+                readCsv(input, chunk);
+            } else {
+                readGeoJson(input, chunk);
+            }
+            chunk.flush();
+            result.setStatus("OK");
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            // A malformed file
+            log.warn("Location import stopped after {} rows: {}", result.getRowsRead(), e.getMessage());
+            result.setStatus("ERROR");
+            result.setErrorMessage(e.getMessage());
+        } catch (IOException | SQLException | RuntimeException e) {
+            log.warn("Location import stopped after {} rows", result.getRowsRead(), e);
+            result.setStatus("FAILED");
+            result.setErrorMessage(e.getMessage());
+        }
+        result.setElapsedMs((System.nanoTime() - start) / 1_000_000);
+        log.info("Location import finished: {} read, {} imported, {} rejected in {} ms", result.getRowsRead(),
+                result.getRowsImported(), result.getRowsRejected(), result.getElapsedMs());
+
+        if (result.getRowsImported() > 0) {
+            // COPY bypasses JPA, so the in-memory views of the table are refreshed explicitly
+            spatialIndex.reload();
+            addressResolver.clearCache();
+        }
+        return result;
+    }
+
+    private void readCsv(InputStream input, CopyChunk chunk) throws IOException, SQLException {
+        CsvRowReader reader = new CsvRowReader(new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8)));
+        List<String> header = reader.next();
+        if (header == null) {
+            return;
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.putIfAbsent(header.get(i).trim().toLowerCase(Locale.ROOT).replace("\uFEFF", ""), i);
+        }
+        int name = column(columns, "name");
+        int address = column(columns, "address");
+        int latitude = column(columns, "latitude", "lat");
+        int longitude = column(columns, "longitude", "lng", "lon");
+        if (latitude < 0 || longitude < 0) {
+            throw new IllegalArgumentException("CSV header needs latitude and longitude columns, got " + header);
+        }
+
+        List<String> row;
+        while ((row = reader.next()) != null) {
+            chunk.add(value(row, name), value(row, address), parseCoordinate(value(row, latitude)),
+                    parseCoordinate(value(row, longitude)));
+        }
+    }
+
+    // Expects a FeatureCollection of Point features; each feature is materialized on its own
+    private void readGeoJson(InputStream input, CopyChunk chunk) throws IOException, SQLException {
+        JsonFactory factory = objectMapper.getFactory();
+        try (JsonParser parser = factory.createParser(input)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("GeoJSON input must be a FeatureCollection object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if (!"features".equals(field) || value != JsonToken.START_ARRAY) {
+                    parser.skipChildren();
+                    continue;
+                }
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    JsonNode feature = objectMapper.readTree(parser);
+                    JsonNode geometry = feature.path("geometry");
+                    JsonNode properties = feature.path("properties");
+                    JsonNode coordinates = geometry.path("coordinates");
+                    boolean point = "Point".equals(geometry.path("type").asText()) && coordinates.size() >= 2
+                            && coordinates.get(0).isNumber() && coordinates.get(1).isNumber();
+                    // GeoJSON positions are [longitude, latitude]
+                    chunk.add(properties.path("name").asText(null), properties.path("address").asText(null),
+                            point ? coordinates.get(1).asDouble() : Double.NaN,
+                            point ? coordinates.get(0).asDouble() : Double.NaN);
+                }
+            }
+        }
+    }
+
+    private static int column(Map<String, Integer> columns, String... names) {
+        for (String name : names) {
+            Integer index = columns.get(name);
+            if (index != null) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    private static String value(List<String> row, int column) {
+        if (column < 0 || column >= row.size()) {
+            return null;
+        }
+        String value = row.get(column).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static double parseCoordinate(String value) {
+        if (value == null) {
+            return Double.NaN;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    // Buffers up to chunkSize validated rows as COPY csv text and sends them in one COPY
+    private final class CopyChunk {
+
+        private final ImportResult result;
+        private final StringBuilder rows = new StringBuilder();
+        private int rowCount;
+
+        CopyChunk(ImportResult result) {
+            this.result = result;
+        }
+
+        void add(String name, String address, double latitude, double longitude) throws SQLException {
+            result.setRowsRead(result.getRowsRead() + 1);
+            String rejection = validate(name, address, latitude, longitude);
+            if (rejection != null) {
+                result.setRowsRejected(result.getRowsRejected() + 1);
+                if (result.getRejections().size() < MAX_REPORTED_REJECTIONS) {
+                    result.getRejections().add("row " + result.getRowsRead() + ": " + rejection);
+                }
+            } else {
+                String lat = BigDecimal.valueOf(latitude).toPlainString();
+                String lng = BigDecimal.valueOf(longitude).toPlainString();
+                appendQuoted(name != null ? name : address).append(',');
+                if (address != null) {
+                    appendQuoted(address).append(',');
+                    appendQuoted(AddressKeys.normalize(address));
+                } else {
+                    rows.append(',');
+                }
+                rows.append(',').append(lat).append(',').append(lng)
+                        .append(",SRID=4326;POINT(").append(lng).append(' ').append(lat).append(")\n");
+                rowCount++;
+                if (rowCount >= chunkSize) {
+                    flush();
+                }
+            }
+            if (result.getRowsRead() % progressInterval == 0) {
+                log.info("Location import progress: {} read, {} imported, {} rejected", result.getRowsRead(),
+                        result.getRowsImported(), result.getRowsRejected());
+            }
+        }
+
+        void flush() throws SQLException {
+            if (rowCount == 0) {
+                return;
+            }
+            try (Connection connection = dataSource.getConnection()) {
+                long copied = connection.unwrap(PGConnection.class).getCopyAPI()
+                        .copyIn(COPY_SQL, new StringReader(rows.toString()));
+                if (!connection.getAutoCommit()) {
+                    connection.commit();
+                }
+                result.setRowsImported(result.getRowsImported() + copied);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            rows.setLength(0);
+            rowCount = 0;
+        }
+
+        private StringBuilder appendQuoted(String value) {
+            rows.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"') {
+                    rows.append('"');
+                }
+                rows.append(c);
+            }
+            return rows.append('"');
+        }
+
+        private String validate(String name, String address, double latitude, double longitude) {
+            if (name == null && address == null) {
+                return "name or address is required";
+            }
+            // Rows without a name are stored under their address
+            String storedName = name != null ? name : address;
+            if (storedName.codePointCount(0, storedName.length()) > MAX_NAME_LENGTH) {
+                return (name != null ? "name" : "address used as name") + " longer than " + MAX_NAME_LENGTH
+                        + " characters";
+            }
+            if (name != null && name.indexOf('\0') >= 0 || address != null && address.indexOf('\0') >= 0) {
+                // PostgreSQL text can't hold NUL characters
+                return "name or address contains a NUL character";
+            }
+            if (Double.isNaN(latitude) || Double.isNaN(longitude)) {
+                return "missing or invalid coordinates";
+            }
+            if (latitude < -90 || latitude > 90 || longitude < -180 || longitude > 180) {
+                return "coordinates out of range";
+            }
+            return null;
+        }
+    }
+}
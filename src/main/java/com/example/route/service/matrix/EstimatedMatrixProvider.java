@@ -0,0 +1,47 @@
+package com.example.route.service.matrix;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Travel costs from {@link TravelEstimator}'s straight-line estimates, with no upstream calls or road graph;
+ * stops without coordinates stay unreachable. Tiles are computed on the route executor.
+ */
+@Component
+@ConditionalOnProperty(name = "route.matrix.provider", havingValue = "estimate")
+public class EstimatedMatrixProvider implements MatrixProvider {
+
+    private final TravelEstimator travelEstimator;
+    private final Executor routeExecutor;
+
+    public EstimatedMatrixProvider(TravelEstimator travelEstimator,
+                                   @Qualifier("routeExecutor") Executor routeExecutor) {
+        this.travelEstimator = travelEstimator;
+        this.routeExecutor = routeExecutor;
+    }
+
+    @Override
+    public int maxOriginsPerCall() {
+        return 256;
+    }
+
+    @Override
+    public int maxDestinationsPerCall() {
+        return 4096;
+    }
+
+    @Override
+    public int maxElementsPerCall() {
+        return 65536;
+    }
+
+    @Override
+    public CompletableFuture<MatrixBlock> fetch(List<String> origins, List<String> destinations) {
+        return CompletableFuture.supplyAsync(() -> travelEstimator.estimate(origins, destinations), routeExecutor);
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.route.service.matrix;
+
+import com.example.route.service.upstream.GoogleMapsClient;
+import com.example.route.service.upstream.UpstreamException;
+import com.example.route.service.upstream.UpstreamGuard;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+@Component
+@ConditionalOnProperty(name = "route.matrix.provider", havingValue = "google", matchIfMissing = true)
+public class GoogleMatrixProvider implements MatrixProvider {
+
+    @Value("${google.maps.api.key}")
+    private String apiKey;
+
+    @Value("${google.maps.api.base-url:https://maps.googleapis.com/maps/api}")
+    private String baseUrl;
+
+    private final GoogleMapsClient googleMapsClient;
+    private final UpstreamGuard upstreamGuard;
+    private final ObjectMapper objectMapper;
+
+    public GoogleMatrixProvider(GoogleMapsClient googleMapsClient, UpstreamGuard upstreamGuard) {
+        this.googleMapsClient = googleMapsClient;
+        this.upstreamGuard = upstreamGuard;
+        this.objectMapper = new ObjectMapper();
+    }
+
+    @Override
+    public int maxOriginsPerCall() {
+        return 25;
+    }
+
+    @Override
+    public int maxDestinationsPerCall() {
+        return 25;
+    }
+
+    @Override
+    public int maxElementsPerCall() {
+        return 100;
+    }
+
+    @Override
+    public CompletableFuture<MatrixBlock> fetch(List<String> origins, List<String> destinations) {
+        String url = buildMatrixUrl(origins, destinations);
+        return upstreamGuard.call(() -> {
+            CompletableFuture<String> response = googleMapsClient.get(url);
+            return UpstreamGuard.cancelling(response,
+                    response.thenApply(body -> parseMatrixResponse(body, origins.size(), destinations.size())));
+        });
+    }
+
+    private String buildMatrixUrl(List<String> origins, List<String> destinations) {
+        StringBuilder url = new StringBuilder();
+        url.append(baseUrl).append("/distancematrix/json?");
+        url.append("origins=");
+        appendPipeSeparated(url, origins);
+        url.append("&destinations=");
+        appendPipeSeparated(url, destinations);
+        url.append("&key=").append(apiKey);
+        return url.toString();
+    }
+
+    // The "|" separator is sent pre-encoded, the URL goes to URI.create as is
+    private void appendPipeSeparated(StringBuilder url, List<String> values) {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                url.append("%7C");
+            }
+            url.append(URLEncoder.encode(values.get(i), StandardCharsets.UTF_8));
+        }
+    }
+
+    private MatrixBlock parseMatrixResponse(String response, int rowCount, int colCount) {
+        JsonNode root;
+        try {
+            root = objectMapper.readTree(response);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+        String status = root.get("status").asText();
+        int statusCode = UpstreamException.statusCodeOf(status);
+        if (statusCode != 0) {
+            throw new UpstreamException("Google Distance Matrix API error: " + status, statusCode);
+        }
+        if (!"OK".equals(status)) {
+            throw new IllegalStateException("Google Distance Matrix API error: " + status);
+        }
+
+        MatrixBlock block = new MatrixBlock(rowCount, colCount);
+        JsonNode rows = root.get("rows");
+        for (int i = 0; i < Math.min(rows.size(), rowCount); i++) {
+            JsonNode elements = rows.get(i).get("elements");
+            for (int j = 0; j < Math.min(elements.size(), colCount); j++) {
+                JsonNode element = elements.get(j);
+                // Pairs without a route stay UNREACHABLE
+                if ("OK".equals(element.path("status").asText())) {
+                    block.set(i, j,
+                            element.get("distance").get("value").asLong(),
+                            element.get("duration").get("value").asLong());
+                }
+            }
+        }
+        return block;
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.route.service.matrix;
+
+import java.util.Arrays;
+
+/**
+ * Rectangular origins × destinations result returned by a {@link MatrixProvider}.
+ * Distances are in meters and durations in seconds, stored row-major.
+ */
+public final class MatrixBlock {
+
+    private final int rows;
+    private final int cols;
+    private final long[] distances;
+    private final long[] durations;
+
+    public MatrixBlock(int rows, int cols) {
+        this.rows = rows;
+        this.cols = cols;
+        this.distances = new long[rows * cols];
+        this.durations = new long[rows * cols];
+        Arrays.fill(distances, TravelMatrix.UNREACHABLE);
+        Arrays.fill(durations, TravelMatrix.UNREACHABLE);
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int cols() {
+        return cols;
+    }
+
+    public long distance(int row, int col) {
+        return distances[row * cols + col];
+    }
+
+    public long duration(int row, int col) {
+        return durations[row * cols + col];
+    }
+
+    public void set(int row, int col, long distance, long duration) {
+        distances[row * cols + col] = distance;
+        durations[row * cols + col] = duration;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.route.service.matrix;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Source of many-to-many travel costs. {@link TravelMatrixService} only asks for pairs it does
+ * not already have cached, and never exceeds the per-call limits reported here.
+ */
+public interface MatrixProvider {
+
+    int maxOriginsPerCall();
+
+    int maxDestinationsPerCall();
+
+    int maxElementsPerCall();
+
+    CompletableFuture<MatrixBlock> fetch(List<String> origins, List<String> destinations);
+}
@@ -0,0 +1,76 @@
+package com.example.route.service.matrix;
+
+import com.example.route.service.graph.RoadGraphRouter;
+import com.example.route.service.spatial.GeoMath;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Travel costs from one-to-many searches on the local road graph. Tiles are a few origins wide and
+ * many destinations long, since one search per origin covers a whole row; stops without coordinates
+ * or too far from any road stay unreachable.
+ */
+@Component
+@ConditionalOnProperty(name = "route.matrix.provider", havingValue = "offline")
+public class OfflineMatrixProvider implements MatrixProvider {
+
+    private final RoadGraphRouter router;
+    private final Executor routeExecutor;
+
+    public OfflineMatrixProvider(RoadGraphRouter router, @Qualifier("routeExecutor") Executor routeExecutor) {
+        this.router = router;
+        this.routeExecutor = routeExecutor;
+    }
+
+    @Override
+    public int maxOriginsPerCall() {
+        return 8;
+    }
+
+    @Override
+    public int maxDestinationsPerCall() {
+        return 4096;
+    }
+
+    @Override
+    public int maxElementsPerCall() {
+        return 32768;
+    }
+
+    @Override
+    public CompletableFuture<MatrixBlock> fetch(List<String> origins, List<String> destinations) {
+        return CompletableFuture.supplyAsync(() -> {
+            int[] targets = snap(destinations);
+            long[] distances = new long[targets.length];
+            long[] durations = new long[targets.length];
+            MatrixBlock block = new MatrixBlock(origins.size(), destinations.size());
+            int[] sources = snap(origins);
+            for (int row = 0; row < sources.length; row++) {
+                if (sources[row] < 0) {
+                    continue;
+                }
+                router.oneToMany(sources[row], targets, distances, durations);
+                for (int col = 0; col < targets.length; col++) {
+                    if (durations[col] != Long.MAX_VALUE) {
+                        block.set(row, col, distances[col], durations[col]);
+                    }
+                }
+            }
+            return block;
+        }, routeExecutor);
+    }
+
+    private int[] snap(List<String> stops) {
+        int[] nodes = new int[stops.size()];
+        for (int i = 0; i < nodes.length; i++) {
+            double[] point = GeoMath.parseCoordinates(stops.get(i));
+            nodes[i] = point == null ? -1 : router.snap(point[0], point[1]);
+        }
+        return nodes;
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.route.service.matrix;
+
+import com.example.route.service.AddressKeys;
+
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Size- and TTL-bounded cache of origin → destination travel costs, keyed on the 64-bit address
+ * hashes from {@link AddressKeys#hash(String)}. Entries live in parallel primitive arrays grouped
+ * into fixed-size buckets; a full bucket evicts the entry closest to expiry. Pairs without a route are
+ * often a transient upstream failure, so they expire after their own, shorter TTL (0 skips them).
+ */
+public class PairCostCache {
+
+    private static final int WAYS = 8;
+
+    private final int bucketMask;
+    private final long ttlMillis;
+    private final long unreachableTtlMillis;
+
+    private final long[] fromKeys;
+    private final long[] toKeys;
+    private final long[] distances;
+    private final int[] durations;
+    // 0 marks an empty slot
+    private final long[] expiresAt;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private long evictions;
+
+    public PairCostCache(int maxEntries, long ttlMillis, long unreachableTtlMillis) {
+        int buckets = Integer.highestOneBit(Math.max(1, maxEntries / WAYS));
+        this.bucketMask = buckets - 1;
+        this.ttlMillis = ttlMillis;
+        this.unreachableTtlMillis = Math.min(ttlMillis, unreachableTtlMillis);
+
+        int capacity = buckets * WAYS;
+        this.fromKeys = new long[capacity];
+        this.toKeys = new long[capacity];
+        this.distances = new long[capacity];
+        this.durations = new int[capacity];
+        this.expiresAt = new long[capacity];
+    }
+
+    /**
+     * Copies every cached pair of {@code keys} into {@code matrix} and returns a row-major mask of
+     * the cells that still have to be fetched. Stops with the same key cost nothing to each other.
+     */
+    public boolean[] fill(long[] keys, TravelMatrix matrix) {
+        int size = keys.length;
+        boolean[] missing = new boolean[size * size];
+        long now = System.currentTimeMillis();
+
+        lock.readLock().lock();
+        try {
+            for (int i = 0; i < size; i++) {
+                for (int j = 0; j < size; j++) {
+                    if (i == j) {
+                        continue;
+                    }
+                    if (keys[i] == keys[j]) {
+                        matrix.set(i, j, 0, 0);
+                        continue;
+                    }
+                    int slot = find(keys[i], keys[j], now);
+                    if (slot < 0) {
+                        missing[i * size + j] = true;
+                    } else {
+                        long duration = durations[slot] == Integer.MAX_VALUE ? TravelMatrix.UNREACHABLE : durations[slot];
+                        matrix.set(i, j, distances[slot], duration);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return missing;
+    }
+
+    // Same as fill(keys, matrix) for an origins × destinations rectangle
+    public boolean[] fill(long[] fromKeys, long[] toKeys, MatrixBlock block) {
+        boolean[] missing = new boolean[fromKeys.length * toKeys.length];
+        long now = System.currentTimeMillis();
+
+        lock.readLock().lock();
+        try {
+            for (int i = 0; i < fromKeys.length; i++) {
+                for (int j = 0; j < toKeys.length; j++) {
+                    if (fromKeys[i] == toKeys[j]) {
+                        block.set(i, j, 0, 0);
+                        continue;
+                    }
+                    int slot = find(fromKeys[i], toKeys[j], now);
+                    if (slot < 0) {
+                        missing[i * toKeys.length + j] = true;
+                    } else {
+                        long duration = durations[slot] == Integer.MAX_VALUE ? TravelMatrix.UNREACHABLE : durations[slot];
+                        block.set(i, j, distances[slot], duration);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return missing;
+    }
+
+    public void put(long fromKey, long toKey, long distance, long duration) {
+        boolean unreachable = distance >= TravelMatrix.UNREACHABLE || duration >= TravelMatrix.UNREACHABLE;
+        long ttl = unreachable ? unreachableTtlMillis : ttlMillis;
+        if (ttl <= 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        int base = bucket(fromKey, toKey);
+
+        lock.writeLock().lock();
+        try {
+            int target = -1;
+            long oldestExpiry = Long.MAX_VALUE;
+            for (int slot = base; slot < base + WAYS; slot++) {
+                if (expiresAt[slot] != 0 && fromKeys[slot] == fromKey && toKeys[slot] == toKey) {
+                    target = slot;
+                    break;
+                }
+                if (expiresAt[slot] < oldestExpiry) {
+                    oldestExpiry = expiresAt[slot];
+                    target = slot;
+                }
+            }
+            if (expiresAt[target] > now && (fromKeys[target] != fromKey || toKeys[target] != toKey)) {
+                evictions++;
+            }
+
+            fromKeys[target] = fromKey;
+            toKeys[target] = toKey;
+            distances[target] = distance;
+            durations[target] = (int) Math.min(duration, Integer.MAX_VALUE);
+            expiresAt[target] = now + ttl;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public long getEvictions() {
+        lock.readLock().lock();
+        try {
+            return evictions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int capacity() {
+        return expiresAt.length;
+    }
+
+    private int find(long fromKey, long toKey, long now) {
+        int base = bucket(fromKey, toKey);
+        for (int slot = base; slot < base + WAYS; slot++) {
+            if (expiresAt[slot] > now && fromKeys[slot] == fromKey && toKeys[slot] == toKey) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private int bucket(long fromKey, long toKey) {
+        long hash = AddressKeys.mix(fromKey * 31 + toKey);
+        return ((int) hash & bucketMask) * WAYS;
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.route.service.matrix;
+
+import com.example.route.service.spatial.GeoMath;
+import com.example.route.service.spatial.GreatCircleMatrix;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Travel costs estimated from straight-line distances: great-circle meters scaled by a detour factor,
+ * timed at an average speed. Cheap enough to rank candidates or cluster stops without a matrix call,
+ * and the fallback answer when the upstream can't be reached.
+ */
+@Component
+public class TravelEstimator {
+
+    private final double detourFactor;
+    private final double metersPerSecond;
+
+    public TravelEstimator(@Value("${route.estimate.detour-factor:1.3}") double detourFactor,
+                           @Value("${route.estimate.speed-kmh:40}") double speedKmh) {
+        this.detourFactor = detourFactor;
+        this.metersPerSecond = speedKmh / 3.6;
+    }
+
+    // Estimates between "lat,lng" stops, or null when any stop is still a free-text address
+    public TravelMatrix estimate(List<String> stops) {
+        double[] latitudes = new double[stops.size()];
+        double[] longitudes = new double[stops.size()];
+        for (int i = 0; i < stops.size(); i++) {
+            double[] point = GeoMath.parseCoordinates(stops.get(i));
+            if (point == null) {
+                return null;
+            }
+            latitudes[i] = point[0];
+            longitudes[i] = point[1];
+        }
+        return estimate(latitudes, longitudes);
+    }
+
+    // Estimates from each origin to each destination, leaving pairs with a free-text address unreachable
+    public MatrixBlock estimate(List<String> origins, List<String> destinations) {
+        double[][] from = coordinates(origins);
+        double[][] to = coordinates(destinations);
+        double[] meters = new double[origins.size() * destinations.size()];
+        GreatCircleMatrix.meters(GreatCircleMatrix.Points.of(from[0], from[1]),
+                GreatCircleMatrix.Points.of(to[0], to[1]), meters);
+        MatrixBlock block = new MatrixBlock(origins.size(), destinations.size());
+        for (int row = 0; row < origins.size(); row++) {
+            if (Double.isNaN(from[0][row])) {
+                continue;
+            }
+            for (int col = 0; col < destinations.size(); col++) {
+                if (!Double.isNaN(to[0][col])) {
+                    double road = meters[row * destinations.size() + col] * detourFactor;
+                    block.set(row, col, Math.round(road), Math.round(road / metersPerSecond));
+                }
+            }
+        }
+        return block;
+    }
+
+    public TravelMatrix estimate(double[] latitudes, double[] longitudes) {
+        int size = latitudes.length;
+        double[] meters = GreatCircleMatrix.meters(GreatCircleMatrix.Points.of(latitudes, longitudes));
+        TravelMatrix matrix = new TravelMatrix(size);
+        for (int from = 0; from < size; from++) {
+            for (int to = 0; to < size; to++) {
+                double road = meters[from * size + to] * detourFactor;
+                matrix.set(from, to, Math.round(road), Math.round(road / metersPerSecond));
+            }
+        }
+        return matrix;
+    }
+
+    // Latitudes and longitudes of the stops, NaN for a stop without coordinates
+    private static double[][] coordinates(List<String> stops) {
+        double[][] coordinates = new double[2][stops.size()];
+        for (int i = 0; i < stops.size(); i++) {
+            double[] point = GeoMath.parseCoordinates(stops.get(i));
+            coordinates[0][i] = point == null ? Double.NaN : point[0];
+            coordinates[1][i] = point == null ? Double.NaN : point[1];
+        }
+        return coordinates;
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.route.service.matrix;
+
+import java.util.Arrays;
+
+/**
+ * Square travel-cost matrix between a list of stops, stored row-major in primitive arrays.
+ * Distances are in meters and durations in seconds; unreachable pairs hold {@link #UNREACHABLE}.
+ */
+public final class TravelMatrix {
+
+    // Large enough to never win a comparison, small enough that a few thousand of them still fit in a long
+    public static final long UNREACHABLE = 1L << 50;
+
+    private final int size;
+    private final long[] distances;
+    private final long[] durations;
+
+    public TravelMatrix(int size) {
+        this.size = size;
+        this.distances = new long[size * size];
+        this.durations = new long[size * size];
+        Arrays.fill(distances, UNREACHABLE);
+        Arrays.fill(durations, UNREACHABLE);
+        for (int i = 0; i < size; i++) {
+            distances[i * size + i] = 0;
+            durations[i * size + i] = 0;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long distance(int from, int to) {
+        return distances[from * size + to];
+    }
+
+    public long duration(int from, int to) {
+        return durations[from * size + to];
+    }
+
+    public void set(int from, int to, long distance, long duration) {
+        distances[from * size + to] = distance;
+        durations[from * size + to] = duration;
+    }
+
+    // Flattened cost array for the optimizer, indexed as [from * size + to]
+    public long[] costs(Objective objective) {
+        return objective == Objective.DISTANCE ? distances.clone() : durations.clone();
+    }
+
+    public enum Objective {
+        DISTANCE,
+        DURATION
+    }
+}
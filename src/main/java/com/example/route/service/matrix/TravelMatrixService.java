@@ -0,0 +1,220 @@
+package com.example.route.service.matrix;
+
+import com.example.route.service.AddressKeys;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Assembles N×N travel matrices, serving what it can from {@link PairCostCache} and fetching only
+ * the missing origin/destination pairs from the configured {@link MatrixProvider}.
+ */
+@Service
+public class TravelMatrixService {
+
+    private static final Logger log = LoggerFactory.getLogger(TravelMatrixService.class);
+
+    private final MatrixProvider provider;
+    private final PairCostCache cache;
+
+    private final AtomicLong cellsFromCache = new AtomicLong();
+    private final AtomicLong cellsFetched = new AtomicLong();
+    private final AtomicLong providerCalls = new AtomicLong();
+
+    public TravelMatrixService(MatrixProvider provider,
+                               @Value("${route.matrix.cache.max-entries:262144}") int maxEntries,
+                               @Value("${route.matrix.cache.ttl-seconds:21600}") long ttlSeconds,
+                               @Value("${route.matrix.cache.unreachable-ttl-seconds:60}") long unreachableTtlSeconds) {
+        this.provider = provider;
+        this.cache = new PairCostCache(maxEntries, ttlSeconds * 1000, unreachableTtlSeconds * 1000);
+    }
+
+    public CompletableFuture<TravelMatrix> getMatrix(List<String> points) {
+        int size = points.size();
+        long[] keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = AddressKeys.hash(points.get(i));
+        }
+
+        TravelMatrix matrix = new TravelMatrix(size);
+        boolean[] missing = cache.fill(keys, matrix);
+
+        int missingCount = 0;
+        int[] missingPerRow = new int[size];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                if (missing[i * size + j]) {
+                    missingPerRow[i]++;
+                    missingCount++;
+                }
+            }
+        }
+        cellsFromCache.addAndGet((long) size * (size - 1) - missingCount);
+        if (missingCount == 0) {
+            return CompletableFuture.completedFuture(matrix);
+        }
+
+        // Rows that are mostly missing are fetched whole; the scattered remainder is fetched by column.
+        // A single new stop in an otherwise cached set therefore costs one row plus one column.
+        List<Integer> denseRows = new ArrayList<>();
+        List<Integer> sparseRows = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            if (missingPerRow[i] == 0) {
+                continue;
+            }
+            if (missingPerRow[i] * 2 >= size - 1) {
+                denseRows.add(i);
+            } else {
+                sparseRows.add(i);
+            }
+        }
+
+        // All tiles are requested at once; each one writes a disjoint set of cells
+        List<CompletableFuture<Void>> tiles = new ArrayList<>();
+        fetchRectangle(points, keys, points, keys, matrix::set, denseRows,
+                columnsMissingIn(denseRows, missing, size), tiles);
+        fetchRectangle(points, keys, points, keys, matrix::set, sparseRows,
+                columnsMissingIn(sparseRows, missing, size), tiles);
+
+        int fetched = missingCount;
+        return CompletableFuture.allOf(tiles.toArray(new CompletableFuture[0]))
+                .thenApply(done -> {
+                    log.debug("Travel matrix {}x{}: {} cells fetched in {} calls, {} from cache", size, size,
+                            fetched, tiles.size(), (long) size * (size - 1) - fetched);
+                    return matrix;
+                });
+    }
+
+    // Costs from each origin to each destination, e.g. one new stop against a planned route
+    public CompletableFuture<MatrixBlock> getBlock(List<String> origins, List<String> destinations) {
+        long[] originKeys = new long[origins.size()];
+        for (int i = 0; i < originKeys.length; i++) {
+            originKeys[i] = AddressKeys.hash(origins.get(i));
+        }
+        long[] destinationKeys = new long[destinations.size()];
+        for (int j = 0; j < destinationKeys.length; j++) {
+            destinationKeys[j] = AddressKeys.hash(destinations.get(j));
+        }
+
+        MatrixBlock block = new MatrixBlock(origins.size(), destinations.size());
+        boolean[] missing = cache.fill(originKeys, destinationKeys, block);
+        List<Integer> rows = new ArrayList<>();
+        int missingCount = 0;
+        for (int i = 0; i < originKeys.length; i++) {
+            int before = missingCount;
+            for (int j = 0; j < destinationKeys.length; j++) {
+                if (missing[i * destinationKeys.length + j]) {
+                    missingCount++;
+                }
+            }
+            if (missingCount > before) {
+                rows.add(i);
+            }
+        }
+        long cells = (long) originKeys.length * destinationKeys.length;
+        cellsFromCache.addAndGet(cells - missingCount);
+        if (missingCount == 0) {
+            return CompletableFuture.completedFuture(block);
+        }
+
+        List<CompletableFuture<Void>> tiles = new ArrayList<>();
+        fetchRectangle(origins, originKeys, destinations, destinationKeys, block::set, rows,
+                columnsMissingIn(rows, missing, destinationKeys.length), tiles);
+        return CompletableFuture.allOf(tiles.toArray(new CompletableFuture[0])).thenApply(done -> block);
+    }
+
+    public long getCellsFromCache() {
+        return cellsFromCache.get();
+    }
+
+    public long getCellsFetched() {
+        return cellsFetched.get();
+    }
+
+    public long getProviderCalls() {
+        return providerCalls.get();
+    }
+
+    public long getCacheEvictions() {
+        return cache.getEvictions();
+    }
+
+    // size is the row length of missing: the point count, or the destination count of a block
+    private List<Integer> columnsMissingIn(List<Integer> rows, boolean[] missing, int size) {
+        boolean[] needed = new boolean[size];
+        for (int row : rows) {
+            for (int col = 0; col < size; col++) {
+                needed[col] |= missing[row * size + col];
+            }
+        }
+        List<Integer> cols = new ArrayList<>();
+        for (int col = 0; col < size; col++) {
+            if (needed[col]) {
+                cols.add(col);
+            }
+        }
+        return cols;
+    }
+
+    // Tiles rows × cols so that every provider call stays within its origin, destination and element limits
+    private void fetchRectangle(List<String> origins, long[] originKeys, List<String> destinations,
+                                long[] destinationKeys, CellWriter writer, List<Integer> rows, List<Integer> cols,
+                                List<CompletableFuture<Void>> tiles) {
+        if (rows.isEmpty() || cols.isEmpty()) {
+            return;
+        }
+
+        int rowsPerCall = Math.min(rows.size(), provider.maxOriginsPerCall());
+        int colsPerCall = Math.min(cols.size(),
+                Math.min(provider.maxDestinationsPerCall(), Math.max(1, provider.maxElementsPerCall() / rowsPerCall)));
+        rowsPerCall = Math.min(rowsPerCall, Math.max(1, provider.maxElementsPerCall() / colsPerCall));
+
+        for (int rowStart = 0; rowStart < rows.size(); rowStart += rowsPerCall) {
+            List<Integer> rowTile = rows.subList(rowStart, Math.min(rows.size(), rowStart + rowsPerCall));
+            for (int colStart = 0; colStart < cols.size(); colStart += colsPerCall) {
+                List<Integer> colTile = cols.subList(colStart, Math.min(cols.size(), colStart + colsPerCall));
+                tiles.add(fetchTile(origins, originKeys, destinations, destinationKeys, writer, rowTile, colTile));
+            }
+        }
+    }
+
+    private CompletableFuture<Void> fetchTile(List<String> origins, long[] originKeys, List<String> destinations,
+                                              long[] destinationKeys, CellWriter writer,
+                                              List<Integer> rows, List<Integer> cols) {
+        List<String> tileOrigins = new ArrayList<>(rows.size());
+        for (int row : rows) {
+            tileOrigins.add(origins.get(row));
+        }
+        List<String> tileDestinations = new ArrayList<>(cols.size());
+        for (int col : cols) {
+            tileDestinations.add(destinations.get(col));
+        }
+
+        providerCalls.incrementAndGet();
+        cellsFetched.addAndGet((long) rows.size() * cols.size());
+        return provider.fetch(tileOrigins, tileDestinations).thenAccept(block -> {
+            for (int i = 0; i < rows.size(); i++) {
+                int from = rows.get(i);
+                for (int j = 0; j < cols.size(); j++) {
+                    int to = cols.get(j);
+                    if (originKeys[from] == destinationKeys[to]) {
+                        continue;
+                    }
+                    writer.set(from, to, block.distance(i, j), block.duration(i, j));
+                    cache.put(originKeys[from], destinationKeys[to], block.distance(i, j), block.duration(i, j));
+                }
+            }
+        });
+    }
+
+    // Where fetched cells go: a square TravelMatrix or a rectangular MatrixBlock
+    private interface CellWriter {
+        void set(int from, int to, long distance, long duration);
+    }
+}
@@ -0,0 +1,515 @@
+package com.example.route.service.optimizer;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Solves {@link FleetProblem}s with ruin-and-recreate large neighbourhood search. Every worker on the
+ * solver pool starts from its own randomized insertion and then repeatedly removes a few stops (random
+ * or neighbouring ones) and re-inserts them at their cheapest feasible position. Workers publish
+ * improvements to a shared best and restart from it when another worker is ahead. The search stops at
+ * the wall-clock budget, or earlier once no worker has improved for {@code route.fleet.max-idle-iterations}.
+ *
+ * <p>Plans are compared on unassigned stops first and cost second. Time windows and shift ends are
+ * checked in constant time per insertion from each route's forward slack.
+ */
+@Component
+public class FleetOptimizer {
+
+    // How far (relative to the best cost) a worker may drift at the start; shrinks to 0 at the deadline
+    private static final double INITIAL_THRESHOLD = 0.03;
+
+    private static final int SYNC_INTERVAL = 256;
+
+    private final ForkJoinPool pool;
+
+    @Value("${route.fleet.max-idle-iterations:20000}")
+    private long maxIdleIterations = 20000;
+
+    @Value("${route.fleet.max-ruin:40}")
+    private int maxRuin = 40;
+
+    @Value("${route.fleet.seed:0}")
+    private long seed;
+
+    public FleetOptimizer(@Qualifier("fleetSolverPool") ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public CompletableFuture<FleetSolution> solve(FleetProblem problem, long budgetMillis) {
+        long deadline = System.nanoTime() + budgetMillis * 1_000_000;
+        AtomicReference<Plan> shared = new AtomicReference<>();
+        AtomicLong iterations = new AtomicLong();
+
+        int workers = Math.max(1, pool.getParallelism());
+        CompletableFuture<?>[] runs = new CompletableFuture<?>[workers];
+        for (int w = 0; w < workers; w++) {
+            long workerSeed = seed != 0 ? seed + w : System.nanoTime() ^ ((long) w << 32);
+            runs[w] = CompletableFuture.runAsync(
+                    () -> new Worker(problem, new SplittableRandom(workerSeed), shared, deadline, iterations).run(), pool);
+        }
+        return CompletableFuture.allOf(runs).thenApply(done -> shared.get().toSolution(iterations.get()));
+    }
+
+    private final class Worker {
+
+        private final FleetProblem problem;
+        private final SplittableRandom random;
+        private final AtomicReference<Plan> shared;
+        private final long deadline;
+        private final AtomicLong iterations;
+
+        Worker(FleetProblem problem, SplittableRandom random, AtomicReference<Plan> shared, long deadline,
+               AtomicLong iterations) {
+            this.problem = problem;
+            this.random = random;
+            this.shared = shared;
+            this.deadline = deadline;
+            this.iterations = iterations;
+        }
+
+        void run() {
+            Plan current = new Plan(problem);
+            int[] all = new int[problem.stopCount()];
+            for (int i = 0; i < all.length; i++) {
+                all[i] = i + 1;
+            }
+            recreate(current, all, all.length);
+            // Plans are never changed once built; each iteration works on a fresh copy of current
+            Plan best = current;
+            publish(best);
+
+            long start = System.nanoTime();
+            long idle = 0;
+            long done = 0;
+            int[] removed = new int[problem.size];
+            while (idle < maxIdleIterations && all.length > 0) {
+                if ((done & (SYNC_INTERVAL - 1)) == 0) {
+                    long now = System.nanoTime();
+                    if (now >= deadline) {
+                        break;
+                    }
+                    Plan global = shared.get();
+                    if (global.isBetterThan(best)) {
+                        best = global;
+                        current = global;
+                        idle = 0;
+                    }
+                }
+
+                Plan candidate = current.copy();
+                int count = ruin(candidate, removed);
+                recreate(candidate, removed, count);
+                done++;
+
+                if (candidate.isBetterThan(best)) {
+                    best = candidate;
+                    publish(best);
+                    idle = 0;
+                } else {
+                    idle++;
+                }
+                // Record-to-record travel: keep candidates within a shrinking margin of the best
+                double progress = Math.min(1.0, (double) (System.nanoTime() - start) / Math.max(1, deadline - start));
+                double threshold = INITIAL_THRESHOLD * (1 - progress);
+                if (candidate.unassignedCount < current.unassignedCount
+                        || (candidate.unassignedCount == current.unassignedCount
+                        && candidate.cost <= best.cost + (long) (best.cost * threshold))) {
+                    current = candidate;
+                }
+            }
+            iterations.addAndGet(done);
+        }
+
+        private void publish(Plan plan) {
+            shared.accumulateAndGet(plan, (existing, offered) ->
+                    existing == null || offered.isBetterThan(existing) ? offered : existing);
+        }
+
+        // Takes a few stops out of their routes; returns how many were written to removed
+        private int ruin(Plan plan, int[] removed) {
+            int assigned = problem.stopCount() - plan.unassignedCount;
+            if (assigned == 0) {
+                return 0;
+            }
+            int target = 1 + random.nextInt(Math.max(1, Math.min(maxRuin, Math.max(2, assigned / 4))));
+            int count = 0;
+            if (random.nextBoolean()) {
+                // Related removal: a random stop and its nearest neighbours that are on some route
+                int seedStop = 1 + random.nextInt(problem.stopCount());
+                if (plan.routeOf[seedStop] >= 0) {
+                    removed[count++] = seedStop;
+                }
+                for (int neighbour : problem.neighbours[seedStop]) {
+                    if (count >= target) {
+                        break;
+                    }
+                    if (plan.routeOf[neighbour] >= 0) {
+                        removed[count++] = neighbour;
+                    }
+                }
+            }
+            for (int attempts = 0; count < target && attempts < target * 4; attempts++) {
+                int stop = 1 + random.nextInt(problem.stopCount());
+                if (plan.routeOf[stop] >= 0 && !contains(removed, count, stop)) {
+                    removed[count++] = stop;
+                }
+            }
+            return plan.remove(removed, count);
+        }
+
+        // Inserts the given stops and every unassigned one at their cheapest feasible positions
+        private void recreate(Plan plan, int[] stops, int count) {
+            int total = count;
+            int[] order = Arrays.copyOf(stops, count + plan.unassignedCount);
+            for (int stop = 1; stop < problem.size; stop++) {
+                if (plan.routeOf[stop] == Plan.UNASSIGNED && !contains(stops, count, stop)) {
+                    order[total++] = stop;
+                }
+            }
+            plan.unassignedCount = 0;
+            for (int i = 0; i < total; i++) {
+                plan.routeOf[order[i]] = Plan.UNASSIGNED;
+            }
+
+            // Random order most of the time; tightest windows or largest demands first otherwise
+            shuffle(order, total);
+            int strategy = random.nextInt(4);
+            if (strategy == 1) {
+                sortBy(order, total, problem.latest);
+            } else if (strategy == 2) {
+                sortByDemandDescending(order, total);
+            }
+
+            for (int i = 0; i < total; i++) {
+                int stop = order[i];
+                if (!plan.insertCheapest(stop)) {
+                    plan.unassignedCount++;
+                }
+            }
+        }
+
+        private void shuffle(int[] values, int count) {
+            for (int i = count - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int tmp = values[i];
+                values[i] = values[j];
+                values[j] = tmp;
+            }
+        }
+
+        private void sortBy(int[] values, int count, long[] key) {
+            Integer[] boxed = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                boxed[i] = values[i];
+            }
+            Arrays.sort(boxed, (a, b) -> Long.compare(key[a], key[b]));
+            for (int i = 0; i < count; i++) {
+                values[i] = boxed[i];
+            }
+        }
+
+        private void sortByDemandDescending(int[] values, int count) {
+            Integer[] boxed = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                boxed[i] = values[i];
+            }
+            Arrays.sort(boxed, (a, b) -> Integer.compare(problem.demand[b], problem.demand[a]));
+            for (int i = 0; i < count; i++) {
+                values[i] = boxed[i];
+            }
+        }
+
+        private boolean contains(int[] values, int count, int value) {
+            for (int i = 0; i < count; i++) {
+                if (values[i] == value) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    // A complete assignment of stops to vehicle routes; copies are cheap enough to take every iteration
+    private static final class Plan {
+
+        static final int UNASSIGNED = -1;
+
+        final FleetProblem problem;
+        final VehicleTour[] tours;
+        final int[] routeOf;
+        int unassignedCount;
+        long cost;
+
+        Plan(FleetProblem problem) {
+            this.problem = problem;
+            this.tours = new VehicleTour[problem.vehicleCount()];
+            for (int v = 0; v < tours.length; v++) {
+                tours[v] = new VehicleTour(problem, v);
+                tours[v].recompute();
+            }
+            this.routeOf = new int[problem.size];
+            Arrays.fill(routeOf, UNASSIGNED);
+            this.unassignedCount = problem.stopCount();
+        }
+
+        private Plan(Plan other) {
+            this.problem = other.problem;
+            this.tours = new VehicleTour[other.tours.length];
+            for (int v = 0; v < tours.length; v++) {
+                tours[v] = other.tours[v].copy();
+            }
+            this.routeOf = other.routeOf.clone();
+            this.unassignedCount = other.unassignedCount;
+            this.cost = other.cost;
+        }
+
+        Plan copy() {
+            return new Plan(this);
+        }
+
+        boolean isBetterThan(Plan other) {
+            return unassignedCount < other.unassignedCount
+                    || (unassignedCount == other.unassignedCount && cost < other.cost);
+        }
+
+        // Stops that have to stay to keep their route drivable are dropped from stops; returns how many remain
+        int remove(int[] stops, int count) {
+            boolean[] touched = new boolean[tours.length];
+            boolean[] removing = new boolean[problem.size];
+            for (int i = 0; i < count; i++) {
+                removing[stops[i]] = true;
+                touched[routeOf[stops[i]]] = true;
+            }
+            for (int v = 0; v < tours.length; v++) {
+                if (touched[v]) {
+                    cost -= tours[v].cost;
+                    tours[v].removeAll(removing);
+                    cost += tours[v].cost;
+                }
+            }
+            int removed = 0;
+            for (int i = 0; i < count; i++) {
+                if (removing[stops[i]]) {
+                    routeOf[stops[i]] = UNASSIGNED;
+                    stops[removed++] = stops[i];
+                }
+            }
+            unassignedCount += removed;
+            return removed;
+        }
+
+        boolean insertCheapest(int stop) {
+            int bestVehicle = -1;
+            int bestPosition = -1;
+            long bestDelta = Long.MAX_VALUE;
+            for (int v = 0; v < tours.length; v++) {
+                VehicleTour tour = tours[v];
+                if (tour.load + problem.demand[stop] > problem.capacity[v]) {
+                    continue;
+                }
+                for (int position = 0; position <= tour.size; position++) {
+                    long delta = tour.insertionDelta(stop, position, bestDelta);
+                    if (delta < bestDelta) {
+                        bestDelta = delta;
+                        bestVehicle = v;
+                        bestPosition = position;
+                    }
+                }
+            }
+            if (bestVehicle < 0) {
+                return false;
+            }
+            VehicleTour tour = tours[bestVehicle];
+            cost -= tour.cost;
+            tour.insert(stop, bestPosition);
+            cost += tour.cost;
+            routeOf[stop] = bestVehicle;
+            return true;
+        }
+
+        FleetSolution toSolution(long iterations) {
+            int[][] routes = new int[tours.length][];
+            long[][] serviceStart = new long[tours.length][];
+            long[] returnTime = new long[tours.length];
+            int[] load = new int[tours.length];
+            for (int v = 0; v < tours.length; v++) {
+                routes[v] = Arrays.copyOf(tours[v].nodes, tours[v].size);
+                serviceStart[v] = Arrays.copyOf(tours[v].begin, tours[v].size);
+                returnTime[v] = tours[v].returnTime;
+                load[v] = tours[v].load;
+            }
+            List<Integer> unassigned = new ArrayList<>();
+            for (int stop = 1; stop < problem.size; stop++) {
+                if (routeOf[stop] == UNASSIGNED) {
+                    unassigned.add(stop);
+                }
+            }
+            return new FleetSolution(routes, serviceStart, returnTime, load,
+                    unassigned.stream().mapToInt(Integer::intValue).toArray(), cost, iterations);
+        }
+    }
+
+    // One vehicle's stops with their schedule and how far each service start may still be pushed back
+    private static final class VehicleTour {
+
+        final FleetProblem problem;
+        final int vehicle;
+        int[] nodes;
+        long[] arrival;
+        long[] begin;
+        long[] maxShift;
+        int size;
+        int load;
+        long cost;
+        long returnTime;
+        long returnSlack;
+
+        VehicleTour(FleetProblem problem, int vehicle) {
+            this.problem = problem;
+            this.vehicle = vehicle;
+            this.nodes = new int[8];
+            this.arrival = new long[8];
+            this.begin = new long[8];
+            this.maxShift = new long[8];
+        }
+
+        VehicleTour copy() {
+            VehicleTour copy = new VehicleTour(problem, vehicle);
+            copy.nodes = nodes.clone();
+            copy.arrival = arrival.clone();
+            copy.begin = begin.clone();
+            copy.maxShift = maxShift.clone();
+            copy.size = size;
+            copy.load = load;
+            copy.cost = cost;
+            copy.returnTime = returnTime;
+            copy.returnSlack = returnSlack;
+            return copy;
+        }
+
+        // Extra cost of serving stop before the node at position, or Long.MAX_VALUE if that breaks a
+        // constraint, needs a pair without a route or costs at least bound; the cheap tests run first
+        long insertionDelta(int stop, int position, long bound) {
+            int n = problem.size;
+            int previous = position == 0 ? 0 : nodes[position - 1];
+            int next = position == size ? 0 : nodes[position];
+            if (!problem.connected(previous, stop) || !problem.connected(stop, next)) {
+                return Long.MAX_VALUE;
+            }
+            long delta = problem.cost[previous * n + stop] + problem.cost[stop * n + next] - problem.cost[previous * n + next];
+            if (delta >= bound) {
+                return Long.MAX_VALUE;
+            }
+
+            long departure = position == 0
+                    ? problem.shiftStart[vehicle]
+                    : begin[position - 1] + problem.service[previous];
+            long serviceStart = Math.max(departure + problem.travelTime[previous * n + stop], problem.earliest[stop]);
+            if (serviceStart > problem.latest[stop]) {
+                return Long.MAX_VALUE;
+            }
+            long nextArrival = serviceStart + problem.service[stop] + problem.travelTime[stop * n + next];
+            if (position == size) {
+                if (nextArrival > problem.shiftEnd[vehicle]) {
+                    return Long.MAX_VALUE;
+                }
+            } else {
+                long shift = Math.max(nextArrival, problem.earliest[next]) - begin[position];
+                if (shift > maxShift[position]) {
+                    return Long.MAX_VALUE;
+                }
+            }
+            return delta;
+        }
+
+        void insert(int stop, int position) {
+            if (size == nodes.length) {
+                int capacity = nodes.length * 2;
+                nodes = Arrays.copyOf(nodes, capacity);
+                arrival = Arrays.copyOf(arrival, capacity);
+                begin = Arrays.copyOf(begin, capacity);
+                maxShift = Arrays.copyOf(maxShift, capacity);
+            }
+            System.arraycopy(nodes, position, nodes, position + 1, size - position);
+            nodes[position] = stop;
+            size++;
+            recompute();
+        }
+
+        // A run of removed stops whose neighbours have no route between them stays, and is unmarked in removing
+        void removeAll(boolean[] removing) {
+            int[] original = Arrays.copyOf(nodes, size);
+            int kept = 0;
+            int previous = 0;
+            int runStart = -1;
+            for (int i = 0; i <= original.length; i++) {
+                int node = i < original.length ? original[i] : 0;
+                if (i < original.length && removing[node]) {
+                    if (runStart < 0) {
+                        runStart = i;
+                    }
+                    continue;
+                }
+                if (runStart >= 0 && !problem.connected(previous, node)) {
+                    for (int j = runStart; j < i; j++) {
+                        removing[original[j]] = false;
+                        nodes[kept++] = original[j];
+                    }
+                }
+                runStart = -1;
+                if (i < original.length) {
+                    nodes[kept++] = node;
+                    previous = node;
+                }
+            }
+            size = kept;
+            recompute();
+        }
+
+        // Forward pass for the schedule, backward pass for the slack
+        void recompute() {
+            int n = problem.size;
+            long time = problem.shiftStart[vehicle];
+            int previous = 0;
+            load = 0;
+            cost = 0;
+            for (int i = 0; i < size; i++) {
+                int node = nodes[i];
+                arrival[i] = time + problem.service[previous] + problem.travelTime[previous * n + node];
+                begin[i] = Math.max(arrival[i], problem.earliest[node]);
+                time = begin[i];
+                cost += problem.cost[previous * n + node];
+                load += problem.demand[node];
+                previous = node;
+            }
+            if (size == 0) {
+                returnTime = time;
+                returnSlack = problem.shiftEnd[vehicle] - time;
+                return;
+            }
+            returnTime = time + problem.service[previous] + problem.travelTime[previous * n];
+            cost += problem.cost[previous * n];
+            returnSlack = problem.shiftEnd[vehicle] - returnTime;
+
+            // A delay at i reaches i+1 minus the time the vehicle would have waited there
+            long slackAfter = returnSlack;
+            long waitAfter = 0;
+            for (int i = size - 1; i >= 0; i--) {
+                maxShift[i] = Math.min(problem.latest[nodes[i]] - begin[i], waitAfter + slackAfter);
+                slackAfter = maxShift[i];
+                waitAfter = begin[i] - arrival[i];
+            }
+        }
+    }
+}
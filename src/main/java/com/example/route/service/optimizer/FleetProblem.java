@@ -0,0 +1,81 @@
+package com.example.route.service.optimizer;
+
+import java.util.Arrays;
+
+/**
+ * A capacitated vehicle routing problem with time windows on flattened matrices ({@code [from * size + to]}).
+ * Node 0 is the depot every vehicle leaves at its shift start and returns to by its shift end; nodes
+ * 1..size-1 are the stops. {@code cost} is what the solver minimizes, {@code travelTime} (seconds) is what
+ * the time windows are checked against. Pairs without a route hold {@link #UNREACHABLE} in either matrix
+ * and are never driven.
+ */
+public final class FleetProblem {
+
+    // Same marker as the travel matrix's, so its cells can be passed through as they are
+    public static final long UNREACHABLE = 1L << 50;
+
+    private static final int NEIGHBOURS = 40;
+
+    final int size;
+    final long[] cost;
+    final long[] travelTime;
+    final int[] demand;
+    final long[] earliest;
+    final long[] latest;
+    final long[] service;
+    final int[] capacity;
+    final long[] shiftStart;
+    final long[] shiftEnd;
+    // Each stop's nearest other stops by cost, for related removals
+    final int[][] neighbours;
+
+    public FleetProblem(int size, long[] cost, long[] travelTime, int[] demand, long[] earliest, long[] latest,
+                        long[] service, int[] capacity, long[] shiftStart, long[] shiftEnd) {
+        this.size = size;
+        this.cost = cost;
+        this.travelTime = travelTime;
+        this.demand = demand;
+        this.earliest = earliest;
+        this.latest = latest;
+        this.service = service;
+        this.capacity = capacity;
+        this.shiftStart = shiftStart;
+        this.shiftEnd = shiftEnd;
+        this.neighbours = nearestNeighbours();
+    }
+
+    public int stopCount() {
+        return size - 1;
+    }
+
+    public int vehicleCount() {
+        return capacity.length;
+    }
+
+    boolean connected(int from, int to) {
+        return cost[from * size + to] < UNREACHABLE && travelTime[from * size + to] < UNREACHABLE;
+    }
+
+    private int[][] nearestNeighbours() {
+        int count = Math.min(NEIGHBOURS, size - 2);
+        int[][] result = new int[size][];
+        result[0] = new int[0];
+        long[] keys = new long[size - 2];
+        for (int stop = 1; stop < size; stop++) {
+            // Sort (cost, node) pairs packed into one long; costs past 2^40 are unreachable anyway
+            int k = 0;
+            for (int other = 1; other < size; other++) {
+                if (other != stop) {
+                    long symmetric = Math.min(cost[stop * size + other], cost[other * size + stop]);
+                    keys[k++] = (Math.min(symmetric, (1L << 40) - 1) << 20) | other;
+                }
+            }
+            Arrays.sort(keys, 0, k);
+            result[stop] = new int[count];
+            for (int i = 0; i < count; i++) {
+                result[stop][i] = (int) (keys[i] & ((1 << 20) - 1));
+            }
+        }
+        return result;
+    }
+}
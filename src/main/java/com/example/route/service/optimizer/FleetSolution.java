@@ -0,0 +1,56 @@
+package com.example.route.service.optimizer;
+
+/**
+ * The best plan {@link FleetOptimizer} found: per vehicle the stops (problem node indices) in visiting
+ * order with the time service begins at each, and the stops no vehicle could take.
+ */
+public final class FleetSolution {
+
+    private final int[][] routes;
+    private final long[][] serviceStart;
+    private final long[] returnTime;
+    private final int[] load;
+    private final int[] unassigned;
+    private final long cost;
+    private final long iterations;
+
+    FleetSolution(int[][] routes, long[][] serviceStart, long[] returnTime, int[] load, int[] unassigned,
+                  long cost, long iterations) {
+        this.routes = routes;
+        this.serviceStart = serviceStart;
+        this.returnTime = returnTime;
+        this.load = load;
+        this.unassigned = unassigned;
+        this.cost = cost;
+        this.iterations = iterations;
+    }
+
+    public int[] route(int vehicle) {
+        return routes[vehicle];
+    }
+
+    public long[] serviceStart(int vehicle) {
+        return serviceStart[vehicle];
+    }
+
+    public long returnTime(int vehicle) {
+        return returnTime[vehicle];
+    }
+
+    public int load(int vehicle) {
+        return load[vehicle];
+    }
+
+    public int[] unassigned() {
+        return unassigned;
+    }
+
+    public long cost() {
+        return cost;
+    }
+
+    // Ruin-and-recreate iterations run by all workers together
+    public long iterations() {
+        return iterations;
+    }
+}
@@ -0,0 +1,376 @@
+package com.example.route.service.optimizer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Orders stops on a flattened cost matrix ({@code cost[from * size + to]}).
+ * Small instances are solved exactly with Held-Karp; larger ones start from a nearest-neighbour
+ * tour that is then improved with 2-opt and Or-opt moves. Both endpoints of the path are fixed,
+ * a closed tour is expressed with {@code start == end}, and {@link #OPEN_END} leaves the last
+ * stop free.
+ *
+ * <p>The anytime variant keeps going past the local optimum until a deadline: it kicks the best tour
+ * with a random double-bridge move, improves it again and keeps it when it got shorter, reporting
+ * every better tour on the way.
+ */
+@Component
+public class TourOptimizer {
+
+    public static final int OPEN_END = -1;
+
+    private static final int MAX_OR_OPT_SEGMENT = 3;
+
+    @Value("${route.optimizer.exact-threshold:12}")
+    private int exactThreshold = 12;
+
+    @Value("${route.optimizer.max-passes:50}")
+    private int maxPasses = 50;
+
+    @Value("${route.optimizer.anytime-max-idle:1000}")
+    private int maxIdleKicks = 1000;
+
+    /** Receives the tours found by the anytime {@link #solve(long[], int, int, int, long, Progress)}. */
+    public interface Progress {
+
+        // Called with each tour that is cheaper than every one reported before; the path must not be kept
+        void improved(int[] path, long cost);
+
+        // Checked between improvement steps; true ends the search with the best tour so far
+        boolean cancelled();
+    }
+
+    /**
+     * Returns the visiting order as node indices, beginning with {@code start} and ending with
+     * {@code end} (or with whichever node was chosen last when the end is open).
+     */
+    public int[] solve(long[] cost, int size, int start, int end) {
+        if (end == OPEN_END) {
+            // Append a dummy end node that every stop reaches for free and solve with it fixed
+            int[] path = solve(withDummyEnd(cost, size), size + 1, start, size);
+            return Arrays.copyOf(path, path.length - 1);
+        }
+
+        int[] free = freeNodes(size, start, end);
+        if (free.length <= exactThreshold) {
+            return heldKarp(cost, size, start, end, free);
+        }
+
+        int[] path = nearestNeighbour(cost, size, start, end, free);
+        improve(cost, size, path);
+        return path;
+    }
+
+    /**
+     * Same contract as {@link #solve(long[], int, int, int)}, but improves the tour until {@code deadline}
+     * ({@link System#nanoTime()}), until {@code route.optimizer.anytime-max-idle} kicks in a row found nothing
+     * better, or until the search is cancelled. The first tour is reported as soon as it is built, so a
+     * deadline in the past yields the construction alone.
+     */
+    public int[] solve(long[] cost, int size, int start, int end, long deadline, Progress progress) {
+        if (end == OPEN_END) {
+            int[] path = solve(withDummyEnd(cost, size), size + 1, start, size, deadline, new Progress() {
+                @Override
+                public void improved(int[] path, long total) {
+                    progress.improved(Arrays.copyOf(path, path.length - 1), total);
+                }
+
+                @Override
+                public boolean cancelled() {
+                    return progress.cancelled();
+                }
+            });
+            return Arrays.copyOf(path, path.length - 1);
+        }
+
+        int[] free = freeNodes(size, start, end);
+        if (free.length <= exactThreshold) {
+            int[] path = heldKarp(cost, size, start, end, free);
+            progress.improved(path, pathCost(cost, size, path));
+            return path;
+        }
+
+        int[] best = nearestNeighbour(cost, size, start, end, free);
+        long bestCost = pathCost(cost, size, best);
+        progress.improved(best, bestCost);
+        for (int pass = 0; pass < maxPasses && !stopped(deadline, progress); pass++) {
+            boolean improved = twoOpt(cost, size, best, deadline);
+            improved |= orOpt(cost, size, best);
+            if (!improved) {
+                break;
+            }
+            long improvedCost = pathCost(cost, size, best);
+            if (improvedCost < bestCost) {
+                bestCost = improvedCost;
+                progress.improved(best, bestCost);
+            }
+        }
+
+        // A double bridge needs three cut points between the fixed ends
+        SplittableRandom random = new SplittableRandom();
+        int[] candidate = new int[best.length];
+        for (int idle = 0; idle < maxIdleKicks && best.length >= 6 && !stopped(deadline, progress); idle++) {
+            System.arraycopy(best, 0, candidate, 0, best.length);
+            doubleBridge(candidate, random);
+            improve(cost, size, candidate, deadline);
+            long candidateCost = pathCost(cost, size, candidate);
+            if (candidateCost < bestCost) {
+                int[] previous = best;
+                best = candidate;
+                candidate = previous;
+                bestCost = candidateCost;
+                progress.improved(best, bestCost);
+                idle = -1;
+            }
+        }
+        return best;
+    }
+
+    private static boolean stopped(long deadline, Progress progress) {
+        return System.nanoTime() >= deadline || progress.cancelled();
+    }
+
+    public static long pathCost(long[] cost, int size, int[] path) {
+        long total = 0;
+        for (int i = 0; i + 1 < path.length; i++) {
+            total += cost[path[i] * size + path[i + 1]];
+        }
+        return total;
+    }
+
+    private int[] freeNodes(int size, int start, int end) {
+        int[] free = new int[size - (start == end ? 1 : 2)];
+        int k = 0;
+        for (int node = 0; node < size; node++) {
+            if (node != start && node != end) {
+                free[k++] = node;
+            }
+        }
+        return free;
+    }
+
+    private long[] withDummyEnd(long[] cost, int size) {
+        int extended = size + 1;
+        long[] result = new long[extended * extended];
+        for (int from = 0; from < size; from++) {
+            System.arraycopy(cost, from * size, result, from * extended, size);
+        }
+        // Leaving the dummy is never allowed, arriving at it costs nothing
+        Arrays.fill(result, size * extended, size * extended + size, Long.MAX_VALUE / 4);
+        return result;
+    }
+
+    private int[] heldKarp(long[] cost, int size, int start, int end, int[] free) {
+        int k = free.length;
+        if (k == 0) {
+            return new int[] {start, end};
+        }
+
+        int states = 1 << k;
+        long[] best = new long[states * k];
+        int[] parent = new int[states * k];
+        Arrays.fill(best, Long.MAX_VALUE);
+
+        for (int j = 0; j < k; j++) {
+            best[(1 << j) * k + j] = cost[start * size + free[j]];
+            parent[(1 << j) * k + j] = -1;
+        }
+
+        for (int mask = 1; mask < states; mask++) {
+            for (int last = 0; last < k; last++) {
+                long current = best[mask * k + last];
+                if ((mask & (1 << last)) == 0 || current == Long.MAX_VALUE) {
+                    continue;
+                }
+                int fromNode = free[last];
+                for (int next = 0; next < k; next++) {
+                    if ((mask & (1 << next)) != 0) {
+                        continue;
+                    }
+                    int nextMask = mask | (1 << next);
+                    long candidate = current + cost[fromNode * size + free[next]];
+                    if (candidate < best[nextMask * k + next]) {
+                        best[nextMask * k + next] = candidate;
+                        parent[nextMask * k + next] = last;
+                    }
+                }
+            }
+        }
+
+        int full = states - 1;
+        int bestLast = 0;
+        long bestTotal = Long.MAX_VALUE;
+        for (int last = 0; last < k; last++) {
+            long total = best[full * k + last] + cost[free[last] * size + end];
+            if (total < bestTotal) {
+                bestTotal = total;
+                bestLast = last;
+            }
+        }
+
+        int[] path = new int[k + 2];
+        path[0] = start;
+        path[k + 1] = end;
+        int mask = full;
+        int last = bestLast;
+        for (int position = k; position >= 1; position--) {
+            path[position] = free[last];
+            int previous = parent[mask * k + last];
+            mask &= ~(1 << last);
+            last = previous;
+        }
+        return path;
+    }
+
+    private int[] nearestNeighbour(long[] cost, int size, int start, int end, int[] free) {
+        int[] path = new int[free.length + 2];
+        boolean[] visited = new boolean[size];
+        path[0] = start;
+        int current = start;
+        for (int position = 1; position <= free.length; position++) {
+            int chosen = -1;
+            long chosenCost = Long.MAX_VALUE;
+            for (int node : free) {
+                if (!visited[node] && cost[current * size + node] < chosenCost) {
+                    chosen = node;
+                    chosenCost = cost[current * size + node];
+                }
+            }
+            if (chosen == -1) {
+                // Every remaining stop is unreachable; keep them in input order
+                for (int node : free) {
+                    if (!visited[node]) {
+                        chosen = node;
+                        break;
+                    }
+                }
+            }
+            visited[chosen] = true;
+            path[position] = chosen;
+            current = chosen;
+        }
+        path[path.length - 1] = end;
+        return path;
+    }
+
+    // Runs 2-opt and Or-opt passes in place until neither finds an improving move
+    void improve(long[] cost, int size, int[] path) {
+        improve(cost, size, path, Long.MAX_VALUE);
+    }
+
+    private void improve(long[] cost, int size, int[] path, long deadline) {
+        for (int pass = 0; pass < maxPasses && System.nanoTime() < deadline; pass++) {
+            boolean improved = twoOpt(cost, size, path, deadline);
+            improved |= orOpt(cost, size, path);
+            if (!improved) {
+                return;
+            }
+        }
+    }
+
+    // Stops early, with the moves made so far, once the deadline has passed
+    private boolean twoOpt(long[] cost, int size, int[] path, long deadline) {
+        int m = path.length;
+        // forward[t] / backward[t]: cost of path[0..t] travelled forwards / against the direction of travel
+        long[] forward = new long[m];
+        long[] backward = new long[m];
+        prefixCosts(cost, size, path, forward, backward);
+
+        boolean improved = false;
+        for (int i = 1; i < m - 2 && (deadline == Long.MAX_VALUE || System.nanoTime() < deadline); i++) {
+            for (int j = i + 1; j < m - 1; j++) {
+                int before = path[i - 1];
+                int after = path[j + 1];
+                long removed = cost[before * size + path[i]] + (forward[j] - forward[i]) + cost[path[j] * size + after];
+                long added = cost[before * size + path[j]] + (backward[j] - backward[i]) + cost[path[i] * size + after];
+                if (added < removed) {
+                    reverse(path, i, j);
+                    prefixCosts(cost, size, path, forward, backward);
+                    improved = true;
+                }
+            }
+        }
+        return improved;
+    }
+
+    private boolean orOpt(long[] cost, int size, int[] path) {
+        int m = path.length;
+        boolean improved = false;
+        for (int length = 1; length <= MAX_OR_OPT_SEGMENT; length++) {
+            for (int i = 1; i + length <= m - 1; i++) {
+                int first = path[i];
+                int last = path[i + length - 1];
+                int before = path[i - 1];
+                int after = path[i + length];
+                long gain = cost[before * size + first] + cost[last * size + after] - cost[before * size + after];
+
+                for (int t = 0; t < m - 1; t++) {
+                    if (t >= i - 1 && t <= i + length - 1) {
+                        continue;
+                    }
+                    int a = path[t];
+                    int b = path[t + 1];
+                    long added = cost[a * size + first] + cost[last * size + b] - cost[a * size + b];
+                    if (added < gain) {
+                        moveSegment(path, i, length, t);
+                        improved = true;
+                        break;
+                    }
+                }
+            }
+        }
+        return improved;
+    }
+
+    private static void prefixCosts(long[] cost, int size, int[] path, long[] forward, long[] backward) {
+        forward[0] = 0;
+        backward[0] = 0;
+        for (int t = 1; t < path.length; t++) {
+            forward[t] = forward[t - 1] + cost[path[t - 1] * size + path[t]];
+            backward[t] = backward[t - 1] + cost[path[t] * size + path[t - 1]];
+        }
+    }
+
+    // Swaps two random adjacent sections between the fixed ends: A B C D becomes A C B D
+    private static void doubleBridge(int[] path, SplittableRandom random) {
+        int inner = path.length - 2;
+        int a;
+        int b;
+        int c;
+        do {
+            a = 1 + random.nextInt(inner);
+            b = 1 + random.nextInt(inner);
+            c = 1 + random.nextInt(inner);
+        } while (a == b || b == c || a == c);
+        int first = Math.min(a, Math.min(b, c));
+        int last = Math.max(a, Math.max(b, c));
+        int middle = a + b + c - first - last;
+        // Sections [first, middle) and [middle, last] trade places
+        int[] head = Arrays.copyOfRange(path, first, middle);
+        System.arraycopy(path, middle, path, first, last - middle + 1);
+        System.arraycopy(head, 0, path, first + last - middle + 1, head.length);
+    }
+
+    private static void reverse(int[] path, int from, int to) {
+        while (from < to) {
+            int tmp = path[from];
+            path[from++] = path[to];
+            path[to--] = tmp;
+        }
+    }
+
+    // Moves path[i..i+length) so that it sits between the nodes currently at positions t and t+1
+    private static void moveSegment(int[] path, int i, int length, int t) {
+        int[] segment = Arrays.copyOfRange(path, i, i + length);
+        if (t < i) {
+            System.arraycopy(path, t + 1, path, t + 1 + length, i - t - 1);
+            System.arraycopy(segment, 0, path, t + 1, length);
+        } else {
+            System.arraycopy(path, i + length, path, i, t - i - length + 1);
+            System.arraycopy(segment, 0, path, t - length + 1, length);
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.example.route.service.persistence;
+
+import com.example.route.dto.RouteRequest;
+import com.example.route.dto.RouteResponse;
+import com.example.route.entity.Location;
+import com.example.route.entity.Route;
+import com.example.route.repository.RouteRepository;
+import com.example.route.service.PolylineCodec;
+import com.example.route.service.address.AddressResolver;
+import com.example.route.service.spatial.DouglasPeucker;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.persistence.EntityManager;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.PrecisionModel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+
+/**
+ * Stores computed routes in {@code routes} and {@code route_waypoints}. Writes run on a small bounded
+ * executor after the response is complete, so they never add to request latency; when the queue is
+ * full the route is dropped and counted rather than slowing callers down.
+ */
+@Service
+public class RoutePersistenceService {
+
+    private static final Logger log = LoggerFactory.getLogger(RoutePersistenceService.class);
+
+    private static final String INSERT_WAYPOINT_SQL = "INSERT INTO route_waypoints "
+            + "(route_id, location_id, waypoint_order, distance_from_previous, duration_from_previous) "
+            + "VALUES (?, ?, ?, ?, ?)";
+
+    private static final int[] WAYPOINT_TYPES = {Types.BIGINT, Types.BIGINT, Types.INTEGER, Types.DOUBLE, Types.INTEGER};
+
+    private static final int MAX_NAME_LENGTH = 255;
+
+    @Value("${route.persistence.enabled:true}")
+    private boolean enabled;
+
+    @Value("${route.persistence.simplify-tolerance-meters:10}")
+    private double simplifyToleranceMeters;
+
+    private final ObjectProvider<RouteRepository> routeRepository;
+    private final ObjectProvider<JdbcTemplate> jdbcTemplate;
+    private final ObjectProvider<PlatformTransactionManager> transactionManager;
+    private final ObjectProvider<EntityManager> entityManager;
+    private final AddressResolver addressResolver;
+    private final Executor persistenceExecutor;
+    private final GeometryFactory geometryFactory = new GeometryFactory(new PrecisionModel(), 4326);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final AtomicLong persisted = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public RoutePersistenceService(ObjectProvider<RouteRepository> routeRepository,
+                                   ObjectProvider<JdbcTemplate> jdbcTemplate,
+                                   ObjectProvider<PlatformTransactionManager> transactionManager,
+                                   ObjectProvider<EntityManager> entityManager,
+                                   AddressResolver addressResolver,
+                                   @Qualifier("routePersistenceExecutor") Executor persistenceExecutor) {
+        this.routeRepository = routeRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionManager = transactionManager;
+        this.entityManager = entityManager;
+        this.addressResolver = addressResolver;
+        this.persistenceExecutor = persistenceExecutor;
+    }
+
+    // visitedStops are the stops as the caller wrote them, in leg order
+    public void persistAsync(RouteRequest request, List<String> visitedStops, RouteResponse response) {
+        if (!enabled || response.getLegs() == null || response.getLegs().size() != visitedStops.size() - 1) {
+            return;
+        }
+        // Snapshot what is needed now; the response may be copied and remapped after this returns
+        boolean fixedEnd = request.isRoundTrip()
+                || (request.getDestination() != null && !request.getDestination().trim().isEmpty());
+        StoredRoute route = StoredRoute.of(visitedStops, response, request.isRoundTrip(), fixedEnd);
+        try {
+            persistenceExecutor.execute(() -> persist(route));
+        } catch (TaskRejectedException e) {
+            long count = dropped.incrementAndGet();
+            if (count == 1 || count % 1000 == 0) {
+                log.warn("Route persistence queue is full, {} routes dropped so far", count);
+            }
+        }
+    }
+
+    public long getPersistedCount() {
+        return persisted.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    private void persist(StoredRoute stored) {
+        RouteRepository repository = routeRepository.getIfAvailable();
+        JdbcTemplate jdbc = jdbcTemplate.getIfAvailable();
+        PlatformTransactionManager transactions = transactionManager.getIfAvailable();
+        EntityManager entities = entityManager.getIfAvailable();
+        if (repository == null || jdbc == null || transactions == null || entities == null) {
+            return;
+        }
+
+        try {
+            Long[] locationIds = new Long[stored.stops.size()];
+            for (int i = 0; i < locationIds.length; i++) {
+                locationIds[i] = addressResolver.knownLocationId(stored.stops.get(i));
+            }
+            LineString geometry = toGeometry(stored.overviewPolyline);
+
+            new TransactionTemplate(transactions).executeWithoutResult(status -> {
+                Route route = new Route(name(stored.stops), reference(entities, locationIds[0]),
+                        reference(entities, locationIds[locationIds.length - 1]));
+                route.setTotalDistance((double) LongStream.of(stored.legDistances).sum());
+                route.setTotalDuration((int) LongStream.of(stored.legDurations).sum());
+                route.setIsRoundTrip(stored.roundTrip);
+                route.setRouteGeometry(geometry);
+                route.setWaypoints(waypointsJson(stored, locationIds));
+                Long routeId = repository.save(route).getId();
+
+                // One batched statement for all stops instead of a round trip per row
+                List<Object[]> rows = new ArrayList<>(locationIds.length);
+                for (int i = 0; i < locationIds.length; i++) {
+                    rows.add(new Object[]{routeId, locationIds[i], i,
+                            i == 0 ? null : (double) stored.legDistances[i - 1],
+                            i == 0 ? null : (int) stored.legDurations[i - 1]});
+                }
+                jdbc.batchUpdate(INSERT_WAYPOINT_SQL, rows, WAYPOINT_TYPES);
+            });
+            persisted.incrementAndGet();
+        } catch (RuntimeException e) {
+            // Persistence is a record of what was computed; a failure never affects the route itself
+            failed.incrementAndGet();
+            log.warn("Could not persist route {}: {}", name(stored.stops), e.getMessage());
+        }
+    }
+
+    private LineString toGeometry(String overviewPolyline) {
+        if (overviewPolyline == null || overviewPolyline.isEmpty()) {
+            return null;
+        }
+        int[] coords = DouglasPeucker.simplify(PolylineCodec.decode(overviewPolyline), simplifyToleranceMeters);
+        if (coords.length < 4) {
+            return null;
+        }
+        Coordinate[] points = new Coordinate[coords.length / 2];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = new Coordinate(coords[2 * i + 1] * 1e-5, coords[2 * i] * 1e-5);
+        }
+        return geometryFactory.createLineString(points);
+    }
+
+    private String waypointsJson(StoredRoute stored, Long[] locationIds) {
+        ArrayNode stops = objectMapper.createArrayNode();
+        for (int i = 0; i < stored.stops.size(); i++) {
+            ObjectNode stop = stops.addObject();
+            stop.put("order", i);
+            stop.put("role", i == 0 ? StoredStops.ORIGIN
+                    : i == stored.stops.size() - 1 && stored.fixedEnd ? StoredStops.DESTINATION : StoredStops.WAYPOINT);
+            stop.put("address", stored.stops.get(i));
+            if (locationIds[i] != null) {
+                stop.put("locationId", locationIds[i]);
+            }
+            if (stored.latitudes[i] != null && stored.longitudes[i] != null) {
+                stop.put("latitude", stored.latitudes[i]);
+                stop.put("longitude", stored.longitudes[i]);
+            }
+        }
+        try {
+            return objectMapper.writeValueAsString(stops);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Location reference(EntityManager entities, Long locationId) {
+        return locationId == null ? null : entities.getReference(Location.class, locationId);
+    }
+
+    private static String name(List<String> stops) {
+        String name = stops.get(0).trim() + " → " + stops.get(stops.size() - 1).trim();
+        return name.length() <= MAX_NAME_LENGTH ? name : name.substring(0, MAX_NAME_LENGTH);
+    }
+
+    private static final class StoredRoute {
+
+        final List<String> stops;
+        final boolean roundTrip;
+        final boolean fixedEnd;
+        final String overviewPolyline;
+        final long[] legDistances;
+        final long[] legDurations;
+        final Double[] latitudes;
+        final Double[] longitudes;
+
+        private StoredRoute(List<String> stops, boolean roundTrip, boolean fixedEnd, String overviewPolyline,
+                            int legCount) {
+            this.stops = stops;
+            this.roundTrip = roundTrip;
+            this.fixedEnd = fixedEnd;
+            this.overviewPolyline = overviewPolyline;
+            this.legDistances = new long[legCount];
+            this.legDurations = new long[legCount];
+            this.latitudes = new Double[legCount + 1];
+            this.longitudes = new Double[legCount + 1];
+        }
+
+        static StoredRoute of(List<String> visitedStops, RouteResponse response, boolean roundTrip, boolean fixedEnd) {
+            List<RouteResponse.RouteLeg> legs = response.getLegs();
+            StoredRoute route = new StoredRoute(new ArrayList<>(visitedStops), roundTrip, fixedEnd,
+                    response.getOverviewPolyline(), legs.size());
+            for (int i = 0; i < legs.size(); i++) {
+                RouteResponse.RouteLeg leg = legs.get(i);
+                route.legDistances[i] = leg.getDistanceValue();
+                route.legDurations[i] = leg.getDurationValue();
+                route.latitudes[i] = leg.getStartLatitude();
+                route.longitudes[i] = leg.getStartLongitude();
+                if (i == legs.size() - 1) {
+                    route.latitudes[i + 1] = leg.getEndLatitude();
+                    route.longitudes[i + 1] = leg.getEndLongitude();
+                }
+            }
+            return route;
+        }
+    }
+}
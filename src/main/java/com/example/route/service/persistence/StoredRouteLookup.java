@@ -0,0 +1,348 @@
+package com.example.route.service.persistence;
+
+import com.example.route.dto.RouteRequest;
+import com.example.route.dto.RouteResponse;
+import com.example.route.service.RouteFormats;
+import com.example.route.service.address.AddressResolver;
+import com.example.route.service.spatial.GeoMath;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Answers a route request from a previously stored route whose stops match the request's stops within
+ * a tolerance, so repeat planning is a database read instead of an upstream call. Stops match when they
+ * resolve to the same saved location or lie within {@code route.reuse.tolerance-meters} of each other;
+ * the waypoints may have been listed in any order.
+ */
+@Service
+public class StoredRouteLookup {
+
+    private static final Logger log = LoggerFactory.getLogger(StoredRouteLookup.class);
+
+    // How far from a stop Google may snap the route's start or end to a road
+    private static final double SNAP_MARGIN_METERS = 250;
+
+    private static final String POINT = "CAST(ST_SetSRID(ST_MakePoint(?, ?), 4326) AS geography)";
+
+    // Candidates start where the request starts (served by idx_routes_start_geog); %s is the end condition
+    private static final String CANDIDATES_SQL = "SELECT r.id, CAST(r.waypoints AS text) AS stops, "
+            + "ST_AsEncodedPolyline(r.route_geometry, 5) AS polyline, "
+            + "ARRAY(SELECT w.distance_from_previous FROM route_waypoints w WHERE w.route_id = r.id "
+            + "ORDER BY w.waypoint_order) AS distances, "
+            + "ARRAY(SELECT w.duration_from_previous FROM route_waypoints w WHERE w.route_id = r.id "
+            + "ORDER BY w.waypoint_order) AS durations "
+            + "FROM routes r "
+            + "WHERE ST_DWithin(CAST(ST_StartPoint(r.route_geometry) AS geography), " + POINT + ", ?) "
+            + "AND %s "
+            + "AND r.is_round_trip = ? AND jsonb_array_length(r.waypoints) = ? AND r.created_at >= ? "
+            + "ORDER BY r.created_at DESC LIMIT ?";
+
+    // Routes with a fixed end must end near it (idx_routes_end_geog); open-ended ones must pass the probe stop
+    private static final String FIXED_END_SQL = CANDIDATES_SQL.formatted(
+            "ST_DWithin(CAST(ST_EndPoint(r.route_geometry) AS geography), " + POINT + ", ?)");
+    private static final String OPEN_END_SQL = CANDIDATES_SQL.formatted(
+            "ST_DWithin(CAST(r.route_geometry AS geography), " + POINT + ", ?)");
+
+    @Value("${route.reuse.enabled:true}")
+    private boolean enabled;
+
+    @Value("${route.reuse.tolerance-meters:75}")
+    private double toleranceMeters;
+
+    @Value("${route.reuse.max-age-hours:168}")
+    private long maxAgeHours;
+
+    @Value("${route.reuse.max-candidates:20}")
+    private int maxCandidates;
+
+    private final ObjectProvider<JdbcTemplate> jdbcTemplate;
+    private final AddressResolver addressResolver;
+    private final Executor routeExecutor;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public StoredRouteLookup(ObjectProvider<JdbcTemplate> jdbcTemplate, AddressResolver addressResolver,
+                             @Qualifier("routeExecutor") Executor routeExecutor) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.addressResolver = addressResolver;
+        this.routeExecutor = routeExecutor;
+    }
+
+    /**
+     * Completes with a route for {@code request} built from a stored route, or with null when none matches.
+     * {@code resolved} is the request after address resolution; only requests whose stops all have
+     * coordinates or a saved location can match.
+     */
+    public CompletableFuture<RouteResponse> find(RouteRequest request, RouteRequest resolved) {
+        JdbcTemplate jdbc = jdbcTemplate.getIfAvailable();
+        if (!enabled || jdbc == null || request.getWaypoints().isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        List<Stop> stops = requestStops(request, resolved);
+        if (stops == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return CompletableFuture.supplyAsync(() -> {
+            RouteResponse response = lookup(jdbc, request, stops);
+            (response != null ? hits : misses).incrementAndGet();
+            return response;
+        }, routeExecutor);
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private RouteResponse lookup(JdbcTemplate jdbc, RouteRequest request, List<Stop> stops) {
+        boolean fixedEnd = request.isRoundTrip() || hasDestination(request);
+        int waypointCount = request.getWaypoints().size();
+        int storedCount = waypointCount + (fixedEnd ? 2 : 1);
+        Stop origin = stops.get(0);
+        // Without a fixed end the route still has to reach the waypoints; the first one is as good a probe as any
+        Stop end = fixedEnd ? stops.get(stops.size() - 1) : stops.get(1);
+        // Route geometry starts and ends where Google snapped the stop to a road, a little away from the stop
+        double radius = toleranceMeters + SNAP_MARGIN_METERS;
+
+        try {
+            List<RouteResponse> matches = jdbc.query(fixedEnd ? FIXED_END_SQL : OPEN_END_SQL, (rs, rowNum) ->
+                            match(rs, request, stops, fixedEnd),
+                    origin.longitude, origin.latitude, radius, end.longitude, end.latitude, radius,
+                    request.isRoundTrip(), storedCount,
+                    Timestamp.valueOf(LocalDateTime.now().minusHours(maxAgeHours)), maxCandidates);
+            for (RouteResponse match : matches) {
+                if (match != null) {
+                    return match;
+                }
+            }
+        } catch (DataAccessException e) {
+            // Reuse is an optimization; the route is simply computed upstream
+            log.warn("Stored route lookup failed: {}", e.getMessage());
+        }
+        return null;
+    }
+
+    // The newest candidate whose stops pair up with the request's stops, as a response in its stored order
+    private RouteResponse match(ResultSet rs, RouteRequest request, List<Stop> stops, boolean fixedEnd)
+            throws SQLException {
+        List<Stop> stored = storedStops(rs.getString("stops"));
+        if (stored == null || stored.size() != stops.size()) {
+            return null;
+        }
+        int last = stored.size() - 1;
+        if (!StoredStops.ORIGIN.equals(stored.get(0).role) || !stored.get(0).matches(stops.get(0), toleranceMeters)) {
+            return null;
+        }
+        Stop end = fixedEnd ? stops.get(stops.size() - 1) : null;
+        if (fixedEnd && (!StoredStops.DESTINATION.equals(stored.get(last).role)
+                || !stored.get(last).matches(end, toleranceMeters))) {
+            return null;
+        }
+
+        // Pair each stored waypoint with a distinct request waypoint: same location first, else the nearest in range
+        int waypointCount = request.getWaypoints().size();
+        boolean[] used = new boolean[waypointCount];
+        List<Integer> order = new ArrayList<>(waypointCount);
+        for (int k = 1; k <= waypointCount; k++) {
+            Stop storedStop = stored.get(k);
+            if (!StoredStops.WAYPOINT.equals(storedStop.role)) {
+                return null;
+            }
+            int best = -1;
+            double bestMeters = Double.MAX_VALUE;
+            for (int i = 0; i < waypointCount; i++) {
+                Stop candidate = stops.get(1 + i);
+                if (used[i] || !storedStop.matches(candidate, toleranceMeters)) {
+                    continue;
+                }
+                double meters = storedStop.sameLocation(candidate) ? -1 : storedStop.metersTo(candidate);
+                if (meters < bestMeters) {
+                    bestMeters = meters;
+                    best = i;
+                }
+            }
+            if (best < 0) {
+                return null;
+            }
+            used[best] = true;
+            order.add(best);
+        }
+
+        Double[] distances = (Double[]) arrayOf(rs, "distances");
+        Integer[] durations = (Integer[]) arrayOf(rs, "durations");
+        if (distances == null || durations == null || distances.length != stored.size()
+                || durations.length != stored.size()) {
+            return null;
+        }
+        return toResponse(request, stored, order, distances, durations, rs.getString("polyline"));
+    }
+
+    private RouteResponse toResponse(RouteRequest request, List<Stop> stored, List<Integer> order,
+                                     Double[] distances, Integer[] durations, String polyline) {
+        List<String> orderedWaypoints = new ArrayList<>(order.size());
+        for (int index : order) {
+            orderedWaypoints.add(request.getWaypoints().get(index));
+        }
+        // The stops as this caller wrote them, in the stored leg order
+        List<String> visitedStops = new ArrayList<>(stored.size());
+        visitedStops.add(request.getOrigin());
+        visitedStops.addAll(orderedWaypoints);
+        if (request.isRoundTrip()) {
+            visitedStops.add(request.getOrigin());
+        } else if (hasDestination(request)) {
+            visitedStops.add(request.getDestination());
+        }
+
+        List<RouteResponse.RouteLeg> legs = new ArrayList<>(stored.size() - 1);
+        long totalDistance = 0;
+        long totalDuration = 0;
+        for (int k = 1; k < stored.size(); k++) {
+            long distance = distances[k] != null ? Math.round(distances[k]) : 0;
+            long duration = durations[k] != null ? durations[k] : 0;
+            RouteResponse.RouteLeg leg = new RouteResponse.RouteLeg(visitedStops.get(k - 1), visitedStops.get(k),
+                    RouteFormats.formatDistance(distance), RouteFormats.formatDuration(duration), distance, duration);
+            leg.setStartLatitude(stored.get(k - 1).latitude);
+            leg.setStartLongitude(stored.get(k - 1).longitude);
+            leg.setEndLatitude(stored.get(k).latitude);
+            leg.setEndLongitude(stored.get(k).longitude);
+            legs.add(leg);
+            totalDistance += distance;
+            totalDuration += duration;
+        }
+
+        RouteResponse response = new RouteResponse("OK", orderedWaypoints, RouteFormats.formatDistance(totalDistance),
+                RouteFormats.formatDuration(totalDuration), legs);
+        response.setWaypointOrder(order);
+        response.setTotalDistanceValue(totalDistance);
+        response.setTotalDurationValue(totalDuration);
+        response.setOverviewPolyline(polyline);
+        return response;
+    }
+
+    // Origin, waypoints and (if given) destination with their coordinates and saved location; null if any is unknown
+    private List<Stop> requestStops(RouteRequest request, RouteRequest resolved) {
+        List<String> written = new ArrayList<>(request.getWaypoints().size() + 2);
+        List<String> upstream = new ArrayList<>(written.size());
+        written.add(request.getOrigin());
+        upstream.add(resolved.getOrigin());
+        written.addAll(request.getWaypoints());
+        upstream.addAll(resolved.getWaypoints());
+        if (hasDestination(request) && !request.isRoundTrip()) {
+            written.add(request.getDestination());
+            upstream.add(resolved.getDestination());
+        }
+
+        List<Stop> stops = new ArrayList<>(written.size() + 1);
+        for (int i = 0; i < written.size(); i++) {
+            Stop stop = Stop.parse(upstream.get(i), addressResolver.knownLocationId(written.get(i)));
+            if (stop == null) {
+                return null;
+            }
+            stops.add(stop);
+        }
+        if (request.isRoundTrip()) {
+            stops.add(stops.get(0));
+        }
+        return stops;
+    }
+
+    private List<Stop> storedStops(String json) {
+        if (json == null) {
+            return null;
+        }
+        JsonNode array;
+        try {
+            array = objectMapper.readTree(json);
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+        List<Stop> stops = new ArrayList<>(array.size());
+        for (JsonNode node : array) {
+            stops.add(new Stop(node.path("role").asText(null),
+                    node.hasNonNull("latitude") ? node.get("latitude").asDouble() : null,
+                    node.hasNonNull("longitude") ? node.get("longitude").asDouble() : null,
+                    node.hasNonNull("locationId") ? node.get("locationId").asLong() : null));
+        }
+        return stops;
+    }
+
+    private static Object arrayOf(ResultSet rs, String column) throws SQLException {
+        Array array = rs.getArray(column);
+        return array == null ? null : array.getArray();
+    }
+
+    private static boolean hasDestination(RouteRequest request) {
+        return request.getDestination() != null && !request.getDestination().trim().isEmpty();
+    }
+
+    private static final class Stop {
+
+        final String role;
+        final Double latitude;
+        final Double longitude;
+        final Long locationId;
+
+        Stop(String role, Double latitude, Double longitude, Long locationId) {
+            this.role = role;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.locationId = locationId;
+        }
+
+        // A "lat,lng" stop as sent upstream; stops that were not resolved to coordinates can't be matched
+        static Stop parse(String stop, Long locationId) {
+            int comma = stop == null ? -1 : stop.indexOf(',');
+            if (comma < 0) {
+                return null;
+            }
+            try {
+                double latitude = Double.parseDouble(stop.substring(0, comma).trim());
+                double longitude = Double.parseDouble(stop.substring(comma + 1).trim());
+                return new Stop(null, latitude, longitude, locationId);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        boolean sameLocation(Stop other) {
+            return locationId != null && locationId.equals(other.locationId);
+        }
+
+        boolean matches(Stop other, double toleranceMeters) {
+            return sameLocation(other) || metersTo(other) <= toleranceMeters;
+        }
+
+        double metersTo(Stop other) {
+            if (latitude == null || longitude == null || other.latitude == null || other.longitude == null) {
+                return Double.MAX_VALUE;
+            }
+            return GeoMath.haversineMeters(latitude, longitude, other.latitude, other.longitude);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.route.service.persistence;
+
+/**
+ * Field names and roles of the stop objects stored in {@code routes.waypoints}, an array in leg order:
+ * {@code [{"order": 0, "role": "origin", "address": "...", "locationId": 7, "latitude": .., "longitude": ..}, ...]}.
+ * The last stop has the destination role only when the request fixed it (a destination or a round trip).
+ */
+final class StoredStops {
+
+    static final String ORIGIN = "origin";
+    static final String WAYPOINT = "waypoint";
+    static final String DESTINATION = "destination";
+
+    private StoredStops() {
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.route.service.plan;
+
+import com.example.route.dto.RouteRequest;
+import com.example.route.dto.RouteResponse;
+
+import java.util.List;
+
+/**
+ * A route as it was last returned, kept so it can be edited in place: the request as the caller wrote
+ * it and the visited stops in leg order, each with the coordinates Google placed it at, the leg between
+ * every two consecutive stops and that leg's own piece of the geometry. Plans are never changed; an
+ * edit produces a new plan.
+ */
+public final class RoutePlan {
+
+    // Where the route ends: back at the origin, at the request's destination, or at whichever waypoint is last
+    public enum End {
+        ORIGIN,
+        DESTINATION,
+        OPEN
+    }
+
+    private final RouteRequest request;
+    private final End end;
+    private final List<Stop> stops;
+    private final List<RouteResponse.RouteLeg> legs;
+    private final List<String> legPolylines;
+
+    public RoutePlan(RouteRequest request, End end, List<Stop> stops, List<RouteResponse.RouteLeg> legs,
+                     List<String> legPolylines) {
+        this.request = request;
+        this.end = end;
+        this.stops = List.copyOf(stops);
+        this.legs = List.copyOf(legs);
+        this.legPolylines = legPolylines;
+    }
+
+    public RouteRequest getRequest() {
+        return request;
+    }
+
+    public End getEnd() {
+        return end;
+    }
+
+    public List<Stop> getStops() {
+        return stops;
+    }
+
+    public List<RouteResponse.RouteLeg> getLegs() {
+        return legs;
+    }
+
+    public List<String> getLegPolylines() {
+        return legPolylines;
+    }
+
+    /**
+     * One visited stop. {@code waypoint} is the stop's index in the request's waypoints, or -1 for the
+     * origin and destination; {@code point} is the {@code lat,lng} the stop is routed from.
+     */
+    public static final class Stop {
+
+        private final String address;
+        private final int waypoint;
+        private final String point;
+
+        public Stop(String address, int waypoint, String point) {
+            this.address = address;
+            this.waypoint = waypoint;
+            this.point = point;
+        }
+
+        public String getAddress() {
+            return address;
+        }
+
+        public int getWaypoint() {
+            return waypoint;
+        }
+
+        public String getPoint() {
+            return point;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.route.service.plan;
+
+import com.example.route.dto.RouteRequest;
+import com.example.route.dto.RouteResponse;
+import com.example.route.service.PolylineCodec;
+import com.example.route.service.cache.ExpiringLruCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Returned routes by plan id, size- and TTL-bounded, so a dispatcher's edits can be applied to the
+ * route they are looking at instead of recomputing it from the full request.
+ */
+@Component
+public class RoutePlanStore {
+
+    private final boolean enabled;
+    private final ExpiringLruCache<String, RoutePlan> plans;
+
+    public RoutePlanStore(@Value("${route.plans.enabled:true}") boolean enabled,
+                          @Value("${route.plans.max-entries:10000}") int maxEntries,
+                          @Value("${route.plans.ttl-seconds:3600}") long ttlSeconds) {
+        this.enabled = enabled;
+        this.plans = new ExpiringLruCache<>(maxEntries, ttlSeconds * 1000);
+    }
+
+    /**
+     * Stores the route and returns a copy of the response carrying its plan id. Responses that can't be
+     * lined up with the request's stops (errors, or legs without end points) are returned unchanged.
+     */
+    public RouteResponse register(RouteRequest request, RouteResponse response, RoutePlan.End end) {
+        RoutePlan plan = enabled ? toPlan(request, response, end) : null;
+        if (plan == null) {
+            return response;
+        }
+        String planId = UUID.randomUUID().toString();
+        plans.put(planId, plan);
+        RouteResponse registered = new RouteResponse(response);
+        registered.setPlanId(planId);
+        return registered;
+    }
+
+    // The plan of a response whose waypoint order and legs line up with the request, otherwise null
+    public RoutePlan toPlan(RouteRequest request, RouteResponse response, RoutePlan.End end) {
+        if (!"OK".equals(response.getStatus()) || response.getLegs() == null) {
+            return null;
+        }
+        List<Integer> order = response.getWaypointOrder();
+        if (order == null || order.size() != request.getWaypoints().size()) {
+            return null;
+        }
+
+        List<String> addresses = new ArrayList<>(order.size() + 2);
+        List<Integer> waypoints = new ArrayList<>(order.size() + 2);
+        addresses.add(request.getOrigin());
+        waypoints.add(-1);
+        for (int index : order) {
+            addresses.add(request.getWaypoints().get(index));
+            waypoints.add(index);
+        }
+        if (end == RoutePlan.End.ORIGIN) {
+            addresses.add(request.getOrigin());
+            waypoints.add(-1);
+        } else if (end == RoutePlan.End.DESTINATION) {
+            addresses.add(request.getDestination());
+            waypoints.add(-1);
+        }
+        List<RouteResponse.RouteLeg> legs = response.getLegs();
+        if (legs.size() != addresses.size() - 1) {
+            return null;
+        }
+
+        // Stops are routed from where Google placed them, so later edits hit the pair cost cache
+        List<RoutePlan.Stop> stops = new ArrayList<>(addresses.size());
+        double[] cutLatitudes = new double[legs.size() - 1];
+        double[] cutLongitudes = new double[legs.size() - 1];
+        long[] cutLegMeters = new long[legs.size() - 1];
+        for (int i = 0; i < addresses.size(); i++) {
+            RouteResponse.RouteLeg leg = i < legs.size() ? legs.get(i) : legs.get(i - 1);
+            Double latitude = i < legs.size() ? leg.getStartLatitude() : leg.getEndLatitude();
+            Double longitude = i < legs.size() ? leg.getStartLongitude() : leg.getEndLongitude();
+            if (latitude == null || longitude == null) {
+                return null;
+            }
+            stops.add(new RoutePlan.Stop(addresses.get(i), waypoints.get(i), formatPoint(latitude, longitude)));
+            if (i > 0 && i < legs.size()) {
+                cutLatitudes[i - 1] = latitude;
+                cutLongitudes[i - 1] = longitude;
+                cutLegMeters[i - 1] = legs.get(i - 1).getDistanceValue();
+            }
+        }
+        List<String> legPolylines = PolylineCodec.split(response.getOverviewPolyline(), cutLatitudes, cutLongitudes,
+                cutLegMeters);
+        return new RoutePlan(request, end, stops, legs, legPolylines);
+    }
+
+    public RoutePlan get(String planId) {
+        return enabled ? plans.get(planId) : null;
+    }
+
+    // Swaps in an edited plan unless another edit replaced (or evicted) the expected one first
+    public synchronized boolean replace(String planId, RoutePlan expected, RoutePlan updated) {
+        if (plans.get(planId) != expected) {
+            return false;
+        }
+        plans.put(planId, updated);
+        return true;
+    }
+
+    public int size() {
+        return plans.size();
+    }
+
+    private static String formatPoint(double latitude, double longitude) {
+        return String.format(Locale.ROOT, "%.6f,%.6f", latitude, longitude);
+    }
+}
@@ -0,0 +1,255 @@
+package com.example.route.service.spatial;
+
+import com.example.route.dto.CorridorLocation;
+import com.example.route.dto.CorridorPage;
+import com.example.route.service.PolylineCodec;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKBReader;
+import org.locationtech.jts.io.WKBWriter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds saved locations within a buffer of a route, ordered by distance along the route and paged with a
+ * keyset cursor. The route is cut into short segments sent as WKB; each query looks for locations near a
+ * window of segments, so every segment gets its own index-assisted {@code ST_DWithin} test on
+ * idx_locations_geog and a page only searches the part of the route it returns. A location near several
+ * segments belongs to the nearest one on the whole route, so a route that passes the same place twice
+ * returns it once.
+ */
+@Service
+public class CorridorSearchService {
+
+    // Candidates come from the window's segments; each is then measured against every segment of the route
+    // and kept only when its nearest one (the earliest on ties) lies in the window, so every page agrees on
+    // which segment owns a location
+    private static final String CORRIDOR_SQL = "WITH segments AS ("
+            + "  SELECT CAST(s.ord AS integer) AS ord, ST_GeomFromWKB(s.wkb, 4326) AS line, s.start_m, s.length_m "
+            + "  FROM unnest(CAST(? AS bytea[]), CAST(? AS double precision[]), CAST(? AS double precision[])) "
+            + "       WITH ORDINALITY AS s(wkb, start_m, length_m, ord)"
+            + "), candidates AS ("
+            + "  SELECT DISTINCT l.id, l.name, l.address, l.geom "
+            + "  FROM segments s "
+            + "  JOIN locations l ON ST_DWithin(CAST(l.geom AS geography), CAST(s.line AS geography), ?) "
+            + "  WHERE s.ord BETWEEN ? AND ?"
+            + "), owned AS ("
+            + "  SELECT DISTINCT ON (c.id) c.id, c.name, c.address, "
+            + "         ST_Y(c.geom) AS latitude, ST_X(c.geom) AS longitude, "
+            + "         s.ord, ST_Distance(CAST(c.geom AS geography), CAST(s.line AS geography)) AS off_route, "
+            + "         s.start_m + ST_LineLocatePoint(s.line, c.geom) * s.length_m AS along "
+            + "  FROM candidates c "
+            + "  JOIN segments s ON ST_DWithin(CAST(c.geom AS geography), CAST(s.line AS geography), ?) "
+            + "  ORDER BY c.id, off_route, s.ord"
+            + ") "
+            + "SELECT id, name, address, latitude, longitude, off_route, along FROM owned "
+            + "WHERE ord BETWEEN ? AND ? AND (along > ? OR (along = ? AND id > ?)) "
+            + "ORDER BY along, id LIMIT ?";
+
+    private static final String ROUTE_GEOMETRY_SQL = "SELECT ST_AsBinary(route_geometry) FROM routes WHERE id = ?";
+
+    @Value("${route.corridor.segment-length-meters:20000}")
+    private double segmentLengthMeters;
+
+    @Value("${route.corridor.segments-per-query:8}")
+    private int segmentsPerQuery;
+
+    @Value("${route.corridor.default-buffer-meters:1000}")
+    private double defaultBufferMeters;
+
+    @Value("${route.corridor.max-buffer-meters:10000}")
+    private double maxBufferMeters;
+
+    @Value("${route.corridor.default-limit:100}")
+    private int defaultLimit;
+
+    @Value("${route.corridor.max-limit:1000}")
+    private int maxLimit;
+
+    private final ObjectProvider<JdbcTemplate> jdbcTemplate;
+    private final GeometryFactory geometryFactory = new GeometryFactory();
+
+    public CorridorSearchService(ObjectProvider<JdbcTemplate> jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // One page along a stored route
+    public CorridorPage searchStoredRoute(long routeId, Double bufferMeters, Integer limit, String cursor) {
+        JdbcTemplate jdbc = jdbcTemplate.getObject();
+        List<byte[]> geometry = jdbc.query(ROUTE_GEOMETRY_SQL, (rs, rowNum) -> rs.getBytes(1), routeId);
+        if (geometry.isEmpty() || geometry.get(0) == null) {
+            return CorridorPage.error("No stored route geometry for route " + routeId);
+        }
+        Coordinate[] line;
+        try {
+            line = new WKBReader().read(geometry.get(0)).getCoordinates();
+        } catch (ParseException e) {
+            return CorridorPage.error("Unreadable geometry for route " + routeId + ": " + e.getMessage());
+        }
+        return search(jdbc, line, bufferMeters, limit, cursor);
+    }
+
+    // One page along an encoded polyline, e.g. the overviewPolyline of a computed route
+    public CorridorPage searchPolyline(String polyline, Double bufferMeters, Integer limit, String cursor) {
+        int[] coords = PolylineCodec.decode(polyline);
+        Coordinate[] line = new Coordinate[coords.length / 2];
+        for (int i = 0; i < line.length; i++) {
+            line[i] = new Coordinate(coords[2 * i + 1] * 1e-5, coords[2 * i] * 1e-5);
+        }
+        return search(jdbcTemplate.getObject(), line, bufferMeters, limit, cursor);
+    }
+
+    private CorridorPage search(JdbcTemplate jdbc, Coordinate[] line, Double bufferMeters, Integer limit,
+                                String cursor) {
+        double buffer = bufferMeters != null ? bufferMeters : defaultBufferMeters;
+        if (buffer <= 0 || buffer > maxBufferMeters) {
+            return CorridorPage.error("bufferMeters must be in (0, " + maxBufferMeters + "]");
+        }
+        int pageSize = limit != null ? limit : defaultLimit;
+        if (pageSize <= 0 || pageSize > maxLimit) {
+            return CorridorPage.error("limit must be in [1, " + maxLimit + "]");
+        }
+        if (line.length < 2) {
+            return CorridorPage.error("The route needs at least two points");
+        }
+        double afterAlong = -1;
+        long afterId = -1;
+        if (cursor != null && !cursor.isEmpty()) {
+            int separator = cursor.indexOf(':');
+            try {
+                afterAlong = Double.parseDouble(cursor.substring(0, separator));
+                afterId = Long.parseLong(cursor.substring(separator + 1));
+            } catch (RuntimeException e) {
+                return CorridorPage.error("Invalid cursor: " + cursor);
+            }
+        }
+
+        // Every query gets the whole route, so that ownership can be decided against all of it
+        Segments segments = Segments.split(line, segmentLengthMeters);
+        WKBWriter writer = new WKBWriter();
+        byte[][] wkb = new byte[segments.count()][];
+        Double[] starts = new Double[segments.count()];
+        Double[] lengths = new Double[segments.count()];
+        for (int i = 0; i < segments.count(); i++) {
+            wkb[i] = writer.write(segments.line(i, geometryFactory));
+            starts[i] = segments.start(i);
+            lengths[i] = segments.length(i);
+        }
+
+        CorridorPage page = new CorridorPage();
+        page.setStatus("OK");
+        List<CorridorLocation> locations = page.getLocations();
+
+        // Walk the route window by window from the cursor until the page is full
+        for (int first = segments.indexOf(afterAlong); first < segments.count() && locations.size() < pageSize;
+             first += segmentsPerQuery) {
+            // ord is 1-based
+            int firstOrd = first + 1;
+            int lastOrd = Math.min(segments.count(), first + segmentsPerQuery);
+            double along = afterAlong;
+            long id = afterId;
+            int remaining = pageSize - locations.size();
+            locations.addAll(jdbc.query(CORRIDOR_SQL, ps -> {
+                ps.setArray(1, ps.getConnection().createArrayOf("bytea", wkb));
+                ps.setArray(2, ps.getConnection().createArrayOf("float8", starts));
+                ps.setArray(3, ps.getConnection().createArrayOf("float8", lengths));
+                ps.setDouble(4, buffer);
+                ps.setInt(5, firstOrd);
+                ps.setInt(6, lastOrd);
+                ps.setDouble(7, buffer);
+                ps.setInt(8, firstOrd);
+                ps.setInt(9, lastOrd);
+                ps.setDouble(10, along);
+                ps.setDouble(11, along);
+                ps.setLong(12, id);
+                ps.setInt(13, remaining);
+            }, (rs, rowNum) -> new CorridorLocation(rs.getLong("id"), rs.getString("name"), rs.getString("address"),
+                    rs.getDouble("latitude"), rs.getDouble("longitude"),
+                    rs.getDouble("off_route"), rs.getDouble("along"))));
+        }
+
+        if (locations.size() == pageSize) {
+            CorridorLocation lastLocation = locations.get(locations.size() - 1);
+            page.setNextCursor(Double.toString(lastLocation.getDistanceAlongRouteMeters()) + ":" + lastLocation.getId());
+        }
+        return page;
+    }
+
+    // The route cut into pieces of at most maxLength meters, long edges included
+    private static final class Segments {
+
+        private final List<Coordinate[]> lines = new ArrayList<>();
+        private final List<Double> starts = new ArrayList<>();
+        private final List<Double> lengths = new ArrayList<>();
+
+        static Segments split(Coordinate[] line, double maxLength) {
+            Segments segments = new Segments();
+            List<Coordinate> current = new ArrayList<>();
+            current.add(line[0]);
+            double start = 0;
+            double length = 0;
+            for (int i = 1; i < line.length; i++) {
+                Coordinate from = line[i - 1];
+                Coordinate to = line[i];
+                double edge = GeoMath.haversineMeters(from.y, from.x, to.y, to.x);
+                double done = 0;
+                while (length + (edge - done) > maxLength) {
+                    // Cut the edge where the segment reaches maxLength, interpolating in degrees
+                    done += maxLength - length;
+                    double t = done / edge;
+                    Coordinate cut = new Coordinate(from.x + (to.x - from.x) * t, from.y + (to.y - from.y) * t);
+                    current.add(cut);
+                    segments.add(current, start, maxLength);
+                    start += maxLength;
+                    current = new ArrayList<>();
+                    current.add(cut);
+                    length = 0;
+                }
+                current.add(to);
+                length += edge - done;
+            }
+            if (current.size() > 1 && (length > 0 || segments.count() == 0)) {
+                segments.add(current, start, length);
+            }
+            return segments;
+        }
+
+        private void add(List<Coordinate> points, double start, double length) {
+            lines.add(points.toArray(new Coordinate[0]));
+            starts.add(start);
+            lengths.add(length);
+        }
+
+        int count() {
+            return lines.size();
+        }
+
+        double start(int index) {
+            return starts.get(index);
+        }
+
+        double length(int index) {
+            return lengths.get(index);
+        }
+
+        Geometry line(int index, GeometryFactory factory) {
+            return factory.createLineString(lines.get(index));
+        }
+
+        // The first segment that can own a location at this distance along the route
+        int indexOf(double along) {
+            int index = 0;
+            while (index < count() - 1 && starts.get(index + 1) < along) {
+                index++;
+            }
+            return index;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.route.service.spatial;
+
+import java.util.Arrays;
+
+/**
+ * Douglas-Peucker line simplification over flattened [lat, lng, ...] coordinates in 1e-5 degrees
+ * (the {@code PolylineCodec} layout). Distances are measured in meters on a local equirectangular
+ * projection, which is accurate at the scale of a simplification tolerance.
+ */
+public final class DouglasPeucker {
+
+    private static final double METERS_PER_E5_DEGREE = Math.toRadians(1e-5) * GeoMath.EARTH_RADIUS_METERS;
+
+    private DouglasPeucker() {
+    }
+
+    // Returns the coordinates of the points kept; the first and last point are always kept
+    public static int[] simplify(int[] coords, double toleranceMeters) {
+        int count = coords.length / 2;
+        if (count <= 2 || toleranceMeters <= 0) {
+            return coords.clone();
+        }
+
+        double meanLat = 0;
+        for (int i = 0; i < count; i++) {
+            meanLat += coords[2 * i];
+        }
+        double lngScale = Math.cos(Math.toRadians(meanLat / count * 1e-5));
+        double tolerance2 = (toleranceMeters / METERS_PER_E5_DEGREE) * (toleranceMeters / METERS_PER_E5_DEGREE);
+
+        boolean[] keep = new boolean[count];
+        keep[0] = true;
+        keep[count - 1] = true;
+        // Explicit stack of (first, last) ranges instead of recursion, so long lines can't overflow it
+        int[] stack = new int[2 * count];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = count - 1;
+        while (top > 0) {
+            int last = stack[--top];
+            int first = stack[--top];
+            double ax = coords[2 * first + 1] * lngScale;
+            double ay = coords[2 * first];
+            double bx = coords[2 * last + 1] * lngScale;
+            double by = coords[2 * last];
+
+            int farthest = -1;
+            double farthest2 = tolerance2;
+            for (int i = first + 1; i < last; i++) {
+                double d2 = segmentDistance2(coords[2 * i + 1] * lngScale, coords[2 * i], ax, ay, bx, by);
+                if (d2 > farthest2) {
+                    farthest2 = d2;
+                    farthest = i;
+                }
+            }
+            if (farthest >= 0) {
+                keep[farthest] = true;
+                stack[top++] = first;
+                stack[top++] = farthest;
+                stack[top++] = farthest;
+                stack[top++] = last;
+            }
+        }
+
+        int[] kept = new int[coords.length];
+        int length = 0;
+        for (int i = 0; i < count; i++) {
+            if (keep[i]) {
+                kept[length++] = coords[2 * i];
+                kept[length++] = coords[2 * i + 1];
+            }
+        }
+        return Arrays.copyOf(kept, length);
+    }
+
+    private static double segmentDistance2(double px, double py, double ax, double ay, double bx, double by) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double length2 = dx * dx + dy * dy;
+        double t = length2 == 0 ? 0 : Math.max(0, Math.min(1, ((px - ax) * dx + (py - ay) * dy) / length2));
+        double ex = px - (ax + t * dx);
+        double ey = py - (ay + t * dy);
+        return ex * ex + ey * ey;
+    }
+}
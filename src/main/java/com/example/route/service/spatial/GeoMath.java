@@ -0,0 +1,55 @@
+package com.example.route.service.spatial;
+
+/**
+ * Great-circle helpers on a spherical earth. Points are also mapped onto the unit sphere, where the
+ * straight-line (chord) distance orders points exactly like the great-circle distance does.
+ */
+public final class GeoMath {
+
+    public static final double EARTH_RADIUS_METERS = 6_371_008.8;
+
+    private GeoMath() {
+    }
+
+    public static double haversineMeters(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    // Writes the unit-sphere position of (lat, lng) into out[offset..offset + 2]
+    public static void toUnitVector(double lat, double lng, double[] out, int offset) {
+        double phi = Math.toRadians(lat);
+        double lambda = Math.toRadians(lng);
+        double cosPhi = Math.cos(phi);
+        out[offset] = cosPhi * Math.cos(lambda);
+        out[offset + 1] = cosPhi * Math.sin(lambda);
+        out[offset + 2] = Math.sin(phi);
+    }
+
+    public static double chordToMeters(double chord) {
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, chord / 2));
+    }
+
+    public static double metersToChord(double meters) {
+        double angle = Math.min(Math.PI, meters / EARTH_RADIUS_METERS);
+        return 2 * Math.sin(angle / 2);
+    }
+
+    // A "lat,lng" stop as sent upstream, or null for a stop that is still a free-text address
+    public static double[] parseCoordinates(String stop) {
+        int comma = stop == null ? -1 : stop.indexOf(',');
+        if (comma < 0) {
+            return null;
+        }
+        try {
+            double latitude = Double.parseDouble(stop.substring(0, comma).trim());
+            double longitude = Double.parseDouble(stop.substring(comma + 1).trim());
+            return Math.abs(latitude) <= 90 && Math.abs(longitude) <= 180 ? new double[] {latitude, longitude} : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.route.service.spatial;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Great-circle distances between many points at once. Points are held as unit vectors in separate x, y
+ * and z arrays, so a row of the matrix is a chord length per destination followed by one asin, which
+ * the JDK Vector API runs several lanes at a time. Without {@code --add-modules jdk.incubator.vector}
+ * the same rows are computed by a scalar loop, which is logged at startup.
+ *
+ * <p>The vector kernel is compiled separately from {@code src/main/java-vector} (the only code built
+ * against the incubator module) and loaded by name.
+ */
+public final class GreatCircleMatrix {
+
+    private static final Logger log = LoggerFactory.getLogger(GreatCircleMatrix.class);
+
+    private static final RowKernel KERNEL = selectKernel();
+
+    private GreatCircleMatrix() {
+    }
+
+    public static boolean vectorized() {
+        return !(KERNEL instanceof ScalarRows);
+    }
+
+    // Meters from every point in from to every point in to, row-major into out
+    public static void meters(Points from, Points to, double[] out) {
+        for (int i = 0; i < from.size; i++) {
+            KERNEL.row(from.x[i], from.y[i], from.z[i], to, out, i * to.size);
+        }
+    }
+
+    public static double[] meters(Points points) {
+        double[] out = new double[points.size * points.size];
+        meters(points, points, out);
+        return out;
+    }
+
+    // The Vector API module is only resolved when it was added at launch, so its classes are touched behind this check
+    private static RowKernel selectKernel() {
+        if (!ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            log.info("Great-circle matrices use the scalar loop; start the JVM with "
+                    + "--add-modules jdk.incubator.vector to use the Vector API");
+            return new ScalarRows();
+        }
+        try {
+            Class<?> vectorRows = Class.forName(GreatCircleMatrix.class.getPackageName() + ".VectorGreatCircleRows");
+            RowKernel kernel = (RowKernel) vectorRows.getDeclaredMethod("create").invoke(null);
+            log.debug("Great-circle matrices use the Vector API");
+            return kernel;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            log.warn("Vector API unavailable, great-circle matrices use the scalar loop", e);
+            return new ScalarRows();
+        }
+    }
+
+    /** Structure-of-arrays unit vectors of a list of points. */
+    public static final class Points {
+
+        final double[] x;
+        final double[] y;
+        final double[] z;
+        final int size;
+
+        private Points(int size) {
+            this.x = new double[size];
+            this.y = new double[size];
+            this.z = new double[size];
+            this.size = size;
+        }
+
+        public static Points of(double[] latitudes, double[] longitudes) {
+            Points points = new Points(latitudes.length);
+            double[] vector = new double[3];
+            for (int i = 0; i < points.size; i++) {
+                GeoMath.toUnitVector(latitudes[i], longitudes[i], vector, 0);
+                points.x[i] = vector[0];
+                points.y[i] = vector[1];
+                points.z[i] = vector[2];
+            }
+            return points;
+        }
+
+        public int size() {
+            return size;
+        }
+    }
+
+    // One matrix row: meters from the origin (ox, oy, oz) to each point, written from out[offset]
+    interface RowKernel {
+
+        void row(double ox, double oy, double oz, Points to, double[] out, int offset);
+    }
+
+    static final class ScalarRows implements RowKernel {
+
+        @Override
+        public void row(double ox, double oy, double oz, Points to, double[] out, int offset) {
+            scalarRow(ox, oy, oz, to, 0, out, offset);
+        }
+    }
+
+    // Also finishes the tail of a vectorized row, from point start on
+    static void scalarRow(double ox, double oy, double oz, Points to, int start, double[] out, int offset) {
+        for (int j = start; j < to.size; j++) {
+            double dx = to.x[j] - ox;
+            double dy = to.y[j] - oy;
+            double dz = to.z[j] - oz;
+            double halfChord = Math.min(1, Math.sqrt(dx * dx + dy * dy + dz * dz) * 0.5);
+            out[offset + j] = 2 * GeoMath.EARTH_RADIUS_METERS * Math.asin(halfChord);
+        }
+    }
+}
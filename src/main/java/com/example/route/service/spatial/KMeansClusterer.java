@@ -0,0 +1,164 @@
+package com.example.route.service.spatial;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Partitions points into spatially compact groups of bounded size with k-means (k-means++ seeding,
+ * Lloyd iterations). Points are clustered as unit-sphere vectors, so squared chord lengths stand in for
+ * great-circle distances and nothing breaks near the poles or the antimeridian. Groups that still exceed
+ * the size limit after convergence are split again on their own.
+ */
+public final class KMeansClusterer {
+
+    private KMeansClusterer() {
+    }
+
+    // Returns each group as indices into latitudes/longitudes; no group is empty or larger than maxGroupSize
+    public static int[][] partition(double[] latitudes, double[] longitudes, int maxGroupSize, int iterations,
+                                    long seed) {
+        int count = latitudes.length;
+        double[] unit = new double[3 * count];
+        for (int i = 0; i < count; i++) {
+            GeoMath.toUnitVector(latitudes[i], longitudes[i], unit, 3 * i);
+        }
+        int[] all = new int[count];
+        for (int i = 0; i < count; i++) {
+            all[i] = i;
+        }
+        List<int[]> groups = new ArrayList<>();
+        split(unit, all, Math.max(1, maxGroupSize), iterations, new SplittableRandom(seed), groups);
+        return groups.toArray(new int[0][]);
+    }
+
+    private static void split(double[] unit, int[] members, int maxGroupSize, int iterations, SplittableRandom random,
+                              List<int[]> groups) {
+        if (members.length <= maxGroupSize) {
+            groups.add(members);
+            return;
+        }
+        int k = (members.length + maxGroupSize - 1) / maxGroupSize;
+        int[] assignment = cluster(unit, members, k, iterations, random);
+
+        int[] sizes = new int[k];
+        for (int cluster : assignment) {
+            sizes[cluster]++;
+        }
+        int[][] clusters = new int[k][];
+        for (int c = 0; c < k; c++) {
+            clusters[c] = new int[sizes[c]];
+        }
+        int[] filled = new int[k];
+        for (int i = 0; i < members.length; i++) {
+            clusters[assignment[i]][filled[assignment[i]]++] = members[i];
+        }
+
+        for (int[] cluster : clusters) {
+            if (cluster.length == members.length) {
+                // Coincident points k-means can't separate; cut them into runs instead
+                for (int from = 0; from < cluster.length; from += maxGroupSize) {
+                    groups.add(Arrays.copyOfRange(cluster, from, Math.min(cluster.length, from + maxGroupSize)));
+                }
+            } else if (cluster.length > 0) {
+                split(unit, cluster, maxGroupSize, iterations, random, groups);
+            }
+        }
+    }
+
+    // Cluster index per member
+    private static int[] cluster(double[] unit, int[] members, int k, int iterations, SplittableRandom random) {
+        int n = members.length;
+        double[] centers = seed(unit, members, k, random);
+        int[] assignment = new int[n];
+        Arrays.fill(assignment, -1);
+        double[] sums = new double[3 * k];
+        int[] sizes = new int[k];
+
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            boolean changed = false;
+            for (int i = 0; i < n; i++) {
+                int nearest = nearest(unit, 3 * members[i], centers, k);
+                if (nearest != assignment[i]) {
+                    assignment[i] = nearest;
+                    changed = true;
+                }
+            }
+            if (!changed) {
+                break;
+            }
+
+            Arrays.fill(sums, 0);
+            Arrays.fill(sizes, 0);
+            for (int i = 0; i < n; i++) {
+                int c = assignment[i];
+                int p = 3 * members[i];
+                sums[3 * c] += unit[p];
+                sums[3 * c + 1] += unit[p + 1];
+                sums[3 * c + 2] += unit[p + 2];
+                sizes[c]++;
+            }
+            for (int c = 0; c < k; c++) {
+                // An emptied center keeps its position; the mean is not projected back onto the sphere,
+                // which leaves the nearest-center comparisons unchanged
+                if (sizes[c] > 0) {
+                    centers[3 * c] = sums[3 * c] / sizes[c];
+                    centers[3 * c + 1] = sums[3 * c + 1] / sizes[c];
+                    centers[3 * c + 2] = sums[3 * c + 2] / sizes[c];
+                }
+            }
+        }
+        return assignment;
+    }
+
+    // k-means++: each further center is drawn with probability proportional to its squared distance
+    private static double[] seed(double[] unit, int[] members, int k, SplittableRandom random) {
+        int n = members.length;
+        double[] centers = new double[3 * k];
+        double[] weight = new double[n];
+        System.arraycopy(unit, 3 * members[random.nextInt(n)], centers, 0, 3);
+        Arrays.fill(weight, Double.MAX_VALUE);
+
+        for (int c = 1; c < k; c++) {
+            double total = 0;
+            for (int i = 0; i < n; i++) {
+                weight[i] = Math.min(weight[i], distance2(unit, 3 * members[i], centers, 3 * (c - 1)));
+                total += weight[i];
+            }
+            int chosen = random.nextInt(n);
+            if (total > 0) {
+                double target = random.nextDouble() * total;
+                for (int i = 0; i < n; i++) {
+                    target -= weight[i];
+                    if (target <= 0) {
+                        chosen = i;
+                        break;
+                    }
+                }
+            }
+            System.arraycopy(unit, 3 * members[chosen], centers, 3 * c, 3);
+        }
+        return centers;
+    }
+
+    private static int nearest(double[] unit, int p, double[] centers, int k) {
+        int best = 0;
+        double bestDistance = Double.MAX_VALUE;
+        for (int c = 0; c < k; c++) {
+            double d = distance2(unit, p, centers, 3 * c);
+            if (d < bestDistance) {
+                bestDistance = d;
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    private static double distance2(double[] unit, int p, double[] centers, int c) {
+        double dx = unit[p] - centers[c];
+        double dy = unit[p + 1] - centers[c + 1];
+        double dz = unit[p + 2] - centers[c + 2];
+        return dx * dx + dy * dy + dz * dz;
+    }
+}
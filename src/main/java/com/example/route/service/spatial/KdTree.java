@@ -0,0 +1,222 @@
+package com.example.route.service.spatial;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.function.LongPredicate;
+
+/**
+ * Immutable 3-d tree over locations mapped onto the unit sphere. The tree is implicit: entries are
+ * laid out so that the median of every range is its node, and all data sits in parallel primitive
+ * arrays indexed by that position.
+ */
+final class KdTree {
+
+    static final KdTree EMPTY = new Builder(0).build();
+
+    private final int size;
+    private final double[] xyz;
+    private final byte[] axis;
+    final long[] ids;
+    final double[] lat;
+    final double[] lng;
+    final String[] names;
+    final String[] addresses;
+
+    private KdTree(int size, double[] xyz, long[] ids, double[] lat, double[] lng, String[] names, String[] addresses) {
+        this.size = size;
+        this.xyz = xyz;
+        this.axis = new byte[size];
+        this.ids = ids;
+        this.lat = lat;
+        this.lng = lng;
+        this.names = names;
+        this.addresses = addresses;
+        build(0, size);
+    }
+
+    int size() {
+        return size;
+    }
+
+    // Offers every entry not rejected by skip to the collector, pruning subtrees it can no longer accept
+    void nearest(double[] query, NearestCollector collector, LongPredicate skip) {
+        nearest(0, size, query, collector, skip);
+    }
+
+    // Calls action with the position of every entry whose squared chord distance is within maxChord2
+    void within(double[] query, double maxChord2, LongPredicate skip, IntConsumer action) {
+        within(0, size, query, maxChord2, skip, action);
+    }
+
+    double chord2(int position, double[] query) {
+        double dx = xyz[position * 3] - query[0];
+        double dy = xyz[position * 3 + 1] - query[1];
+        double dz = xyz[position * 3 + 2] - query[2];
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private void nearest(int lo, int hi, double[] query, NearestCollector collector, LongPredicate skip) {
+        if (lo >= hi) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        if (!skip.test(ids[mid])) {
+            collector.offer(mid, chord2(mid, query));
+        }
+        double diff = query[axis[mid]] - xyz[mid * 3 + axis[mid]];
+        if (diff < 0) {
+            nearest(lo, mid, query, collector, skip);
+            if (diff * diff < collector.worst()) {
+                nearest(mid + 1, hi, query, collector, skip);
+            }
+        } else {
+            nearest(mid + 1, hi, query, collector, skip);
+            if (diff * diff < collector.worst()) {
+                nearest(lo, mid, query, collector, skip);
+            }
+        }
+    }
+
+    private void within(int lo, int hi, double[] query, double maxChord2, LongPredicate skip, IntConsumer action) {
+        if (lo >= hi) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        if (chord2(mid, query) <= maxChord2 && !skip.test(ids[mid])) {
+            action.accept(mid);
+        }
+        double diff = query[axis[mid]] - xyz[mid * 3 + axis[mid]];
+        if (diff < 0 || diff * diff <= maxChord2) {
+            within(lo, mid, query, maxChord2, skip, action);
+        }
+        if (diff >= 0 || diff * diff <= maxChord2) {
+            within(mid + 1, hi, query, maxChord2, skip, action);
+        }
+    }
+
+    // Splits each range on its widest axis, placing the median at the middle position
+    private void build(int lo, int hi) {
+        if (hi - lo <= 1) {
+            return;
+        }
+        int splitAxis = widestAxis(lo, hi);
+        int mid = (lo + hi) >>> 1;
+        select(lo, hi - 1, mid, splitAxis);
+        axis[mid] = (byte) splitAxis;
+        build(lo, mid);
+        build(mid + 1, hi);
+    }
+
+    private int widestAxis(int lo, int hi) {
+        double[] min = {Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE};
+        double[] max = {-Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE};
+        for (int i = lo; i < hi; i++) {
+            for (int a = 0; a < 3; a++) {
+                double v = xyz[i * 3 + a];
+                min[a] = Math.min(min[a], v);
+                max[a] = Math.max(max[a], v);
+            }
+        }
+        double dx = max[0] - min[0];
+        double dy = max[1] - min[1];
+        double dz = max[2] - min[2];
+        return dx >= dy && dx >= dz ? 0 : dy >= dz ? 1 : 2;
+    }
+
+    // Quickselect: afterwards position k holds the entry that belongs there in sorted order
+    private void select(int lo, int hi, int k, int a) {
+        while (hi > lo) {
+            double pivot = xyz[((lo + hi) >>> 1) * 3 + a];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (xyz[i * 3 + a] < pivot) {
+                    i++;
+                }
+                while (xyz[j * 3 + a] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void swap(int i, int j) {
+        for (int a = 0; a < 3; a++) {
+            double t = xyz[i * 3 + a];
+            xyz[i * 3 + a] = xyz[j * 3 + a];
+            xyz[j * 3 + a] = t;
+        }
+        long id = ids[i];
+        ids[i] = ids[j];
+        ids[j] = id;
+        double d = lat[i];
+        lat[i] = lat[j];
+        lat[j] = d;
+        d = lng[i];
+        lng[i] = lng[j];
+        lng[j] = d;
+        String s = names[i];
+        names[i] = names[j];
+        names[j] = s;
+        s = addresses[i];
+        addresses[i] = addresses[j];
+        addresses[j] = s;
+    }
+
+    static final class Builder {
+
+        private int size;
+        private double[] xyz;
+        private long[] ids;
+        private double[] lat;
+        private double[] lng;
+        private String[] names;
+        private String[] addresses;
+
+        Builder(int expectedSize) {
+            int capacity = Math.max(16, expectedSize);
+            xyz = new double[capacity * 3];
+            ids = new long[capacity];
+            lat = new double[capacity];
+            lng = new double[capacity];
+            names = new String[capacity];
+            addresses = new String[capacity];
+        }
+
+        Builder add(long id, String name, String address, double latitude, double longitude) {
+            if (size == ids.length) {
+                int capacity = size * 2;
+                xyz = Arrays.copyOf(xyz, capacity * 3);
+                ids = Arrays.copyOf(ids, capacity);
+                lat = Arrays.copyOf(lat, capacity);
+                lng = Arrays.copyOf(lng, capacity);
+                names = Arrays.copyOf(names, capacity);
+                addresses = Arrays.copyOf(addresses, capacity);
+            }
+            GeoMath.toUnitVector(latitude, longitude, xyz, size * 3);
+            ids[size] = id;
+            lat[size] = latitude;
+            lng[size] = longitude;
+            names[size] = name;
+            addresses[size] = address;
+            size++;
+            return this;
+        }
+
+        KdTree build() {
+            return new KdTree(size, Arrays.copyOf(xyz, size * 3), Arrays.copyOf(ids, size),
+                    Arrays.copyOf(lat, size), Arrays.copyOf(lng, size),
+                    Arrays.copyOf(names, size), Arrays.copyOf(addresses, size));
+        }
+    }
+}
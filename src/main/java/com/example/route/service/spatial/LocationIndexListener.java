@@ -0,0 +1,67 @@
+package com.example.route.service.spatial;
+
+import com.example.route.entity.Location;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Keeps {@link LocationSpatialIndex} in step with {@link Location} writes made through JPA. Changes
+ * are applied once the surrounding transaction commits, so rolled-back writes never reach the index.
+ * Registered in {@code META-INF/orm.xml}, which keeps the entity free of this dependency.
+ */
+@Component
+public class LocationIndexListener {
+
+    // Looked up lazily: Hibernate creates the listener while the EntityManagerFactory is being built
+    private final ObjectProvider<LocationSpatialIndex> index;
+
+    public LocationIndexListener(ObjectProvider<LocationSpatialIndex> index) {
+        this.index = index;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void onSave(Location location) {
+        Long id = location.getId();
+        Double latitude = location.getLatitude() != null ? location.getLatitude()
+                : location.getGeom() != null ? Double.valueOf(location.getGeom().getY()) : null;
+        Double longitude = location.getLongitude() != null ? location.getLongitude()
+                : location.getGeom() != null ? Double.valueOf(location.getGeom().getX()) : null;
+        String name = location.getName();
+        String address = location.getAddress();
+        if (id == null) {
+            return;
+        }
+        if (latitude == null || longitude == null) {
+            afterCommit(() -> index.getObject().remove(id));
+        } else {
+            afterCommit(() -> index.getObject().upsert(id, name, address, latitude, longitude));
+        }
+    }
+
+    @PostRemove
+    public void onRemove(Location location) {
+        Long id = location.getId();
+        if (id != null) {
+            afterCommit(() -> index.getObject().remove(id));
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.route.service.spatial;
+
+import com.example.route.dto.NearbyLocation;
+import com.example.route.entity.Location;
+import com.example.route.repository.LocationRepository;
+import com.example.route.repository.NearestLocationMatch;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Spatial lookups over saved locations. Answers come from {@link LocationSpatialIndex} when it is
+ * loaded and from the PostGIS queries in {@link LocationRepository} otherwise.
+ */
+@Service
+public class LocationQueryService {
+
+    private final LocationSpatialIndex index;
+    private final LocationRepository locationRepository;
+
+    public LocationQueryService(LocationSpatialIndex index, LocationRepository locationRepository) {
+        this.index = index;
+        this.locationRepository = locationRepository;
+    }
+
+    public List<NearbyLocation> findNearest(double latitude, double longitude, int k) {
+        if (index.isReady()) {
+            return index.nearest(latitude, longitude, k);
+        }
+        return toNearby(locationRepository.findNearestLocations(latitude, longitude, k), latitude, longitude);
+    }
+
+    // Nearest saved location for every point, null where none lies within maxDistanceMeters; one query at most
+    public List<NearbyLocation> snapToNearest(double[] latitudes, double[] longitudes, double maxDistanceMeters) {
+        NearbyLocation[] matches = new NearbyLocation[latitudes.length];
+        if (index.isReady()) {
+            for (int i = 0; i < latitudes.length; i++) {
+                List<NearbyLocation> nearest = index.nearest(latitudes[i], longitudes[i], 1);
+                if (!nearest.isEmpty() && nearest.get(0).getDistanceMeters() <= maxDistanceMeters) {
+                    matches[i] = nearest.get(0);
+                }
+            }
+        } else if (latitudes.length > 0) {
+            for (NearestLocationMatch match : locationRepository.findNearestLocationForEach(latitudes, longitudes, maxDistanceMeters)) {
+                matches[match.getInputIndex()] = new NearbyLocation(match.getId(), match.getName(), match.getAddress(),
+                        match.getLatitude(), match.getLongitude(), match.getDistanceMeters());
+            }
+        }
+        return Arrays.asList(matches);
+    }
+
+    public List<NearbyLocation> findWithinDistance(double latitude, double longitude, double meters) {
+        if (index.isReady()) {
+            return index.withinDistance(latitude, longitude, meters);
+        }
+        return toNearby(locationRepository.findLocationsWithinDistance(latitude, longitude, meters), latitude, longitude);
+    }
+
+    public List<NearbyLocation> findInBoundingBox(double minLat, double minLon, double maxLat, double maxLon) {
+        if (index.isReady()) {
+            return index.inBoundingBox(minLat, minLon, maxLat, maxLon);
+        }
+        List<NearbyLocation> result = new ArrayList<>();
+        for (Location location : locationRepository.findLocationsInBoundingBox(minLat, minLon, maxLat, maxLon)) {
+            if (location.getLatitude() != null && location.getLongitude() != null) {
+                result.add(new NearbyLocation(location.getId(), location.getName(), location.getAddress(),
+                        location.getLatitude(), location.getLongitude(), null));
+            }
+        }
+        return result;
+    }
+
+    private List<NearbyLocation> toNearby(List<Location> locations, double latitude, double longitude) {
+        List<NearbyLocation> result = new ArrayList<>(locations.size());
+        for (Location location : locations) {
+            if (location.getLatitude() != null && location.getLongitude() != null) {
+                result.add(new NearbyLocation(location.getId(), location.getName(), location.getAddress(),
+                        location.getLatitude(), location.getLongitude(),
+                        GeoMath.haversineMeters(latitude, longitude, location.getLatitude(), location.getLongitude())));
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,287 @@
+package com.example.route.service.spatial;
+
+import com.example.route.dto.NearbyLocation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.LongPredicate;
+
+/**
+ * In-process nearest, radius and bounding-box lookups over the {@code locations} table. The table is
+ * loaded into an immutable {@link KdTree} at startup; later inserts, updates and deletes land in a
+ * small delta buffer that is scanned alongside the tree and folded into a rebuilt tree once it grows.
+ * Readers never lock: every query works on one immutable snapshot.
+ */
+@Service
+public class LocationSpatialIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(LocationSpatialIndex.class);
+
+    private static final String LOAD_SQL = "SELECT id, name, address, "
+            + "COALESCE(latitude, ST_Y(geom)) AS lat, COALESCE(longitude, ST_X(geom)) AS lng "
+            + "FROM locations WHERE COALESCE(latitude, ST_Y(geom)) IS NOT NULL "
+            + "AND COALESCE(longitude, ST_X(geom)) IS NOT NULL";
+
+    @Value("${route.spatial-index.enabled:true}")
+    private boolean enabled;
+
+    @Value("${route.spatial-index.rebuild-threshold:4096}")
+    private int rebuildThreshold;
+
+    private final ObjectProvider<JdbcTemplate> jdbcTemplate;
+    private final Object writeLock = new Object();
+
+    // Null until the first load; queries then go to the repository instead
+    private volatile Snapshot snapshot;
+
+    public LocationSpatialIndex(ObjectProvider<JdbcTemplate> jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        if (!enabled) {
+            log.info("Location spatial index disabled, spatial lookups go to the database");
+            return;
+        }
+        try {
+            reload();
+        } catch (DataAccessException e) {
+            log.warn("Could not load the location spatial index, spatial lookups go to the database", e);
+        }
+    }
+
+    // Replaces the index with the current contents of the locations table
+    public void reload() {
+        JdbcTemplate jdbc = jdbcTemplate.getIfAvailable();
+        if (jdbc == null) {
+            log.info("No data source, location spatial index not loaded");
+            return;
+        }
+        synchronized (writeLock) {
+            long start = System.nanoTime();
+            KdTree.Builder builder = new KdTree.Builder(1024);
+            jdbc.query(LOAD_SQL, rs -> {
+                builder.add(rs.getLong("id"), rs.getString("name"), rs.getString("address"),
+                        rs.getDouble("lat"), rs.getDouble("lng"));
+            });
+            KdTree tree = builder.build();
+            snapshot = new Snapshot(tree, List.of(), Set.of());
+            log.info("Loaded {} locations into the spatial index in {} ms", tree.size(),
+                    (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    public boolean isReady() {
+        return snapshot != null;
+    }
+
+    public void upsert(long id, String name, String address, double latitude, double longitude) {
+        synchronized (writeLock) {
+            Snapshot current = snapshot;
+            if (current == null) {
+                // Not loaded yet; the load reads the committed row itself
+                return;
+            }
+            List<Entry> delta = new ArrayList<>(current.delta.size() + 1);
+            for (Entry entry : current.delta) {
+                if (entry.id != id) {
+                    delta.add(entry);
+                }
+            }
+            delta.add(new Entry(id, name, address, latitude, longitude));
+            Set<Long> shadowed = new HashSet<>(current.shadowed);
+            shadowed.add(id);
+            publish(current.tree, delta, shadowed);
+        }
+    }
+
+    public void remove(long id) {
+        synchronized (writeLock) {
+            Snapshot current = snapshot;
+            if (current == null) {
+                return;
+            }
+            List<Entry> delta = new ArrayList<>(current.delta.size());
+            for (Entry entry : current.delta) {
+                if (entry.id != id) {
+                    delta.add(entry);
+                }
+            }
+            Set<Long> shadowed = new HashSet<>(current.shadowed);
+            shadowed.add(id);
+            publish(current.tree, delta, shadowed);
+        }
+    }
+
+    public List<NearbyLocation> nearest(double latitude, double longitude, int k) {
+        Snapshot current = requireSnapshot();
+        if (k <= 0) {
+            return List.of();
+        }
+        double[] query = new double[3];
+        GeoMath.toUnitVector(latitude, longitude, query, 0);
+
+        NearestCollector collector = new NearestCollector(k);
+        current.tree.nearest(query, collector, current.skip());
+        for (int i = 0; i < current.delta.size(); i++) {
+            collector.offer(-(i + 1), current.delta.get(i).chord2(query));
+        }
+
+        double[] chord2 = new double[collector.size()];
+        int[] handles = collector.drainAscending(chord2);
+        List<NearbyLocation> result = new ArrayList<>(handles.length);
+        for (int i = 0; i < handles.length; i++) {
+            result.add(current.toLocation(handles[i], GeoMath.chordToMeters(Math.sqrt(chord2[i]))));
+        }
+        return result;
+    }
+
+    // Nearest first
+    public List<NearbyLocation> withinDistance(double latitude, double longitude, double meters) {
+        Snapshot current = requireSnapshot();
+        double[] query = new double[3];
+        GeoMath.toUnitVector(latitude, longitude, query, 0);
+        double chord = GeoMath.metersToChord(meters);
+        double maxChord2 = chord * chord;
+
+        List<NearbyLocation> result = new ArrayList<>();
+        current.tree.within(query, maxChord2, current.skip(), position -> result.add(
+                current.toLocation(position, GeoMath.chordToMeters(Math.sqrt(current.tree.chord2(position, query))))));
+        for (int i = 0; i < current.delta.size(); i++) {
+            double chord2 = current.delta.get(i).chord2(query);
+            if (chord2 <= maxChord2) {
+                result.add(current.toLocation(-(i + 1), GeoMath.chordToMeters(Math.sqrt(chord2))));
+            }
+        }
+        result.sort(Comparator.comparingDouble(NearbyLocation::getDistanceMeters));
+        return result;
+    }
+
+    public List<NearbyLocation> inBoundingBox(double minLat, double minLon, double maxLat, double maxLon) {
+        Snapshot current = requireSnapshot();
+        double centerLat = (minLat + maxLat) / 2;
+        double centerLon = (minLon + maxLon) / 2;
+        double[] query = new double[3];
+        GeoMath.toUnitVector(centerLat, centerLon, query, 0);
+
+        // Along each edge the distance from the center grows towards the corners, so the cap through
+        // the farthest corner covers the box; boxes half the globe wide or more are scanned whole
+        double radius = maxLon - minLon >= 180 ? Double.MAX_VALUE : Math.max(
+                Math.max(GeoMath.haversineMeters(centerLat, centerLon, minLat, minLon),
+                        GeoMath.haversineMeters(centerLat, centerLon, minLat, maxLon)),
+                Math.max(GeoMath.haversineMeters(centerLat, centerLon, maxLat, minLon),
+                        GeoMath.haversineMeters(centerLat, centerLon, maxLat, maxLon)));
+        double chord = GeoMath.metersToChord(radius);
+
+        List<NearbyLocation> result = new ArrayList<>();
+        current.tree.within(query, chord * chord, current.skip(), position -> {
+            if (inBox(current.tree.lat[position], current.tree.lng[position], minLat, minLon, maxLat, maxLon)) {
+                result.add(current.toLocation(position, null));
+            }
+        });
+        for (int i = 0; i < current.delta.size(); i++) {
+            Entry entry = current.delta.get(i);
+            if (inBox(entry.latitude, entry.longitude, minLat, minLon, maxLat, maxLon)) {
+                result.add(current.toLocation(-(i + 1), null));
+            }
+        }
+        return result;
+    }
+
+    private static boolean inBox(double lat, double lng, double minLat, double minLon, double maxLat, double maxLon) {
+        return lat >= minLat && lat <= maxLat && lng >= minLon && lng <= maxLon;
+    }
+
+    private Snapshot requireSnapshot() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            throw new IllegalStateException("Location spatial index is not loaded");
+        }
+        return current;
+    }
+
+    // Folds the delta into a new tree once scanning it linearly starts to cost more than a rebuild saves
+    private void publish(KdTree tree, List<Entry> delta, Set<Long> shadowed) {
+        if (delta.size() + shadowed.size() <= rebuildThreshold) {
+            snapshot = new Snapshot(tree, List.copyOf(delta), shadowed);
+            return;
+        }
+        KdTree.Builder builder = new KdTree.Builder(tree.size() + delta.size());
+        for (int i = 0; i < tree.size(); i++) {
+            if (!shadowed.contains(tree.ids[i])) {
+                builder.add(tree.ids[i], tree.names[i], tree.addresses[i], tree.lat[i], tree.lng[i]);
+            }
+        }
+        for (Entry entry : delta) {
+            builder.add(entry.id, entry.name, entry.address, entry.latitude, entry.longitude);
+        }
+        snapshot = new Snapshot(builder.build(), List.of(), Set.of());
+    }
+
+    private static final class Snapshot {
+
+        final KdTree tree;
+        final List<Entry> delta;
+        final Set<Long> shadowed; // tree ids that were updated (see delta) or deleted since the build
+
+        Snapshot(KdTree tree, List<Entry> delta, Set<Long> shadowed) {
+            this.tree = tree;
+            this.delta = delta;
+            this.shadowed = shadowed;
+        }
+
+        LongPredicate skip() {
+            return shadowed.isEmpty() ? id -> false : shadowed::contains;
+        }
+
+        // Non-negative handles are tree positions, negative ones -(i + 1) delta entries
+        NearbyLocation toLocation(int handle, Double distanceMeters) {
+            if (handle >= 0) {
+                return new NearbyLocation(tree.ids[handle], tree.names[handle], tree.addresses[handle],
+                        tree.lat[handle], tree.lng[handle], distanceMeters);
+            }
+            Entry entry = delta.get(-handle - 1);
+            return new NearbyLocation(entry.id, entry.name, entry.address, entry.latitude, entry.longitude,
+                    distanceMeters);
+        }
+    }
+
+    private static final class Entry {
+
+        final long id;
+        final String name;
+        final String address;
+        final double latitude;
+        final double longitude;
+        final double[] xyz = new double[3];
+
+        Entry(long id, String name, String address, double latitude, double longitude) {
+            this.id = id;
+            this.name = name;
+            this.address = address;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            GeoMath.toUnitVector(latitude, longitude, xyz, 0);
+        }
+
+        double chord2(double[] query) {
+            double dx = xyz[0] - query[0];
+            double dy = xyz[1] - query[1];
+            double dz = xyz[2] - query[2];
+            return dx * dx + dy * dy + dz * dz;
+        }
+    }
+}
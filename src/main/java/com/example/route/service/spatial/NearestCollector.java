@@ -0,0 +1,78 @@
+package com.example.route.service.spatial;
+
+/**
+ * Keeps the k smallest (distance, handle) pairs offered to it in a binary max-heap, so the current
+ * k-th distance is always available for pruning.
+ */
+final class NearestCollector {
+
+    private final int k;
+    private final double[] distances;
+    private final int[] handles;
+    private int size;
+
+    NearestCollector(int k) {
+        this.k = k;
+        this.distances = new double[k];
+        this.handles = new int[k];
+    }
+
+    double worst() {
+        return size < k ? Double.POSITIVE_INFINITY : distances[0];
+    }
+
+    void offer(int handle, double distance) {
+        if (size < k) {
+            int i = size++;
+            while (i > 0 && distances[(i - 1) / 2] < distance) {
+                distances[i] = distances[(i - 1) / 2];
+                handles[i] = handles[(i - 1) / 2];
+                i = (i - 1) / 2;
+            }
+            distances[i] = distance;
+            handles[i] = handle;
+        } else if (distance < distances[0]) {
+            siftDown(handle, distance);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    // Empties the heap, returning handles nearest first; distances are written into distancesOut
+    int[] drainAscending(double[] distancesOut) {
+        int count = size;
+        int[] sorted = new int[count];
+        for (int i = count - 1; i >= 0; i--) {
+            sorted[i] = handles[0];
+            distancesOut[i] = distances[0];
+            size--;
+            if (size > 0) {
+                siftDown(handles[size], distances[size]);
+            }
+        }
+        return sorted;
+    }
+
+    private void siftDown(int handle, double distance) {
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && distances[child + 1] > distances[child]) {
+                child++;
+            }
+            if (distances[child] <= distance) {
+                break;
+            }
+            distances[i] = distances[child];
+            handles[i] = handles[child];
+            i = child;
+        }
+        distances[i] = distance;
+        handles[i] = handle;
+    }
+}
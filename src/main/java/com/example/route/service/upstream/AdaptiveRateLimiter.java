@@ -0,0 +1,57 @@
+package com.example.route.service.upstream;
+
+/**
+ * Token bucket whose rate adapts to the upstream's quota (AIMD): every throttled answer halves the
+ * rate, and successes raise it again by about {@code increasePerSecond} per second of traffic, up to
+ * {@code maxRate}. The bucket holds at most one second of tokens.
+ */
+public class AdaptiveRateLimiter {
+
+    private final double minRate;
+    private final double maxRate;
+    private final double increasePerSecond;
+
+    private double rate;
+    private double tokens;
+    private long refilledAt;
+
+    public AdaptiveRateLimiter(double minRate, double maxRate, double increasePerSecond) {
+        this.minRate = minRate;
+        this.maxRate = maxRate;
+        this.increasePerSecond = increasePerSecond;
+        this.rate = maxRate;
+        this.tokens = maxRate;
+        this.refilledAt = System.nanoTime();
+    }
+
+    /**
+     * Reserves the next token and returns how many nanoseconds the caller has to wait for it, or -1 without
+     * reserving anything when that wait would exceed {@code maxWaitNanos}. Reservations queue up behind each
+     * other as a negative balance.
+     */
+    public synchronized long reserve(long maxWaitNanos) {
+        long now = System.nanoTime();
+        tokens = Math.min(Math.max(1, rate), tokens + (now - refilledAt) / 1e9 * rate);
+        refilledAt = now;
+        long wait = tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / rate * 1e9);
+        if (wait > maxWaitNanos) {
+            return -1;
+        }
+        tokens--;
+        return wait;
+    }
+
+    // At the current rate this adds up to increasePerSecond per second
+    public synchronized void onSuccess() {
+        rate = Math.min(maxRate, rate + increasePerSecond / rate);
+    }
+
+    public synchronized void onThrottled() {
+        rate = Math.max(minRate, rate / 2);
+        tokens = Math.min(tokens, 0);
+    }
+
+    public synchronized double getRate() {
+        return rate;
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.route.service.upstream;
+
+/**
+ * Count-based circuit breaker. Opens when at least {@code failureRate} of the last {@code window} calls
+ * failed (once {@code minCalls} have been seen), rejects everything for {@code openMillis}, then lets
+ * {@code probes} trial calls through; they close it again if all succeed, and any failure reopens it.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final boolean[] outcomes;
+    private final int minCalls;
+    private final double failureRate;
+    private final long openMillis;
+    private final int probes;
+
+    private State state = State.CLOSED;
+    private int recorded;
+    private int next;
+    private int failures;
+    private long openedAt;
+    private int probesStarted;
+    private int probesSucceeded;
+    private long timesOpened;
+
+    public CircuitBreaker(int window, int minCalls, double failureRate, long openMillis, int probes) {
+        this.outcomes = new boolean[window];
+        this.minCalls = Math.min(minCalls, window);
+        this.failureRate = failureRate;
+        this.openMillis = openMillis;
+        this.probes = probes;
+    }
+
+    // Whether a call may go upstream now; a granted half-open probe must be followed by record()
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.currentTimeMillis() - openedAt < openMillis) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            probesStarted = 0;
+            probesSucceeded = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesStarted >= probes) {
+                return false;
+            }
+            probesStarted++;
+        }
+        return true;
+    }
+
+    public synchronized void record(boolean failure) {
+        if (state == State.HALF_OPEN) {
+            if (failure) {
+                open();
+            } else if (++probesSucceeded >= probes) {
+                state = State.CLOSED;
+                recorded = 0;
+                next = 0;
+                failures = 0;
+            }
+            return;
+        }
+        if (state == State.OPEN) {
+            return; // a call that started before the breaker opened
+        }
+
+        if (recorded == outcomes.length) {
+            failures -= outcomes[next] ? 1 : 0;
+        } else {
+            recorded++;
+        }
+        outcomes[next] = failure;
+        failures += failure ? 1 : 0;
+        next = (next + 1) % outcomes.length;
+        if (recorded >= minCalls && failures >= failureRate * recorded) {
+            open();
+        }
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.currentTimeMillis();
+        timesOpened++;
+    }
+
+    public synchronized State getState() {
+        return state == State.OPEN && System.currentTimeMillis() - openedAt >= openMillis ? State.HALF_OPEN : state;
+    }
+
+    public synchronized long getTimesOpened() {
+        return timesOpened;
+    }
+}
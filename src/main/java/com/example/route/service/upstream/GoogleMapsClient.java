@@ -0,0 +1,66 @@
+package com.example.route.service.upstream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Non-blocking GET against the Google Maps web services over the shared {@link HttpClient}.
+ * Every call, body included, is bounded by the configured request timeout; cancelling the returned
+ * future aborts the exchange.
+ */
+@Component
+public class GoogleMapsClient {
+
+    @Value("${google.maps.http.request-timeout-ms:10000}")
+    private long requestTimeoutMs;
+
+    private final HttpClient httpClient;
+
+    public GoogleMapsClient(HttpClient upstreamHttpClient) {
+        this.httpClient = upstreamHttpClient;
+    }
+
+    public CompletableFuture<String> get(String url) {
+        return send(url, HttpResponse.BodyHandlers.ofString());
+    }
+
+    // The raw body, for callers that run a streaming parser over it
+    public CompletableFuture<byte[]> getBytes(String url) {
+        return send(url, HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private <T> CompletableFuture<T> send(String url, HttpResponse.BodyHandler<T> bodyHandler) {
+        CompletableFuture<HttpResponse<T>> exchange = httpClient.sendAsync(buildRequest(url), bodyHandler);
+        // HttpRequest.timeout only covers the wait for the headers; a body that stalls is cut off here
+        CompletableFuture<T> body = exchange.thenApply(response -> {
+            if (response.statusCode() / 100 != 2) {
+                throw new UpstreamException("Upstream HTTP " + response.statusCode(), response.statusCode());
+            }
+            return response.body();
+        }).orTimeout(requestTimeoutMs, TimeUnit.MILLISECONDS).exceptionallyCompose(error ->
+                CompletableFuture.failedFuture(error instanceof TimeoutException
+                        ? new HttpTimeoutException("Upstream response not complete after " + requestTimeoutMs + " ms")
+                        : error));
+        // Aborts the exchange when the body timed out or the caller cancelled; a no-op once it completed
+        body.whenComplete((value, error) -> exchange.cancel(true));
+        return body;
+    }
+
+    private HttpRequest buildRequest(String url) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .timeout(Duration.ofMillis(requestTimeoutMs))
+                .header("Accept", "application/json")
+                .GET()
+                .build();
+    }
+}
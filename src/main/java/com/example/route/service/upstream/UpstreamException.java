@@ -0,0 +1,24 @@
+package com.example.route.service.upstream;
+
+// Raised when an upstream maps API answers with a non-success HTTP status
+public class UpstreamException extends RuntimeException {
+
+    private final int statusCode;
+
+    public UpstreamException(String message, int statusCode) {
+        super(message);
+        this.statusCode = statusCode;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    // Google reports quota and server trouble in the body of an HTTP 200; the HTTP status each stands for, or 0
+    public static int statusCodeOf(String apiStatus) {
+        if ("OVER_QUERY_LIMIT".equals(apiStatus)) {
+            return 429;
+        }
+        return "UNKNOWN_ERROR".equals(apiStatus) ? 503 : 0;
+    }
+}
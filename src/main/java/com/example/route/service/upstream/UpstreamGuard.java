@@ -0,0 +1,237 @@
+package com.example.route.service.upstream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Protects the app from a slow or throttling Google: every upstream call passes an adaptive rate limiter,
+ * a bulkhead (bounded concurrent calls) and a circuit breaker, and callers stop waiting after the call
+ * timeout. Calls over the rate or concurrency limit wait their turn, up to {@code max-wait-ms} and
+ * {@code max-queued} calls; past that, or while the circuit is open, they fail at once with
+ * {@link UpstreamUnavailableException}, so requests can fall back to degraded answers instead of queueing
+ * behind a failing upstream.
+ */
+@Component
+public class UpstreamGuard {
+
+    private static final Logger log = LoggerFactory.getLogger(UpstreamGuard.class);
+
+    private final boolean enabled;
+    private final long timeoutMs;
+    private final long slowCallMs;
+    private final long maxWaitNanos;
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final AdaptiveRateLimiter rateLimiter;
+    private final CircuitBreaker circuitBreaker;
+    private final Executor executor;
+
+    // Calls holding a bulkhead slot, and calls waiting for one in arrival order; both guarded by waiting
+    private final ArrayDeque<Pending<?>> waiting = new ArrayDeque<>();
+    private int inFlight;
+
+    public UpstreamGuard(@Value("${route.upstream.guard.enabled:true}") boolean enabled,
+                         @Value("${route.upstream.timeout-ms:4000}") long timeoutMs,
+                         @Value("${route.upstream.slow-call-ms:2500}") long slowCallMs,
+                         @Value("${route.upstream.max-concurrent:32}") int maxConcurrent,
+                         @Value("${route.upstream.max-queued:1000}") int maxQueued,
+                         @Value("${route.upstream.max-wait-ms:10000}") long maxWaitMs,
+                         @Value("${route.upstream.rate.max-per-second:50}") double maxRate,
+                         @Value("${route.upstream.rate.min-per-second:1}") double minRate,
+                         @Value("${route.upstream.rate.increase-per-second:1}") double rateIncrease,
+                         @Value("${route.upstream.breaker.window:50}") int window,
+                         @Value("${route.upstream.breaker.min-calls:20}") int minCalls,
+                         @Value("${route.upstream.breaker.failure-rate:0.5}") double failureRate,
+                         @Value("${route.upstream.breaker.open-ms:10000}") long openMs,
+                         @Value("${route.upstream.breaker.probes:3}") int probes,
+                         @Qualifier("routeExecutor") Executor executor) {
+        this.enabled = enabled;
+        this.timeoutMs = timeoutMs;
+        this.slowCallMs = slowCallMs;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.rateLimiter = new AdaptiveRateLimiter(minRate, maxRate, rateIncrease);
+        this.circuitBreaker = new CircuitBreaker(window, minCalls, failureRate, openMs, probes);
+        this.executor = executor;
+    }
+
+    /**
+     * Runs the call once the guard admits it. Failures, throttling (HTTP 429) and calls slower than the
+     * slow-call threshold count against the circuit. A call still running after the timeout is cancelled,
+     * frees its bulkhead slot and counts as a failure; whatever it completes with later is ignored.
+     */
+    public <T> CompletableFuture<T> call(Supplier<CompletableFuture<T>> call) {
+        if (!enabled) {
+            return call.get();
+        }
+        if (circuitBreaker.getState() == CircuitBreaker.State.OPEN) {
+            return CompletableFuture.failedFuture(new UpstreamUnavailableException("Upstream circuit open"));
+        }
+        long wait = rateLimiter.reserve(maxWaitNanos);
+        if (wait < 0) {
+            return CompletableFuture.failedFuture(new UpstreamUnavailableException("Upstream rate limit reached"));
+        }
+
+        Pending<T> pending = new Pending<>(call);
+        if (wait == 0) {
+            admit(pending);
+        } else {
+            CompletableFuture.delayedExecutor(wait, TimeUnit.NANOSECONDS, executor).execute(() -> admit(pending));
+        }
+        return pending.result;
+    }
+
+    /**
+     * The derived stage, cancelling the upstream stage it was derived from when it is cancelled itself, so
+     * a call that parses its response can be handed to {@link #call} and still be aborted at the timeout.
+     */
+    public static <T> CompletableFuture<T> cancelling(CompletableFuture<?> upstream, CompletableFuture<T> derived) {
+        // A no-op once the upstream stage has completed
+        derived.whenComplete((value, error) -> upstream.cancel(true));
+        return derived;
+    }
+
+    private void admit(Pending<?> pending) {
+        synchronized (waiting) {
+            if (inFlight >= maxConcurrent) {
+                if (waiting.size() < maxQueued) {
+                    waiting.add(pending);
+                } else {
+                    pending.reject("Upstream bulkhead full");
+                }
+                return;
+            }
+            inFlight++;
+        }
+        pending.start();
+    }
+
+    // Hands the slot to the next waiting call that hasn't waited too long, or frees it
+    private void release() {
+        Pending<?> next;
+        synchronized (waiting) {
+            while ((next = waiting.poll()) != null && System.nanoTime() - next.queuedAt > maxWaitNanos) {
+                next.reject("Upstream bulkhead full");
+            }
+            if (next == null) {
+                inFlight--;
+                return;
+            }
+        }
+        // Not on the completing thread, which may be the HTTP client's
+        executor.execute(next::start);
+    }
+
+    private void record(Throwable error, long elapsedMs) {
+        Throwable cause = rootCause(error);
+        boolean throttled = cause instanceof UpstreamException upstream && upstream.getStatusCode() == 429;
+        boolean failed = throttled || isUpstreamFailure(cause) || elapsedMs > slowCallMs;
+        if (throttled) {
+            rateLimiter.onThrottled();
+        } else if (cause == null) {
+            rateLimiter.onSuccess();
+        }
+        CircuitBreaker.State before = circuitBreaker.getState();
+        circuitBreaker.record(failed);
+        CircuitBreaker.State after = circuitBreaker.getState();
+        if (before != after) {
+            log.warn("Upstream circuit {} -> {} (last call {} ms{})", before, after, elapsedMs,
+                    cause != null ? ", " + cause : "");
+        }
+    }
+
+    // Errors that say the upstream is unhealthy, as opposed to a request it rightly refused
+    private static boolean isUpstreamFailure(Throwable cause) {
+        if (cause instanceof UpstreamException upstream) {
+            return upstream.getStatusCode() >= 500;
+        }
+        return cause instanceof IOException || cause instanceof TimeoutException;
+    }
+
+    private static Throwable rootCause(Throwable e) {
+        while ((e instanceof CompletionException || e instanceof ExecutionException) && e.getCause() != null) {
+            e = e.getCause();
+        }
+        return e;
+    }
+
+    public CircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
+    }
+
+    public long getCircuitOpenings() {
+        return circuitBreaker.getTimesOpened();
+    }
+
+    public double getRateLimit() {
+        return rateLimiter.getRate();
+    }
+
+    public int getAvailableConcurrency() {
+        synchronized (waiting) {
+            return maxConcurrent - inFlight;
+        }
+    }
+
+    // A call admitted by the rate limiter, waiting for or holding a bulkhead slot
+    private final class Pending<T> {
+
+        private final Supplier<CompletableFuture<T>> call;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private final long queuedAt = System.nanoTime();
+
+        Pending(Supplier<CompletableFuture<T>> call) {
+            this.call = call;
+        }
+
+        // Runs with a bulkhead slot; the circuit may have opened while the call waited
+        void start() {
+            if (!circuitBreaker.tryAcquire()) {
+                release();
+                reject("Upstream circuit open");
+                return;
+            }
+            long started = System.nanoTime();
+            CompletableFuture<T> upstream;
+            try {
+                upstream = call.get();
+            } catch (RuntimeException e) {
+                upstream = CompletableFuture.failedFuture(e);
+            }
+            // The copy completes once, with the call's outcome or at the timeout, and settles the call; a
+            // half-open probe that hangs is recorded as a failed probe rather than keeping the circuit waiting
+            CompletableFuture<T> running = upstream;
+            running.copy().orTimeout(timeoutMs, TimeUnit.MILLISECONDS).whenComplete((value, error) -> {
+                Throwable outcome = error instanceof TimeoutException
+                        ? new TimeoutException("Upstream call not complete after " + timeoutMs + " ms")
+                        : error;
+                release();
+                record(outcome, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+                if (outcome != null) {
+                    running.cancel(true);
+                    result.completeExceptionally(outcome);
+                } else {
+                    result.complete(value);
+                }
+            });
+        }
+
+        void reject(String reason) {
+            result.completeExceptionally(new UpstreamUnavailableException(reason));
+        }
+    }
+}
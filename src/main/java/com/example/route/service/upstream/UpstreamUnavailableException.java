@@ -0,0 +1,9 @@
+package com.example.route.service.upstream;
+
+// Raised without calling the upstream, when the circuit is open or the call would exceed the bulkhead or rate limit
+public class UpstreamUnavailableException extends RuntimeException {
+
+    public UpstreamUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.route.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Non-ASCII addresses: letters of any script fold and survive, and an accent typed as a combining mark keys
+ * like the precomposed letter.
+ */
+class AddressKeysTest {
+
+    @Test
+    void accentedAddressesKeepTheirLetters() {
+        assertEquals("rue de l école 3 genève", AddressKeys.normalize("Rue de l'ÉCOLE 3, Genève"));
+        assertEquals("müllerstraße 12 köln", AddressKeys.normalize("  MÜLLERSTRAßE 12 ,Köln "));
+        assertEquals("東京都千代田区1 1", AddressKeys.normalize("東京都千代田区1-1"));
+    }
+
+    @Test
+    void combiningAccentsKeyLikePrecomposedLetters() {
+        String precomposed = "Caf\u00e9 de Fl\u00f4re, Paris";
+        String decomposed = "Cafe\u0301 de Flo\u0302re, Paris";
+
+        assertEquals("caf\u00e9 de fl\u00f4re paris", AddressKeys.normalize(decomposed));
+        assertEquals(AddressKeys.normalize(precomposed), AddressKeys.normalize(decomposed));
+        assertEquals(AddressKeys.hash(precomposed), AddressKeys.hash(decomposed));
+    }
+}
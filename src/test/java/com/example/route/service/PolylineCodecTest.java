@@ -0,0 +1,55 @@
+package com.example.route.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Cutting an overview polyline into legs where the route passes a stop twice: the cut belongs to the
+ * pass that ends the leg, even when the later pass runs closer to the stop.
+ */
+class PolylineCodecTest {
+
+    // East along lat 52 past the stop at 13.01 (snapped 20 m north), on to the turn at 13.05 and back west
+    // right through the stop
+    private static final int[] LINE = {
+            5_200_000, 1_300_000,
+            5_200_000, 1_300_500,
+            5_200_018, 1_301_000,
+            5_200_000, 1_303_000,
+            5_200_000, 1_305_000,
+            5_200_000, 1_303_000,
+            5_200_000, 1_301_000,
+            5_200_000, 1_300_000,
+    };
+
+    @Test
+    void cutsAtThePassWithinTheLegsLength() {
+        String encoded = PolylineCodec.encode(LINE, LINE.length);
+
+        // The stop, then the turn; the first leg is 690 m, the second 2.7 km
+        List<String> pieces = PolylineCodec.split(encoded, new double[] {52.0, 52.0}, new double[] {13.01, 13.05},
+                new long[] {690, 2_740});
+
+        assertEquals(3, pieces.size());
+        assertArrayEquals(new int[] {5_200_000, 1_300_000, 5_200_000, 1_300_500, 5_200_018, 1_301_000},
+                PolylineCodec.decode(pieces.get(0)));
+        assertArrayEquals(new int[] {5_200_018, 1_301_000, 5_200_000, 1_303_000, 5_200_000, 1_305_000},
+                PolylineCodec.decode(pieces.get(1)));
+        assertEquals(encoded, PolylineCodec.join(pieces));
+    }
+
+    @Test
+    void unknownLegLengthsSearchTheWholeLine() {
+        String encoded = PolylineCodec.encode(LINE, LINE.length);
+
+        List<String> pieces = PolylineCodec.split(encoded, new double[] {52.0}, new double[] {13.01}, new long[] {0});
+
+        // Without a length the nearest vertex wins, which is the return pass
+        assertEquals(7, PolylineCodec.decode(pieces.get(0)).length / 2);
+        assertEquals(encoded, PolylineCodec.join(pieces));
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.route.service;
+
+import com.example.route.dto.RouteRequest;
+import com.example.route.dto.RouteResponse;
+import com.example.route.service.address.AddressResolver;
+import com.example.route.service.cache.RouteResultCache;
+import com.example.route.service.directions.DirectionsProvider;
+import com.example.route.service.matrix.TravelEstimator;
+import com.example.route.service.matrix.TravelMatrixService;
+import com.example.route.service.optimizer.TourOptimizer;
+import com.example.route.service.persistence.RoutePersistenceService;
+import com.example.route.service.persistence.StoredRouteLookup;
+import com.example.route.service.plan.RoutePlan;
+import com.example.route.service.plan.RoutePlanStore;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Plans handed out for cached routes and batch duplicates: only editable requests get one, and a duplicate
+ * that lists its stops in another order gets a plan indexed by its own waypoints.
+ */
+class RouteBatchServiceTest {
+
+    private static final double[] LONGITUDES = {13.00, 13.01, 13.02, 13.03, 13.04};
+
+    private RoutePlanStore plans;
+    private RouteService routeService;
+    private RouteBatchService batchService;
+
+    @BeforeEach
+    void setUp() {
+        RouteResultCache cache = new RouteResultCache(true, 100, 900, 86_400);
+        plans = new RoutePlanStore(true, 100, 3600);
+        routeService = new RouteService(mock(DirectionsProvider.class), Runnable::run, mock(TourOptimizer.class),
+                mock(ClusteredTourPlanner.class), mock(TravelMatrixService.class), mock(TravelEstimator.class),
+                cache, mock(AddressResolver.class), mock(RoutePersistenceService.class),
+                mock(StoredRouteLookup.class), plans);
+        batchService = new RouteBatchService(routeService,
+                Validation.buildDefaultValidatorFactory().getValidator());
+
+        RouteRequest computed = request(false, "A", "B", "C");
+        cache.put(routeService.requestKey(computed), route());
+    }
+
+    @Test
+    void cachedRouteGetsAPlanOnlyWhenEditable() throws Exception {
+        RouteResponse plain = routeService.getOptimizedRoute(request(false, "A", "B", "C")).get(5, TimeUnit.SECONDS);
+        assertNull(plain.getPlanId());
+        assertEquals(0, plans.size());
+
+        RouteResponse editable = routeService.getOptimizedRoute(request(true, "A", "B", "C")).get(5, TimeUnit.SECONDS);
+        assertNotNull(editable.getPlanId());
+        assertEquals(List.of(-1, 2, 0, 1, -1), waypoints(plans.get(editable.getPlanId())));
+    }
+
+    @Test
+    void batchDuplicatesGetPlansOfTheirOwn() throws Exception {
+        RouteBatch batch = batchService.submit(List.of(request(true, "A", "B", "C"), request(true, "B", "C", "A"),
+                request(false, "C", "A", "B")));
+        assertEquals(1, batch.getUniqueRequests());
+
+        RouteResponse first = batch.getItems().get(0).get(5, TimeUnit.SECONDS);
+        RouteResponse reordered = batch.getItems().get(1).get(5, TimeUnit.SECONDS);
+        RouteResponse plain = batch.getItems().get(2).get(5, TimeUnit.SECONDS);
+
+        assertNotEquals(first.getPlanId(), reordered.getPlanId());
+        assertNull(plain.getPlanId());
+        assertEquals(2, plans.size());
+
+        // Both drive Depot, C, A, B, End; the indices point into each request's own waypoint list
+        assertEquals(List.of(-1, 2, 0, 1, -1), waypoints(plans.get(first.getPlanId())));
+        assertEquals(List.of(-1, 1, 2, 0, -1), waypoints(plans.get(reordered.getPlanId())));
+        assertEquals(List.of(1, 2, 0), reordered.getWaypointOrder());
+    }
+
+    private static RouteRequest request(boolean editable, String... waypoints) {
+        RouteRequest request = new RouteRequest("Depot", List.of(waypoints), "End", false);
+        request.setEditable(editable);
+        return request;
+    }
+
+    // Depot, C, A, B, End along lat 52 for request(…, "A", "B", "C")
+    private static RouteResponse route() {
+        String[] stops = {"Depot", "C", "A", "B", "End"};
+        List<RouteResponse.RouteLeg> legs = new ArrayList<>();
+        int[] line = new int[2 * LONGITUDES.length];
+        for (int i = 0; i < stops.length; i++) {
+            line[2 * i] = 5_200_000;
+            line[2 * i + 1] = (int) Math.round(LONGITUDES[i] * 1e5);
+            if (i > 0) {
+                RouteResponse.RouteLeg leg = new RouteResponse.RouteLeg(stops[i - 1], stops[i], "0.7 km", "1 min",
+                        685, 60);
+                leg.setStartLatitude(52.0);
+                leg.setStartLongitude(LONGITUDES[i - 1]);
+                leg.setEndLatitude(52.0);
+                leg.setEndLongitude(LONGITUDES[i]);
+                legs.add(leg);
+            }
+        }
+        RouteResponse response = new RouteResponse();
+        response.setStatus("OK");
+        response.setWaypointOrder(List.of(2, 0, 1));
+        response.setOptimizedWaypoints(List.of("C", "A", "B"));
+        response.setLegs(legs);
+        response.setOverviewPolyline(PolylineCodec.encode(line, line.length));
+        return response;
+    }
+
+    private static List<Integer> waypoints(RoutePlan plan) {
+        return plan.getStops().stream().map(RoutePlan.Stop::getWaypoint).toList();
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.route.service.address;
+
+import com.example.route.dto.RouteRequest;
+import com.example.route.dto.RouteResponse;
+import com.example.route.service.spatial.LocationSpatialIndex;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Accented addresses against PostGIS (ROUTE_TEST_POSTGIS_URL, as for CorridorSearchServiceTest): rows keyed at
+ * startup and rows written back must be found under the key the application computes for incoming stops,
+ * whatever case or accent encoding the stop was typed in.
+ */
+@EnabledIfEnvironmentVariable(named = "ROUTE_TEST_POSTGIS_URL", matches = ".+")
+class AddressResolverTest {
+
+    private static final String SCHEMA = "address_resolver_test";
+
+    private static SingleConnectionDataSource dataSource;
+    private static JdbcTemplate jdbc;
+
+    @BeforeAll
+    static void createLocations() {
+        dataSource = new SingleConnectionDataSource(System.getenv("ROUTE_TEST_POSTGIS_URL"),
+                System.getenv().getOrDefault("ROUTE_TEST_POSTGIS_USER", "optiroute_user"),
+                System.getenv().getOrDefault("ROUTE_TEST_POSTGIS_PASSWORD", "optiroute_password"), true);
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+        jdbc.execute("CREATE SCHEMA " + SCHEMA);
+        jdbc.execute("SET search_path TO " + SCHEMA + ", public");
+        jdbc.execute("CREATE TABLE locations (id SERIAL PRIMARY KEY, name VARCHAR(255) NOT NULL, address TEXT, "
+                + "address_key TEXT, latitude DOUBLE PRECISION, longitude DOUBLE PRECISION, "
+                + "geom GEOMETRY(POINT, 4326))");
+        // Loaded over plain SQL, so without a key
+        jdbc.update("INSERT INTO locations (name, address, latitude, longitude) VALUES (?, ?, ?, ?)",
+                "Café", "Café de Flôre, Paris", 48.854, 2.333);
+    }
+
+    @AfterAll
+    static void dropLocations() {
+        jdbc.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+        dataSource.destroy();
+    }
+
+    @Test
+    void accentedAddressesResolveWhateverTheirCaseOrEncoding() throws Exception {
+        AddressResolver resolver = resolver();
+        resolver.fillMissingKeys();
+
+        // Upper case, and the accents as combining marks
+        RouteRequest request = new RouteRequest("CAFE\u0301 DE FLO\u0302RE PARIS", List.of("48.8,2.3"), null, false);
+        assertEquals("48.854000,2.333000", resolver.resolve(request).get(5, TimeUnit.SECONDS).getOrigin());
+
+        // A stop Google geocoded is written back once, and found again under another spelling
+        RouteResponse.RouteLeg leg = new RouteResponse.RouteLeg("Müllerstraße 12, Köln", "48.8,2.3", "", "");
+        leg.setStartLatitude(50.94);
+        leg.setStartLongitude(6.95);
+        leg.setEndLatitude(48.8);
+        leg.setEndLongitude(2.3);
+        resolver.recordGeocodes(List.of("Müllerstraße 12, Köln", "48.8,2.3"), List.of(leg));
+        resolver.flushGeocodes();
+        resolver.clearCache();
+        resolver.recordGeocodes(List.of("MÜLLERSTRAßE 12 KÖLN", "48.8,2.3"), List.of(leg));
+        resolver.flushGeocodes();
+
+        request = new RouteRequest("müllerstraße 12 köln", List.of("48.8,2.3"), null, false);
+        assertEquals("50.940000,6.950000", resolver.resolve(request).get(5, TimeUnit.SECONDS).getOrigin());
+        assertEquals(2, jdbc.queryForObject("SELECT count(*) FROM locations", Integer.class));
+    }
+
+    private static AddressResolver resolver() {
+        DefaultListableBeanFactory beans = new DefaultListableBeanFactory();
+        beans.registerSingleton("jdbcTemplate", jdbc);
+        ObjectProvider<JdbcTemplate> provider = beans.getBeanProvider(JdbcTemplate.class);
+        AddressResolver resolver = new AddressResolver(provider, mock(LocationSpatialIndex.class), Runnable::run,
+                100, 3600);
+        ReflectionTestUtils.setField(resolver, "enabled", true);
+        ReflectionTestUtils.setField(resolver, "writeBackBatchSize", 500);
+        ReflectionTestUtils.setField(resolver, "maxPending", 100);
+        return resolver;
+    }
+}
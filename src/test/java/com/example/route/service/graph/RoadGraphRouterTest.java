@@ -0,0 +1,325 @@
+package com.example.route.service.graph;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Builds an 80 x 80 street grid from generated OSM XML, then checks the file layout and compares the
+ * bidirectional A* and the one-to-many search with a plain Dijkstra, which has no stopping rule to get wrong.
+ */
+class RoadGraphRouterTest {
+
+    private static final int SIDE = 80;
+    private static final String[] CLASSES = {"residential", "tertiary", "secondary", "primary", "service"};
+
+    @TempDir
+    static Path directory;
+
+    private static Path file;
+    private static int expectedEdges;
+    private static RoadGraph graph;
+
+    @BeforeAll
+    static void build() throws IOException {
+        file = directory.resolve("grid.graph");
+        RoadGraphBuilder.build(new ByteArrayInputStream(gridXml(new SplittableRandom(3))), file);
+        graph = RoadGraph.open(file);
+    }
+
+    @Test
+    void keepsTheStronglyConnectedGrid() {
+        // The spur, the isolated way and the ways cars can't use are all dropped
+        assertEquals(SIDE * SIDE, graph.nodeCount());
+        assertEquals(expectedEdges, graph.edgeCount());
+        // 110 km/h is the fastest class default; no generated maxspeed goes above it
+        assertTrue(graph.maxSpeedMetersPerSecond() >= 70 / 3.6 && graph.maxSpeedMetersPerSecond() <= 110 / 3.6 + 0.001);
+    }
+
+    @Test
+    void writesTheDocumentedLayout() throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+        int n = graph.nodeCount();
+        int e = graph.edgeCount();
+        assertEquals(RoadGraph.MAGIC, bytes.getInt(0));
+        assertEquals(RoadGraph.VERSION, bytes.getInt(4));
+        assertEquals(n, bytes.getInt(8));
+        assertEquals(e, bytes.getInt(12));
+        assertEquals(RoadGraphBuilder.DEFAULT_CELL_E7, bytes.getInt(20));
+        assertEquals((long) (RoadGraph.HEADER_INTS + 2 * n + 2 * (n + 1) + 5 * e) * Integer.BYTES, bytes.capacity());
+
+        long previousCell = Long.MIN_VALUE;
+        for (int node = 0; node < n; node++) {
+            long cell = RoadGraph.cellKey(graph.latitudeE7(node), graph.longitudeE7(node), RoadGraphBuilder.DEFAULT_CELL_E7);
+            assertTrue(cell >= previousCell, "nodes are sorted by grid cell");
+            previousCell = cell;
+            assertTrue(graph.firstOut(node) <= graph.firstOut(node + 1));
+            assertTrue(graph.firstIn(node) <= graph.firstIn(node + 1));
+            for (int edge = graph.firstOut(node); edge < graph.firstOut(node + 1); edge++) {
+                assertEquals(node, graph.tailOf(edge));
+                assertTrue(graph.durationDeciseconds(edge) > 0 && graph.distanceDecimeters(edge) > 0);
+            }
+            // Every incoming entry points back at a forward edge into this node
+            for (int in = graph.firstIn(node); in < graph.firstIn(node + 1); in++) {
+                int edge = graph.inEdge(in);
+                assertEquals(node, graph.head(edge));
+                assertEquals(graph.tail(in), graph.tailOf(edge));
+            }
+        }
+        assertEquals(e, graph.firstOut(n));
+        assertEquals(e, graph.firstIn(n));
+    }
+
+    @Test
+    void rejectsTruncatedFiles() throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        Path truncated = directory.resolve("truncated.graph");
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length - Integer.BYTES));
+        assertThrows(IOException.class, () -> RoadGraph.open(truncated));
+    }
+
+    @Test
+    void parsesMaxSpeeds() {
+        assertEquals(50, RoadGraphBuilder.parseMaxSpeed("50", 30));
+        assertEquals(50, RoadGraphBuilder.parseMaxSpeed(" 50 km/h", 30));
+        assertEquals(48.28032, RoadGraphBuilder.parseMaxSpeed("30 mph", 30), 1e-9);
+        assertEquals(30, RoadGraphBuilder.parseMaxSpeed("none", 30));
+        assertEquals(30, RoadGraphBuilder.parseMaxSpeed("DE:urban", 30));
+        assertEquals(30, RoadGraphBuilder.parseMaxSpeed("900", 30));
+    }
+
+    @Test
+    void bidirectionalSearchMatchesDijkstra() throws IOException {
+        RoadGraphRouter router = new RoadGraphRouter(file, 500, 1);
+        SplittableRandom random = new SplittableRandom(17);
+        for (int query = 0; query < 2000; query++) {
+            int source = random.nextInt(graph.nodeCount());
+            int target = random.nextInt(graph.nodeCount());
+            long expected = dijkstra(source)[target];
+
+            RoadGraphRouter.Route route = router.route(source, target);
+            assertNotNull(route, "no route from " + source + " to " + target);
+            assertEquals(expected, pathDeciseconds(route.nodes(), source, target),
+                    "route from " + source + " to " + target);
+            assertEquals(Math.round(expected / 10.0), route.durationSeconds());
+        }
+    }
+
+    @Test
+    void oneToManyMatchesDijkstra() throws IOException {
+        RoadGraphRouter router = new RoadGraphRouter(file, 500, 1);
+        SplittableRandom random = new SplittableRandom(29);
+        for (int query = 0; query < 50; query++) {
+            int source = random.nextInt(graph.nodeCount());
+            // Repeated targets, the source itself and -1 (a stop that didn't snap) are all allowed
+            int[] targets = new int[40];
+            for (int i = 0; i < targets.length; i++) {
+                targets[i] = random.nextInt(graph.nodeCount());
+            }
+            targets[1] = targets[0];
+            targets[2] = source;
+            targets[3] = -1;
+            long[] distances = new long[targets.length];
+            long[] durations = new long[targets.length];
+            router.oneToMany(source, targets, distances, durations);
+
+            long[] expected = dijkstra(source);
+            for (int i = 0; i < targets.length; i++) {
+                if (targets[i] < 0) {
+                    assertEquals(Long.MAX_VALUE, durations[i]);
+                    assertEquals(Long.MAX_VALUE, distances[i]);
+                } else {
+                    assertEquals(Math.round(expected[targets[i]] / 10.0), durations[i], "duration to " + targets[i]);
+                    assertTrue(distances[i] < Long.MAX_VALUE);
+                }
+            }
+            assertEquals(0, durations[2]);
+            assertEquals(0, distances[2]);
+        }
+    }
+
+    @Test
+    void concurrentQueriesShareTheBoundedPool() throws Exception {
+        RoadGraphRouter router = new RoadGraphRouter(file, 500, 2);
+        assertEquals(2, router.parallelism());
+        SplittableRandom random = new SplittableRandom(5);
+        int[][] pairs = new int[400][];
+        for (int i = 0; i < pairs.length; i++) {
+            pairs[i] = new int[] {random.nextInt(graph.nodeCount()), random.nextInt(graph.nodeCount())};
+        }
+        long[] sequential = new long[pairs.length];
+        for (int i = 0; i < pairs.length; i++) {
+            sequential[i] = router.route(pairs[i][0], pairs[i][1]).durationSeconds();
+        }
+
+        // More threads than search spaces: queries wait for a space instead of sharing one
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Long>> results = new ArrayList<>();
+            for (int[] pair : pairs) {
+                results.add(threads.submit(() -> router.route(pair[0], pair[1]).durationSeconds()));
+            }
+            long[] concurrent = new long[pairs.length];
+            for (int i = 0; i < pairs.length; i++) {
+                concurrent[i] = results.get(i).get();
+            }
+            assertArrayEquals(sequential, concurrent);
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    @Test
+    void snapsToTheNearestNodeInRange() throws IOException {
+        RoadGraphRouter router = new RoadGraphRouter(file, 500, 1);
+        int node = 1234;
+        assertEquals(node, router.snap(graph.latitude(node), graph.longitude(node)));
+        assertEquals(-1, router.snap(40.0, 13.0));
+    }
+
+    // Deciseconds from source to every node, by the textbook algorithm
+    private static long[] dijkstra(int source) {
+        long[] cost = new long[graph.nodeCount()];
+        Arrays.fill(cost, Long.MAX_VALUE);
+        cost[source] = 0;
+        PriorityQueue<long[]> queue = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+        queue.add(new long[] {0, source});
+        while (!queue.isEmpty()) {
+            long[] entry = queue.poll();
+            int node = (int) entry[1];
+            if (entry[0] > cost[node]) {
+                continue;
+            }
+            for (int edge = graph.firstOut(node); edge < graph.firstOut(node + 1); edge++) {
+                long next = entry[0] + graph.durationDeciseconds(edge);
+                if (next < cost[graph.head(edge)]) {
+                    cost[graph.head(edge)] = next;
+                    queue.add(new long[] {next, graph.head(edge)});
+                }
+            }
+        }
+        return cost;
+    }
+
+    // The path's time over the fastest edge between each pair of consecutive nodes, failing on a missing edge
+    private static long pathDeciseconds(int[] nodes, int source, int target) {
+        assertEquals(source, nodes[0]);
+        assertEquals(target, nodes[nodes.length - 1]);
+        long total = 0;
+        for (int i = 0; i + 1 < nodes.length; i++) {
+            long fastest = Long.MAX_VALUE;
+            for (int edge = graph.firstOut(nodes[i]); edge < graph.firstOut(nodes[i] + 1); edge++) {
+                if (graph.head(edge) == nodes[i + 1]) {
+                    fastest = Math.min(fastest, graph.durationDeciseconds(edge));
+                }
+            }
+            assertTrue(fastest < Long.MAX_VALUE, "no edge from " + nodes[i] + " to " + nodes[i + 1]);
+            total += fastest;
+        }
+        return total;
+    }
+
+    /**
+     * A jittered grid about 110 m by 95 m per block, one way per block side. Columns and the first row are
+     * two-way, so the grid stays strongly connected however the other rows' one-way blocks point.
+     */
+    private static byte[] gridXml(SplittableRandom random) {
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\"?>\n<osm version=\"0.6\">\n");
+        // Nodes out of id order, which the builder sorts before resolving way references
+        int[] order = new int[SIDE * SIDE];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        for (int i = order.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+        for (int index : order) {
+            double lat = 52.0 + index / SIDE * 0.001 + random.nextDouble(-0.0002, 0.0002);
+            double lng = 13.0 + index % SIDE * 0.0014 + random.nextDouble(-0.0003, 0.0003);
+            node(xml, index + 1, lat, lng);
+        }
+        long spur = SIDE * SIDE + 1;
+        node(xml, spur, 51.9995, 12.9995);
+        node(xml, spur + 1, 52.5, 13.5);
+        node(xml, spur + 2, 52.501, 13.5);
+
+        long way = 1;
+        expectedEdges = 0;
+        for (int row = 0; row < SIDE; row++) {
+            for (int col = 0; col < SIDE; col++) {
+                long id = row * SIDE + col + 1;
+                if (col + 1 < SIDE) {
+                    String oneway = row > 0 && random.nextInt(3) == 0 ? (random.nextBoolean() ? "yes" : "-1") : null;
+                    way(xml, way++, id, id + 1, randomClass(random), randomMaxSpeed(random), oneway);
+                    expectedEdges += oneway == null ? 2 : 1;
+                }
+                if (row + 1 < SIDE) {
+                    way(xml, way++, id, id + SIDE, randomClass(random), randomMaxSpeed(random), null);
+                    expectedEdges += 2;
+                }
+            }
+        }
+        // Dropped: a one-way spur out of the grid, a way of its own, a footpath and a private road
+        way(xml, way++, 1, spur, "residential", null, "yes");
+        way(xml, way++, spur + 1, spur + 2, "primary", null, null);
+        way(xml, way++, 1, SIDE * SIDE, "footway", null, null);
+        xml.append("  <way id=\"").append(way).append("\"><nd ref=\"2\"/><nd ref=\"").append(SIDE * SIDE - 1)
+                .append("\"/><tag k=\"highway\" v=\"residential\"/><tag k=\"access\" v=\"private\"/></way>\n");
+        return xml.append("</osm>\n").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String randomClass(SplittableRandom random) {
+        return CLASSES[random.nextInt(CLASSES.length)];
+    }
+
+    private static String randomMaxSpeed(SplittableRandom random) {
+        return switch (random.nextInt(6)) {
+            case 0 -> String.valueOf(20 + random.nextInt(60));
+            case 1 -> (15 + random.nextInt(30)) + " mph";
+            default -> null;
+        };
+    }
+
+    private static void node(StringBuilder xml, long id, double lat, double lng) {
+        xml.append("  <node id=\"").append(id).append("\" lat=\"").append(lat).append("\" lon=\"").append(lng)
+                .append("\"/>\n");
+    }
+
+    private static void way(StringBuilder xml, long id, long from, long to, String highway, String maxspeed,
+                            String oneway) {
+        xml.append("  <way id=\"").append(id).append("\"><nd ref=\"").append(from).append("\"/><nd ref=\"")
+                .append(to).append("\"/><tag k=\"highway\" v=\"").append(highway).append("\"/>");
+        if (maxspeed != null) {
+            xml.append("<tag k=\"maxspeed\" v=\"").append(maxspeed).append("\"/>");
+        }
+        if (oneway != null) {
+            xml.append("<tag k=\"oneway\" v=\"").append(oneway).append("\"/>");
+        }
+        xml.append("</way>\n");
+    }
+}
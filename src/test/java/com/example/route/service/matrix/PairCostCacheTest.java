@@ -0,0 +1,43 @@
+package com.example.route.service.matrix;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Pairs without a route can be an upstream hiccup, so they must not be replayed for the full TTL.
+ */
+class PairCostCacheTest {
+
+    private static final long[] KEYS = {1, 2, 3};
+
+    @Test
+    void unreachablePairsExpireFirst() throws Exception {
+        PairCostCache cache = new PairCostCache(64, 60_000, 50);
+        cache.put(1, 2, 1200, 90);
+        cache.put(1, 3, TravelMatrix.UNREACHABLE, TravelMatrix.UNREACHABLE);
+
+        TravelMatrix matrix = new TravelMatrix(3);
+        assertArrayEquals(new boolean[] {false, false}, firstRow(cache.fill(KEYS, matrix)));
+        assertEquals(TravelMatrix.UNREACHABLE, matrix.duration(0, 2));
+
+        Thread.sleep(100);
+        matrix = new TravelMatrix(3);
+        assertArrayEquals(new boolean[] {false, true}, firstRow(cache.fill(KEYS, matrix)));
+        assertEquals(90, matrix.duration(0, 1));
+    }
+
+    @Test
+    void zeroTtlNeverCachesUnreachablePairs() {
+        PairCostCache cache = new PairCostCache(64, 60_000, 0);
+        cache.put(1, 3, 800, TravelMatrix.UNREACHABLE);
+
+        assertArrayEquals(new boolean[] {true, true}, firstRow(cache.fill(KEYS, new TravelMatrix(3))));
+    }
+
+    // Whether cells 0→1 and 0→2 still have to be fetched
+    private static boolean[] firstRow(boolean[] missing) {
+        return new boolean[] {missing[1], missing[2]};
+    }
+}
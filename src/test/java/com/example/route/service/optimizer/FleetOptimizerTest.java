@@ -0,0 +1,207 @@
+package com.example.route.service.optimizer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the solver's plans against a schedule recomputed from scratch, so the constant-time slack
+ * checks in the solver can't approve a plan that breaks a capacity, time window or shift end.
+ */
+class FleetOptimizerTest {
+
+    private static final int STOPS = 500;
+    private static final int VEHICLES = 20;
+    // What FleetRoutingService passes for a missing window or shift end
+    private static final long NO_TIME_LIMIT = Long.MAX_VALUE / 4;
+
+    private ForkJoinPool pool;
+    private FleetOptimizer optimizer;
+
+    @BeforeEach
+    void setUp() {
+        pool = new ForkJoinPool(2);
+        optimizer = new FleetOptimizer(pool);
+        ReflectionTestUtils.setField(optimizer, "seed", 42L);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void plansRespectCapacityTimeWindowsAndShiftEnds() throws Exception {
+        FleetProblem problem = instance(new SplittableRandom(7));
+        FleetSolution solution = optimizer.solve(problem, 2000).get(30, TimeUnit.SECONDS);
+
+        int n = problem.size;
+        int[] visits = new int[n];
+        for (int stop : solution.unassigned()) {
+            visits[stop]++;
+        }
+        long cost = 0;
+        for (int v = 0; v < problem.vehicleCount(); v++) {
+            int[] route = solution.route(v);
+            long[] serviceStart = solution.serviceStart(v);
+            assertEquals(route.length, serviceStart.length, "vehicle " + v + " schedule length");
+
+            long time = problem.shiftStart[v];
+            int previous = 0;
+            int load = 0;
+            for (int i = 0; i < route.length; i++) {
+                int stop = route[i];
+                visits[stop]++;
+                long arrival = time + problem.service[previous] + problem.travelTime[previous * n + stop];
+                long begin = Math.max(arrival, problem.earliest[stop]);
+                assertTrue(begin <= problem.latest[stop],
+                        "vehicle " + v + " reaches stop " + stop + " at " + begin + " after its window closes at "
+                                + problem.latest[stop]);
+                assertEquals(begin, serviceStart[i], "vehicle " + v + " service start at stop " + stop);
+                load += problem.demand[stop];
+                cost += problem.cost[previous * n + stop];
+                time = begin;
+                previous = stop;
+            }
+            long returnTime = route.length == 0
+                    ? time
+                    : time + problem.service[previous] + problem.travelTime[previous * n];
+            if (route.length > 0) {
+                cost += problem.cost[previous * n];
+            }
+            assertTrue(returnTime <= problem.shiftEnd[v],
+                    "vehicle " + v + " returns at " + returnTime + " after its shift ends at " + problem.shiftEnd[v]);
+            assertEquals(returnTime, solution.returnTime(v), "vehicle " + v + " return time");
+            assertTrue(load <= problem.capacity[v], "vehicle " + v + " carries " + load + " over " + problem.capacity[v]);
+            assertEquals(load, solution.load(v), "vehicle " + v + " load");
+        }
+
+        for (int stop = 1; stop < n; stop++) {
+            assertEquals(1, visits[stop], "stop " + stop + " must be visited or unassigned exactly once");
+        }
+        assertEquals(cost, solution.cost(), "plan cost");
+        // The instance has room for nearly every stop; a plan that drops many is broken, not tight
+        assertTrue(solution.unassigned().length < STOPS / 20, solution.unassigned().length + " stops unassigned");
+    }
+
+    @Test
+    void emptyRoutesStayFeasible() throws Exception {
+        // Windows nobody can reach: every stop is left unassigned and every vehicle stays at the depot
+        FleetProblem base = instance(new SplittableRandom(11));
+        long[] latest = new long[base.size];
+        for (int stop = 1; stop < base.size; stop++) {
+            latest[stop] = -1;
+        }
+        FleetProblem problem = new FleetProblem(base.size, base.cost, base.travelTime, base.demand, base.earliest,
+                latest, base.service, base.capacity, base.shiftStart, base.shiftEnd);
+
+        FleetSolution solution = optimizer.solve(problem, 200).get(30, TimeUnit.SECONDS);
+
+        assertEquals(STOPS, solution.unassigned().length);
+        for (int v = 0; v < problem.vehicleCount(); v++) {
+            assertEquals(0, solution.route(v).length);
+        }
+        assertEquals(0, solution.cost());
+    }
+
+    @Test
+    void unreachableStopStaysUnassigned() throws Exception {
+        // No time limits, as for a request without windows: only the matrix can keep a stop off the routes
+        FleetProblem base = instance(new SplittableRandom(13));
+        int n = base.size;
+        long[] cost = base.cost.clone();
+        long[] travelTime = base.travelTime.clone();
+        long[] latest = new long[n];
+        long[] shiftEnd = new long[base.vehicleCount()];
+        Arrays.fill(latest, NO_TIME_LIMIT);
+        Arrays.fill(shiftEnd, NO_TIME_LIMIT);
+        int isolated = 1;
+        for (int other = 0; other < n; other++) {
+            if (other != isolated) {
+                cost[isolated * n + other] = cost[other * n + isolated] = FleetProblem.UNREACHABLE;
+                travelTime[isolated * n + other] = travelTime[other * n + isolated] = FleetProblem.UNREACHABLE;
+            }
+        }
+        // One-way gaps between other stops, so removing a stop can leave its neighbours without a route
+        SplittableRandom random = new SplittableRandom(17);
+        for (int gap = 0; gap < 2000; gap++) {
+            int from = 2 + random.nextInt(n - 2);
+            int to = 2 + random.nextInt(n - 2);
+            if (from != to) {
+                cost[from * n + to] = FleetProblem.UNREACHABLE;
+                travelTime[from * n + to] = FleetProblem.UNREACHABLE;
+            }
+        }
+        FleetProblem problem = new FleetProblem(n, cost, travelTime, base.demand, base.earliest, latest,
+                base.service, base.capacity, base.shiftStart, shiftEnd);
+
+        FleetSolution solution = optimizer.solve(problem, 1000).get(30, TimeUnit.SECONDS);
+
+        assertArrayEquals(new int[] {isolated}, solution.unassigned());
+        for (int v = 0; v < problem.vehicleCount(); v++) {
+            int previous = 0;
+            for (int stop : solution.route(v)) {
+                assertTrue(cost[previous * n + stop] < FleetProblem.UNREACHABLE,
+                        "vehicle " + v + " drives from " + previous + " to " + stop + " without a route");
+                previous = stop;
+            }
+            assertTrue(cost[previous * n] < FleetProblem.UNREACHABLE, "vehicle " + v + " has no way back");
+        }
+        assertTrue(solution.cost() < FleetProblem.UNREACHABLE, "plan cost " + solution.cost());
+    }
+
+    // Stops scattered over a 30 km square around a central depot; about 4 hour windows in a 10 hour day
+    private static FleetProblem instance(SplittableRandom random) {
+        int n = STOPS + 1;
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 1; i < n; i++) {
+            x[i] = random.nextDouble(-15_000, 15_000);
+            y[i] = random.nextDouble(-15_000, 15_000);
+        }
+
+        long[] cost = new long[n * n];
+        long[] travelTime = new long[n * n];
+        for (int from = 0; from < n; from++) {
+            for (int to = 0; to < n; to++) {
+                double meters = 1.3 * Math.hypot(x[from] - x[to], y[from] - y[to]);
+                cost[from * n + to] = Math.round(meters);
+                // 36 km/h
+                travelTime[from * n + to] = Math.round(meters / 10);
+            }
+        }
+
+        int[] demand = new int[n];
+        long[] earliest = new long[n];
+        long[] latest = new long[n];
+        long[] service = new long[n];
+        latest[0] = Long.MAX_VALUE;
+        for (int stop = 1; stop < n; stop++) {
+            demand[stop] = 1 + random.nextInt(5);
+            earliest[stop] = random.nextLong(0, 6 * 3600);
+            latest[stop] = earliest[stop] + random.nextLong(2 * 3600, 4 * 3600);
+            service[stop] = random.nextLong(120, 600);
+        }
+
+        int[] capacity = new int[VEHICLES];
+        long[] shiftStart = new long[VEHICLES];
+        long[] shiftEnd = new long[VEHICLES];
+        for (int v = 0; v < VEHICLES; v++) {
+            capacity[v] = v % 4 == 0 ? 120 : 80;
+            shiftStart[v] = v % 3 == 0 ? 3600 : 0;
+            shiftEnd[v] = shiftStart[v] + 10 * 3600;
+        }
+        return new FleetProblem(n, cost, travelTime, demand, earliest, latest, service, capacity, shiftStart, shiftEnd);
+    }
+}
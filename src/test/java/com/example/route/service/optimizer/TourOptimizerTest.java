@@ -0,0 +1,175 @@
+package com.example.route.service.optimizer;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Held-Karp against brute force on small tours, and the local search and anytime kicks against the
+ * nearest-neighbour tour they start from, for round trips, fixed ends and open ends.
+ */
+class TourOptimizerTest {
+
+    private final TourOptimizer optimizer = new TourOptimizer();
+
+    @Test
+    void exactSolutionMatchesBruteForce() {
+        SplittableRandom random = new SplittableRandom(1);
+        for (int stops = 1; stops <= 8; stops++) {
+            for (int round = 0; round < 5; round++) {
+                boolean euclidean = round % 2 == 0;
+                // Node 0 is the start; the last node is the fixed end where there is one
+                int size = stops + 2;
+                long[] cost = euclidean ? euclidean(random, size) : asymmetric(random, size);
+
+                for (int end : new int[] {0, size - 1, TourOptimizer.OPEN_END}) {
+                    int nodes = end == 0 ? size - 1 : size;
+                    long[] instance = end == 0 ? withoutLast(cost, size) : cost;
+                    int[] path = optimizer.solve(instance, nodes, 0, end);
+                    assertTour(path, nodes, 0, end);
+                    assertEquals(bruteForce(instance, nodes, 0, end), TourOptimizer.pathCost(instance, nodes, path),
+                            stops + " stops, end " + end + ": " + Arrays.toString(path));
+                }
+            }
+        }
+    }
+
+    @Test
+    void heuristicNeverReturnsALongerTourThanItsStart() {
+        ReflectionTestUtils.setField(optimizer, "exactThreshold", 0);
+        SplittableRandom random = new SplittableRandom(2);
+        for (int round = 0; round < 30; round++) {
+            int size = 20 + random.nextInt(40);
+            long[] cost = round % 2 == 0 ? euclidean(random, size) : asymmetric(random, size);
+
+            for (int end : new int[] {0, size - 1, TourOptimizer.OPEN_END}) {
+                // A deadline in the past returns the nearest-neighbour construction alone
+                int[] start = optimizer.solve(cost, size, 0, end, System.nanoTime() - 1, progress(new ArrayList<>()));
+                long startCost = TourOptimizer.pathCost(cost, size, start);
+
+                int[] improved = optimizer.solve(cost, size, 0, end);
+                assertTour(improved, size, 0, end);
+                assertTrue(TourOptimizer.pathCost(cost, size, improved) <= startCost,
+                        "local search from " + startCost + " to " + TourOptimizer.pathCost(cost, size, improved));
+
+                List<Long> reported = new ArrayList<>();
+                int[] anytime = optimizer.solve(cost, size, 0, end,
+                        System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(20), progress(reported));
+                assertTour(anytime, size, 0, end);
+                long anytimeCost = TourOptimizer.pathCost(cost, size, anytime);
+                assertEquals(startCost, reported.get(0), "first report is the construction");
+                assertEquals(anytimeCost, reported.get(reported.size() - 1), "last report is the result");
+                for (int i = 1; i < reported.size(); i++) {
+                    assertTrue(reported.get(i) < reported.get(i - 1), "reports only get cheaper: " + reported);
+                }
+            }
+        }
+    }
+
+    private static TourOptimizer.Progress progress(List<Long> reported) {
+        return new TourOptimizer.Progress() {
+            @Override
+            public void improved(int[] path, long cost) {
+                reported.add(cost);
+            }
+
+            @Override
+            public boolean cancelled() {
+                return false;
+            }
+        };
+    }
+
+    // Every node once, between the requested ends
+    private static void assertTour(int[] path, int size, int start, int end) {
+        assertEquals(start, path[0]);
+        int[] expected = new int[end == start ? size + 1 : size];
+        for (int node = 0; node < size; node++) {
+            expected[node] = node;
+        }
+        int[] visited = path.clone();
+        if (end == start) {
+            assertEquals(start, path[path.length - 1]);
+            expected[size] = start;
+        } else if (end != TourOptimizer.OPEN_END) {
+            assertEquals(end, path[path.length - 1]);
+        }
+        Arrays.sort(visited);
+        Arrays.sort(expected);
+        assertArrayEquals(expected, visited);
+    }
+
+    private static long bruteForce(long[] cost, int size, int start, int end) {
+        List<Integer> free = new ArrayList<>();
+        for (int node = 0; node < size; node++) {
+            if (node != start && node != end) {
+                free.add(node);
+            }
+        }
+        return permute(cost, size, free, new boolean[free.size()], start, 0, end);
+    }
+
+    private static long permute(long[] cost, int size, List<Integer> free, boolean[] used, int current, long sofar,
+                                int end) {
+        long best = Long.MAX_VALUE;
+        boolean complete = true;
+        for (int i = 0; i < free.size(); i++) {
+            if (!used[i]) {
+                complete = false;
+                used[i] = true;
+                int next = free.get(i);
+                best = Math.min(best, permute(cost, size, free, used, next, sofar + cost[current * size + next], end));
+                used[i] = false;
+            }
+        }
+        if (complete) {
+            return end == TourOptimizer.OPEN_END ? sofar : sofar + cost[current * size + end];
+        }
+        return best;
+    }
+
+    private static long[] euclidean(SplittableRandom random, int size) {
+        double[] x = new double[size];
+        double[] y = new double[size];
+        for (int i = 0; i < size; i++) {
+            x[i] = random.nextDouble(0, 10_000);
+            y[i] = random.nextDouble(0, 10_000);
+        }
+        long[] cost = new long[size * size];
+        for (int from = 0; from < size; from++) {
+            for (int to = 0; to < size; to++) {
+                cost[from * size + to] = Math.round(Math.hypot(x[from] - x[to], y[from] - y[to]));
+            }
+        }
+        return cost;
+    }
+
+    // One-way streets and detours: no symmetry and no triangle inequality
+    private static long[] asymmetric(SplittableRandom random, int size) {
+        long[] cost = new long[size * size];
+        for (int from = 0; from < size; from++) {
+            for (int to = 0; to < size; to++) {
+                cost[from * size + to] = from == to ? 0 : random.nextLong(1, 5_000);
+            }
+        }
+        return cost;
+    }
+
+    private static long[] withoutLast(long[] cost, int size) {
+        int smaller = size - 1;
+        long[] result = new long[smaller * smaller];
+        for (int from = 0; from < smaller; from++) {
+            System.arraycopy(cost, from * size, result, from * smaller, smaller);
+        }
+        return result;
+    }
+}
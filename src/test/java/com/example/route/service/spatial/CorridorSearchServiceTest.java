@@ -0,0 +1,110 @@
+package com.example.route.service.spatial;
+
+import com.example.route.dto.CorridorLocation;
+import com.example.route.dto.CorridorPage;
+import com.example.route.service.PolylineCodec;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pages along a round trip that comes back past the same locations, against PostGIS (the docker-compose
+ * database works: ROUTE_TEST_POSTGIS_URL=jdbc:postgresql://localhost:5432/optiroute). Each location must
+ * come back once, from the leg it is nearest to, however the pages and query windows fall.
+ */
+@EnabledIfEnvironmentVariable(named = "ROUTE_TEST_POSTGIS_URL", matches = ".+")
+class CorridorSearchServiceTest {
+
+    private static final String SCHEMA = "corridor_search_test";
+
+    private static SingleConnectionDataSource dataSource;
+    private static JdbcTemplate jdbc;
+
+    @BeforeAll
+    static void createLocations() {
+        dataSource = new SingleConnectionDataSource(System.getenv("ROUTE_TEST_POSTGIS_URL"),
+                System.getenv().getOrDefault("ROUTE_TEST_POSTGIS_USER", "optiroute_user"),
+                System.getenv().getOrDefault("ROUTE_TEST_POSTGIS_PASSWORD", "optiroute_password"), true);
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+        jdbc.execute("CREATE SCHEMA " + SCHEMA);
+        jdbc.execute("SET search_path TO " + SCHEMA + ", public");
+        jdbc.execute("CREATE TABLE locations (id SERIAL PRIMARY KEY, name VARCHAR(255) NOT NULL, address TEXT, "
+                + "geom GEOMETRY(POINT, 4326))");
+        // Between the outbound leg (lat 52.000) and the return leg (lat 52.002): closer to one or the other
+        // (not at the turn, where the short northward jog would be nearer than either)
+        for (int i = 1; i < 50; i++) {
+            double lng = 13.0 + i * 0.01;
+            insert("out-" + i, 52.0007, lng);
+            insert("back-" + i, 52.0014, lng);
+        }
+    }
+
+    @AfterAll
+    static void dropLocations() {
+        jdbc.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+        dataSource.destroy();
+    }
+
+    @Test
+    void loopRouteReturnsEachLocationOnceFromItsNearestLeg() {
+        CorridorSearchService service = new CorridorSearchService(provider());
+        ReflectionTestUtils.setField(service, "segmentLengthMeters", 5000.0);
+        ReflectionTestUtils.setField(service, "segmentsPerQuery", 2);
+        ReflectionTestUtils.setField(service, "defaultBufferMeters", 1000.0);
+        ReflectionTestUtils.setField(service, "maxBufferMeters", 10000.0);
+        ReflectionTestUtils.setField(service, "defaultLimit", 100);
+        ReflectionTestUtils.setField(service, "maxLimit", 1000);
+
+        // Out east along lat 52.000 and back west along lat 52.002, about 34 km each way
+        String polyline = PolylineCodec.encode(new int[] {5_200_000, 1_300_000, 5_200_000, 1_350_000,
+                5_200_200, 1_350_000, 5_200_200, 1_300_000}, 8);
+
+        List<CorridorLocation> all = new ArrayList<>();
+        String cursor = null;
+        do {
+            CorridorPage page = service.searchPolyline(polyline, 500.0, 7, cursor);
+            assertEquals("OK", page.getStatus(), page.getErrorMessage());
+            all.addAll(page.getLocations());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        Set<Long> ids = new HashSet<>();
+        double previous = -1;
+        for (CorridorLocation location : all) {
+            assertTrue(ids.add(location.getId()), location.getName() + " returned twice");
+            assertTrue(location.getDistanceAlongRouteMeters() >= previous, "ordered along the route");
+            previous = location.getDistanceAlongRouteMeters();
+            // Outbound locations lie within the first 33.6 km; the return leg starts after 34.3 km and a 222 m jog
+            boolean outbound = location.getDistanceAlongRouteMeters() < 34_300;
+            assertEquals(location.getName().startsWith("out-"), outbound,
+                    location.getName() + " at " + location.getDistanceAlongRouteMeters() + " m");
+        }
+        assertEquals(98, all.size());
+    }
+
+    private static void insert(String name, double lat, double lng) {
+        jdbc.update("INSERT INTO locations (name, geom) VALUES (?, ST_SetSRID(ST_MakePoint(?, ?), 4326))",
+                name, lng, lat);
+    }
+
+    private static ObjectProvider<JdbcTemplate> provider() {
+        DefaultListableBeanFactory beans = new DefaultListableBeanFactory();
+        beans.registerSingleton("jdbcTemplate", jdbc);
+        return beans.getBeanProvider(JdbcTemplate.class);
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.route.service.spatial;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The Vector API kernel (the tests add its module) against the scalar loop and the haversine formula,
+ * on row lengths that leave a scalar tail after the vector lanes.
+ */
+class GreatCircleMatrixTest {
+
+    @Test
+    void loadsTheVectorKernel() {
+        assertTrue(GreatCircleMatrix.vectorized());
+    }
+
+    @Test
+    void matchesTheScalarLoopAndHaversine() {
+        SplittableRandom random = new SplittableRandom(13);
+        for (int size : new int[] {1, 3, 8, 17, 101}) {
+            double[] latitudes = new double[size];
+            double[] longitudes = new double[size];
+            for (int i = 0; i < size; i++) {
+                latitudes[i] = random.nextDouble(-80, 80);
+                longitudes[i] = random.nextDouble(-180, 180);
+            }
+            // Two of the points are antipodal when there are enough of them
+            if (size > 2) {
+                latitudes[2] = -latitudes[1];
+                longitudes[2] = longitudes[1] > 0 ? longitudes[1] - 180 : longitudes[1] + 180;
+            }
+            GreatCircleMatrix.Points points = GreatCircleMatrix.Points.of(latitudes, longitudes);
+            double[] meters = GreatCircleMatrix.meters(points);
+
+            double[] scalar = new double[size * size];
+            for (int i = 0; i < size; i++) {
+                GreatCircleMatrix.scalarRow(points.x[i], points.y[i], points.z[i], points, 0, scalar, i * size);
+            }
+            for (int i = 0; i < size; i++) {
+                for (int j = 0; j < size; j++) {
+                    double expected = GeoMath.haversineMeters(latitudes[i], longitudes[i], latitudes[j], longitudes[j]);
+                    assertEquals(scalar[i * size + j], meters[i * size + j], 1e-6, "vector and scalar rows");
+                    assertEquals(expected, meters[i * size + j], 0.01, "great-circle meters");
+                }
+            }
+        }
+    }
+}
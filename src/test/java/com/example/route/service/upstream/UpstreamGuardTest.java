@@ -0,0 +1,76 @@
+package com.example.route.service.upstream;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Calls that never complete: the guard has to give their bulkhead slot back, cancel them and count them
+ * as failures, or a hung upstream would drain the bulkhead and strand a half-open circuit.
+ */
+class UpstreamGuardTest {
+
+    private static final long TIMEOUT_MS = 100;
+
+    @Test
+    void hungCallIsCancelledAndFreesItsSlot() throws Exception {
+        UpstreamGuard guard = guard(1, 100);
+        CompletableFuture<String> hung = new CompletableFuture<>();
+
+        CompletableFuture<String> first = guard.call(() -> hung);
+        ExecutionException error = assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, error.getCause());
+        assertTrue(hung.isCancelled());
+        assertEquals(1, guard.getAvailableConcurrency());
+
+        // The only slot is free again, and a late answer from the abandoned call changes nothing
+        assertEquals("ok", guard.call(() -> CompletableFuture.completedFuture("ok")).get(5, TimeUnit.SECONDS));
+        assertFalse(hung.complete("late"));
+        assertEquals(1, guard.getAvailableConcurrency());
+    }
+
+    @Test
+    void queuedCallRunsWhenTheHungCallTimesOut() throws Exception {
+        UpstreamGuard guard = guard(1, 100);
+        CompletableFuture<String> hung = guard.call(CompletableFuture::new);
+        CompletableFuture<String> queued = guard.call(() -> CompletableFuture.completedFuture("ok"));
+
+        assertEquals("ok", queued.get(5, TimeUnit.SECONDS));
+        assertThrows(ExecutionException.class, () -> hung.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void hungHalfOpenProbeReopensTheCircuit() throws Exception {
+        UpstreamGuard guard = guard(4, 300);
+        for (int i = 0; i < 2; i++) {
+            CompletableFuture<String> failing = guard.call(() -> CompletableFuture.failedFuture(new IOException("down")));
+            assertThrows(ExecutionException.class, () -> failing.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(CircuitBreaker.State.OPEN, guard.getCircuitState());
+
+        Thread.sleep(350);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, guard.getCircuitState());
+        CompletableFuture<String> probe = guard.call(CompletableFuture::new);
+        assertThrows(ExecutionException.class, () -> probe.get(5, TimeUnit.SECONDS));
+
+        assertEquals(CircuitBreaker.State.OPEN, guard.getCircuitState());
+        assertEquals(2, guard.getCircuitOpenings());
+        assertEquals(4, guard.getAvailableConcurrency());
+    }
+
+    // Opens after 2 failures in a window of 2; a single probe decides whether it closes again
+    private static UpstreamGuard guard(int maxConcurrent, long openMs) {
+        return new UpstreamGuard(true, TIMEOUT_MS, 10_000, maxConcurrent, 10, 5000, 1000, 1, 1,
+                2, 2, 0.5, openMs, 1, Runnable::run);
+    }
+}